@@ -0,0 +1,198 @@
+package png.manager.awt;
+
+import java.awt.Point;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+
+import png.manager.entity.RawImage;
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Converte le immagini prodotte dal decoder personale in immagini di AWT.
+ * <p>
+ * Quando possibile la conversione non copia i campioni: il raster condivide
+ * l'array dell'immagine in input.
+ */
+public class RawImageAdapter {
+
+    /**
+     * Costruttore privato della classe.
+     */
+    private RawImageAdapter() {
+    }
+
+    /**
+     * Genera l'immagine da visualizzare a partire dai campioni decodificati.
+     *
+     * @param image campioni decodificati
+     * @return immagine pronta per la visualizzazione
+     */
+    public static BufferedImage toBufferedImage(RawImage image) {
+        if (image.isIndexed()) {
+            return buildPackedImage(image, generatePaletteColorModel(image));
+        }
+
+        if (image.getBitDepth() < 8) {
+            return buildPackedImage(image, generateGreyscaleColorModel(image.getBitDepth()));
+        }
+
+        return buildComponentImage(image);
+    }
+
+    /**
+     * Genera l'immagine da visualizzare a partire da un gruppo di righe
+     * consecutive dei campioni decodificati. Le righe vengono copiate.
+     *
+     * @param image campioni decodificati
+     * @param firstRow indice della prima riga da convertire
+     * @param rows numero di righe da convertire
+     * @return immagine delle righe, pronta per la visualizzazione
+     */
+    public static BufferedImage toBufferedImage(RawImage image, int firstRow, int rows) {
+        int rowBytes = image.getRowBytes();
+        byte[] data = new byte[rowBytes * rows];
+        for (int r = 0; r < rows; r++) {
+            image.getPixels().getRow(firstRow + r, data, r * rowBytes);
+        }
+        return toBufferedImage(new RawImage(image.getWidth(), rows, image.getColorType(), image.getBitDepth(), ByteBuffer.wrap(data), image.getPalette()));
+    }
+
+    /**
+     * Converte un'immagine di AWT in campioni RGBA a 8 bit.
+     *
+     * @param image immagine da convertire
+     * @return campioni dell'immagine
+     */
+    public static RawImage fromBufferedImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] data = new byte[width * height * 4];
+        int[] row = new int[width];
+        int index = 0;
+
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int argb = row[x];
+                data[index++] = (byte) (argb >> 16);
+                data[index++] = (byte) (argb >> 8);
+                data[index++] = (byte) argb;
+                data[index++] = (byte) (argb >>> 24);
+            }
+        }
+
+        return new RawImage(width, height, PNGConstants.COLOR_TYPE_RGB_ALPHA, 8, ByteBuffer.wrap(data), null);
+    }
+
+    /**
+     * Genera il modello di colori per le immagini con tavolozza.
+     *
+     * @param image immagine per cui generare il modello
+     * @return modello per l'immagine
+     */
+    private static IndexColorModel generatePaletteColorModel(RawImage image) {
+        byte[] paletteData = image.getPalette();
+        int paletteLength = paletteData.length / 3;
+        return new IndexColorModel(image.getBitDepth(), paletteLength, paletteData, 0, false);
+    }
+
+    /**
+     * Genera il modello di colori per le immagini grayscale con profondità
+     * inferiore a 8 bit.
+     *
+     * @param bitDepth profondità di bit dell'immagine
+     * @return modello per l'immagine
+     */
+    private static IndexColorModel generateGreyscaleColorModel(int bitDepth) {
+        int levels = 1 << bitDepth;
+        byte[] grey = new byte[levels];
+        for (int i = 0; i < levels; i++) {
+            grey[i] = (byte) (i * 255 / (levels - 1));
+        }
+        return new IndexColorModel(bitDepth, levels, grey, grey, grey);
+    }
+
+    /**
+     * Genera un'immagine con pixel impaccati, uno o più per byte.
+     *
+     * @param image campioni decodificati
+     * @param cm modello di colori dell'immagine
+     * @return immagine pronta per la visualizzazione
+     */
+    private static BufferedImage buildPackedImage(RawImage image, IndexColorModel cm) {
+        byte[] data = toByteArray(image);
+        DataBuffer db = new DataBufferByte(data, data.length);
+        WritableRaster raster = Raster.createPackedRaster(db, image.getWidth(), image.getHeight(), image.getBitDepth(), null);
+        return new BufferedImage(cm, raster, false, null);
+    }
+
+    /**
+     * Genera un'immagine con un campione per componente, a 8 o 16 bit.
+     *
+     * @param image campioni decodificati
+     * @return immagine pronta per la visualizzazione
+     */
+    private static BufferedImage buildComponentImage(RawImage image) {
+        int channels = image.getChannels();
+        boolean hasAlpha = image.getColorType() == PNGConstants.COLOR_TYPE_GRAYSCALE_ALPHA
+                || image.getColorType() == PNGConstants.COLOR_TYPE_RGB_ALPHA;
+        boolean grey = image.getColorType() == PNGConstants.COLOR_TYPE_GRAYSCALE
+                || image.getColorType() == PNGConstants.COLOR_TYPE_GRAYSCALE_ALPHA;
+        ColorSpace cs = ColorSpace.getInstance(grey ? ColorSpace.CS_GRAY : ColorSpace.CS_sRGB);
+
+        int[] bandOffsets = new int[channels];
+        for (int i = 0; i < channels; i++) {
+            bandOffsets[i] = i;
+        }
+
+        DataBuffer db;
+        int scanlineStride;
+        int transferType;
+        if (image.getBitDepth() == 16) {
+            ByteBuffer data = image.getData();
+            short[] samples = new short[image.getRowBytes() / 2 * image.getHeight()];
+            data.asShortBuffer().get(samples);
+            db = new DataBufferUShort(samples, samples.length);
+            scanlineStride = image.getRowBytes() / 2;
+            transferType = DataBuffer.TYPE_USHORT;
+        } else {
+            byte[] data = toByteArray(image);
+            db = new DataBufferByte(data, data.length);
+            scanlineStride = image.getRowBytes();
+            transferType = DataBuffer.TYPE_BYTE;
+        }
+
+        ColorModel cm = new ComponentColorModel(cs, hasAlpha, false, hasAlpha ? Transparency.TRANSLUCENT : Transparency.OPAQUE, transferType);
+        WritableRaster raster = Raster.createInterleavedRaster(db, image.getWidth(), image.getHeight(), scanlineStride, channels, bandOffsets, new Point(0, 0));
+        return new BufferedImage(cm, raster, false, null);
+    }
+
+    /**
+     * Ritorna i campioni dell'immagine come array, evitando la copia quando
+     * possibile.
+     *
+     * @param image campioni decodificati
+     * @return array dei campioni
+     */
+    private static byte[] toByteArray(RawImage image) {
+        ByteBuffer data = image.getData();
+        int length = image.getRowBytes() * image.getHeight();
+        if (data.hasArray() && data.arrayOffset() + data.position() == 0) {
+            return data.array();
+        }
+
+        byte[] copy = new byte[length];
+        data.get(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,452 @@
+package png.manager.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import png.manager.batch.BatchJob;
+import png.manager.batch.MemoryBudget;
+import png.manager.batch.PipelineListener;
+import png.manager.batch.PipelineStage;
+import png.manager.batch.StageStatistics;
+import png.manager.batch.StagedPipeline;
+import png.manager.decoder.Decoder;
+import png.manager.exception.ChunkParserException;
+import png.manager.exception.DecodingException;
+import png.manager.exception.PNGStructureException;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Esegue un'operazione su un insieme di file e di cartelle, elaborando i file
+ * in parallelo.
+ * <p>
+ * Le cartelle vengono visitate ricorsivamente e i file vengono riconosciuti
+ * come immagini PNG dalla firma iniziale, indipendentemente dall'estensione.
+ * Il risultato di ciascun file viene scritto su una riga appena disponibile,
+ * nella forma <code>percorso TAB esito TAB dettaglio</code>. Il numero di file
+ * in attesa di elaborazione è limitato, così che la visita di cartelle con
+ * moltissimi file non accumuli in memoria l'intero elenco.
+ * <p>
+ * Per impostazione predefinita ciascun thread esegue tutti i passi
+ * dell'operazione su un file. In alternativa i passi possono essere eseguiti
+ * da una {@link StagedPipeline}, con un numero di thread distinto per la
+ * lettura, il controllo, la decodifica e il completamento.
+ * <p>
+ * Le decodifiche vengono ammesse entro un {@link MemoryBudget}, in base alla
+ * memoria stimata dal chunk IHDR di ciascuna immagine: la memoria viene
+ * richiesta prima della decodifica e restituita al termine dell'elaborazione
+ * del file, così che il numero di thread possa essere elevato senza esaurire
+ * la memoria con le immagini più grandi.
+ */
+public class BatchRunner {
+
+    /**
+     * Esito di un file elaborato con successo.
+     */
+    public static final String OK = "OK";
+    /**
+     * Esito di un file la cui elaborazione è fallita.
+     */
+    public static final String ERROR = "ERRORE";
+    /**
+     * Numero di fasi della pipeline: lettura, controllo, decodifica e
+     * completamento.
+     */
+    public static final int STAGES = 4;
+
+    /**
+     * Numero di file in attesa per ciascun thread.
+     */
+    private static final int QUEUED_PER_THREAD = 4;
+
+    /**
+     * Operazione da eseguire.
+     */
+    private final Operation operation;
+    /**
+     * Numero di thread di elaborazione.
+     */
+    private final int threads;
+    /**
+     * Numero di thread di ciascuna fase della pipeline; null se ogni thread
+     * esegue tutti i passi.
+     */
+    private final int[] stageThreads;
+    /**
+     * Budget di memoria delle decodifiche; null se le decodifiche non sono
+     * limitate.
+     */
+    private final MemoryBudget budget;
+    /**
+     * Esecutore dell'operazione sui singoli file, che ne scrive l'esito.
+     */
+    private final FileProcessor processor;
+    /**
+     * Thread di elaborazione; null se si usa la pipeline.
+     */
+    private ExecutorService executor = null;
+    /**
+     * Permessi dei file in attesa; null se si usa la pipeline.
+     */
+    private Semaphore queued = null;
+    /**
+     * Pipeline di elaborazione; null se ogni thread esegue tutti i passi.
+     */
+    private StagedPipeline pipeline = null;
+
+    /**
+     * Costruisce l'esecutore, in cui ogni thread esegue tutti i passi
+     * dell'operazione.
+     *
+     * @param operation operazione da eseguire
+     * @param threads numero di thread di elaborazione
+     * @param outputDirectory cartella in cui scrivere i risultati; null se
+     * l'operazione non scrive file
+     * @param out stream su cui scrivere l'esito di ciascun file
+     */
+    public BatchRunner(Operation operation, int threads, Path outputDirectory, PrintStream out) {
+        this(operation, threads, null, outputDirectory, out);
+    }
+
+    /**
+     * Costruisce l'esecutore.
+     *
+     * @param operation operazione da eseguire
+     * @param threads numero di thread di elaborazione, se non si usa la
+     * pipeline
+     * @param stageThreads numero di thread di ciascuna delle {@link #STAGES}
+     * fasi della pipeline; null per non usare la pipeline
+     * @param outputDirectory cartella in cui scrivere i risultati; null se
+     * l'operazione non scrive file
+     * @param out stream su cui scrivere l'esito di ciascun file
+     */
+    public BatchRunner(Operation operation, int threads, int[] stageThreads, Path outputDirectory, PrintStream out) {
+        this(operation, threads, stageThreads, outputDirectory, new MemoryBudget(), out);
+    }
+
+    /**
+     * Costruisce l'esecutore, con un budget di memoria per le decodifiche.
+     *
+     * @param operation operazione da eseguire
+     * @param threads numero di thread di elaborazione, se non si usa la
+     * pipeline
+     * @param stageThreads numero di thread di ciascuna delle {@link #STAGES}
+     * fasi della pipeline; null per non usare la pipeline
+     * @param outputDirectory cartella in cui scrivere i risultati; null se
+     * l'operazione non scrive file
+     * @param budget budget di memoria delle decodifiche; null per non limitare
+     * le decodifiche
+     * @param out stream su cui scrivere l'esito di ciascun file
+     */
+    public BatchRunner(Operation operation, int threads, int[] stageThreads, Path outputDirectory, MemoryBudget budget, PrintStream out) {
+        this.operation = operation;
+        this.threads = threads;
+        this.stageThreads = stageThreads != null ? stageThreads.clone() : null;
+        this.budget = budget;
+        this.processor = new FileProcessor(operation, outputDirectory, budget, out);
+    }
+
+    /**
+     * Elabora i file e le cartelle in input, attendendo il termine di tutte le
+     * elaborazioni.
+     * <p>
+     * I file indicati esplicitamente che non sono immagini PNG vengono
+     * segnalati come errori; quelli trovati visitando le cartelle vengono
+     * ignorati.
+     *
+     * @param inputs file e cartelle da elaborare
+     * @throws InterruptedException - se l'elaborazione viene interrotta
+     */
+    public void run(List<Path> inputs) throws InterruptedException {
+        if (stageThreads == null) {
+            startExecutor();
+        } else {
+            startPipeline();
+        }
+
+        boolean completed = false;
+        try {
+            for (Path input : inputs) {
+                if (Files.isDirectory(input)) {
+                    walk(input);
+                } else {
+                    dispatch(input, input.getFileName(), true);
+                }
+            }
+
+            if (pipeline != null) {
+                pipeline.finish();
+            } else {
+                executor.shutdown();
+                while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    //Attende il termine delle elaborazioni in corso
+                }
+            }
+            completed = true;
+        } finally {
+            if (pipeline != null && !completed) {
+                pipeline.abort();
+            }
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Ritorna il numero di file elaborati con successo.
+     *
+     * @return numero di file
+     */
+    public int getSucceeded() {
+        return processor.getSucceeded();
+    }
+
+    /**
+     * Ritorna il numero di file la cui elaborazione è fallita.
+     *
+     * @return numero di file
+     */
+    public int getFailed() {
+        return processor.getFailed();
+    }
+
+    /**
+     * Ritorna le statistiche delle fasi della pipeline.
+     *
+     * @return statistiche di ciascuna fase; vuota se non si usa la pipeline
+     */
+    public List<StageStatistics> getStatistics() {
+        if (pipeline == null) {
+            return new ArrayList<>();
+        }
+        return pipeline.getStatistics();
+    }
+
+    /**
+     * Ritorna il budget di memoria delle decodifiche.
+     *
+     * @return budget di memoria; null se le decodifiche non sono limitate
+     */
+    public MemoryBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Crea i thread che eseguono tutti i passi dell'operazione.
+     */
+    private void startExecutor() {
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "batch-worker-" + count.incrementAndGet());
+            }
+        });
+        queued = new Semaphore(threads * QUEUED_PER_THREAD);
+    }
+
+    /**
+     * Crea e avvia la pipeline, con una fase per ciascun passo necessario
+     * all'operazione.
+     */
+    private void startPipeline() {
+        pipeline = new StagedPipeline(new PipelineListener() {
+            @Override
+            public void jobCompleted(BatchJob job) {
+                Target target = (Target) job.getAttachment();
+                if (target.memory > 0) {
+                    budget.release(target.memory);
+                }
+                if (job.isFailed()) {
+                    processor.report(job.getFile(), ERROR, job.getError());
+                } else if (target.skipped) {
+                    if (target.explicit) {
+                        processor.report(job.getFile(), ERROR, "Il file non e' un'immagine PNG.");
+                    }
+                } else {
+                    processor.report(job.getFile(), OK, job.getResult());
+                }
+            }
+        });
+
+        pipeline.addStage("lettura", stageThreads[0], stageThreads[0] * QUEUED_PER_THREAD, new PipelineStage() {
+            @Override
+            public void process(BatchJob job) throws ChunkParserException, IOException {
+                if (!Utility.hasPNGSignature(job.getFile())) {
+                    ((Target) job.getAttachment()).skipped = true;
+                    job.complete();
+                    return;
+                }
+                job.setImage(operation.read(job.getFile()));
+            }
+        });
+        if (operation.readsImageData()) {
+            pipeline.addStage("controllo", stageThreads[1], stageThreads[1] * QUEUED_PER_THREAD, new PipelineStage() {
+                @Override
+                public void process(BatchJob job) throws PNGStructureException {
+                    Decoder.checkImage(job.getImage());
+                }
+            });
+        }
+        if (operation.decodes()) {
+            pipeline.addStage("decodifica", stageThreads[2], stageThreads[2] * QUEUED_PER_THREAD, new PipelineStage() {
+                @Override
+                public void process(BatchJob job) throws PNGStructureException, DecodingException {
+                    if (budget != null) {
+                        try {
+                            //Restituita al termine del file, dopo il completamento
+                            ((Target) job.getAttachment()).memory = budget.acquire(operation.estimateMemory(job.getImage()));
+                        } catch (InterruptedException e) {
+                            System.err.println(e.getMessage());
+                            Thread.currentThread().interrupt();
+                            throw new DecodingException("Decodifica annullata.");
+                        }
+                    }
+                    job.setRawImage(Decoder.getRawImage(job.getImage()));
+                }
+            });
+        }
+        pipeline.addStage("completamento", stageThreads[3], stageThreads[3] * QUEUED_PER_THREAD, new PipelineStage() {
+            @Override
+            public void process(BatchJob job) throws PNGStructureException, DecodingException, IOException {
+                Path output = processor.getOutput(((Target) job.getAttachment()).relative);
+                job.setResult(operation.complete(job.getImage(), job.getRawImage(), output));
+            }
+        });
+        pipeline.start();
+    }
+
+    /**
+     * Visita ricorsivamente una cartella, accodando ciascun file trovato.
+     *
+     * @param root cartella da visitare
+     * @throws InterruptedException - se l'attesa di spazio nella coda viene
+     * interrotta
+     */
+    private void walk(final Path root) throws InterruptedException {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile()) {
+                        try {
+                            dispatch(file, root.relativize(file), false);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return FileVisitResult.TERMINATE;
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    processor.report(file, ERROR, e.toString());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            processor.report(root, ERROR, e.toString());
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Accoda l'elaborazione di un file, attendendo se troppi file sono già in
+     * attesa.
+     *
+     * @param file file da elaborare
+     * @param relative percorso del file relativo alla cartella visitata, usato
+     * per il file di destinazione
+     * @param explicit <code>true</code> se il file è stato indicato
+     * esplicitamente
+     * @throws InterruptedException - se l'attesa viene interrotta
+     */
+    private void dispatch(final Path file, final Path relative, final boolean explicit) throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.submit(new BatchJob(file, new Target(relative, explicit)));
+            return;
+        }
+
+        queued.acquire();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    process(file, relative, explicit);
+                } finally {
+                    queued.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Elabora un file, eseguendo tutti i passi dell'operazione, e ne scrive
+     * l'esito.
+     *
+     * @param file file da elaborare
+     * @param relative percorso del file relativo alla cartella visitata
+     * @param explicit <code>true</code> se il file è stato indicato
+     * esplicitamente
+     */
+    private void process(Path file, Path relative, boolean explicit) {
+        FileProcessor.Outcome outcome = processor.process(file, relative);
+        if (outcome != null) {
+            processor.report(file, outcome);
+        } else if (explicit) {
+            processor.report(file, ERROR, "Il file non e' un'immagine PNG.");
+        }
+    }
+
+    /**
+     * Dati associati a un file elaborato dalla pipeline.
+     */
+    private static class Target {
+
+        /**
+         * Percorso del file relativo alla cartella visitata.
+         */
+        private final Path relative;
+        /**
+         * Indica se il file è stato indicato esplicitamente.
+         */
+        private final boolean explicit;
+        /**
+         * Indica se il file è stato scartato perché non è un'immagine PNG.
+         */
+        private boolean skipped = false;
+        /**
+         * Memoria assegnata dal budget alla decodifica del file, in byte.
+         */
+        private long memory = 0;
+
+        /**
+         * Costruisce l'oggetto.
+         *
+         * @param relative percorso del file relativo alla cartella visitata
+         * @param explicit <code>true</code> se il file è stato indicato
+         * esplicitamente
+         */
+        Target(Path relative, boolean explicit) {
+            this.relative = relative;
+            this.explicit = explicit;
+        }
+    }
+}
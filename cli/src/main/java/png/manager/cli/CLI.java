@@ -0,0 +1,188 @@
+package png.manager.cli;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+import png.manager.batch.MemoryBudget;
+import png.manager.batch.StageStatistics;
+
+/**
+ * Punto di ingresso a riga di comando, utilizzabile senza interfaccia
+ * grafica.
+ * <p>
+ * Sintassi: <code>operazione [-j thread] [-o cartella] file...</code>, dove
+ * l'operazione è una tra <code>validate</code>, <code>inspect</code>,
+ * <code>strip</code> e <code>convert</code>. Le ultime due richiedono la
+ * cartella di destinazione. Con <code>-s l,c,d,w</code> i file vengono
+ * elaborati da una pipeline con il numero di thread indicato per ciascuna
+ * fase, le cui statistiche vengono stampate al termine. Con <code>-m MB</code>
+ * si indica la memoria entro cui vengono ammesse le decodifiche concorrenti,
+ * per impostazione predefinita metà della memoria massima. L'operazione
+ * <code>check</code> controlla solo la struttura dei file con
+ * {@link CheckCommand}, <code>filter</code> elabora l'immagine letta dallo
+ * standard input con {@link FilterCommand}, <code>watch</code> elabora i
+ * file che compaiono nelle cartelle osservate con {@link WatchCommand} e
+ * <code>serve</code> avvia il servizio HTTP di {@link ServeCommand}. Il programma termina con codice 0 se tutti i file
+ * sono stati elaborati con successo, 1 se almeno uno è fallito e 2 se gli
+ * argomenti non sono validi.
+ */
+public class CLI {
+
+    /**
+     * Codice di uscita in caso di argomenti non validi.
+     */
+    private static final int USAGE_EXIT_CODE = 2;
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private CLI() {
+    }
+
+    /**
+     * Avvia l'elaborazione descritta dagli argomenti.
+     *
+     * @param args argomenti della riga di comando
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            usage(null);
+        }
+        if (args[0].equalsIgnoreCase(FilterCommand.NAME)) {
+            System.exit(FilterCommand.run(args));
+        }
+        if (args[0].equalsIgnoreCase(WatchCommand.NAME)) {
+            System.exit(WatchCommand.run(args));
+        }
+        if (args[0].equalsIgnoreCase(ServeCommand.NAME)) {
+            if (!ServeCommand.run(args)) {
+                System.exit(1);
+            }
+            return;
+        }
+        if (args.length < 2) {
+            usage(null);
+        }
+        if (args[0].equalsIgnoreCase(CheckCommand.NAME)) {
+            System.exit(CheckCommand.run(args));
+        }
+
+        Operation operation = null;
+        for (Operation o : Operation.values()) {
+            if (o.name().equalsIgnoreCase(args[0])) {
+                operation = o;
+            }
+        }
+        if (operation == null) {
+            usage("Operazione sconosciuta: " + args[0]);
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        int[] stageThreads = null;
+        Path outputDirectory = null;
+        MemoryBudget budget = null;
+        ArrayList<Path> inputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if ((args[i].equals("-j") || args[i].equals("-o") || args[i].equals("-s") || args[i].equals("-m")) && i + 1 == args.length) {
+                usage("Valore mancante per l'opzione " + args[i]);
+            }
+            if (args[i].equals("-j")) {
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    threads = 0;
+                }
+                if (threads < 1) {
+                    usage("Numero di thread non valido: " + args[i]);
+                }
+            } else if (args[i].equals("-m")) {
+                long megabytes;
+                try {
+                    megabytes = Long.parseLong(args[++i]);
+                } catch (NumberFormatException e) {
+                    megabytes = 0;
+                }
+                if (megabytes < 1) {
+                    usage("Memoria non valida: " + args[i]);
+                }
+                budget = new MemoryBudget(megabytes * 1024 * 1024);
+            } else if (args[i].equals("-s")) {
+                stageThreads = parseStageThreads(args[++i]);
+            } else if (args[i].equals("-o")) {
+                outputDirectory = Paths.get(args[++i]);
+            } else {
+                inputs.add(Paths.get(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            usage("Nessun file da elaborare.");
+        }
+        if (operation.writesOutput() && outputDirectory == null) {
+            usage("L'operazione " + args[0] + " richiede la cartella di destinazione (-o).");
+        }
+
+        if (budget == null) {
+            budget = new MemoryBudget();
+        }
+        BatchRunner runner = new BatchRunner(operation, threads, stageThreads, operation.writesOutput() ? outputDirectory : null, budget, System.out);
+        try {
+            runner.run(inputs);
+        } catch (InterruptedException e) {
+            System.err.println("Elaborazione interrotta.");
+        }
+        System.out.flush();
+        for (StageStatistics stats : runner.getStatistics()) {
+            System.err.println(stats);
+        }
+        if (operation.decodes()) {
+            System.err.println("Memoria: " + budget + ".");
+        }
+        System.err.println("Elaborati: " + runner.getSucceeded() + "; falliti: " + runner.getFailed() + ".");
+        System.exit(runner.getFailed() == 0 ? 0 : 1);
+    }
+
+    /**
+     * Interpreta il numero di thread di ciascuna fase della pipeline.
+     *
+     * @param value numeri di thread di lettura, controllo, decodifica e
+     * completamento, separati da virgole
+     * @return numero di thread di ciascuna fase
+     */
+    private static int[] parseStageThreads(String value) {
+        String[] parts = value.split(",");
+        if (parts.length != BatchRunner.STAGES) {
+            usage("Indicare il numero di thread di " + BatchRunner.STAGES + " fasi: " + value);
+        }
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                result[i] = Integer.parseInt(parts[i].trim());
+            } catch (NumberFormatException e) {
+                result[i] = 0;
+            }
+            if (result[i] < 1) {
+                usage("Numero di thread non valido: " + parts[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stampa la sintassi del comando e termina il programma.
+     *
+     * @param error messaggio d'errore da stampare prima della sintassi; null
+     * se assente
+     */
+    static void usage(String error) {
+        if (error != null) {
+            System.err.println(error);
+        }
+        System.err.println("Uso: validate|inspect|strip|convert [-j thread | -s lettura,controllo,decodifica,completamento] [-m memoria_MB] [-o cartella] file_o_cartella...");
+        System.err.println("     check [-j file_aperti] [-m memoria_MB] file_o_cartella...");
+        System.err.println("     filter validate|strip|repair|rechunk [-n dimensione_IDAT] < immagine > risultato");
+        System.err.println("     watch validate|inspect|strip|convert [-j thread] [-m memoria_MB] [-o cartella] [-q quiete_ms] [-f file_stato] cartella...");
+        System.err.println("     serve [-a indirizzo] [-p porta] [-c richieste] [-m memoria_MB]");
+        System.exit(USAGE_EXIT_CODE);
+    }
+}
@@ -0,0 +1,118 @@
+package png.manager.cli;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+
+import png.manager.batch.ValidationEngine;
+import png.manager.batch.ValidationListener;
+import png.manager.batch.ValidationReport;
+import png.manager.batch.ValidationResult;
+import png.manager.batch.ValidationStatus;
+
+/**
+ * Operazione <code>check</code>: valida la struttura dei file con un
+ * {@link ValidationEngine}, senza decodificarne i pixel.
+ * <p>
+ * Sintassi: <code>check [-j file_aperti] [-m memoria_MB] file...</code>. Viene
+ * scritta una riga per ciascun file PNG appena controllato; i file che non
+ * sono immagini PNG vengono solo conteggiati nel riepilogo.
+ */
+class CheckCommand {
+
+    /**
+     * Nome dell'operazione.
+     */
+    static final String NAME = "check";
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private CheckCommand() {
+    }
+
+    /**
+     * Esegue l'operazione descritta dagli argomenti.
+     *
+     * @param args argomenti della riga di comando, a partire dal nome
+     * dell'operazione
+     * @return codice di uscita: 0 se tutti i file PNG sono validi, 1
+     * altrimenti
+     */
+    static int run(String[] args) {
+        int maxOpenFiles = ValidationEngine.DEFAULT_MAX_OPEN_FILES;
+        long memoryBudget = ValidationEngine.DEFAULT_MEMORY_BUDGET;
+        ArrayList<Path> inputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if ((args[i].equals("-j") || args[i].equals("-m")) && i + 1 == args.length) {
+                CLI.usage("Valore mancante per l'opzione " + args[i]);
+            }
+            try {
+                if (args[i].equals("-j")) {
+                    maxOpenFiles = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-m")) {
+                    memoryBudget = Long.parseLong(args[++i]) * 1024 * 1024;
+                } else {
+                    inputs.add(Paths.get(args[i]));
+                }
+            } catch (NumberFormatException e) {
+                CLI.usage("Valore non valido per l'opzione " + args[i - 1] + ": " + args[i]);
+            }
+        }
+        if (maxOpenFiles < 1 || memoryBudget < 1) {
+            CLI.usage("Limiti non validi.");
+        }
+        if (inputs.isEmpty()) {
+            CLI.usage("Nessun file da elaborare.");
+        }
+
+        final ValidationEngine engine = new ValidationEngine(maxOpenFiles, memoryBudget, new ValidationListener() {
+            @Override
+            public void fileValidated(ValidationResult result) {
+                if (result.getStatus() != ValidationStatus.NOT_PNG) {
+                    System.out.println(result);
+                }
+            }
+        });
+        try {
+            for (Path input : inputs) {
+                Files.walkFileTree(input, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        if (attrs.isRegularFile()) {
+                            try {
+                                engine.submit(file);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                return FileVisitResult.TERMINATE;
+                            }
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        System.err.println(e.getMessage());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+            engine.finish();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        } catch (InterruptedException e) {
+            System.err.println("Elaborazione interrotta.");
+        }
+
+        System.out.flush();
+        ValidationReport report = engine.getReport();
+        System.err.println(report);
+        long valid = report.getCount(ValidationStatus.VALID) + report.getCount(ValidationStatus.NOT_PNG);
+        return valid == report.getTotal() ? 0 : 1;
+    }
+}
@@ -0,0 +1,563 @@
+package png.manager.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import png.manager.batch.MemoryBudget;
+import png.manager.batch.ProcessedState;
+import png.manager.service.LatencyHistogram;
+
+/**
+ * Osserva un insieme di cartelle ed esegue un'operazione su ciascun file
+ * creato o modificato, appena la sua scrittura è terminata.
+ * <p>
+ * Le cartelle vengono osservate ricorsivamente con un {@link WatchService},
+ * comprese quelle create durante l'osservazione. All'avvio vengono elaborati
+ * anche i file già presenti. Un file viene considerato completo quando non
+ * riceve eventi per il periodo di quiete indicato e la sua dimensione e la
+ * data di ultima modifica non sono cambiate nel frattempo; i file ancora in
+ * scrittura vengono quindi elaborati una sola volta, al termine.
+ * <p>
+ * I file vengono elaborati in parallelo come in {@link BatchRunner}, con le
+ * decodifiche ammesse entro un {@link MemoryBudget}, e l'esito di ciascun file
+ * viene scritto su una riga nello stesso formato. I file elaborati vengono
+ * registrati in un {@link ProcessedState}, così che dopo un riavvio vengano
+ * elaborati solo i file nuovi o modificati. Per ciascun file viene misurata la
+ * latenza dal primo evento ricevuto al termine dell'elaborazione.
+ */
+public class DirectoryWatcher {
+
+    /**
+     * Periodo di quiete predefinito dopo l'ultimo evento di un file, in
+     * millisecondi.
+     */
+    public static final long DEFAULT_QUIET_PERIOD = 200;
+
+    /**
+     * Attesa minima tra due controlli dei file in attesa, in millisecondi.
+     */
+    private static final long MIN_POLL_DELAY = 10;
+    /**
+     * Attesa massima di un posto in coda a ogni controllo dei file in attesa,
+     * in millisecondi.
+     */
+    private static final long QUEUE_WAIT = 10;
+    /**
+     * Numero di file in elaborazione o in coda per ciascun thread.
+     */
+    private static final int QUEUED_PER_THREAD = 4;
+    /**
+     * Secondi concessi alle elaborazioni in corso alla terminazione.
+     */
+    private static final int STOP_DELAY = 10;
+
+    /**
+     * Cartella in cui scrivere i risultati; null se l'operazione non scrive
+     * file.
+     */
+    private final Path outputDirectory;
+    /**
+     * Esecutore dell'operazione sui singoli file, che ne scrive l'esito.
+     */
+    private final FileProcessor processor;
+    /**
+     * Stato dei file già elaborati.
+     */
+    private final ProcessedState state;
+    /**
+     * Periodo di quiete dopo l'ultimo evento di un file, in nanosecondi.
+     */
+    private final long quietPeriod;
+    /**
+     * Servizio che notifica le modifiche delle cartelle.
+     */
+    private final WatchService watcher;
+    /**
+     * Thread di elaborazione.
+     */
+    private final ExecutorService executor;
+    /**
+     * Permessi dei file in elaborazione o in coda.
+     */
+    private final Semaphore queued;
+    /**
+     * Cartelle osservate, indicizzate per chiave di registrazione. Il valore
+     * contiene la cartella e la radice osservata che la contiene.
+     */
+    private final Map<WatchKey, Path[]> directories = new HashMap<>();
+    /**
+     * Radici osservate, come percorsi assoluti.
+     */
+    private final List<Path> roots = new ArrayList<>();
+    /**
+     * File in attesa del termine della scrittura, in ordine di ultimo evento.
+     * Usata solo dal thread di osservazione.
+     */
+    private final Map<Path, Pending> pending = new LinkedHashMap<>();
+    /**
+     * File in elaborazione o in coda.
+     */
+    private final Set<Path> running = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+    /**
+     * Latenze dal primo evento al termine dell'elaborazione.
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+    /**
+     * Indica se l'osservazione è stata terminata.
+     */
+    private volatile boolean stopped = false;
+
+    /**
+     * Costruisce l'osservatore.
+     *
+     * @param operation operazione da eseguire
+     * @param threads numero di thread di elaborazione
+     * @param outputDirectory cartella in cui scrivere i risultati; null se
+     * l'operazione non scrive file. Le modifiche al suo interno vengono
+     * ignorate
+     * @param budget budget di memoria delle decodifiche; null se le
+     * decodifiche non sono limitate
+     * @param state stato dei file già elaborati
+     * @param quietPeriod periodo di quiete dopo l'ultimo evento di un file, in
+     * millisecondi
+     * @param out stream su cui scrivere l'esito di ciascun file
+     * @throws IOException - se il servizio di osservazione non può essere
+     * creato
+     */
+    public DirectoryWatcher(Operation operation, int threads, Path outputDirectory, MemoryBudget budget, ProcessedState state, long quietPeriod,
+            PrintStream out) throws IOException {
+        this.outputDirectory = outputDirectory != null ? outputDirectory.toAbsolutePath().normalize() : null;
+        this.processor = new FileProcessor(operation, this.outputDirectory, budget, out);
+        this.state = state;
+        this.quietPeriod = TimeUnit.MILLISECONDS.toNanos(quietPeriod);
+        this.watcher = FileSystems.getDefault().newWatchService();
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "watch-worker-" + count.incrementAndGet());
+            }
+        });
+        this.queued = new Semaphore(threads * QUEUED_PER_THREAD);
+    }
+
+    /**
+     * Osserva le cartelle indicate fino alla chiamata di {@link #stop()}.
+     *
+     * @param inputs cartelle da osservare
+     * @throws IOException - se una cartella non può essere osservata
+     * @throws InterruptedException - se l'osservazione viene interrotta
+     */
+    public void run(List<Path> inputs) throws IOException, InterruptedException {
+        try {
+            for (Path input : inputs) {
+                Path root = input.toAbsolutePath().normalize();
+                roots.add(root);
+                register(root, root);
+            }
+
+            boolean queueFull = false;
+            while (!stopped) {
+                WatchKey key;
+                if (queueFull) {
+                    //Dei file sono pronti: l'attesa avviene sulla coda
+                    key = watcher.poll();
+                } else if (pending.isEmpty()) {
+                    key = watcher.take();
+                } else {
+                    key = watcher.poll(getPollDelay(), TimeUnit.NANOSECONDS);
+                }
+                while (key != null) {
+                    //Gestisce tutti gli eventi disponibili prima di controllare i file
+                    handle(key);
+                    key = watcher.poll();
+                }
+                queueFull = checkPending();
+            }
+        } catch (ClosedWatchServiceException e) {
+            //Osservazione terminata da stop()
+        }
+    }
+
+    /**
+     * Termina l'osservazione e attende il termine delle elaborazioni in
+     * corso. I file in attesa vengono elaborati al prossimo avvio.
+     * <p>
+     * Le elaborazioni non terminate entro {@value #STOP_DELAY} secondi vengono
+     * interrotte, e se ne attende il termine per altri {@value #STOP_DELAY}
+     * secondi. Lo stato dei file elaborati può essere chiuso solo se il
+     * metodo ritorna <code>true</code>, poiché altrimenti dei thread di
+     * elaborazione potrebbero ancora registrarvi dei file.
+     *
+     * @return <code>true</code> se tutti i thread di elaborazione sono
+     * terminati, <code>false</code> altrimenti
+     * @throws InterruptedException - se l'attesa viene interrotta
+     */
+    public boolean stop() throws InterruptedException {
+        stopped = true;
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+        executor.shutdown();
+        if (executor.awaitTermination(STOP_DELAY, TimeUnit.SECONDS)) {
+            return true;
+        }
+        executor.shutdownNow();
+        return executor.awaitTermination(STOP_DELAY, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Ritorna il numero di file elaborati con successo.
+     *
+     * @return numero di file
+     */
+    public int getSucceeded() {
+        return processor.getSucceeded();
+    }
+
+    /**
+     * Ritorna il numero di file la cui elaborazione è fallita.
+     *
+     * @return numero di file
+     */
+    public int getFailed() {
+        return processor.getFailed();
+    }
+
+    /**
+     * Ritorna le latenze dal primo evento di ciascun file al termine della
+     * sua elaborazione.
+     *
+     * @return istogramma delle latenze
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Registra ricorsivamente una cartella e mette in attesa i file che
+     * contiene.
+     *
+     * @param directory cartella da registrare
+     * @param root radice osservata che contiene la cartella
+     * @throws IOException - se la cartella non può essere osservata
+     */
+    private void register(Path directory, final Path root) throws IOException {
+        final long now = System.nanoTime();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (isIgnored(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                directories.put(key, new Path[]{dir, root});
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && !isIgnored(file)) {
+                    schedule(file, root, attrs, now);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                //Il file potrebbe essere stato rimosso durante la visita
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Gestisce gli eventi di una cartella osservata.
+     *
+     * @param key chiave di registrazione della cartella
+     */
+    private void handle(WatchKey key) {
+        long now = System.nanoTime();
+        Path[] directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                //Eventi persi: vengono ricontrollati tutti i file
+                rescan();
+                continue;
+            }
+            if (directory == null) {
+                continue;
+            }
+            Path child = directory[0].resolve((Path) event.context());
+            if (isIgnored(child)) {
+                continue;
+            }
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (attrs.isDirectory()) {
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                        register(child, directory[1]);
+                    }
+                } else if (attrs.isRegularFile()) {
+                    schedule(child, directory[1], attrs, now);
+                }
+            } catch (IOException e) {
+                //Il file è già stato rimosso o rinominato
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    /**
+     * Ricontrolla tutte le cartelle osservate, dopo la perdita di eventi.
+     */
+    private void rescan() {
+        for (Map.Entry<WatchKey, Path[]> entry : new HashMap<>(directories).entrySet()) {
+            entry.getKey().cancel();
+            directories.remove(entry.getKey());
+        }
+        for (Path root : roots) {
+            try {
+                register(root, root);
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Mette in attesa un file creato o modificato, o ne aggiorna l'ultimo
+     * evento se già in attesa. Il file viene spostato in fondo ai file in
+     * attesa, che restano così ordinati per ultimo evento.
+     *
+     * @param file file da elaborare
+     * @param root radice osservata che contiene il file
+     * @param attrs attributi correnti del file
+     * @param now istante dell'evento, in nanosecondi
+     */
+    private void schedule(Path file, Path root, BasicFileAttributes attrs, long now) {
+        Pending p = pending.remove(file);
+        if (p == null) {
+            p = new Pending(root, now);
+        }
+        pending.put(file, p);
+        p.lastEvent = now;
+        p.size = attrs.size();
+        p.modified = attrs.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Accoda l'elaborazione dei file in attesa la cui scrittura è terminata.
+     * I file già elaborati nella stessa versione vengono scartati. Poiché i
+     * file sono ordinati per ultimo evento, il controllo si ferma al primo
+     * file il cui periodo di quiete non è terminato. Se la coda è piena si
+     * attende per un breve periodo che si liberi un posto.
+     *
+     * @return <code>true</code> se dei file pronti attendono un posto in
+     * coda, <code>false</code> altrimenti
+     * @throws InterruptedException - se l'attesa viene interrotta
+     */
+    private boolean checkPending() throws InterruptedException {
+        long now = System.nanoTime();
+        long deadline = now + TimeUnit.MILLISECONDS.toNanos(QUEUE_WAIT);
+        boolean queueFull = false;
+        Map<Path, Pending> changed = new LinkedHashMap<>();
+        Iterator<Map.Entry<Path, Pending>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Pending> entry = iterator.next();
+            Path file = entry.getKey();
+            Pending p = entry.getValue();
+            if (now - p.lastEvent < quietPeriod) {
+                break;
+            }
+            if (running.contains(file)) {
+                //Il file verrà elaborato di nuovo al termine dell'elaborazione in corso
+                continue;
+            }
+
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                //Il file è stato rimosso
+                iterator.remove();
+                continue;
+            }
+            if (attrs.size() != p.size || attrs.lastModifiedTime().toMillis() != p.modified) {
+                //Scrittura ancora in corso, senza eventi nel frattempo
+                iterator.remove();
+                p.lastEvent = now;
+                p.size = attrs.size();
+                p.modified = attrs.lastModifiedTime().toMillis();
+                changed.put(file, p);
+                continue;
+            }
+            if (state.isProcessed(file, p.size, p.modified)) {
+                iterator.remove();
+                continue;
+            }
+            if (!queued.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                //Troppi file in coda: i restanti vengono accodati al prossimo controllo
+                queueFull = true;
+                break;
+            }
+            iterator.remove();
+            dispatch(file, p);
+        }
+        pending.putAll(changed);
+        return queueFull;
+    }
+
+    /**
+     * Ritorna l'attesa fino al termine del periodo di quiete del primo file in
+     * attesa.
+     *
+     * @return attesa, in nanosecondi
+     */
+    private long getPollDelay() {
+        long delay = pending.values().iterator().next().lastEvent + quietPeriod - System.nanoTime();
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(MIN_POLL_DELAY), delay);
+    }
+
+    /**
+     * Accoda l'elaborazione di un file. Il permesso di coda deve essere già
+     * stato ottenuto.
+     *
+     * @param file file da elaborare
+     * @param p stato di attesa del file
+     */
+    private void dispatch(final Path file, final Pending p) {
+        running.add(file);
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        process(file, p);
+                    } finally {
+                        running.remove(file);
+                        queued.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //Osservazione terminata: il file verrà elaborato al prossimo avvio
+            running.remove(file);
+            queued.release();
+        }
+    }
+
+    /**
+     * Elabora un file, ne scrive l'esito e lo registra nello stato. I file
+     * che non sono immagini PNG vengono ignorati, così come le elaborazioni
+     * interrotte alla terminazione, che vengono ripetute al prossimo avvio.
+     *
+     * @param file file da elaborare
+     * @param p stato di attesa del file
+     */
+    private void process(Path file, Pending p) {
+        FileProcessor.Outcome outcome = processor.process(file, p.root.relativize(file));
+        if (outcome == null) {
+            return;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            //Elaborazione annullata da stop(): l'esito non riguarda il file
+            return;
+        }
+        latency.record(System.nanoTime() - p.arrival);
+        try {
+            state.record(file, p.size, p.modified, outcome.isSucceeded());
+        } catch (IOException e) {
+            System.err.println("Impossibile aggiornare il file di stato: " + e.getMessage());
+        }
+        processor.report(file, outcome);
+    }
+
+    /**
+     * Indica se le modifiche di un percorso vanno ignorate perché prodotte
+     * dall'osservatore stesso.
+     *
+     * @param path percorso da controllare
+     * @return <code>true</code> se il percorso è nella cartella di
+     * destinazione o è il file di stato, <code>false</code> altrimenti
+     */
+    private boolean isIgnored(Path path) {
+        if (outputDirectory != null && path.startsWith(outputDirectory)) {
+            return true;
+        }
+        return path.getParent() != null && path.getParent().equals(state.getFile().getParent())
+                && path.getFileName().toString().startsWith(state.getFile().getFileName().toString());
+    }
+
+    /**
+     * Stato di un file in attesa del termine della scrittura.
+     */
+    private static class Pending {
+
+        /**
+         * Radice osservata che contiene il file.
+         */
+        private final Path root;
+        /**
+         * Istante del primo evento, in nanosecondi.
+         */
+        private final long arrival;
+        /**
+         * Istante dell'ultimo evento, in nanosecondi.
+         */
+        private long lastEvent;
+        /**
+         * Dimensione del file all'ultimo evento, in byte.
+         */
+        private long size;
+        /**
+         * Data di ultima modifica del file all'ultimo evento, in
+         * millisecondi.
+         */
+        private long modified;
+
+        /**
+         * Costruisce lo stato di attesa.
+         *
+         * @param root radice osservata che contiene il file
+         * @param arrival istante del primo evento, in nanosecondi
+         */
+        private Pending(Path root, long arrival) {
+            this.root = root;
+            this.arrival = arrival;
+        }
+    }
+}
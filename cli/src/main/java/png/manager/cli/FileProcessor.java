@@ -0,0 +1,191 @@
+package png.manager.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import png.manager.batch.MemoryBudget;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Esegue un'operazione su un singolo file e ne scrive l'esito, per
+ * {@link BatchRunner} e {@link DirectoryWatcher}.
+ * <p>
+ * L'esito di ciascun file viene scritto su una riga, nella forma
+ * <code>percorso TAB esito TAB dettaglio</code>, e conteggiato tra i file
+ * elaborati con successo o tra quelli falliti. I metodi possono essere
+ * chiamati da più thread.
+ */
+class FileProcessor {
+
+    /**
+     * Operazione da eseguire.
+     */
+    private final Operation operation;
+    /**
+     * Cartella in cui scrivere i risultati; null se l'operazione non scrive
+     * file.
+     */
+    private final Path outputDirectory;
+    /**
+     * Budget di memoria delle decodifiche; null se le decodifiche non sono
+     * limitate.
+     */
+    private final MemoryBudget budget;
+    /**
+     * Stream su cui scrivere l'esito di ciascun file.
+     */
+    private final PrintStream out;
+    /**
+     * Numero di file elaborati con successo.
+     */
+    private final AtomicInteger succeeded = new AtomicInteger();
+    /**
+     * Numero di file la cui elaborazione è fallita.
+     */
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * Costruisce l'oggetto.
+     *
+     * @param operation operazione da eseguire
+     * @param outputDirectory cartella in cui scrivere i risultati; null se
+     * l'operazione non scrive file
+     * @param budget budget di memoria delle decodifiche; null se le
+     * decodifiche non sono limitate
+     * @param out stream su cui scrivere l'esito di ciascun file
+     */
+    FileProcessor(Operation operation, Path outputDirectory, MemoryBudget budget, PrintStream out) {
+        this.operation = operation;
+        this.outputDirectory = outputDirectory;
+        this.budget = budget;
+        this.out = out;
+    }
+
+    /**
+     * Esegue tutti i passi dell'operazione su un file, senza scriverne
+     * l'esito.
+     *
+     * @param file file da elaborare
+     * @param relative percorso del file relativo alla cartella visitata, usato
+     * per il file di destinazione
+     * @return esito dell'elaborazione; null se il file non è un'immagine PNG
+     */
+    Outcome process(Path file, Path relative) {
+        try {
+            if (!Utility.hasPNGSignature(file)) {
+                return null;
+            }
+            return new Outcome(BatchRunner.OK, operation.process(file, getOutput(relative), budget));
+        } catch (IOException e) {
+            return new Outcome(BatchRunner.ERROR, e.toString());
+        } catch (Exception e) {
+            return new Outcome(BatchRunner.ERROR, e.getMessage());
+        } catch (OutOfMemoryError e) {
+            //Un file troppo grande non deve fermare il thread di elaborazione
+            return new Outcome(BatchRunner.ERROR, "Memoria insufficiente per elaborare il file.");
+        }
+    }
+
+    /**
+     * Ritorna il file da scrivere per un file elaborato, creandone la
+     * cartella.
+     *
+     * @param relative percorso del file relativo alla cartella visitata
+     * @return file da scrivere; null se l'operazione non scrive file
+     * @throws IOException - se la cartella non può essere creata
+     */
+    Path getOutput(Path relative) throws IOException {
+        if (outputDirectory == null) {
+            return null;
+        }
+        Path output = outputDirectory.resolve(relative.toString());
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        return output;
+    }
+
+    /**
+     * Scrive l'esito di un file su una riga.
+     *
+     * @param file file elaborato
+     * @param outcome esito dell'elaborazione
+     */
+    void report(Path file, Outcome outcome) {
+        report(file, outcome.result, outcome.detail);
+    }
+
+    /**
+     * Scrive l'esito di un file su una riga.
+     *
+     * @param file file elaborato
+     * @param result esito dell'elaborazione
+     * @param detail dettaglio dell'esito
+     */
+    void report(Path file, String result, String detail) {
+        if (BatchRunner.OK.equals(result)) {
+            succeeded.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+        String line = file + "\t" + result + "\t" + String.valueOf(detail).replace('\n', ' ').replace('\t', ' ');
+        synchronized (out) {
+            out.println(line);
+        }
+    }
+
+    /**
+     * Ritorna il numero di file elaborati con successo.
+     *
+     * @return numero di file
+     */
+    int getSucceeded() {
+        return succeeded.get();
+    }
+
+    /**
+     * Ritorna il numero di file la cui elaborazione è fallita.
+     *
+     * @return numero di file
+     */
+    int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Esito dell'elaborazione di un file.
+     */
+    static class Outcome {
+
+        /**
+         * Esito: {@link BatchRunner#OK} o {@link BatchRunner#ERROR}.
+         */
+        private final String result;
+        /**
+         * Dettaglio dell'esito.
+         */
+        private final String detail;
+
+        /**
+         * Costruisce l'esito.
+         *
+         * @param result esito dell'elaborazione
+         * @param detail dettaglio dell'esito
+         */
+        Outcome(String result, String detail) {
+            this.result = result;
+            this.detail = detail;
+        }
+
+        /**
+         * Indica se l'elaborazione ha avuto successo.
+         *
+         * @return <code>true</code> in caso di successo, <code>false</code>
+         * altrimenti
+         */
+        boolean isSucceeded() {
+            return BatchRunner.OK.equals(result);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package png.manager.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import png.manager.stream.StreamOperation;
+import png.manager.stream.StreamProcessor;
+
+/**
+ * Operazione <code>filter</code>: legge un'immagine dallo standard input e la
+ * scrive elaborata sullo standard output, per l'uso in una pipe.
+ * <p>
+ * Sintassi: <code>filter validate|strip|repair|rechunk [-n dimensione_IDAT]
+ * </code>. L'immagine viene elaborata da uno {@link StreamProcessor} un chunk
+ * alla volta: la memoria occupata non dipende dalla dimensione dell'immagine,
+ * non vengono creati file temporanei e ciascun chunk viene scritto appena
+ * letto. <code>validate</code> scrive l'immagine invariata,
+ * <code>strip</code> ne scarta i chunk ausiliari, <code>repair</code>
+ * sostituisce i CRC non validi e <code>rechunk</code> suddivide i dati
+ * compressi in chunk IDAT della dimensione indicata. Il programma termina con
+ * codice 0 se l'immagine è stata elaborata, 1 se non è valida o non può essere
+ * letta o scritta e 2 se gli argomenti non sono validi. In caso di errore lo
+ * standard output contiene solo la parte di immagine già elaborata.
+ */
+class FilterCommand {
+
+    /**
+     * Nome dell'operazione.
+     */
+    static final String NAME = "filter";
+
+    /**
+     * Dimensione del buffer di lettura e scrittura.
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private FilterCommand() {
+    }
+
+    /**
+     * Elabora l'immagine letta dallo standard input come descritto dagli
+     * argomenti.
+     *
+     * @param args argomenti della riga di comando, a partire dal nome
+     * dell'operazione
+     * @return codice di uscita del programma
+     */
+    static int run(String[] args) {
+        if (args.length < 2) {
+            CLI.usage("Indicare l'operazione da eseguire sull'immagine.");
+        }
+        StreamOperation operation = null;
+        if (args[1].equalsIgnoreCase("validate")) {
+            operation = StreamOperation.COPY;
+        } else if (args[1].equalsIgnoreCase("strip")) {
+            operation = StreamOperation.STRIP;
+        } else if (args[1].equalsIgnoreCase("repair")) {
+            operation = StreamOperation.REPAIR_CRC;
+        } else if (args[1].equalsIgnoreCase("rechunk")) {
+            operation = StreamOperation.RECHUNK;
+        } else {
+            CLI.usage("Operazione sconosciuta: " + args[1]);
+        }
+
+        StreamProcessor processor = new StreamProcessor(operation);
+        for (int i = 2; i < args.length; i++) {
+            if (!args[i].equals("-n")) {
+                CLI.usage("Opzione sconosciuta: " + args[i]);
+            }
+            if (i + 1 == args.length) {
+                CLI.usage("Valore mancante per l'opzione " + args[i]);
+            }
+            try {
+                processor.setDataChunkSize(Integer.parseInt(args[++i]));
+            } catch (IllegalArgumentException e) {
+                //Comprende i numeri non validi
+                CLI.usage("Dimensione dei chunk non valida: " + args[i]);
+            }
+        }
+
+        //Gli stream dei descrittori, a differenza di System.out, segnalano gli errori di scrittura
+        InputStream in = new BufferedInputStream(new FileInputStream(FileDescriptor.in), BUFFER_SIZE);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), BUFFER_SIZE);
+        try {
+            processor.process(in, out);
+        } catch (IOException e) {
+            System.err.println("Errore di lettura o scrittura: " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            //L'immagine non è valida: viene scritto solo quanto già elaborato
+            try {
+                out.flush();
+            } catch (IOException ex) {
+                System.err.println(ex.getMessage());
+            }
+            System.err.println(processor.getStatus() + "\t" + e.getMessage());
+            return 1;
+        }
+        if (processor.getRepairedChunks() > 0) {
+            System.err.println("CRC corretti: " + processor.getRepairedChunks() + " chunk.");
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,276 @@
+package png.manager.cli;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import javax.imageio.ImageIO;
+
+import png.manager.awt.RawImageAdapter;
+import png.manager.batch.MemoryBudget;
+import png.manager.decoder.Decoder;
+import png.manager.decoder.MemoryEstimator;
+import png.manager.entity.PNGImage;
+import png.manager.entity.RawImage;
+import png.manager.exception.ChunkParserException;
+import png.manager.exception.DecodingException;
+import png.manager.exception.PNGStructureException;
+import png.manager.metadata.ChunkDecoders;
+import png.manager.metadata.ChunkInfo;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Operazioni eseguibili su ciascun file di un'elaborazione a lotti.
+ * <p>
+ * Ogni operazione si compone di lettura, controllo dei CRC e della struttura,
+ * decodifica e completamento; i passi non necessari all'operazione vengono
+ * saltati. I passi possono essere eseguiti tutti insieme con
+ * {@link #process(Path, Path)} o da fasi distinte di una pipeline.
+ */
+public enum Operation {
+
+    /**
+     * Verifica la struttura, i CRC e la decodifica completa dell'immagine.
+     */
+    VALIDATE(false, true, true) {
+        @Override
+        public String complete(PNGImage image, RawImage raw, Path output) {
+            return raw.getWidth() + "x" + raw.getHeight();
+        }
+    },
+    /**
+     * Descrive il chunk IHDR e i metadati dell'immagine, senza leggerne i dati
+     * compressi.
+     */
+    INSPECT(false, false, false) {
+        @Override
+        public String complete(PNGImage image, RawImage raw, Path output) throws PNGStructureException {
+            StringBuilder result = new StringBuilder(image.getInfo());
+            try {
+                ArrayList<ChunkInfo> metadata = ChunkDecoders.decodeAll(image);
+                for (ChunkInfo info : metadata) {
+                    result.append(" [").append(info.getType()).append("] ").append(info.toString().replace('\n', ' '));
+                }
+            } catch (ChunkParserException e) {
+                throw new PNGStructureException(e.getMessage());
+            }
+            return result.toString();
+        }
+    },
+    /**
+     * Salva una copia dell'immagine priva dei chunk ausiliari.
+     */
+    STRIP(true, true, false) {
+        @Override
+        public String complete(PNGImage image, RawImage raw, Path output) throws PNGStructureException {
+            if (!Utility.exportImage(output.toString(), image, false)) {
+                throw new PNGStructureException("Impossibile scrivere il file " + output + ".");
+            }
+            return output.toString();
+        }
+    },
+    /**
+     * Salva una copia dell'immagine in formato jpeg.
+     */
+    CONVERT(true, true, true) {
+        @Override
+        public String complete(PNGImage image, RawImage raw, Path output) throws DecodingException {
+            BufferedImage decoded = RawImageAdapter.toBufferedImage(raw);
+            //Il formato jpeg non supporta il canale alfa
+            BufferedImage rgb = new BufferedImage(decoded.getWidth(), decoded.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = rgb.createGraphics();
+            try {
+                g.drawImage(decoded, 0, 0, Color.WHITE, null);
+            } finally {
+                g.dispose();
+            }
+            Path jpeg = output.resolveSibling(output.getFileName().toString().replaceFirst("(?i)\\.png$", "") + ".jpg");
+            try {
+                ImageIO.write(rgb, "jpg", jpeg.toFile());
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+                throw new DecodingException("Impossibile scrivere il file " + jpeg + ".");
+            }
+            return jpeg.toString();
+        }
+
+        /**
+         * Stima la memoria occupata al picco dalla decodifica e dalla
+         * conversione dell'immagine.
+         *
+         * @param image immagine risultato del parsing
+         * @return memoria stimata, in byte
+         */
+        @Override
+        public long estimateMemory(PNGImage image) {
+            //Immagine da convertire e copia RGB senza canale alfa
+            return super.estimateMemory(image) + (long) image.getWidth() * image.getHeight() * CONVERTED_BYTES_PER_PIXEL;
+        }
+    };
+
+    /**
+     * Byte per pixel delle immagini intermedie create dalla conversione.
+     */
+    private static final int CONVERTED_BYTES_PER_PIXEL = 8;
+
+    /**
+     * Indica se l'operazione scrive un file per ciascuna immagine.
+     */
+    private final boolean writesOutput;
+    /**
+     * Indica se l'operazione legge e controlla i dati compressi.
+     */
+    private final boolean readsImageData;
+    /**
+     * Indica se l'operazione decodifica l'immagine.
+     */
+    private final boolean decodes;
+
+    /**
+     * Costruisce l'operazione.
+     *
+     * @param writesOutput <code>true</code> se l'operazione scrive un file per
+     * ciascuna immagine
+     * @param readsImageData <code>true</code> se l'operazione legge e
+     * controlla i dati compressi
+     * @param decodes <code>true</code> se l'operazione decodifica l'immagine
+     */
+    private Operation(boolean writesOutput, boolean readsImageData, boolean decodes) {
+        this.writesOutput = writesOutput;
+        this.readsImageData = readsImageData;
+        this.decodes = decodes;
+    }
+
+    /**
+     * Indica se l'operazione scrive un file per ciascuna immagine, e richiede
+     * quindi una cartella di destinazione.
+     *
+     * @return <code>true</code> se l'operazione scrive dei file,
+     * <code>false</code> altrimenti
+     */
+    public boolean writesOutput() {
+        return writesOutput;
+    }
+
+    /**
+     * Indica se l'operazione legge e controlla i dati compressi; in caso
+     * contrario vengono letti solo i chunk di metadati.
+     *
+     * @return <code>true</code> se l'operazione legge i dati compressi,
+     * <code>false</code> altrimenti
+     */
+    public boolean readsImageData() {
+        return readsImageData;
+    }
+
+    /**
+     * Indica se l'operazione decodifica l'immagine.
+     *
+     * @return <code>true</code> se l'operazione decodifica l'immagine,
+     * <code>false</code> altrimenti
+     */
+    public boolean decodes() {
+        return decodes;
+    }
+
+    /**
+     * Legge i chunk necessari all'operazione.
+     *
+     * @param file immagine da leggere
+     * @return immagine risultato del parsing
+     * @throws ChunkParserException - se occorrono errori in fase di parsing
+     */
+    public PNGImage read(Path file) throws ChunkParserException {
+        if (readsImageData) {
+            return Decoder.getPNGImageFromFile(file.toString());
+        }
+        return Decoder.getPNGMetadataFromFile(file.toString());
+    }
+
+    /**
+     * Stima la memoria occupata al picco dalla decodifica e dal completamento
+     * dell'operazione su un'immagine già letta.
+     *
+     * @param image immagine risultato del parsing
+     * @return memoria stimata, in byte; 0 se l'operazione non decodifica
+     */
+    public long estimateMemory(PNGImage image) {
+        return decodes ? MemoryEstimator.estimate(image) : 0;
+    }
+
+    /**
+     * Esegue l'operazione su un file, eseguendo tutti i passi necessari.
+     *
+     * @param file immagine da elaborare
+     * @param output file da scrivere; null se l'operazione non scrive file
+     * @return descrizione del risultato
+     * @throws ChunkParserException - se occorrono errori in fase di parsing
+     * @throws PNGStructureException - se l'immagine non rispetta i requisiti
+     * del formato o il risultato non può essere scritto
+     * @throws DecodingException - se occorrono errori in fase di decodifica
+     */
+    public String process(Path file, Path output) throws ChunkParserException, PNGStructureException, DecodingException {
+        return process(file, output, null);
+    }
+
+    /**
+     * Esegue l'operazione su un file, eseguendo tutti i passi necessari. Se
+     * l'operazione decodifica l'immagine, la memoria stimata viene richiesta
+     * al budget prima della decodifica e restituita al termine del
+     * completamento.
+     *
+     * @param file immagine da elaborare
+     * @param output file da scrivere; null se l'operazione non scrive file
+     * @param budget budget di memoria delle decodifiche; null se assente
+     * @return descrizione del risultato
+     * @throws ChunkParserException - se occorrono errori in fase di parsing
+     * @throws PNGStructureException - se l'immagine non rispetta i requisiti
+     * del formato o il risultato non può essere scritto
+     * @throws DecodingException - se occorrono errori in fase di decodifica o
+     * se l'attesa della memoria viene interrotta
+     */
+    public String process(Path file, Path output, MemoryBudget budget) throws ChunkParserException, PNGStructureException, DecodingException {
+        PNGImage image = read(file);
+        if (readsImageData) {
+            Decoder.checkImage(image);
+        }
+        if (!decodes) {
+            return complete(image, null, output);
+        }
+
+        long memory = 0;
+        if (budget != null) {
+            try {
+                memory = budget.acquire(estimateMemory(image));
+            } catch (InterruptedException e) {
+                System.err.println(e.getMessage());
+                Thread.currentThread().interrupt();
+                throw new DecodingException("Decodifica annullata.");
+            }
+        }
+        try {
+            return complete(image, Decoder.getRawImage(image), output);
+        } finally {
+            if (budget != null) {
+                budget.release(memory);
+            }
+        }
+    }
+
+    /**
+     * Completa l'operazione su un'immagine già letta, controllata e, se
+     * necessario, decodificata.
+     *
+     * @param image immagine risultato del parsing
+     * @param raw immagine decodificata; null se l'operazione non decodifica
+     * @param output file da scrivere; null se l'operazione non scrive file
+     * @return descrizione del risultato
+     * @throws PNGStructureException - se l'immagine non rispetta i requisiti
+     * del formato o il risultato non può essere scritto
+     * @throws DecodingException - se il risultato non può essere scritto
+     */
+    public abstract String complete(PNGImage image, RawImage raw, Path output) throws PNGStructureException, DecodingException;
+}
@@ -0,0 +1,102 @@
+package png.manager.cli;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+import png.manager.batch.MemoryBudget;
+import png.manager.service.PNGService;
+
+/**
+ * Operazione <code>serve</code>: avvia un {@link PNGService} e lo mantiene
+ * attivo fino alla terminazione del processo.
+ * <p>
+ * Sintassi: <code>serve [-a indirizzo] [-p porta] [-c richieste]
+ * [-m memoria_MB]</code>. Per impostazione predefinita il servizio riceve
+ * solo le richieste locali, sulla porta 8080. Alla terminazione vengono
+ * stampate le statistiche del servizio.
+ */
+class ServeCommand {
+
+    /**
+     * Nome dell'operazione.
+     */
+    static final String NAME = "serve";
+
+    /**
+     * Indirizzo predefinito su cui ricevere le richieste.
+     */
+    private static final String DEFAULT_ADDRESS = "127.0.0.1";
+    /**
+     * Porta predefinita su cui ricevere le richieste.
+     */
+    private static final int DEFAULT_PORT = 8080;
+    /**
+     * Secondi concessi alle richieste in corso alla terminazione.
+     */
+    private static final int STOP_DELAY = 1;
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private ServeCommand() {
+    }
+
+    /**
+     * Avvia il servizio descritto dagli argomenti. Il metodo termina subito
+     * dopo l'avvio, mentre il servizio resta attivo.
+     *
+     * @param args argomenti della riga di comando, a partire dal nome
+     * dell'operazione
+     * @return <code>true</code> se il servizio è stato avviato,
+     * <code>false</code> se l'indirizzo non può essere usato
+     */
+    static boolean run(String[] args) {
+        String address = DEFAULT_ADDRESS;
+        int port = DEFAULT_PORT;
+        int maxConcurrent = PNGService.DEFAULT_MAX_CONCURRENT;
+        MemoryBudget budget = null;
+        for (int i = 1; i < args.length; i++) {
+            if (i + 1 == args.length) {
+                CLI.usage("Valore mancante per l'opzione " + args[i]);
+            }
+            try {
+                if (args[i].equals("-a")) {
+                    address = args[++i];
+                } else if (args[i].equals("-p")) {
+                    port = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-c")) {
+                    maxConcurrent = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-m")) {
+                    budget = new MemoryBudget(Long.parseLong(args[++i]) * 1024 * 1024);
+                } else {
+                    CLI.usage("Opzione sconosciuta: " + args[i]);
+                }
+            } catch (IllegalArgumentException e) {
+                //Comprende i numeri non validi
+                CLI.usage("Valore non valido per l'opzione " + args[i - 1] + ": " + args[i]);
+            }
+        }
+        if (port < 0 || port > 65535 || maxConcurrent < 1) {
+            CLI.usage("Limiti non validi.");
+        }
+
+        final PNGService service;
+        try {
+            service = new PNGService(new InetSocketAddress(address, port), maxConcurrent, budget != null ? budget : new MemoryBudget());
+        } catch (IOException e) {
+            System.err.println("Impossibile avviare il servizio su " + address + ":" + port + ": " + e.getMessage());
+            return false;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                service.stop(STOP_DELAY);
+                System.err.print(service.getStatisticsReport());
+            }
+        });
+        service.start();
+        System.err.println("Servizio attivo su http://" + service.getAddress().getHostString() + ":" + service.getAddress().getPort()
+                + " (richieste contemporanee: " + maxConcurrent + ").");
+        return true;
+    }
+}
@@ -0,0 +1,160 @@
+package png.manager.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import png.manager.batch.MemoryBudget;
+import png.manager.batch.ProcessedState;
+import png.manager.service.LatencyHistogram;
+
+/**
+ * Operazione <code>watch</code>: osserva delle cartelle con un
+ * {@link DirectoryWatcher} ed esegue un'operazione su ciascun file creato o
+ * modificato, fino alla terminazione del processo.
+ * <p>
+ * Sintassi: <code>watch validate|inspect|strip|convert [-j thread]
+ * [-m memoria_MB] [-o cartella] [-q quiete_ms] [-f file_stato]
+ * cartella...</code>. Un file viene elaborato dopo <code>-q</code>
+ * millisecondi senza modifiche, 200 per impostazione predefinita. I file
+ * elaborati vengono registrati nel file di stato, per impostazione
+ * predefinita <code>png-manager-watch.state</code> nella cartella corrente,
+ * così che al riavvio vengano elaborati solo i file nuovi o modificati. Alla
+ * terminazione vengono stampati il numero di file elaborati e la latenza
+ * dall'arrivo al termine dell'elaborazione.
+ */
+class WatchCommand {
+
+    /**
+     * Nome dell'operazione.
+     */
+    static final String NAME = "watch";
+
+    /**
+     * File di stato predefinito.
+     */
+    private static final String DEFAULT_STATE_FILE = "png-manager-watch.state";
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private WatchCommand() {
+    }
+
+    /**
+     * Osserva le cartelle descritte dagli argomenti. Il metodo termina solo
+     * alla terminazione dell'osservazione.
+     *
+     * @param args argomenti della riga di comando, a partire dal nome
+     * dell'operazione
+     * @return codice di uscita del programma
+     */
+    static int run(String[] args) {
+        if (args.length < 2) {
+            CLI.usage("Indicare l'operazione da eseguire sui file.");
+        }
+        Operation operation = null;
+        for (Operation o : Operation.values()) {
+            if (o.name().equalsIgnoreCase(args[1])) {
+                operation = o;
+            }
+        }
+        if (operation == null) {
+            CLI.usage("Operazione sconosciuta: " + args[1]);
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        long quietPeriod = DirectoryWatcher.DEFAULT_QUIET_PERIOD;
+        Path outputDirectory = null;
+        Path stateFile = Paths.get(DEFAULT_STATE_FILE);
+        MemoryBudget budget = null;
+        ArrayList<Path> roots = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            if (!args[i].startsWith("-")) {
+                roots.add(Paths.get(args[i]));
+                continue;
+            }
+            if (i + 1 == args.length) {
+                CLI.usage("Valore mancante per l'opzione " + args[i]);
+            }
+            try {
+                if (args[i].equals("-j")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-m")) {
+                    budget = new MemoryBudget(Long.parseLong(args[++i]) * 1024 * 1024);
+                } else if (args[i].equals("-q")) {
+                    quietPeriod = Long.parseLong(args[++i]);
+                } else if (args[i].equals("-o")) {
+                    outputDirectory = Paths.get(args[++i]);
+                } else if (args[i].equals("-f")) {
+                    stateFile = Paths.get(args[++i]);
+                } else {
+                    CLI.usage("Opzione sconosciuta: " + args[i]);
+                }
+            } catch (IllegalArgumentException e) {
+                //Comprende i numeri non validi
+                CLI.usage("Valore non valido per l'opzione " + args[i - 1] + ": " + args[i]);
+            }
+        }
+        if (threads < 1 || quietPeriod < 0) {
+            CLI.usage("Limiti non validi.");
+        }
+        if (roots.isEmpty()) {
+            CLI.usage("Nessuna cartella da osservare.");
+        }
+        for (Path root : roots) {
+            if (!Files.isDirectory(root)) {
+                CLI.usage("Non e' una cartella: " + root);
+            }
+        }
+        if (operation.writesOutput() && outputDirectory == null) {
+            CLI.usage("L'operazione " + args[1] + " richiede la cartella di destinazione (-o).");
+        }
+        if (operation.decodes() && budget == null) {
+            budget = new MemoryBudget();
+        }
+
+        final ProcessedState state;
+        final DirectoryWatcher watcher;
+        try {
+            state = new ProcessedState(stateFile);
+            watcher = new DirectoryWatcher(operation, threads, outputDirectory, budget, state, quietPeriod, System.out);
+        } catch (IOException e) {
+            System.err.println("Impossibile avviare l'osservazione: " + e.getMessage());
+            return 1;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    if (watcher.stop()) {
+                        state.close();
+                    } else {
+                        //Ogni riga è già su disco: il file resta aperto per i thread ancora attivi
+                        System.err.println("Elaborazioni non terminate: il file di stato non viene chiuso.");
+                    }
+                } catch (InterruptedException | IOException e) {
+                    System.err.println(e.getMessage());
+                }
+                LatencyHistogram latency = watcher.getLatency();
+                System.err.println("Elaborati: " + watcher.getSucceeded() + "; falliti: " + watcher.getFailed() + ".");
+                System.err.println(String.format(Locale.ROOT, "Latenza dall'arrivo: p50 %.1f ms, p99 %.1f ms, max %.1f ms.",
+                        latency.getPercentile(50), latency.getPercentile(99), latency.getMax()));
+            }
+        });
+        System.err.println("Osservazione di " + roots + " (file di stato " + state.getFile() + ", " + state.size() + " file registrati).");
+        try {
+            watcher.run(roots);
+        } catch (IOException e) {
+            System.err.println("Impossibile osservare le cartelle: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,193 @@
+package png.manager.batch;
+
+import java.nio.file.Path;
+
+import png.manager.entity.PNGImage;
+import png.manager.entity.RawImage;
+
+/**
+ * File elaborato da una {@link StagedPipeline}, insieme ai risultati
+ * intermedi prodotti dalle fasi già eseguite.
+ * <p>
+ * Ogni oggetto viene elaborato da una sola fase alla volta; le code tra una
+ * fase e l'altra rendono visibili alla fase successiva i campi impostati
+ * dalla precedente.
+ */
+public class BatchJob {
+
+    /**
+     * File da elaborare.
+     */
+    private final Path file;
+    /**
+     * Dati associati al file da chi lo ha accodato.
+     */
+    private final Object attachment;
+    /**
+     * Immagine risultato del parsing.
+     */
+    private PNGImage image = null;
+    /**
+     * Immagine decodificata.
+     */
+    private RawImage rawImage = null;
+    /**
+     * Descrizione del risultato.
+     */
+    private String result = "";
+    /**
+     * Messaggio d'errore; null se l'elaborazione non è fallita.
+     */
+    private String error = null;
+    /**
+     * Nome della fase in cui l'elaborazione è fallita; null se non è fallita.
+     */
+    private String failedStage = null;
+    /**
+     * Indica se l'elaborazione è terminata.
+     */
+    private boolean done = false;
+
+    /**
+     * Costruisce l'oggetto.
+     *
+     * @param file file da elaborare
+     * @param attachment dati associati al file; null se assenti
+     */
+    public BatchJob(Path file, Object attachment) {
+        this.file = file;
+        this.attachment = attachment;
+    }
+
+    /**
+     * Ritorna il file da elaborare.
+     *
+     * @return percorso del file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Ritorna i dati associati al file da chi lo ha accodato.
+     *
+     * @return dati associati; null se assenti
+     */
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    /**
+     * Ritorna l'immagine risultato del parsing.
+     *
+     * @return immagine; null se il parsing non è ancora avvenuto
+     */
+    public PNGImage getImage() {
+        return image;
+    }
+
+    /**
+     * Imposta l'immagine risultato del parsing.
+     *
+     * @param image immagine
+     */
+    public void setImage(PNGImage image) {
+        this.image = image;
+    }
+
+    /**
+     * Ritorna l'immagine decodificata.
+     *
+     * @return immagine decodificata; null se la decodifica non è ancora
+     * avvenuta
+     */
+    public RawImage getRawImage() {
+        return rawImage;
+    }
+
+    /**
+     * Imposta l'immagine decodificata.
+     *
+     * @param rawImage immagine decodificata
+     */
+    public void setRawImage(RawImage rawImage) {
+        this.rawImage = rawImage;
+    }
+
+    /**
+     * Ritorna la descrizione del risultato.
+     *
+     * @return descrizione; vuota se non impostata
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Imposta la descrizione del risultato.
+     *
+     * @param result descrizione
+     */
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    /**
+     * Termina l'elaborazione senza eseguire le fasi successive.
+     */
+    public void complete() {
+        done = true;
+    }
+
+    /**
+     * Indica se l'elaborazione è terminata, con successo o meno.
+     *
+     * @return <code>true</code> se l'elaborazione è terminata,
+     * <code>false</code> altrimenti
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Indica se l'elaborazione è fallita.
+     *
+     * @return <code>true</code> se l'elaborazione è fallita,
+     * <code>false</code> altrimenti
+     */
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    /**
+     * Ritorna il messaggio d'errore.
+     *
+     * @return messaggio; null se l'elaborazione non è fallita
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Ritorna il nome della fase in cui l'elaborazione è fallita.
+     *
+     * @return nome della fase; null se l'elaborazione non è fallita
+     */
+    public String getFailedStage() {
+        return failedStage;
+    }
+
+    /**
+     * Termina l'elaborazione con un errore, liberando i risultati intermedi.
+     *
+     * @param stage nome della fase in cui è occorso l'errore
+     * @param message messaggio d'errore
+     */
+    void fail(String stage, String message) {
+        failedStage = stage;
+        error = message != null ? message : "";
+        image = null;
+        rawImage = null;
+        done = true;
+    }
+}
@@ -0,0 +1,234 @@
+package png.manager.batch;
+
+import java.util.PriorityQueue;
+
+/**
+ * Ammette le decodifiche concorrenti entro un budget di memoria globale.
+ * <p>
+ * Prima di decodificare, ciascun thread richiede la memoria stimata per la
+ * propria immagine e la restituisce al termine. Le richieste in attesa vengono
+ * servite dalla più grande alla più piccola, e a parità di dimensione in
+ * ordine di arrivo: anticipare i lavori più lunghi riduce il tempo complessivo
+ * dell'elaborazione, e una richiesta piccola non può superare una richiesta
+ * più grande che attende la liberazione di memoria, così che le immagini
+ * grandi non restino in attesa indefinitamente. Una richiesta superiore al
+ * budget viene ammessa solo quando nessun'altra decodifica è in corso.
+ */
+public class MemoryBudget {
+
+    /**
+     * Memoria disponibile, in byte.
+     */
+    private final long capacity;
+    /**
+     * Richieste in attesa, dalla più grande alla più piccola.
+     */
+    private final PriorityQueue<Request> waiting = new PriorityQueue<>();
+    /**
+     * Memoria assegnata, in byte.
+     */
+    private long used = 0;
+    /**
+     * Massima memoria assegnata contemporaneamente, in byte.
+     */
+    private long peak = 0;
+    /**
+     * Numero di richieste ammesse.
+     */
+    private long admitted = 0;
+    /**
+     * Numero di richieste che hanno dovuto attendere.
+     */
+    private long delayed = 0;
+    /**
+     * Tempo complessivo di attesa delle richieste, in nanosecondi.
+     */
+    private long waitingTime = 0;
+    /**
+     * Numero progressivo dell'ultima richiesta.
+     */
+    private long sequence = 0;
+
+    /**
+     * Costruisce il budget.
+     *
+     * @param capacity memoria disponibile, in byte
+     */
+    public MemoryBudget(long capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Il budget di memoria deve essere positivo.");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Costruisce il budget pari alla metà della memoria massima della
+     * macchina virtuale.
+     */
+    public MemoryBudget() {
+        this(Runtime.getRuntime().maxMemory() / 2);
+    }
+
+    /**
+     * Attende che la memoria richiesta sia disponibile e la assegna.
+     *
+     * @param bytes memoria richiesta, in byte
+     * @return memoria assegnata, da restituire con {@link #release(long)}; pari
+     * al budget se la richiesta lo supera
+     * @throws InterruptedException - se l'attesa viene interrotta
+     */
+    public synchronized long acquire(long bytes) throws InterruptedException {
+        Request request = new Request(Math.max(0, Math.min(bytes, capacity)), sequence++);
+        waiting.add(request);
+        long start = System.nanoTime();
+        boolean waited = false;
+        try {
+            while (waiting.peek() != request || used + request.bytes > capacity) {
+                waited = true;
+                wait();
+            }
+        } catch (InterruptedException e) {
+            waiting.remove(request);
+            //La richiesta rimossa poteva bloccare quelle successive
+            notifyAll();
+            throw e;
+        }
+
+        waiting.poll();
+        used += request.bytes;
+        peak = Math.max(peak, used);
+        admitted++;
+        if (waited) {
+            delayed++;
+            waitingTime += System.nanoTime() - start;
+        }
+        //La richiesta successiva potrebbe rientrare nella memoria residua
+        notifyAll();
+        return request.bytes;
+    }
+
+    /**
+     * Restituisce la memoria assegnata da {@link #acquire(long)}.
+     *
+     * @param bytes memoria assegnata, in byte
+     */
+    public synchronized void release(long bytes) {
+        used -= bytes;
+        notifyAll();
+    }
+
+    /**
+     * Ritorna la memoria disponibile.
+     *
+     * @return memoria disponibile, in byte
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Ritorna la memoria attualmente assegnata.
+     *
+     * @return memoria assegnata, in byte
+     */
+    public synchronized long getUsed() {
+        return used;
+    }
+
+    /**
+     * Ritorna la massima memoria assegnata contemporaneamente.
+     *
+     * @return memoria assegnata al picco, in byte
+     */
+    public synchronized long getPeak() {
+        return peak;
+    }
+
+    /**
+     * Ritorna il numero di richieste in attesa.
+     *
+     * @return numero di richieste
+     */
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    /**
+     * Ritorna il numero di richieste ammesse.
+     *
+     * @return numero di richieste
+     */
+    public synchronized long getAdmitted() {
+        return admitted;
+    }
+
+    /**
+     * Ritorna il numero di richieste ammesse dopo un'attesa.
+     *
+     * @return numero di richieste
+     */
+    public synchronized long getDelayed() {
+        return delayed;
+    }
+
+    /**
+     * Ritorna il tempo complessivo di attesa delle richieste.
+     *
+     * @return tempo di attesa, in millisecondi
+     */
+    public synchronized long getWaitingTime() {
+        return waitingTime / 1000000;
+    }
+
+    /**
+     * Ritorna una descrizione dell'utilizzo del budget.
+     *
+     * @return budget, picco, richieste ammesse e attese
+     */
+    @Override
+    public synchronized String toString() {
+        return "budget " + (capacity >> 20) + " MB, picco " + (peak >> 20) + " MB, "
+                + admitted + " decodifiche, " + delayed + " in attesa per " + getWaitingTime() + " ms";
+    }
+
+    /**
+     * Richiesta di memoria in attesa.
+     */
+    private static class Request implements Comparable<Request> {
+
+        /**
+         * Memoria richiesta, in byte.
+         */
+        private final long bytes;
+        /**
+         * Numero progressivo della richiesta.
+         */
+        private final long sequence;
+
+        /**
+         * Costruisce la richiesta.
+         *
+         * @param bytes memoria richiesta, in byte
+         * @param sequence numero progressivo della richiesta
+         */
+        Request(long bytes, long sequence) {
+            this.bytes = bytes;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Ordina le richieste dalla più grande alla più piccola, e a parità di
+         * dimensione dalla meno recente.
+         *
+         * @param other richiesta da confrontare
+         * @return valore negativo se la richiesta va servita prima dell'altra
+         */
+        @Override
+        public int compareTo(Request other) {
+            if (bytes != other.bytes) {
+                return bytes > other.bytes ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package png.manager.batch;
+
+/**
+ * Ascoltatore dei file elaborati da una {@link StagedPipeline}.
+ */
+public interface PipelineListener {
+
+    /**
+     * Notifica il termine dell'elaborazione di un file, con successo o meno.
+     * <p>
+     * Il metodo viene invocato dai thread delle fasi, anche in concorrenza.
+     *
+     * @param job file elaborato
+     */
+    void jobCompleted(BatchJob job);
+}
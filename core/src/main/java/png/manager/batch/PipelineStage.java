@@ -0,0 +1,27 @@
+package png.manager.batch;
+
+import java.io.IOException;
+
+import png.manager.exception.ChunkParserException;
+import png.manager.exception.DecodingException;
+import png.manager.exception.PNGStructureException;
+
+/**
+ * Fase di una {@link StagedPipeline}.
+ */
+public interface PipelineStage {
+
+    /**
+     * Elabora un file, aggiornandone i risultati intermedi. La fase può
+     * terminare l'elaborazione in anticipo con {@link BatchJob#complete()};
+     * un'eccezione la termina con un errore.
+     *
+     * @param job file da elaborare
+     * @throws ChunkParserException - se occorrono errori in fase di parsing
+     * @throws PNGStructureException - se l'immagine non rispetta i requisiti
+     * del formato
+     * @throws DecodingException - se occorrono errori in fase di decodifica
+     * @throws IOException - se occorrono errori in lettura o scrittura
+     */
+    void process(BatchJob job) throws ChunkParserException, PNGStructureException, DecodingException, IOException;
+}
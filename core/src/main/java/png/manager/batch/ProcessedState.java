@@ -0,0 +1,242 @@
+package png.manager.batch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Stato persistente dei file già elaborati, usato per non elaborare di nuovo
+ * gli stessi file dopo un riavvio.
+ * <p>
+ * Ciascun file viene identificato dal percorso assoluto, dalla dimensione e
+ * dalla data di ultima modifica: un file modificato dopo l'elaborazione
+ * risulta quindi da elaborare. Anche i file la cui elaborazione è fallita
+ * risultano da elaborare, così che vengano ritentati al riavvio. Lo stato
+ * viene salvato in un file di testo con una riga per file, nella forma
+ * <code>modifica TAB dimensione TAB esito TAB percorso</code>. Ogni elaborazione aggiunge una riga, scritta subito su
+ * disco; all'apertura le righe ripetute vengono compattate, quelle dei file
+ * rimossi vengono scartate e quelle incomplete, lasciate da un'interruzione in
+ * scrittura, vengono ignorate.
+ */
+public class ProcessedState implements Closeable {
+
+    /**
+     * Esito registrato per un file elaborato con successo.
+     */
+    private static final String SUCCEEDED = "OK";
+    /**
+     * Esito registrato per un file la cui elaborazione è fallita.
+     */
+    private static final String FAILED = "ERRORE";
+
+    /**
+     * File in cui viene salvato lo stato.
+     */
+    private final Path file;
+    /**
+     * File elaborati, indicizzati per percorso assoluto.
+     */
+    private final Map<String, Entry> entries = new HashMap<>();
+    /**
+     * Scrittore delle nuove righe del file di stato.
+     */
+    private final BufferedWriter writer;
+
+    /**
+     * Costruisce lo stato, leggendo il file indicato se esiste e
+     * riscrivendolo compattato.
+     *
+     * @param file file in cui salvare lo stato
+     * @throws IOException - se il file non può essere letto o scritto
+     */
+    public ProcessedState(Path file) throws IOException {
+        this.file = file.toAbsolutePath().normalize();
+        if (Files.exists(this.file)) {
+            load();
+        }
+        compact();
+        writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Indica se un file è già stato elaborato con successo nella versione
+     * indicata.
+     *
+     * @param path file da controllare
+     * @param size dimensione del file, in byte
+     * @param modified data di ultima modifica del file, in millisecondi
+     * @return <code>true</code> se il file è già stato elaborato con successo,
+     * <code>false</code> se non è stato elaborato, è stato modificato o la sua
+     * elaborazione è fallita
+     */
+    public synchronized boolean isProcessed(Path path, long size, long modified) {
+        Entry entry = entries.get(key(path));
+        return entry != null && entry.succeeded && entry.size == size && entry.modified == modified;
+    }
+
+    /**
+     * Registra l'elaborazione di un file e la salva subito su disco.
+     *
+     * @param path file elaborato
+     * @param size dimensione del file elaborato, in byte
+     * @param modified data di ultima modifica del file elaborato, in
+     * millisecondi
+     * @param succeeded <code>true</code> se l'elaborazione ha avuto successo
+     * @throws IOException - se lo stato non può essere scritto
+     */
+    public synchronized void record(Path path, long size, long modified, boolean succeeded) throws IOException {
+        Entry entry = new Entry(size, modified, succeeded);
+        String key = key(path);
+        entries.put(key, entry);
+        writer.write(format(key, entry));
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * Ritorna il numero di file registrati, compresi quelli la cui
+     * elaborazione è fallita.
+     *
+     * @return numero di file
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Ritorna il file in cui viene salvato lo stato.
+     *
+     * @return percorso assoluto del file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Chiude il file di stato.
+     *
+     * @throws IOException - se il file non può essere chiuso
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Legge le righe del file di stato. Le righe successive sostituiscono
+     * quelle precedenti dello stesso file, e quelle dei file non più
+     * esistenti vengono scartate.
+     *
+     * @throws IOException - se il file non può essere letto
+     */
+    private void load() throws IOException {
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 4);
+                if (fields.length < 4 || !(fields[2].equals(SUCCEEDED) || fields[2].equals(FAILED))) {
+                    continue;
+                }
+                try {
+                    entries.put(fields[3], new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[0]), fields[2].equals(SUCCEEDED)));
+                } catch (NumberFormatException e) {
+                    //Riga incompleta
+                }
+            }
+            Iterator<String> iterator = entries.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (!Files.exists(Paths.get(iterator.next()))) {
+                    iterator.remove();
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Riscrive il file di stato con una sola riga per file. Il nuovo file
+     * sostituisce il precedente solo dopo essere stato scritto completamente.
+     *
+     * @throws IOException - se il file non può essere scritto
+     */
+    private void compact() throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        BufferedWriter out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8);
+        try {
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                out.write(format(e.getKey(), e.getValue()));
+                out.newLine();
+            }
+        } finally {
+            out.close();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Ritorna la chiave con cui viene registrato un file.
+     *
+     * @param path file
+     * @return percorso assoluto del file
+     */
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Ritorna la riga del file di stato di un file elaborato.
+     *
+     * @param key percorso assoluto del file
+     * @param entry stato del file
+     * @return riga, senza terminatore
+     */
+    private static String format(String key, Entry entry) {
+        return entry.modified + "\t" + entry.size + "\t" + (entry.succeeded ? SUCCEEDED : FAILED) + "\t" + key;
+    }
+
+    /**
+     * Stato di un file elaborato.
+     */
+    private static class Entry {
+
+        /**
+         * Dimensione del file elaborato, in byte.
+         */
+        private final long size;
+        /**
+         * Data di ultima modifica del file elaborato, in millisecondi.
+         */
+        private final long modified;
+        /**
+         * Indica se l'elaborazione ha avuto successo.
+         */
+        private final boolean succeeded;
+
+        /**
+         * Costruisce lo stato del file.
+         *
+         * @param size dimensione del file elaborato, in byte
+         * @param modified data di ultima modifica del file elaborato, in
+         * millisecondi
+         * @param succeeded <code>true</code> se l'elaborazione ha avuto
+         * successo
+         */
+        private Entry(long size, long modified, boolean succeeded) {
+            this.size = size;
+            this.modified = modified;
+            this.succeeded = succeeded;
+        }
+    }
+}
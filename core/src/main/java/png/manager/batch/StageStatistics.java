@@ -0,0 +1,169 @@
+package png.manager.batch;
+
+/**
+ * Statistiche di una fase di una {@link StagedPipeline}, rilevate in un
+ * istante.
+ */
+public final class StageStatistics {
+
+    /**
+     * Nome della fase.
+     */
+    private final String name;
+    /**
+     * Numero di thread della fase.
+     */
+    private final int threads;
+    /**
+     * Numero di file elaborati.
+     */
+    private final long processed;
+    /**
+     * Numero di file la cui elaborazione è fallita nella fase.
+     */
+    private final long failed;
+    /**
+     * Tempo complessivo di elaborazione, in nanosecondi.
+     */
+    private final long busyTime;
+    /**
+     * Tempo complessivo di attesa di spazio nella coda della fase successiva,
+     * in nanosecondi.
+     */
+    private final long blockedTime;
+    /**
+     * Tempo trascorso dall'avvio della pipeline, in nanosecondi.
+     */
+    private final long elapsedTime;
+    /**
+     * Numero di file in coda per la fase.
+     */
+    private final int queued;
+    /**
+     * Capacità della coda della fase.
+     */
+    private final int capacity;
+
+    /**
+     * Costruisce le statistiche.
+     *
+     * @param name nome della fase
+     * @param threads numero di thread della fase
+     * @param processed numero di file elaborati
+     * @param failed numero di file falliti nella fase
+     * @param busyTime tempo di elaborazione in nanosecondi
+     * @param blockedTime tempo di attesa della fase successiva in nanosecondi
+     * @param elapsedTime tempo trascorso dall'avvio in nanosecondi
+     * @param queued numero di file in coda
+     * @param capacity capacità della coda
+     */
+    public StageStatistics(String name, int threads, long processed, long failed, long busyTime, long blockedTime, long elapsedTime, int queued, int capacity) {
+        this.name = name;
+        this.threads = threads;
+        this.processed = processed;
+        this.failed = failed;
+        this.busyTime = busyTime;
+        this.blockedTime = blockedTime;
+        this.elapsedTime = elapsedTime;
+        this.queued = queued;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Ritorna il nome della fase.
+     *
+     * @return nome della fase
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Ritorna il numero di thread della fase.
+     *
+     * @return numero di thread
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Ritorna il numero di file elaborati.
+     *
+     * @return numero di file
+     */
+    public long getProcessed() {
+        return processed;
+    }
+
+    /**
+     * Ritorna il numero di file la cui elaborazione è fallita nella fase.
+     *
+     * @return numero di file
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Ritorna la frazione del tempo disponibile dei thread passata a
+     * elaborare file.
+     * <p>
+     * Una fase con utilizzo vicino a 1 è il collo di bottiglia della
+     * pipeline e beneficia di più thread; una fase con utilizzo basso ne ha
+     * più del necessario.
+     *
+     * @return utilizzo, tra 0 e 1
+     */
+    public double getUtilization() {
+        return elapsedTime <= 0 ? 0 : Math.min(1, (double) busyTime / ((double) elapsedTime * threads));
+    }
+
+    /**
+     * Ritorna la frazione del tempo disponibile dei thread passata ad
+     * attendere spazio nella coda della fase successiva.
+     *
+     * @return frazione del tempo bloccata dalla fase successiva, tra 0 e 1
+     */
+    public double getBlockedRatio() {
+        return elapsedTime <= 0 ? 0 : Math.min(1, (double) blockedTime / ((double) elapsedTime * threads));
+    }
+
+    /**
+     * Ritorna il tempo medio di elaborazione di un file.
+     *
+     * @return tempo medio in nanosecondi; 0 se nessun file è stato elaborato
+     */
+    public long getAverageTime() {
+        return processed == 0 ? 0 : busyTime / processed;
+    }
+
+    /**
+     * Ritorna il numero di file in coda per la fase.
+     *
+     * @return numero di file in coda
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Ritorna la capacità della coda della fase.
+     *
+     * @return numero massimo di file in coda
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Rappresentazione testuale delle statistiche.
+     *
+     * @return statistiche su una riga
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: thread %d; file %d (falliti %d); utilizzo %.0f%%; bloccata %.0f%%; media %.3f ms; coda %d/%d",
+                name, threads, processed, failed, getUtilization() * 100, getBlockedRatio() * 100, getAverageTime() / 1e6, queued, capacity);
+    }
+}
@@ -0,0 +1,280 @@
+package png.manager.batch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Esegue l'elaborazione a lotti di file suddividendola in fasi, ciascuna con
+ * i propri thread.
+ * <p>
+ * Le fasi sono collegate da code di capacità limitata: una fase che produce
+ * più velocemente di quanto la successiva consumi si ferma quando la coda è
+ * piena, così che i file in memoria restino limitati. Dimensionando i thread
+ * di ciascuna fase, le fasi dominate dalla lettura dei file e quelle dominate
+ * dal calcolo possono sfruttare contemporaneamente dischi e processori. Per
+ * ciascuna fase vengono rilevati il tempo di elaborazione e quello di attesa
+ * della fase successiva.
+ */
+public class StagedPipeline {
+
+    /**
+     * Segnale di fine dei file, accodato dopo l'ultimo file.
+     */
+    private static final BatchJob END = new BatchJob(null, null);
+
+    /**
+     * Fasi della pipeline, nell'ordine di esecuzione.
+     */
+    private final ArrayList<Stage> stages = new ArrayList<>();
+    /**
+     * Ascoltatore dei file elaborati.
+     */
+    private final PipelineListener listener;
+    /**
+     * Istante di avvio, in nanosecondi; 0 se la pipeline non è avviata.
+     */
+    private volatile long startTime = 0;
+    /**
+     * Istante di termine, in nanosecondi; 0 se la pipeline non è terminata.
+     */
+    private volatile long endTime = 0;
+
+    /**
+     * Costruisce una pipeline senza fasi.
+     *
+     * @param listener ascoltatore dei file elaborati
+     */
+    public StagedPipeline(PipelineListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Aggiunge una fase in fondo alla pipeline. Le fasi devono essere
+     * aggiunte prima dell'avvio.
+     *
+     * @param name nome della fase
+     * @param threads numero di thread della fase
+     * @param queueCapacity capacità della coda dei file in attesa della fase
+     * @param stage elaborazione eseguita dalla fase
+     */
+    public void addStage(String name, int threads, int queueCapacity, PipelineStage stage) {
+        if (startTime != 0) {
+            throw new IllegalStateException("La pipeline è già stata avviata.");
+        }
+        stages.add(new Stage(name, threads, queueCapacity, stage));
+    }
+
+    /**
+     * Avvia i thread di tutte le fasi.
+     */
+    public void start() {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("La pipeline non ha fasi.");
+        }
+        startTime = System.nanoTime();
+        for (int i = 0; i < stages.size(); i++) {
+            stages.get(i).start(i + 1 < stages.size() ? stages.get(i + 1) : null);
+        }
+    }
+
+    /**
+     * Accoda un file alla prima fase, attendendo se la sua coda è piena.
+     *
+     * @param job file da elaborare
+     * @throws InterruptedException - se l'attesa viene interrotta
+     */
+    public void submit(BatchJob job) throws InterruptedException {
+        stages.get(0).queue.put(job);
+    }
+
+    /**
+     * Attende che tutti i file accodati siano stati elaborati e termina i
+     * thread delle fasi.
+     *
+     * @throws InterruptedException - se l'attesa viene interrotta
+     */
+    public void finish() throws InterruptedException {
+        Stage first = stages.get(0);
+        for (int i = 0; i < first.threads; i++) {
+            first.queue.put(END);
+        }
+        for (Stage s : stages) {
+            for (Thread t : s.workers) {
+                t.join();
+            }
+        }
+        endTime = System.nanoTime();
+    }
+
+    /**
+     * Interrompe i thread di tutte le fasi, scartando i file non ancora
+     * elaborati.
+     */
+    public void abort() {
+        for (Stage s : stages) {
+            for (Thread t : s.workers) {
+                t.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Ritorna le statistiche di ciascuna fase.
+     *
+     * @return statistiche, nell'ordine delle fasi
+     */
+    public List<StageStatistics> getStatistics() {
+        long elapsed = startTime == 0 ? 0 : (endTime != 0 ? endTime : System.nanoTime()) - startTime;
+        ArrayList<StageStatistics> result = new ArrayList<>();
+        for (Stage s : stages) {
+            result.add(new StageStatistics(s.name, s.threads, s.processed.get(), s.failed.get(), s.busyTime.get(), s.blockedTime.get(),
+                    elapsed, s.queue.size(), s.capacity));
+        }
+        return result;
+    }
+
+    /**
+     * Fase della pipeline, con i propri thread e la coda dei file in attesa.
+     */
+    private class Stage {
+
+        /**
+         * Nome della fase.
+         */
+        private final String name;
+        /**
+         * Numero di thread della fase.
+         */
+        private final int threads;
+        /**
+         * Capacità della coda.
+         */
+        private final int capacity;
+        /**
+         * Elaborazione eseguita dalla fase.
+         */
+        private final PipelineStage stage;
+        /**
+         * File in attesa della fase.
+         */
+        private final BlockingQueue<BatchJob> queue;
+        /**
+         * Thread della fase.
+         */
+        private final ArrayList<Thread> workers = new ArrayList<>();
+        /**
+         * Numero di thread ancora attivi.
+         */
+        private final AtomicInteger running;
+        /**
+         * Numero di file elaborati.
+         */
+        private final AtomicLong processed = new AtomicLong();
+        /**
+         * Numero di file falliti nella fase.
+         */
+        private final AtomicLong failed = new AtomicLong();
+        /**
+         * Tempo complessivo di elaborazione.
+         */
+        private final AtomicLong busyTime = new AtomicLong();
+        /**
+         * Tempo complessivo di attesa della fase successiva.
+         */
+        private final AtomicLong blockedTime = new AtomicLong();
+
+        /**
+         * Costruisce la fase.
+         *
+         * @param name nome della fase
+         * @param threads numero di thread della fase
+         * @param capacity capacità della coda
+         * @param stage elaborazione eseguita dalla fase
+         */
+        Stage(String name, int threads, int capacity, PipelineStage stage) {
+            this.name = name;
+            this.threads = threads;
+            this.capacity = capacity;
+            this.stage = stage;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.running = new AtomicInteger(threads);
+        }
+
+        /**
+         * Avvia i thread della fase.
+         *
+         * @param next fase successiva; null se la fase è l'ultima
+         */
+        void start(final Stage next) {
+            for (int i = 0; i < threads; i++) {
+                Thread t = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            work(next);
+                        } catch (InterruptedException e) {
+                            //La pipeline è stata interrotta
+                        }
+                    }
+                }, "pipeline-" + name + "-" + (i + 1));
+                t.setDaemon(true);
+                workers.add(t);
+                t.start();
+            }
+        }
+
+        /**
+         * Elabora i file della coda fino al segnale di fine. L'ultimo thread
+         * della fase a ricevere il segnale lo inoltra alla fase successiva,
+         * così che questa lo riceva solo dopo tutti i file.
+         *
+         * @param next fase successiva; null se la fase è l'ultima
+         * @throws InterruptedException - se il thread viene interrotto
+         */
+        private void work(Stage next) throws InterruptedException {
+            while (true) {
+                BatchJob job = queue.take();
+                if (job == END) {
+                    if (running.decrementAndGet() == 0 && next != null) {
+                        for (int i = 0; i < next.threads; i++) {
+                            next.queue.put(END);
+                        }
+                    }
+                    return;
+                }
+
+                long start = System.nanoTime();
+                try {
+                    stage.process(job);
+                } catch (IOException e) {
+                    //Il messaggio delle eccezioni di I/O è spesso il solo percorso
+                    failed.incrementAndGet();
+                    job.fail(name, e.toString());
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    job.fail(name, e.getMessage());
+                } catch (OutOfMemoryError e) {
+                    //Fallisce solo il lavoro corrente: la fase passa al successivo
+                    failed.incrementAndGet();
+                    job.fail(name, "Memoria insufficiente per elaborare il file.");
+                }
+                busyTime.addAndGet(System.nanoTime() - start);
+                processed.incrementAndGet();
+
+                if (job.isDone() || next == null) {
+                    job.complete();
+                    listener.jobCompleted(job);
+                } else {
+                    start = System.nanoTime();
+                    next.queue.put(job);
+                    blockedTime.addAndGet(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package png.manager.batch;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import png.manager.checker.CRC32Checker;
+import png.manager.checker.Checker;
+import png.manager.decoder.Decoder;
+import png.manager.entity.Chunk;
+import png.manager.entity.PNGImage;
+import png.manager.exception.ChunkParserException;
+import png.manager.miscellaneous.PNGConstants;
+import png.manager.miscellaneous.Utility;
+import png.manager.stream.ChunkStreamReader;
+
+/**
+ * Valida la struttura di un gran numero di file PNG, senza decodificarne i
+ * pixel.
+ * <p>
+ * Per ciascun file vengono controllati la firma, la suddivisione in chunk, il
+ * CRC di ogni chunk e i campi del chunk IHDR. Con file piccoli il tempo è
+ * dominato dall'attesa delle letture, per cui molti file vengono letti
+ * contemporaneamente: il numero di file in elaborazione è limitato da un
+ * semaforo, e i byte letti e non ancora controllati da un budget di memoria.
+ * I file di dimensione inferiore al budget vengono letti interamente con una
+ * sola operazione e analizzati in memoria; quelli più grandi vengono letti
+ * con un {@link ChunkStreamReader}, un blocco alla volta, e occupano solo il
+ * buffer di lettura.
+ */
+public class ValidationEngine {
+
+    /**
+     * Numero predefinito di file in elaborazione contemporaneamente.
+     */
+    public static final int DEFAULT_MAX_OPEN_FILES = 256;
+    /**
+     * Budget di memoria predefinito, in byte.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+    /**
+     * Byte corrispondenti a un permesso del budget di memoria.
+     */
+    private static final int MEMORY_UNIT = 1024;
+    /**
+     * Dimensione del buffer di lettura dei file più grandi del budget.
+     */
+    private static final int STREAM_BUFFER_SIZE = 65536;
+    /**
+     * Lunghezza dei dati del chunk IHDR.
+     */
+    private static final int HEADER_LENGTH = 13;
+    /**
+     * Tempo dopo il quale un thread inattivo termina, in secondi.
+     */
+    private static final long IDLE_TIMEOUT = 30;
+
+    /**
+     * Permessi dei file in elaborazione.
+     */
+    private final Semaphore openFiles;
+    /**
+     * Permessi del budget di memoria, in unità di {@link #MEMORY_UNIT} byte.
+     */
+    private final Semaphore memory;
+    /**
+     * Numero totale di permessi del budget di memoria.
+     */
+    private final int memoryPermits;
+    /**
+     * Thread di validazione, uno per ciascun file in elaborazione.
+     */
+    private final ThreadPoolExecutor executor;
+    /**
+     * Riepilogo dei risultati.
+     */
+    private final ValidationReport report = new ValidationReport();
+    /**
+     * Ascoltatore dei risultati; null se assente.
+     */
+    private final ValidationListener listener;
+
+    /**
+     * Costruisce il motore di validazione.
+     *
+     * @param maxOpenFiles numero massimo di file in elaborazione
+     * contemporaneamente
+     * @param memoryBudget numero massimo di byte letti e non ancora
+     * controllati
+     * @param listener ascoltatore dei risultati; null se assente
+     */
+    public ValidationEngine(int maxOpenFiles, long memoryBudget, ValidationListener listener) {
+        this.openFiles = new Semaphore(maxOpenFiles);
+        this.memoryPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / MEMORY_UNIT));
+        this.memory = new Semaphore(memoryPermits);
+        this.listener = listener;
+        this.executor = new ThreadPoolExecutor(maxOpenFiles, maxOpenFiles, IDLE_TIMEOUT, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "validation-worker-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Accoda la validazione di un file, attendendo se il numero massimo di
+     * file è già in elaborazione.
+     *
+     * @param file file da validare
+     * @throws InterruptedException - se l'attesa viene interrotta
+     */
+    public void submit(final Path file) throws InterruptedException {
+        openFiles.acquire();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ValidationResult result = null;
+                    try {
+                        result = validate(file);
+                    } finally {
+                        try {
+                            if (result == null) {
+                                //Il file non deve sparire dal riepilogo anche se il thread termina
+                                result = new ValidationResult(file, ValidationStatus.UNREADABLE, "Errore inatteso durante la validazione.", 0, 0);
+                            }
+                            report.fileValidated(result);
+                            if (listener != null) {
+                                listener.fileValidated(result);
+                            }
+                        } finally {
+                            openFiles.release();
+                        }
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            openFiles.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Attende il termine delle validazioni accodate e arresta i thread di
+     * validazione.
+     *
+     * @return riepilogo dei risultati
+     * @throws InterruptedException - se l'attesa viene interrotta
+     */
+    public ValidationReport finish() throws InterruptedException {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                //Attende il termine delle validazioni in corso
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return report;
+    }
+
+    /**
+     * Ritorna il riepilogo dei risultati ottenuti finora.
+     *
+     * @return riepilogo dei risultati
+     */
+    public ValidationReport getReport() {
+        return report;
+    }
+
+    /**
+     * Valida un file nel thread corrente, rispettando il budget di memoria.
+     *
+     * @param file file da validare
+     * @return risultato della validazione
+     */
+    public ValidationResult validate(Path file) {
+        long start = System.nanoTime();
+        long size = 0;
+        try {
+            size = Files.size(file);
+            int permits = (int) Math.min(memoryPermits, (size + MEMORY_UNIT - 1) / MEMORY_UNIT);
+            boolean streamed = permits == memoryPermits;
+            if (streamed) {
+                //I file più grandi del budget occupano solo il buffer di lettura
+                permits = Math.min(memoryPermits, STREAM_BUFFER_SIZE / MEMORY_UNIT);
+            }
+            memory.acquire(permits);
+            try {
+                if (streamed) {
+                    return checkStream(file, size, start);
+                }
+                byte[] data = Files.readAllBytes(file);
+                if (data.length < PNGConstants.HEADER_LENGTH
+                        || !Arrays.equals(Arrays.copyOf(data, PNGConstants.HEADER_LENGTH), PNGConstants.FORMAT_SIGNATURE)) {
+                    return result(file, ValidationStatus.NOT_PNG, "", size, start);
+                }
+                return check(file, Decoder.getPNGImageFromStream(new ByteArrayInputStream(data)), size, start);
+            } finally {
+                memory.release(permits);
+            }
+        } catch (IOException e) {
+            return result(file, ValidationStatus.UNREADABLE, e.toString(), size, start);
+        } catch (ChunkParserException e) {
+            return result(file, ValidationStatus.MALFORMED, e.getMessage(), size, start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return result(file, ValidationStatus.UNREADABLE, "Validazione interrotta.", size, start);
+        } catch (RuntimeException e) {
+            //Ad esempio, l'assenza del chunk IHDR
+            return result(file, ValidationStatus.MALFORMED, e.toString(), size, start);
+        } catch (OutOfMemoryError e) {
+            //Immagine che non entra in memoria: il file resta nel rapporto come illeggibile
+            return result(file, ValidationStatus.UNREADABLE, "Memoria insufficiente per validare il file.", size, start);
+        }
+    }
+
+    /**
+     * Controlla i CRC dei chunk e i campi del chunk IHDR leggendo il file un
+     * blocco alla volta, senza conservare i dati dei chunk.
+     *
+     * @param file file da validare
+     * @param size dimensione del file
+     * @param start istante di inizio della validazione
+     * @return risultato della validazione
+     * @throws IOException - se occorrono errori in lettura
+     * @throws ChunkParserException - se il file termina all'interno di un
+     * chunk o il chunk IHDR ha lunghezza errata
+     */
+    private static ValidationResult checkStream(Path file, long size, long start) throws IOException, ChunkParserException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), STREAM_BUFFER_SIZE);
+        try {
+            ChunkStreamReader reader = new ChunkStreamReader(in);
+            try {
+                reader.readSignature();
+            } catch (ChunkParserException e) {
+                return result(file, ValidationStatus.NOT_PNG, "", size, start);
+            }
+
+            PNGImage image = null;
+            int index = 0;
+            while (reader.nextChunk()) {
+                index++;
+                byte[] header = null;
+                if (index == 1 && reader.getType().equals(PNGConstants.MAIN_CHUNK_NAME)) {
+                    header = reader.readData(HEADER_LENGTH);
+                }
+                if (!reader.finishChunk()) {
+                    return result(file, ValidationStatus.CRC_ERROR, "Chunk " + index + " (" + reader.getType() + ")", size, start);
+                }
+                if (header != null) {
+                    ArrayList<Chunk> list = new ArrayList<>();
+                    list.add(Utility.buildChunk(reader.getTypeBytes(), header));
+                    image = new PNGImage(list);
+                }
+            }
+            if (image == null) {
+                return result(file, ValidationStatus.MALFORMED, "Il chunk IHDR non è il primo chunk dell'immagine.", size, start);
+            }
+            return checkHeader(file, image, size, start);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Controlla i CRC dei chunk e i campi del chunk IHDR.
+     *
+     * @param file file validato
+     * @param image immagine risultato del parsing
+     * @param size dimensione del file
+     * @param start istante di inizio della validazione
+     * @return risultato della validazione
+     */
+    private static ValidationResult check(Path file, PNGImage image, long size, long start) {
+        ArrayList<Chunk> chunks = image.getChunks();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (!CRC32Checker.checkChunkCRC32(chunks.get(i))) {
+                return result(file, ValidationStatus.CRC_ERROR, "Chunk " + (i + 1) + " (" + chunks.get(i).getTypeAsString() + ")", size, start);
+            }
+        }
+        return checkHeader(file, image, size, start);
+    }
+
+    /**
+     * Controlla i campi del chunk IHDR.
+     *
+     * @param file file validato
+     * @param image immagine contenente almeno il chunk IHDR
+     * @param size dimensione del file
+     * @param start istante di inizio della validazione
+     * @return risultato della validazione
+     */
+    private static ValidationResult checkHeader(Path file, PNGImage image, long size, long start) {
+        if (!Checker.checkDimension(image)) {
+            return result(file, ValidationStatus.INVALID_HEADER, "Altezza o larghezza nulle.", size, start);
+        }
+        if (!Checker.checkColorTypeBitDepthCombination(image)) {
+            return result(file, ValidationStatus.INVALID_HEADER, "Combinazione invalida di tipo di colore e profondita' di bit.", size, start);
+        }
+        return result(file, ValidationStatus.VALID, "", size, start);
+    }
+
+    /**
+     * Costruisce il risultato di una validazione.
+     *
+     * @param file file validato
+     * @param status esito della validazione
+     * @param message dettaglio dell'esito
+     * @param size dimensione del file
+     * @param start istante di inizio della validazione
+     * @return risultato della validazione
+     */
+    private static ValidationResult result(Path file, ValidationStatus status, String message, long size, long start) {
+        return new ValidationResult(file, status, message, size, System.nanoTime() - start);
+    }
+}
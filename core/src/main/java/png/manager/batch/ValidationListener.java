@@ -0,0 +1,17 @@
+package png.manager.batch;
+
+/**
+ * Ascoltatore dei risultati di una validazione a lotti.
+ */
+public interface ValidationListener {
+
+    /**
+     * Notifica il risultato della validazione di un file.
+     * <p>
+     * Il metodo viene invocato dai thread di validazione, anche in
+     * concorrenza, appena ciascun file è stato controllato.
+     *
+     * @param result risultato della validazione
+     */
+    void fileValidated(ValidationResult result);
+}
@@ -0,0 +1,97 @@
+package png.manager.batch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Riepilogo dei risultati di una validazione a lotti, aggiornato man mano che
+ * i file vengono controllati.
+ */
+public class ValidationReport implements ValidationListener {
+
+    /**
+     * Numero di file per ciascun esito, nell'ordine di
+     * {@link ValidationStatus#values()}.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(ValidationStatus.values().length);
+    /**
+     * Byte letti.
+     */
+    private final AtomicLong bytes = new AtomicLong();
+    /**
+     * Somma delle durate delle validazioni in nanosecondi.
+     */
+    private final AtomicLong elapsed = new AtomicLong();
+
+    /**
+     * Aggiunge il risultato di un file al riepilogo.
+     *
+     * @param result risultato della validazione
+     */
+    @Override
+    public void fileValidated(ValidationResult result) {
+        counts.incrementAndGet(result.getStatus().ordinal());
+        bytes.addAndGet(result.getSize());
+        elapsed.addAndGet(result.getElapsed());
+    }
+
+    /**
+     * Ritorna il numero di file con l'esito in input.
+     *
+     * @param status esito
+     * @return numero di file
+     */
+    public long getCount(ValidationStatus status) {
+        return counts.get(status.ordinal());
+    }
+
+    /**
+     * Ritorna il numero di file controllati.
+     *
+     * @return numero di file
+     */
+    public long getTotal() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Ritorna il numero di byte letti.
+     *
+     * @return byte letti
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Ritorna la durata media della validazione di un file.
+     *
+     * @return durata media in nanosecondi; 0 se nessun file è stato
+     * controllato
+     */
+    public long getAverageElapsed() {
+        long total = getTotal();
+        return total == 0 ? 0 : elapsed.get() / total;
+    }
+
+    /**
+     * Rappresentazione testuale del riepilogo.
+     *
+     * @return numero di file per esito e byte letti
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("File: " + getTotal());
+        for (ValidationStatus s : ValidationStatus.values()) {
+            long count = getCount(s);
+            if (count > 0) {
+                result.append("; ").append(s.getDescription()).append(": ").append(count);
+            }
+        }
+        return result.append("; byte letti: ").append(getBytes()).append(".").toString();
+    }
+}
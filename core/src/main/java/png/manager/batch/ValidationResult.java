@@ -0,0 +1,102 @@
+package png.manager.batch;
+
+import java.nio.file.Path;
+
+/**
+ * Risultato della validazione di un file.
+ */
+public final class ValidationResult {
+
+    /**
+     * File validato.
+     */
+    private final Path file;
+    /**
+     * Esito della validazione.
+     */
+    private final ValidationStatus status;
+    /**
+     * Dettaglio dell'esito; vuoto se il file è valido.
+     */
+    private final String message;
+    /**
+     * Dimensione del file in byte.
+     */
+    private final long size;
+    /**
+     * Durata della validazione in nanosecondi.
+     */
+    private final long elapsed;
+
+    /**
+     * Costruisce il risultato.
+     *
+     * @param file file validato
+     * @param status esito della validazione
+     * @param message dettaglio dell'esito
+     * @param size dimensione del file in byte
+     * @param elapsed durata della validazione in nanosecondi
+     */
+    public ValidationResult(Path file, ValidationStatus status, String message, long size, long elapsed) {
+        this.file = file;
+        this.status = status;
+        this.message = message != null ? message : "";
+        this.size = size;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Ritorna il file validato.
+     *
+     * @return percorso del file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Ritorna l'esito della validazione.
+     *
+     * @return esito
+     */
+    public ValidationStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Ritorna il dettaglio dell'esito.
+     *
+     * @return messaggio; vuoto se il file è valido
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Ritorna la dimensione del file.
+     *
+     * @return dimensione in byte
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Ritorna la durata della validazione.
+     *
+     * @return durata in nanosecondi
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Rappresentazione testuale del risultato.
+     *
+     * @return percorso, esito e dettaglio separati da tabulazioni
+     */
+    @Override
+    public String toString() {
+        return file + "\t" + status.getDescription() + "\t" + message.replace('\n', ' ').replace('\t', ' ');
+    }
+}
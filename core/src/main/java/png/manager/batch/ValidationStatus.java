@@ -0,0 +1,59 @@
+package png.manager.batch;
+
+/**
+ * Esito della validazione di un file.
+ */
+public enum ValidationStatus {
+
+    /**
+     * Il file ha superato tutti i controlli.
+     */
+    VALID("valido"),
+    /**
+     * Il file non può essere letto.
+     */
+    UNREADABLE("illeggibile"),
+    /**
+     * Il file non inizia con la firma del formato PNG.
+     */
+    NOT_PNG("non PNG"),
+    /**
+     * Il file non può essere suddiviso in chunk.
+     */
+    MALFORMED("struttura non valida"),
+    /**
+     * Almeno un chunk ha CRC non valido.
+     */
+    CRC_ERROR("CRC non valido"),
+    /**
+     * I campi del chunk IHDR non sono validi.
+     */
+    INVALID_HEADER("intestazione non valida"),
+    /**
+     * I dati compressi dell'immagine non possono essere decodificati.
+     */
+    INVALID_DATA("dati non decodificabili");
+
+    /**
+     * Descrizione dell'esito.
+     */
+    private final String description;
+
+    /**
+     * Costruisce l'esito.
+     *
+     * @param description descrizione dell'esito
+     */
+    private ValidationStatus(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Ritorna la descrizione dell'esito.
+     *
+     * @return descrizione testuale
+     */
+    public String getDescription() {
+        return description;
+    }
+}
@@ -44,7 +44,7 @@ public class CRC32Checker {
      * @return <code>true</code> se il chunk ha CRC valido, <code>false</code>
      * altrimenti
      */
-    private static boolean checkChunkCRC32(Chunk c) {
+    public static boolean checkChunkCRC32(Chunk c) {
         Checksum checksum = new CRC32();
         //Il CRC deve essere calcolato sulla concatenazione di nome e dati
         byte[] data = Utility.concatArray(c.getType(), c.getData());
@@ -53,7 +53,9 @@ public class Checker {
      * altrimenti
      */
     public static boolean checkColorTypeBitDepthCombination(PNGImage image) {
-        return colorTypes_bitDepths_combinations.get(image.getColorType()).contains(image.getBitDepth());
+        //I tipi di colore sconosciuti non hanno profondità ammesse
+        HashSet<Integer> bitDepths = colorTypes_bitDepths_combinations.get(image.getColorType());
+        return bitDepths != null && bitDepths.contains(image.getBitDepth());
     }
 
     /**
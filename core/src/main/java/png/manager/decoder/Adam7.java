@@ -0,0 +1,233 @@
+package png.manager.decoder;
+
+import png.manager.entity.PixelBuffer;
+import png.manager.entity.RawImage;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Fornisce le funzionalità per la gestione dell'interlacciamento Adam7.
+ * <p>
+ * L'immagine viene trasmessa in 7 passate, ciascuna delle quali contiene i
+ * pixel di una griglia sempre più fitta. Al termine di ogni passata è quindi
+ * disponibile un'anteprima dell'immagine a risoluzione ridotta, ottenuta
+ * replicando ciascun pixel noto sul blocco di pixel non ancora trasmessi.
+ * L'anteprima può essere generata a dimensione piena con
+ * {@link #upscale(RawImage, int)}, oppure con un solo pixel per blocco con
+ * {@link #reduce(RawImage, int)}, lasciando a chi la visualizza
+ * l'ingrandimento dei blocchi.
+ */
+public class Adam7 {
+
+    /**
+     * Numero di passate.
+     */
+    public static final int PASSES = 7;
+
+    /**
+     * Riga iniziale di ciascuna passata.
+     */
+    private static final int[] START_ROW = {0, 0, 4, 0, 2, 0, 1};
+    /**
+     * Colonna iniziale di ciascuna passata.
+     */
+    private static final int[] START_COLUMN = {0, 4, 0, 2, 0, 1, 0};
+    /**
+     * Distanza tra le righe di ciascuna passata.
+     */
+    private static final int[] ROW_INCREMENT = {8, 8, 8, 4, 4, 2, 2};
+    /**
+     * Distanza tra le colonne di ciascuna passata.
+     */
+    private static final int[] COLUMN_INCREMENT = {8, 8, 4, 4, 2, 2, 1};
+    /**
+     * Larghezza del blocco rappresentato da ciascun pixel noto al termine di
+     * ciascuna passata.
+     */
+    private static final int[] BLOCK_WIDTH = {8, 4, 4, 2, 2, 1, 1};
+    /**
+     * Altezza del blocco rappresentato da ciascun pixel noto al termine di
+     * ciascuna passata.
+     */
+    private static final int[] BLOCK_HEIGHT = {8, 8, 4, 4, 2, 2, 1};
+
+    /**
+     * Costruttore privato della classe.
+     */
+    private Adam7() {
+    }
+
+    /**
+     * Ritorna la riga dell'immagine corrispondente a una riga della passata.
+     *
+     * @param pass indice della passata, a partire da 0
+     * @param row indice della riga nella passata
+     * @return indice della riga nell'immagine
+     */
+    public static int getImageRow(int pass, int row) {
+        return START_ROW[pass] + row * ROW_INCREMENT[pass];
+    }
+
+    /**
+     * Ritorna la colonna dell'immagine corrispondente a una colonna della
+     * passata.
+     *
+     * @param pass indice della passata, a partire da 0
+     * @param column indice della colonna nella passata
+     * @return indice della colonna nell'immagine
+     */
+    public static int getImageColumn(int pass, int column) {
+        return START_COLUMN[pass] + column * COLUMN_INCREMENT[pass];
+    }
+
+    /**
+     * Ritorna la larghezza della passata in input.
+     *
+     * @param pass indice della passata, a partire da 0
+     * @param width larghezza dell'immagine
+     * @return numero di pixel di ciascuna riga della passata
+     */
+    public static int getPassWidth(int pass, int width) {
+        if (width <= START_COLUMN[pass]) {
+            return 0;
+        }
+        return (width - START_COLUMN[pass] + COLUMN_INCREMENT[pass] - 1) / COLUMN_INCREMENT[pass];
+    }
+
+    /**
+     * Ritorna l'altezza della passata in input.
+     *
+     * @param pass indice della passata, a partire da 0
+     * @param height altezza dell'immagine
+     * @return numero di righe della passata
+     */
+    public static int getPassHeight(int pass, int height) {
+        if (height <= START_ROW[pass]) {
+            return 0;
+        }
+        return (height - START_ROW[pass] + ROW_INCREMENT[pass] - 1) / ROW_INCREMENT[pass];
+    }
+
+    /**
+     * Ritorna la larghezza del blocco rappresentato da ciascun pixel noto al
+     * termine della passata in input.
+     *
+     * @param pass indice della passata, a partire da 0
+     * @return larghezza del blocco in pixel
+     */
+    public static int getBlockWidth(int pass) {
+        return BLOCK_WIDTH[pass];
+    }
+
+    /**
+     * Ritorna l'altezza del blocco rappresentato da ciascun pixel noto al
+     * termine della passata in input.
+     *
+     * @param pass indice della passata, a partire da 0
+     * @return altezza del blocco in pixel
+     */
+    public static int getBlockHeight(int pass) {
+        return BLOCK_HEIGHT[pass];
+    }
+
+    /**
+     * Genera l'anteprima disponibile al termine della passata in input con un
+     * solo pixel per blocco, ossia i soli pixel noti. L'anteprima occupa una
+     * frazione dell'immagine pari all'area di un blocco, e va ingrandita dei
+     * fattori {@link #getBlockWidth(int)} e {@link #getBlockHeight(int)}.
+     *
+     * @param image immagine in cui sono stati collocati i pixel delle passate
+     * fino a quella in input
+     * @param pass indice dell'ultima passata completata, a partire da 0
+     * @return anteprima ridotta dell'immagine; l'immagine in input stessa se
+     * la passata è l'ultima
+     */
+    public static RawImage reduce(RawImage image, int pass) {
+        if (pass == PASSES - 1) {
+            return image;
+        }
+
+        int width = (image.getWidth() + BLOCK_WIDTH[pass] - 1) / BLOCK_WIDTH[pass];
+        int height = (image.getHeight() + BLOCK_HEIGHT[pass] - 1) / BLOCK_HEIGHT[pass];
+        int rowBytes = Utility.getRowBytes(width, image.getColorType(), image.getBitDepth());
+        int pixelBits = image.getBitDepth() * image.getChannels();
+        PixelBuffer source = image.getPixels();
+        PixelBuffer pixels = PixelBuffer.allocate(rowBytes, height, source.isDirect());
+
+        byte[] sourceRow = new byte[image.getRowBytes()];
+        byte[] row = new byte[rowBytes];
+        for (int y = 0; y < height; y++) {
+            source.getRow(y * BLOCK_HEIGHT[pass], sourceRow, 0);
+            for (int x = 0; x < width; x++) {
+                copyPixel(sourceRow, 0, x * BLOCK_WIDTH[pass], row, 0, x, pixelBits);
+            }
+            pixels.putRow(y, row, 0);
+        }
+
+        return new RawImage(width, height, image.getColorType(), image.getBitDepth(), pixels, image.getPalette());
+    }
+
+    /**
+     * Genera l'anteprima disponibile al termine della passata in input,
+     * replicando ciascun pixel noto sul blocco che rappresenta.
+     *
+     * @param image immagine in cui sono stati collocati i pixel delle passate
+     * fino a quella in input
+     * @param pass indice dell'ultima passata completata, a partire da 0
+     * @return anteprima dell'immagine; l'immagine in input stessa se la
+     * passata è l'ultima
+     */
+    public static RawImage upscale(RawImage image, int pass) {
+        if (pass == PASSES - 1) {
+            return image;
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int rowBytes = image.getRowBytes();
+        int pixelBits = image.getBitDepth() * image.getChannels();
+        PixelBuffer source = image.getPixels();
+        PixelBuffer pixels = PixelBuffer.allocate(rowBytes, height, source.isDirect());
+
+        byte[] sourceRow = new byte[rowBytes];
+        byte[] row = new byte[rowBytes];
+        for (int y = 0; y < height; y++) {
+            //Le righe dello stesso blocco sono uguali alla prima
+            if (y % BLOCK_HEIGHT[pass] == 0) {
+                source.getRow(y, sourceRow, 0);
+                for (int x = 0; x < width; x++) {
+                    copyPixel(sourceRow, 0, x - x % BLOCK_WIDTH[pass], row, 0, x, pixelBits);
+                }
+            }
+            pixels.putRow(y, row, 0);
+        }
+
+        return new RawImage(width, height, image.getColorType(), image.getBitDepth(), pixels, image.getPalette());
+    }
+
+    /**
+     * Copia un pixel da una riga a un'altra.
+     *
+     * @param src riga d'origine
+     * @param srcOffset posizione del primo byte della riga d'origine
+     * @param srcX colonna del pixel da copiare
+     * @param dst riga di destinazione
+     * @param dstOffset posizione del primo byte della riga di destinazione
+     * @param dstX colonna in cui copiare il pixel
+     * @param pixelBits numero di bit di ciascun pixel
+     */
+    static void copyPixel(byte[] src, int srcOffset, int srcX, byte[] dst, int dstOffset, int dstX, int pixelBits) {
+        if (pixelBits >= 8) {
+            int pixelBytes = pixelBits >> 3;
+            System.arraycopy(src, srcOffset + srcX * pixelBytes, dst, dstOffset + dstX * pixelBytes, pixelBytes);
+            return;
+        }
+
+        int mask = (1 << pixelBits) - 1;
+        int srcBit = srcX * pixelBits;
+        int value = (src[srcOffset + (srcBit >> 3)] >> (8 - pixelBits - (srcBit & 7))) & mask;
+        int dstBit = dstX * pixelBits;
+        int shift = 8 - pixelBits - (dstBit & 7);
+        int index = dstOffset + (dstBit >> 3);
+        dst[index] = (byte) ((dst[index] & ~(mask << shift)) | (value << shift));
+    }
+}
@@ -0,0 +1,336 @@
+package png.manager.decoder;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import png.manager.entity.Chunk;
+import png.manager.exception.ChunkParserException;
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Fornisce un parser di chunk per le immagini PNG.
+ * <p>
+ * Il file viene letto come stream, un chunk alla volta, senza caricarlo
+ * interamente in memoria.
+ */
+class ChunkParser {
+
+    /**
+     * Dimensione del buffer di lettura.
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Costruttore privato della classe.
+     */
+    private ChunkParser() {
+    }
+
+    /**
+     * Effettua il parsing dell'immagine.
+     *
+     * @param filename percorso del file su cui effettuare il parsing
+     * @return lista dei chunk estratti
+     * @throws ChunkParserException - se l'immagine non rispetta gli standard
+     * del formato
+     */
+    public static ArrayList<Chunk> parseImage(String filename) throws ChunkParserException {
+        return parseImage(filename, null);
+    }
+
+    /**
+     * Effettua il parsing dell'immagine, comunicando l'avanzamento della
+     * lettura all'ascoltatore in input.
+     *
+     * @param filename percorso del file su cui effettuare il parsing
+     * @param listener ascoltatore dell'avanzamento; null se assente
+     * @return lista dei chunk estratti
+     * @throws ChunkParserException - se l'immagine non rispetta gli standard
+     * del formato o se la lettura viene interrotta
+     */
+    public static ArrayList<Chunk> parseImage(String filename, DecodingListener listener) throws ChunkParserException {
+        Path path = Paths.get(filename);
+        InputStream in = null;
+        try {
+            in = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+            return parseImage(in, Files.size(path), listener);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            throw new ChunkParserException("Impossibile aprire il file.");
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    System.err.println(e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Effettua il parsing dell'immagine letta dallo stream in input, fino alla
+     * fine dello stream.
+     *
+     * @param in stream da cui leggere l'immagine; non viene chiuso
+     * @return lista dei chunk estratti
+     * @throws ChunkParserException - se l'immagine non rispetta gli standard
+     * del formato
+     */
+    public static ArrayList<Chunk> parseImage(InputStream in) throws ChunkParserException {
+        return parseImage(in, -1, null);
+    }
+
+    /**
+     * Effettua il parsing dell'immagine letta dallo stream in input, fino alla
+     * fine dello stream, comunicando l'avanzamento della lettura
+     * all'ascoltatore in input.
+     * <p>
+     * Tra un chunk e l'altro viene controllato se il thread corrente è stato
+     * interrotto, nel qual caso la lettura viene annullata.
+     *
+     * @param in stream da cui leggere l'immagine; non viene chiuso
+     * @param total dimensione dello stream in byte; -1 se ignota
+     * @param listener ascoltatore dell'avanzamento; null se assente
+     * @return lista dei chunk estratti
+     * @throws ChunkParserException - se l'immagine non rispetta gli standard
+     * del formato o se la lettura viene interrotta
+     */
+    public static ArrayList<Chunk> parseImage(InputStream in, long total, DecodingListener listener) throws ChunkParserException {
+        //Controlla l'intestazione dell'immagine
+        byte[] header = new byte[PNGConstants.HEADER_LENGTH];
+        try {
+            if (readFully(in, header) != header.length || !Arrays.equals(header, PNGConstants.FORMAT_SIGNATURE)) {
+                throw new ChunkParserException("Intestazione del file errata: il file non e' un'immagine PNG valida.");
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            throw new ChunkParserException("Impossibile aprire il file.");
+        }
+
+        ArrayList<Chunk> chunksList = new ArrayList<>();
+
+        long read = header.length;
+        try {
+            Chunk chunk;
+            while ((chunk = readChunk(in, total >= 0 ? total - read : -1)) != null) {
+                chunksList.add(chunk);
+                read += PNGConstants.CHUNK_LENGTH_FIELD_SIZE + PNGConstants.CHUNK_NAME_FIELD_SIZE + chunk.getLengthAsInt() + PNGConstants.CHUNK_CRC_FIELD_SIZE;
+                if (listener != null) {
+                    listener.stageProgress(DecodingStage.READ, read, total);
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new ChunkParserException("Lettura dell'immagine annullata.");
+                }
+            }
+        } catch (ChunkParserException e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            throw new ChunkParserException("Errore nel parsing dei chunk.\nIl file non è strutturato secondo le specifiche del formato.");
+        }
+
+        return chunksList;
+    }
+
+    /**
+     * Effettua il parsing dei soli chunk di metadati dell'immagine, senza
+     * leggere i dati compressi.
+     * <p>
+     * I chunk IDAT vengono saltati spostando la posizione nel file, così che
+     * il costo della lettura dipenda solo dalla dimensione dei metadati e non
+     * da quella dell'immagine. La lettura termina al chunk IEND o alla fine
+     * del file.
+     *
+     * @param filename percorso del file su cui effettuare il parsing
+     * @return lista dei chunk estratti, esclusi i chunk IDAT
+     * @throws ChunkParserException - se l'immagine non rispetta gli standard
+     * del formato
+     */
+    public static ArrayList<Chunk> parseMetadata(String filename) throws ChunkParserException {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+            ByteBuffer header = ByteBuffer.allocate(PNGConstants.HEADER_LENGTH);
+            if (readFully(channel, header) != header.capacity() || !Arrays.equals(header.array(), PNGConstants.FORMAT_SIGNATURE)) {
+                throw new ChunkParserException("Intestazione del file errata: il file non e' un'immagine PNG valida.");
+            }
+
+            ArrayList<Chunk> chunksList = new ArrayList<>();
+            ByteBuffer fields = ByteBuffer.allocate(PNGConstants.CHUNK_LENGTH_FIELD_SIZE + PNGConstants.CHUNK_NAME_FIELD_SIZE);
+            while (readFully(channel, fields) == fields.capacity()) {
+                byte[] length = Arrays.copyOfRange(fields.array(), 0, PNGConstants.CHUNK_LENGTH_FIELD_SIZE);
+                byte[] type = Arrays.copyOfRange(fields.array(), PNGConstants.CHUNK_LENGTH_FIELD_SIZE, fields.capacity());
+                int dataLength = fields.getInt(0);
+                if (dataLength < 0) {
+                    throw new ChunkParserException("Errore nel parsing dei chunk.\nIl file non è strutturato secondo le specifiche del formato.");
+                }
+                //La lunghezza viene confrontata con il file prima di allocare i dati
+                if (channel.size() - channel.position() < (long) dataLength + PNGConstants.CHUNK_CRC_FIELD_SIZE) {
+                    throw new ChunkParserException("Chunk incompleto.");
+                }
+
+                String typeName = new String(type, StandardCharsets.US_ASCII);
+                if (typeName.equals(PNGConstants.IMAGE_DATA_CHUNK_NAME)) {
+                    channel.position(channel.position() + dataLength + PNGConstants.CHUNK_CRC_FIELD_SIZE);
+                    continue;
+                }
+
+                ByteBuffer data = ByteBuffer.allocate(dataLength);
+                ByteBuffer CRC = ByteBuffer.allocate(PNGConstants.CHUNK_CRC_FIELD_SIZE);
+                if (readFully(channel, data) != dataLength || readFully(channel, CRC) != CRC.capacity()) {
+                    throw new ChunkParserException("Errore nel parsing dei chunk.\nIl file non è strutturato secondo le specifiche del formato.");
+                }
+                chunksList.add(new Chunk(length, type, data.array(), CRC.array()));
+                if (typeName.equals(PNGConstants.END_CHUNK_NAME)) {
+                    break;
+                }
+            }
+
+            if (chunksList.isEmpty() || !chunksList.get(0).getTypeAsString().equals(PNGConstants.MAIN_CHUNK_NAME)) {
+                throw new ChunkParserException("Il chunk IHDR non è il primo chunk dell'immagine.");
+            }
+            return chunksList;
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            throw new ChunkParserException("Impossibile aprire il file.");
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println(e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Legge il prossimo chunk dallo stream.
+     * <p>
+     * Il campo lunghezza non è affidabile: se la dimensione restante dello
+     * stream è nota, le lunghezze che la eccedono vengono rifiutate prima di
+     * allocare i dati; altrimenti i dati vengono letti in un array che cresce
+     * man mano che arrivano, così che una lunghezza errata non causi
+     * l'allocazione di memoria per dati inesistenti.
+     *
+     * @param in stream da cui leggere il chunk
+     * @param remaining byte restanti nello stream; -1 se ignoti
+     * @return chunk letto; null se lo stream è terminato
+     * @throws IOException - se occorrono errori in lettura
+     * @throws ChunkParserException - se lo stream termina all'interno di un
+     * chunk o la lunghezza del chunk non è valida
+     */
+    static Chunk readChunk(InputStream in, long remaining) throws IOException, ChunkParserException {
+        //Ricava i 4 campi del chunk
+        byte[] length = new byte[PNGConstants.CHUNK_LENGTH_FIELD_SIZE];
+        int read = readFully(in, length);
+        if (read == 0) {
+            return null;
+        }
+        if (read != length.length) {
+            throw new ChunkParserException("Campo lunghezza del chunk incompleto.");
+        }
+
+        long value = ByteBuffer.wrap(length).getInt() & 0xFFFFFFFFL;
+        if (value > Integer.MAX_VALUE) {
+            throw new ChunkParserException("Lunghezza del chunk non valida: " + value + ".");
+        }
+        int dataLength = (int) value;
+        if (remaining >= 0 && remaining < (long) length.length + PNGConstants.CHUNK_NAME_FIELD_SIZE + dataLength + PNGConstants.CHUNK_CRC_FIELD_SIZE) {
+            throw new ChunkParserException("Chunk incompleto.");
+        }
+
+        byte[] type = new byte[PNGConstants.CHUNK_NAME_FIELD_SIZE];
+        if (readFully(in, type) != type.length) {
+            throw new ChunkParserException("Chunk incompleto.");
+        }
+        byte[] data = readData(in, dataLength, remaining >= 0);
+        byte[] CRC = new byte[PNGConstants.CHUNK_CRC_FIELD_SIZE];
+        if (readFully(in, CRC) != CRC.length) {
+            throw new ChunkParserException("Chunk incompleto.");
+        }
+
+        return new Chunk(length, type, data, CRC);
+    }
+
+    /**
+     * Legge i dati di un chunk dallo stream.
+     *
+     * @param in stream da cui leggere i dati
+     * @param length lunghezza dei dati indicata dal chunk
+     * @param verified <code>true</code> se la lunghezza è già stata
+     * confrontata con la dimensione dello stream, nel qual caso l'array viene
+     * allocato subito; <code>false</code> se l'array deve crescere con i dati
+     * letti
+     * @return dati letti
+     * @throws IOException - se occorrono errori in lettura
+     * @throws ChunkParserException - se lo stream termina prima della fine dei
+     * dati
+     */
+    private static byte[] readData(InputStream in, int length, boolean verified) throws IOException, ChunkParserException {
+        byte[] data = new byte[verified ? length : Math.min(length, BUFFER_SIZE)];
+        int offset = 0;
+        while (offset < length) {
+            if (offset == data.length) {
+                data = Arrays.copyOf(data, (int) Math.min(length, 2L * data.length));
+            }
+            int read = in.read(data, offset, data.length - offset);
+            if (read == -1) {
+                throw new ChunkParserException("Chunk incompleto.");
+            }
+            offset += read;
+        }
+        return data;
+    }
+
+    /**
+     * Legge dallo stream fino a riempire l'array o fino alla fine dello
+     * stream.
+     *
+     * @param in stream da cui leggere
+     * @param buffer array da riempire
+     * @return numero di byte letti
+     * @throws IOException - se occorrono errori in lettura
+     */
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int offset = 0;
+        while (offset < buffer.length) {
+            int read = in.read(buffer, offset, buffer.length - offset);
+            if (read == -1) {
+                break;
+            }
+            offset += read;
+        }
+        return offset;
+    }
+
+    /**
+     * Legge dal canale fino a riempire il buffer o fino alla fine del file.
+     * Il buffer viene svuotato prima della lettura.
+     *
+     * @param channel canale da cui leggere
+     * @param buffer buffer da riempire
+     * @return numero di byte letti
+     * @throws IOException - se occorrono errori in lettura
+     */
+    private static int readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                break;
+            }
+        }
+        return buffer.position();
+    }
+}
@@ -0,0 +1,248 @@
+package png.manager.decoder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import png.manager.entity.Chunk;
+import png.manager.entity.PNGImage;
+import png.manager.entity.PixelBuffer;
+import png.manager.entity.RawImage;
+import png.manager.exception.DecodingException;
+import png.manager.miscellaneous.PNGConstants;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Decoder personale per la visualizzazione delle immagini.
+ * <p>
+ * Il decoder non dipende da AWT: il risultato è un {@link RawImage}, che
+ * l'interfaccia grafica converte nel formato più adatto alla visualizzazione.
+ * L'immagine viene decompressa e defiltrata una scanline alla volta, per cui
+ * la memoria necessaria, oltre a quella del risultato, è di due scanline. Sono
+ * supportate sia le immagini non interlacciate sia quelle interlacciate
+ * Adam7.
+ */
+class CustomDecoder {
+
+    /**
+     * Dimensione, in byte, oltre la quale i campioni vengono memorizzati fuori
+     * dallo heap.
+     */
+    static final long OFF_HEAP_THRESHOLD = 1L << 28;
+    /**
+     * Dimensione, in byte, dei gruppi di righe comunicati all'ascoltatore
+     * durante la decodifica.
+     */
+    static final int PROGRESSIVE_BAND_SIZE = 1 << 20;
+
+    /**
+     * Costruttore privato della classe.
+     */
+    private CustomDecoder() {
+    }
+
+    /**
+     * Genera i campioni dell'immagine a partire dal risultato del parser.
+     * <p>
+     * Il metodo effettua decompressione e defiltering.
+     *
+     * @param image immagine risultato del parsing
+     * @param listener ascoltatore dell'avanzamento; null se assente
+     * @return campioni decodificati dell'immagine
+     * @throws DecodingException - se vengono riscontrati errori in fase di
+     * decodifica o se la decodifica viene interrotta
+     */
+    static RawImage getRawImage(PNGImage image, DecodingListener listener) throws DecodingException {
+        if (image.getInterlacingMethod() == PNGConstants.ADAM7_INTERLACE) {
+            return getInterlacedRawImage(image, listener);
+        }
+
+        ScanlineDecoder decoder = new ScanlineDecoder(image);
+        decoder.setListener(listener);
+        int rowBytes = decoder.getRowBytes();
+        if (rowBytes > PixelBuffer.MAX_SEGMENT_SIZE) {
+            throw new DecodingException("Immagine troppo larga per essere decodificata.");
+        }
+
+        int height = image.getHeight();
+        boolean offHeap = (long) rowBytes * height > OFF_HEAP_THRESHOLD;
+        PixelBuffer pixels = PixelBuffer.allocate(rowBytes, height, offHeap);
+        RawImage result = new RawImage(image.getWidth(), height, image.getColorType(), image.getBitDepth(), pixels, decoder.getPalette());
+        int bandRows = Math.max(1, PROGRESSIVE_BAND_SIZE / Math.max(1, rowBytes));
+
+        byte[] row = new byte[rowBytes];
+        try {
+            int firstRow = 0;
+            for (int y = 0; y < height; y++) {
+                decoder.nextRow(row, 0);
+                pixels.putRow(y, row, 0);
+                //Comunica le righe complete a gruppi, e comunque al termine dell'immagine
+                if (listener != null && (y + 1 - firstRow == bandRows || y == height - 1)) {
+                    listener.rowsDecoded(result, firstRow, y + 1 - firstRow);
+                    firstRow = y + 1;
+                }
+            }
+        } finally {
+            decoder.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * Genera i campioni di un'immagine interlacciata Adam7.
+     * <p>
+     * Ciascuna passata è un'immagine ridotta, con scanline e filtri propri: le
+     * sue righe vengono decompresse, defiltrate e i loro pixel collocati nella
+     * posizione finale. Al termine di ogni passata viene avvisato
+     * l'ascoltatore.
+     *
+     * @param image immagine risultato del parsing
+     * @param listener ascoltatore dell'avanzamento; null se assente
+     * @return campioni decodificati dell'immagine
+     * @throws DecodingException - se vengono riscontrati errori in fase di
+     * decodifica o se la decodifica viene interrotta
+     */
+    private static RawImage getInterlacedRawImage(PNGImage image, DecodingListener listener) throws DecodingException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int colorType = image.getColorType();
+        int bitDepth = image.getBitDepth();
+
+        long rowSize = ((long) width * bitDepth * Utility.getSamplesPerPixel(colorType) + 7) / 8;
+        if (rowSize > PixelBuffer.MAX_SEGMENT_SIZE) {
+            throw new DecodingException("Immagine troppo larga per essere decodificata.");
+        }
+
+        int rowBytes = (int) rowSize;
+        int pixelBits = bitDepth * Utility.getSamplesPerPixel(colorType);
+        int pixelWidth = CustomDefilterer.getPixelWidth(bitDepth, colorType);
+        boolean offHeap = (long) rowBytes * height > OFF_HEAP_THRESHOLD;
+        PixelBuffer pixels = PixelBuffer.allocate(rowBytes, height, offHeap);
+        RawImage result = new RawImage(width, height, colorType, bitDepth, pixels, getPalette(image));
+
+        long totalRows = 0;
+        for (int pass = 0; pass < Adam7.PASSES; pass++) {
+            if (Adam7.getPassWidth(pass, width) > 0) {
+                totalRows += Adam7.getPassHeight(pass, height);
+            }
+        }
+
+        Inflater inflater = new Inflater();
+        Iterator<Chunk> dataChunks = getDataChunks(image).iterator();
+        byte[] row = new byte[rowBytes];
+        long decodedRows = 0;
+        try {
+            for (int pass = 0; pass < Adam7.PASSES; pass++) {
+                int passWidth = Adam7.getPassWidth(pass, width);
+                int passHeight = Adam7.getPassHeight(pass, height);
+                //Le passate vuote non sono presenti nei dati compressi
+                if (passWidth == 0 || passHeight == 0) {
+                    continue;
+                }
+
+                int scanlineSize = CustomDefilterer.getScanlineSize(colorType, passWidth, bitDepth);
+                byte[] currScanline = new byte[scanlineSize];
+                byte[] previousScanline = new byte[scanlineSize];
+                for (int r = 0; r < passHeight; r++) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new DecodingException("Decodifica annullata.");
+                    }
+
+                    inflateScanline(inflater, dataChunks, currScanline);
+                    decodedRows++;
+                    if (listener != null) {
+                        listener.stageProgress(DecodingStage.INFLATE, decodedRows, totalRows);
+                    }
+                    CustomDefilterer.defilterScanline(currScanline, previousScanline, scanlineSize, pixelWidth, r == 0);
+                    if (listener != null) {
+                        listener.stageProgress(DecodingStage.DEFILTER, decodedRows, totalRows);
+                    }
+
+                    int y = Adam7.getImageRow(pass, r);
+                    pixels.getRow(y, row, 0);
+                    for (int x = 0; x < passWidth; x++) {
+                        Adam7.copyPixel(currScanline, 1, x, row, 0, Adam7.getImageColumn(pass, x), pixelBits);
+                    }
+                    pixels.putRow(y, row, 0);
+
+                    byte[] tmp = previousScanline;
+                    previousScanline = currScanline;
+                    currScanline = tmp;
+                }
+
+                if (listener != null) {
+                    listener.passDecoded(result, pass);
+                }
+            }
+        } catch (DataFormatException e) {
+            System.err.println(e.getMessage());
+            throw new DecodingException("Errore nella decompressione dei dati.");
+        } finally {
+            inflater.end();
+        }
+
+        return result;
+    }
+
+    /**
+     * Ritorna i dati del chunk PLTE, se l'immagine ne richiede uno.
+     *
+     * @param image immagine risultato del parsing
+     * @return dati della tavolozza; null se l'immagine non usa una tavolozza
+     * @throws DecodingException - se l'immagine usa una tavolozza ma il chunk
+     * PLTE è assente
+     */
+    static byte[] getPalette(PNGImage image) throws DecodingException {
+        if (image.getColorType() != PNGConstants.COLOR_TYPE_PALETTE) {
+            return null;
+        }
+        if (!image.containsChunk(PNGConstants.PALETTE_CHUNK_NAME)) {
+            throw new DecodingException("Unable to locate " + PNGConstants.PALETTE_CHUNK_NAME + " chunk.");
+        }
+        return image.getChunk(PNGConstants.PALETTE_CHUNK_NAME).getData();
+    }
+
+    /**
+     * Ritorna i chunk IDAT dell'immagine, nell'ordine in cui compaiono.
+     *
+     * @param image immagine risultato del parsing
+     * @return chunk con i dati compressi
+     */
+    static ArrayList<Chunk> getDataChunks(PNGImage image) {
+        ArrayList<Chunk> dataChunks = new ArrayList<>();
+        for (Chunk c : image.getChunks()) {
+            if (c.getTypeAsString().equals(PNGConstants.IMAGE_DATA_CHUNK_NAME)) {
+                dataChunks.add(c);
+            }
+        }
+        return dataChunks;
+    }
+
+    /**
+     * Decomprime una scanline, compreso il byte del filtro, fornendo
+     * all'inflater i dati dei chunk IDAT man mano che servono.
+     *
+     * @param inflater inflater dell'immagine
+     * @param dataChunks chunk IDAT non ancora forniti all'inflater
+     * @param scanline array in cui scrivere la scanline
+     * @throws DataFormatException - se i dati compressi non sono validi
+     * @throws DecodingException - se i dati compressi terminano prima della
+     * scanline
+     */
+    static void inflateScanline(Inflater inflater, Iterator<Chunk> dataChunks, byte[] scanline) throws DataFormatException, DecodingException {
+        int offset = 0;
+        while (offset < scanline.length) {
+            int read = inflater.inflate(scanline, offset, scanline.length - offset);
+            offset += read;
+            if (read == 0) {
+                if (inflater.needsInput() && dataChunks.hasNext()) {
+                    inflater.setInput(dataChunks.next().getData());
+                } else if (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()) {
+                    throw new DecodingException("Dati dell'immagine incompleti.");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package png.manager.decoder;
+
+import png.manager.entity.PNGImage;
+import png.manager.entity.RawImage;
+import png.manager.exception.DecodingException;
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Espone il decoder personale come {@link DecoderProvider}.
+ */
+public class CustomDecoderProvider implements DecoderProvider {
+
+    /**
+     * Nome del decoder.
+     */
+    public static final String NAME = "CUSTOM";
+
+    /**
+     * Tempo stimato di decodifica per pixel, in nanosecondi.
+     */
+    private static final double COST_HINT = 20;
+    /**
+     * Tempo stimato di decodifica per pixel delle immagini interlacciate, in
+     * nanosecondi.
+     */
+    private static final double INTERLACED_COST_HINT = 30;
+
+    /**
+     * Ritorna il nome del decoder.
+     *
+     * @return nome del decoder
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Ritorna la priorità del decoder.
+     *
+     * @return priorità del decoder
+     */
+    @Override
+    public int getPriority() {
+        return 10;
+    }
+
+    /**
+     * Il decoder personale supporta tutte le immagini, interlacciate e non.
+     *
+     * @param colorType tipo di colore dell'immagine
+     * @param bitDepth profondità di bit dell'immagine
+     * @param interlaceMethod metodo di interlacciamento dell'immagine
+     * @return <code>true</code> se il metodo di interlacciamento è noto,
+     * <code>false</code> altrimenti
+     */
+    @Override
+    public boolean supports(int colorType, int bitDepth, int interlaceMethod) {
+        return interlaceMethod == PNGConstants.NO_INTERLACE || interlaceMethod == PNGConstants.ADAM7_INTERLACE;
+    }
+
+    /**
+     * Stima il tempo di decodifica per pixel.
+     *
+     * @param colorType tipo di colore dell'immagine
+     * @param bitDepth profondità di bit dell'immagine
+     * @param interlaceMethod metodo di interlacciamento dell'immagine
+     * @return tempo stimato per pixel, in nanosecondi
+     */
+    @Override
+    public double getCostHint(int colorType, int bitDepth, int interlaceMethod) {
+        return interlaceMethod == PNGConstants.NO_INTERLACE ? COST_HINT : INTERLACED_COST_HINT;
+    }
+
+    /**
+     * Decodifica l'immagine con il decoder personale.
+     *
+     * @param image immagine risultato del parsing
+     * @param listener ascoltatore dell'avanzamento; null se assente
+     * @return campioni decodificati dell'immagine
+     * @throws DecodingException - se occorrono errori in fase di decodifica o
+     * se la decodifica viene interrotta
+     */
+    @Override
+    public RawImage decode(PNGImage image, DecodingListener listener) throws DecodingException {
+        return CustomDecoder.getRawImage(image, listener);
+    }
+}
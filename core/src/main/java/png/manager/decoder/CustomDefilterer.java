@@ -1,8 +1,5 @@
 package png.manager.decoder;
 
-import java.util.Arrays;
-
-import png.manager.entity.PNGImage;
 import png.manager.exception.DecodingException;
 import png.manager.miscellaneous.PNGConstants;
 import png.manager.miscellaneous.Utility;
@@ -19,45 +16,40 @@ class CustomDefilterer {
     }
 
     /**
-     * Applica l'algoritmo di defiltering sui dati in input dell'immagine.
+     * Applica l'algoritmo di defiltering su una scanline, sul posto.
+     * <p>
+     * Il primo byte della scanline indica il tipo di filtro; i restanti sono i
+     * dati della riga.
      *
-     * @param image immagine risultato del parsing
-     * @param filteredData dati filtrati
-     * @return dati defiltrati
+     * @param currScanline scanline filtrata, compreso il byte del filtro
+     * @param previousScanline scanline precedente, già defiltrata; ignorata se
+     * la scanline è la prima
+     * @param scanlineSize dimensione della scanline
+     * @param pixelWidth ampiezza del pixel
+     * @param firstScanline <code>true</code> se la scanline è la prima
+     * dell'immagine
      * @throws DecodingException - se viene incontrato un filtro sconosciuto
      */
-    public static byte[] defilterImage(PNGImage image, byte[] filteredData) throws DecodingException {
-        int pixelWidth = getPixelWidth(image.getBitDepth(), image.getColorType());
-        int scanlineSize = getScanlineSize(image.getColorType(), image.getWidth(), pixelWidth, image.getBitDepth());
-        byte[] defilteredData = new byte[filteredData.length - image.getHeight()], previousScanline = null;
-
-        for (int i = 0; i < image.getHeight(); i++) {
-            byte[] currScanline = Arrays.copyOfRange(filteredData, i * scanlineSize, (i + 1) * scanlineSize);
-            byte filterType = currScanline[0];
-            switch (filterType) {
-                case PNGConstants.NO_FILTER:
-                    break;
-                case PNGConstants.PREVIOUS_FILTER:
-                    currScanline = previousFilter(currScanline, scanlineSize, pixelWidth);
-                    break;
-                case PNGConstants.UP_FILTER:
-                    currScanline = upFilter(currScanline, previousScanline, scanlineSize, (i <= 0));
-                    break;
-                case PNGConstants.AVERAGE_FILTER:
-                    currScanline = averageFilter(currScanline, previousScanline, scanlineSize, pixelWidth, (i <= 0));
-                    break;
-                case PNGConstants.PAETH_FILTER:
-                    currScanline = paethFilter(currScanline, previousScanline, scanlineSize, pixelWidth, (i <= 0));
-                    break;
-                default:
-                    throw new DecodingException("Filtro sconosciuto incontrato.");
-            }
-
-            System.arraycopy(currScanline, 1, defilteredData, i * (scanlineSize - 1), currScanline.length - 1);
-            previousScanline = currScanline;
+    static void defilterScanline(byte[] currScanline, byte[] previousScanline, int scanlineSize, int pixelWidth, boolean firstScanline) throws DecodingException {
+        byte filterType = currScanline[0];
+        switch (filterType) {
+            case PNGConstants.NO_FILTER:
+                break;
+            case PNGConstants.PREVIOUS_FILTER:
+                previousFilter(currScanline, scanlineSize, pixelWidth);
+                break;
+            case PNGConstants.UP_FILTER:
+                upFilter(currScanline, previousScanline, scanlineSize, firstScanline);
+                break;
+            case PNGConstants.AVERAGE_FILTER:
+                averageFilter(currScanline, previousScanline, scanlineSize, pixelWidth, firstScanline);
+                break;
+            case PNGConstants.PAETH_FILTER:
+                paethFilter(currScanline, previousScanline, scanlineSize, pixelWidth, firstScanline);
+                break;
+            default:
+                throw new DecodingException("Filtro sconosciuto incontrato.");
         }
-
-        return defilteredData;
     }
 
     /**
@@ -173,46 +165,24 @@ class CustomDefilterer {
      *
      * @param colorType il tipo di colore dell'immagine
      * @param imageWidth larghezza dell'immagine
-     * @param pixelWidth ampiezza del pixel
      * @param bitDepth profondità di bit
-     * @return dimensione della scanline
+     * @return dimensione della scanline, compreso il byte del filtro
      */
-    private static int getScanlineSize(int colorType, int imageWidth, int pixelWidth, int bitDepth) {
-        if (colorType == 0 && bitDepth == 1) {
-            int bytes = (int) (imageWidth / 8);
-            if ((imageWidth % 8) != 0) {
-                bytes++;
-            }
-
-            return bytes + 1;
-        }
-
-        return (colorType == 0 || colorType == 3) ? (int) (1 + Math.ceil(imageWidth * pixelWidth)) : 1 + imageWidth * pixelWidth;
+    static int getScanlineSize(int colorType, int imageWidth, int bitDepth) {
+        return 1 + Utility.getRowBytes(imageWidth, colorType, bitDepth);
     }
 
     /**
      * Calcola la larghezza di un pixel.
+     * <p>
+     * Per le profondità inferiori a 8 bit la larghezza è arrotondata a un byte,
+     * come previsto dalle specifiche dei filtri.
      *
      * @param bitDepth profondità di bit dell'immagine
      * @param colorType tipo di colore dell'immagine
      * @return larghezza di un pixel
      */
-    private static int getPixelWidth(int bitDepth, int colorType) {
-        int bpp = 0;
-        switch (colorType) {
-            case 0:
-                bpp = Math.max(1, (bitDepth * PNGConstants.COLOR_TYPE_0_SAMPLES) >> 3);
-                break;
-            case 2:
-                bpp = Math.max(1, (bitDepth * PNGConstants.COLOR_TYPE_2_SAMPLES) >> 3);
-                break;
-            case 4:
-                bpp = Math.max(1, (bitDepth * PNGConstants.COLOR_TYPE_4_SAMPLES) >> 3);
-                break;
-            case 6:
-                bpp = Math.max(1, (bitDepth * PNGConstants.COLOR_TYPE_6_SAMPLES) >> 3);
-                break;
-        }
-        return bpp;
+    static int getPixelWidth(int bitDepth, int colorType) {
+        return Math.max(1, (bitDepth * Utility.getSamplesPerPixel(colorType)) >> 3);
     }
 }
@@ -0,0 +1,275 @@
+package png.manager.decoder;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import png.manager.checker.CRC32Checker;
+import png.manager.checker.Checker;
+import png.manager.entity.Chunk;
+import png.manager.entity.PNGImage;
+import png.manager.entity.RawImage;
+import png.manager.exception.ChunkParserException;
+import png.manager.exception.DecodingException;
+import png.manager.exception.PNGStructureException;
+
+/**
+ * Decodifica l'immagine a partire dal file che la contiene.
+ */
+public class Decoder {
+
+    /**
+     * Decoder disponibili, caricati alla prima richiesta.
+     */
+    private static List<DecoderProvider> providers = null;
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private Decoder() {
+    }
+
+    /**
+     * Invoca il parser sull'immagine, il cui percorso viene fornito in input.
+     *
+     * @param path percorso dell'immagine da visualizzare
+     * @return immagine pronta per la visualizzazione
+     * @throws ChunkParserException - se occorrono errori in fase di parsing
+     */
+    public static PNGImage getPNGImageFromFile(String path) throws ChunkParserException {
+        return getPNGImageFromFile(path, null);
+    }
+
+    /**
+     * Invoca il parser sull'immagine, il cui percorso viene fornito in input,
+     * comunicando l'avanzamento della lettura all'ascoltatore in input.
+     *
+     * @param path percorso dell'immagine da visualizzare
+     * @param listener ascoltatore dell'avanzamento; null se assente
+     * @return immagine pronta per la visualizzazione
+     * @throws ChunkParserException - se occorrono errori in fase di parsing o
+     * se la lettura viene interrotta
+     */
+    public static PNGImage getPNGImageFromFile(String path, DecodingListener listener) throws ChunkParserException {
+        return new PNGImage(ChunkParser.parseImage(path, listener));
+    }
+
+    /**
+     * Invoca il parser sull'immagine letta dallo stream in input, fino alla
+     * fine dello stream.
+     *
+     * @param in stream da cui leggere l'immagine; non viene chiuso
+     * @return immagine pronta per la visualizzazione
+     * @throws ChunkParserException - se occorrono errori in fase di parsing
+     */
+    public static PNGImage getPNGImageFromStream(InputStream in) throws ChunkParserException {
+        return new PNGImage(ChunkParser.parseImage(in));
+    }
+
+    /**
+     * Invoca il parser sui soli metadati dell'immagine, il cui percorso viene
+     * fornito in input, senza leggere i dati compressi.
+     * <p>
+     * L'immagine ottenuta non contiene i chunk IDAT e non può quindi essere
+     * decodificata; è adatta a consultare i campi del chunk IHDR e i chunk
+     * ausiliari.
+     *
+     * @param path percorso dell'immagine da analizzare
+     * @return immagine priva dei chunk IDAT
+     * @throws ChunkParserException - se occorrono errori in fase di parsing
+     */
+    public static PNGImage getPNGMetadataFromFile(String path) throws ChunkParserException {
+        return new PNGImage(ChunkParser.parseMetadata(path));
+    }
+
+    /**
+     * Ritorna i decoder disponibili, individuati tramite
+     * {@link ServiceLoader} e ordinati per priorità decrescente.
+     *
+     * @return elenco non modificabile dei decoder
+     */
+    public static synchronized List<DecoderProvider> getProviders() {
+        if (providers == null) {
+            ArrayList<DecoderProvider> found = new ArrayList<>();
+            for (DecoderProvider provider : ServiceLoader.load(DecoderProvider.class)) {
+                found.add(provider);
+            }
+            Collections.sort(found, new Comparator<DecoderProvider>() {
+                @Override
+                public int compare(DecoderProvider p1, DecoderProvider p2) {
+                    return Integer.compare(p2.getPriority(), p1.getPriority());
+                }
+            });
+            providers = Collections.unmodifiableList(found);
+        }
+        return providers;
+    }
+
+    /**
+     * Ritorna il decoder col nome in input.
+     *
+     * @param name nome del decoder
+     * @return decoder trovato; null se non ve ne sono
+     */
+    public static DecoderProvider getProvider(String name) {
+        for (DecoderProvider provider : getProviders()) {
+            if (provider.getName().equalsIgnoreCase(name)) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Verifica che l'immagine rispetti i requisiti del formato: CRC dei chunk,
+     * dimensioni e combinazione di tipo di colore e profondità di bit.
+     *
+     * @param pngImage immagine risultato del parsing
+     * @throws PNGStructureException - se l'immagine non rispetta i requisiti
+     * del formato
+     */
+    public static void checkImage(PNGImage pngImage) throws PNGStructureException {
+        checkImage(pngImage, null);
+    }
+
+    /**
+     * Verifica che l'immagine rispetti i requisiti del formato, comunicando
+     * l'avanzamento del controllo dei CRC all'ascoltatore in input.
+     * <p>
+     * Tra un chunk e l'altro viene controllato se il thread corrente è stato
+     * interrotto, nel qual caso il controllo viene annullato.
+     *
+     * @param pngImage immagine risultato del parsing
+     * @param listener ascoltatore dell'avanzamento; null se assente
+     * @throws PNGStructureException - se l'immagine non rispetta i requisiti
+     * del formato o se il controllo viene interrotto
+     */
+    public static void checkImage(PNGImage pngImage, DecodingListener listener) throws PNGStructureException {
+        ArrayList<Chunk> chunks = pngImage.getChunks();
+        long total = 0;
+        for (Chunk c : chunks) {
+            total += c.getLengthAsInt();
+        }
+
+        long checked = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new PNGStructureException("Controllo dell'immagine annullato.");
+            }
+            if (!CRC32Checker.checkChunkCRC32(chunks.get(i))) {
+                System.err.println("Errore trovato nel CRC al chunk " + (i + 1) + ": " + chunks.get(i));
+                throw new PNGStructureException("Controllo di integrita' CRC non superato: i dati sono corrotti.");
+            }
+            checked += chunks.get(i).getLengthAsInt();
+            if (listener != null) {
+                listener.stageProgress(DecodingStage.CRC, checked, total);
+            }
+        }
+
+        if (!Checker.checkDimension(pngImage)) {
+            throw new PNGStructureException("Dimensioni invalide per l'immagine: altezza o larghezza nulle.");
+        }
+
+        if (!Checker.checkColorTypeBitDepthCombination(pngImage)) {
+            throw new PNGStructureException("Immagine non conforme al formato.\nCombinazione invalida di tipo di colore e profondita' di bit.");
+        }
+    }
+
+    /**
+     * Decodifica l'immagine in input con il decoder scelto da
+     * {@link DecoderSelector}, restituendone i campioni.
+     * <p>
+     * Il metodo può essere usato anche in assenza di un display.
+     *
+     * @param pngImage immagine risultato del parsing
+     * @return campioni decodificati dell'immagine
+     * @throws PNGStructureException - se l'immagine non rispetta i requisiti
+     * del formato
+     * @throws DecodingException - se occorrono errori in fase di decodifica o
+     * se nessun decoder supporta il formato dell'immagine
+     */
+    public static RawImage getRawImage(PNGImage pngImage) throws PNGStructureException, DecodingException {
+        DecoderProvider provider = DecoderSelector.selectDecoder(pngImage);
+        if (provider == null) {
+            throw new DecodingException("Nessun decoder disponibile per il formato dell'immagine.");
+        }
+        return getRawImage(pngImage, provider);
+    }
+
+    /**
+     * Decodifica l'immagine in input con il decoder specificato, restituendone
+     * i campioni.
+     * <p>
+     * Il tempo di decodifica viene comunicato al {@link DecoderSelector}. Se la
+     * {@link DiskCache} è attiva, i campioni vengono letti dalla cache quando
+     * presenti e vi vengono salvati dopo la decodifica.
+     *
+     * @param pngImage immagine risultato del parsing
+     * @param provider decoder da utilizzare per la decodifica
+     * @return campioni decodificati dell'immagine
+     * @throws PNGStructureException - se l'immagine non rispetta i requisiti
+     * del formato
+     * @throws DecodingException - se occorrono errori in fase di decodifica o
+     * se il decoder non supporta il formato dell'immagine
+     */
+    public static RawImage getRawImage(PNGImage pngImage, DecoderProvider provider) throws PNGStructureException, DecodingException {
+        return getRawImage(pngImage, provider, null);
+    }
+
+    /**
+     * Decodifica l'immagine in input con il decoder specificato, comunicando
+     * l'avanzamento di ciascuna fase all'ascoltatore in input.
+     * <p>
+     * Se il thread corrente viene interrotto, la decodifica viene annullata
+     * alla prima occasione utile, al più tardi al termine della scanline in
+     * corso.
+     *
+     * @param pngImage immagine risultato del parsing
+     * @param provider decoder da utilizzare per la decodifica
+     * @param listener ascoltatore dell'avanzamento; null se assente
+     * @return campioni decodificati dell'immagine
+     * @throws PNGStructureException - se l'immagine non rispetta i requisiti
+     * del formato
+     * @throws DecodingException - se occorrono errori in fase di decodifica,
+     * se il decoder non supporta il formato dell'immagine o se la decodifica
+     * viene interrotta
+     */
+    public static RawImage getRawImage(PNGImage pngImage, DecoderProvider provider, DecodingListener listener) throws PNGStructureException, DecodingException {
+        checkImage(pngImage, listener);
+
+        if (!provider.supports(pngImage.getColorType(), pngImage.getBitDepth(), pngImage.getInterlacingMethod())) {
+            throw new DecodingException("Formato dell'immagine non supportato dal decoder " + provider.getName() + ".");
+        }
+
+        String hash = null;
+        if (DiskCache.isEnabled()) {
+            hash = DiskCache.getContentHash(pngImage);
+            RawImage cached = DiskCache.load(hash, provider.getName());
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long start = System.nanoTime();
+        RawImage result;
+        try {
+            result = provider.decode(pngImage, listener);
+        } catch (Exception e) {
+            if (e instanceof DecodingException) {
+                throw e;
+            } else {
+                System.err.println(e.getMessage());
+                throw new DecodingException("Impossibile decodificare l'immagine.");
+            }
+        }
+
+        DecoderSelector.recordDecoding(pngImage, provider, System.nanoTime() - start);
+        if (hash != null) {
+            DiskCache.store(hash, provider.getName(), result);
+        }
+        return result;
+    }
+}
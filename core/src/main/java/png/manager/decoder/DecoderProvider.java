@@ -0,0 +1,74 @@
+package png.manager.decoder;
+
+import png.manager.entity.PNGImage;
+import png.manager.entity.RawImage;
+import png.manager.exception.DecodingException;
+
+/**
+ * Interfaccia dei decoder utilizzabili dal programma.
+ * <p>
+ * Le implementazioni vengono individuate tramite {@link java.util.ServiceLoader}:
+ * per aggiungere un decoder è sufficiente elencarne la classe nel file
+ * <code>META-INF/services/png.manager.decoder.DecoderProvider</code> di un jar
+ * presente nel classpath. Le implementazioni devono avere un costruttore
+ * pubblico senza parametri ed essere utilizzabili da più thread.
+ */
+public interface DecoderProvider {
+
+    /**
+     * Ritorna il nome, univoco, del decoder.
+     *
+     * @return nome del decoder
+     */
+    String getName();
+
+    /**
+     * Ritorna la priorità del decoder. A parità di costo stimato viene scelto
+     * il decoder con priorità più alta.
+     *
+     * @return priorità del decoder
+     */
+    int getPriority();
+
+    /**
+     * Verifica se il decoder è in grado di decodificare correttamente le
+     * immagini del formato in input.
+     *
+     * @param colorType tipo di colore dell'immagine
+     * @param bitDepth profondità di bit dell'immagine
+     * @param interlaceMethod metodo di interlacciamento dell'immagine
+     * @return <code>true</code> se il formato è supportato, <code>false</code>
+     * altrimenti
+     */
+    boolean supports(int colorType, int bitDepth, int interlaceMethod);
+
+    /**
+     * Stima il tempo di decodifica per pixel delle immagini del formato in
+     * input. La stima stabilisce solo l'ordine in cui i decoder non ancora
+     * misurati su un formato vengono provati; in seguito contano le misure
+     * reali.
+     *
+     * @param colorType tipo di colore dell'immagine
+     * @param bitDepth profondità di bit dell'immagine
+     * @param interlaceMethod metodo di interlacciamento dell'immagine
+     * @return tempo stimato per pixel, in nanosecondi
+     */
+    double getCostHint(int colorType, int bitDepth, int interlaceMethod);
+
+    /**
+     * Decodifica l'immagine in input. L'immagine è già stata sottoposta ai
+     * controlli di {@link Decoder#checkImage(PNGImage)}.
+     *
+     * <p>
+     * Le implementazioni comunicano l'avanzamento all'ascoltatore, se
+     * presente, e devono terminare con una {@link DecodingException} appena
+     * possibile se il thread corrente viene interrotto.
+     *
+     * @param image immagine risultato del parsing
+     * @param listener ascoltatore dell'avanzamento; null se assente
+     * @return campioni decodificati dell'immagine
+     * @throws DecodingException - se occorrono errori in fase di decodifica o
+     * se la decodifica viene interrotta
+     */
+    RawImage decode(PNGImage image, DecodingListener listener) throws DecodingException;
+}
@@ -0,0 +1,191 @@
+package png.manager.decoder;
+
+import java.util.HashMap;
+
+import png.manager.entity.PNGImage;
+
+/**
+ * Seleziona il decoder da utilizzare per un'immagine in base alle prestazioni
+ * misurate durante l'esecuzione.
+ * <p>
+ * Per ogni formato (tipo di colore, profondità di bit e interlacciamento) e per
+ * ogni decoder in grado di gestirlo viene mantenuta una media mobile
+ * esponenziale del tempo di decodifica per pixel. Finché un decoder in grado
+ * di gestire un formato non vi è stato misurato, gli viene assegnata la
+ * prossima immagine di quel formato; i decoder non misurati vengono provati in
+ * ordine di costo stimato dichiarato dal decoder stesso e, a parità, di
+ * priorità. In seguito viene scelto il decoder col tempo misurato minore. Un
+ * decoder può essere imposto con
+ * {@link #setPinnedDecoder(String)} o con la proprietà di sistema
+ * <code>png.manager.decoder</code>.
+ */
+public class DecoderSelector {
+
+    /**
+     * Proprietà di sistema con cui imporre un decoder.
+     */
+    public static final String PINNED_DECODER_PROPERTY = "png.manager.decoder";
+
+    /**
+     * Peso dell'ultima misura nella media mobile.
+     */
+    private static final double SMOOTHING_FACTOR = 0.3;
+
+    /**
+     * Tempi medi di decodifica per pixel, in nanosecondi, per formato e nome
+     * del decoder.
+     */
+    private static final HashMap<String, HashMap<String, Double>> nanosPerPixel = new HashMap<>();
+
+    /**
+     * Nome del decoder imposto; null se la selezione è adattiva.
+     */
+    private static String pinnedDecoder = System.getProperty(PINNED_DECODER_PROPERTY);
+
+    /**
+     * Costruttore privato della classe.
+     */
+    private DecoderSelector() {
+    }
+
+    /**
+     * Seleziona il decoder per l'immagine in input.
+     *
+     * @param image immagine risultato del parsing
+     * @return decoder da utilizzare; null se nessun decoder supporta il
+     * formato dell'immagine
+     */
+    public static synchronized DecoderProvider selectDecoder(PNGImage image) {
+        if (pinnedDecoder != null) {
+            DecoderProvider pinned = Decoder.getProvider(pinnedDecoder);
+            if (pinned != null && isSupported(image, pinned)) {
+                return pinned;
+            }
+        }
+
+        HashMap<String, Double> measures = nanosPerPixel.get(getFormatKey(image));
+        DecoderProvider fastest = null;
+        double fastestCost = Double.MAX_VALUE;
+        DecoderProvider unmeasured = null;
+        double unmeasuredHint = Double.MAX_VALUE;
+
+        //I decoder sono ordinati per priorità: a parità di costo vince il primo
+        for (DecoderProvider provider : Decoder.getProviders()) {
+            if (!isSupported(image, provider)) {
+                continue;
+            }
+
+            if (measures != null && measures.containsKey(provider.getName())) {
+                double cost = measures.get(provider.getName());
+                if (cost < fastestCost) {
+                    fastest = provider;
+                    fastestCost = cost;
+                }
+            } else {
+                double hint = provider.getCostHint(image.getColorType(), image.getBitDepth(), image.getInterlacingMethod());
+                if (hint < unmeasuredHint) {
+                    unmeasured = provider;
+                    unmeasuredHint = hint;
+                }
+            }
+        }
+
+        //Un decoder non ancora misurato su questo formato viene provato una volta
+        return (unmeasured != null) ? unmeasured : fastest;
+    }
+
+    /**
+     * Registra il tempo impiegato da un decoder per decodificare l'immagine in
+     * input.
+     *
+     * @param image immagine decodificata
+     * @param provider decoder utilizzato
+     * @param elapsedNanos tempo di decodifica in nanosecondi
+     */
+    public static synchronized void recordDecoding(PNGImage image, DecoderProvider provider, long elapsedNanos) {
+        long pixels = (long) image.getWidth() * image.getHeight();
+        if (pixels <= 0 || elapsedNanos <= 0) {
+            return;
+        }
+
+        String key = getFormatKey(image);
+        HashMap<String, Double> measures = nanosPerPixel.get(key);
+        if (measures == null) {
+            measures = new HashMap<>();
+            nanosPerPixel.put(key, measures);
+        }
+
+        double measure = (double) elapsedNanos / pixels;
+        Double previous = measures.get(provider.getName());
+        if (previous != null) {
+            measure = SMOOTHING_FACTOR * measure + (1 - SMOOTHING_FACTOR) * previous;
+        }
+        measures.put(provider.getName(), measure);
+    }
+
+    /**
+     * Impone il decoder da utilizzare per tutte le immagini che è in grado di
+     * gestire.
+     *
+     * @param name nome del decoder da imporre; null per tornare alla selezione
+     * adattiva
+     */
+    public static synchronized void setPinnedDecoder(String name) {
+        pinnedDecoder = name;
+    }
+
+    /**
+     * Ritorna il nome del decoder imposto.
+     *
+     * @return nome del decoder imposto; null se la selezione è adattiva
+     */
+    public static synchronized String getPinnedDecoder() {
+        return pinnedDecoder;
+    }
+
+    /**
+     * Ritorna il tempo medio di decodifica per pixel misurato per il formato
+     * dell'immagine e il decoder in input.
+     *
+     * @param image immagine di cui considerare il formato
+     * @param provider decoder di cui considerare le misure
+     * @return tempo medio per pixel in nanosecondi; -1 se non vi sono misure
+     */
+    public static synchronized double getNanosPerPixel(PNGImage image, DecoderProvider provider) {
+        HashMap<String, Double> measures = nanosPerPixel.get(getFormatKey(image));
+        if (measures == null || !measures.containsKey(provider.getName())) {
+            return -1;
+        }
+        return measures.get(provider.getName());
+    }
+
+    /**
+     * Elimina tutte le misure raccolte.
+     */
+    public static synchronized void reset() {
+        nanosPerPixel.clear();
+    }
+
+    /**
+     * Verifica se il decoder in input è in grado di decodificare correttamente
+     * l'immagine.
+     *
+     * @param image immagine risultato del parsing
+     * @param provider decoder da controllare
+     * @return <code>true</code> se il decoder supporta il formato
+     * dell'immagine, <code>false</code> altrimenti
+     */
+    private static boolean isSupported(PNGImage image, DecoderProvider provider) {
+        return provider.supports(image.getColorType(), image.getBitDepth(), image.getInterlacingMethod());
+    }
+
+    /**
+     * Ritorna la chiave che identifica il formato dell'immagine.
+     *
+     * @param image immagine risultato del parsing
+     * @return chiave del formato
+     */
+    private static String getFormatKey(PNGImage image) {
+        return image.getColorType() + "/" + image.getBitDepth() + "/" + image.getInterlacingMethod();
+    }
+}
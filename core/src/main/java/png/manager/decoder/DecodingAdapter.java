@@ -0,0 +1,42 @@
+package png.manager.decoder;
+
+import png.manager.entity.RawImage;
+
+/**
+ * Implementazione vuota di {@link DecodingListener}, da estendere per gestire
+ * solo gli eventi di interesse.
+ */
+public abstract class DecodingAdapter implements DecodingListener {
+
+    /**
+     * Non fa nulla.
+     *
+     * @param stage fase in corso
+     * @param done unità di lavoro completate
+     * @param total unità di lavoro complessive della fase
+     */
+    @Override
+    public void stageProgress(DecodingStage stage, long done, long total) {
+    }
+
+    /**
+     * Non fa nulla.
+     *
+     * @param image immagine in corso di decodifica
+     * @param firstRow indice della prima riga decodificata
+     * @param rows numero di righe decodificate
+     */
+    @Override
+    public void rowsDecoded(RawImage image, int firstRow, int rows) {
+    }
+
+    /**
+     * Non fa nulla.
+     *
+     * @param image immagine in corso di decodifica
+     * @param pass indice della passata completata
+     */
+    @Override
+    public void passDecoded(RawImage image, int pass) {
+    }
+}
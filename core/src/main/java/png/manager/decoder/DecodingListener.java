@@ -0,0 +1,56 @@
+package png.manager.decoder;
+
+import png.manager.entity.RawImage;
+
+/**
+ * Ascoltatore dell'avanzamento dell'apertura di un'immagine.
+ * <p>
+ * I metodi vengono invocati nel thread che effettua la decodifica: le
+ * implementazioni devono essere rapide e, se aggiornano un'interfaccia
+ * grafica, devono delegare l'aggiornamento al thread di quest'ultima.
+ * <p>
+ * Le fasi di decompressione e defiltering si alternano una scanline alla
+ * volta, per cui il loro avanzamento viene comunicato in modo intercalato.
+ * Il decoder personale comunica inoltre le righe e le passate completate,
+ * così che l'immagine possa essere mostrata progressivamente. Per gestire
+ * solo alcuni eventi si può estendere {@link DecodingAdapter}.
+ */
+public interface DecodingListener {
+
+    /**
+     * Comunica l'avanzamento di una fase.
+     *
+     * @param stage fase in corso
+     * @param done unità di lavoro completate (byte o righe, a seconda della
+     * fase)
+     * @param total unità di lavoro complessive della fase
+     */
+    void stageProgress(DecodingStage stage, long done, long total);
+
+    /**
+     * Comunica che un gruppo di righe consecutive di un'immagine non
+     * interlacciata è stato decodificato.
+     * <p>
+     * Le righe indicate possono essere lette dall'immagine solo durante
+     * l'invocazione del metodo; le righe successive non sono ancora valide.
+     *
+     * @param image immagine in corso di decodifica
+     * @param firstRow indice della prima riga decodificata
+     * @param rows numero di righe decodificate
+     */
+    void rowsDecoded(RawImage image, int firstRow, int rows);
+
+    /**
+     * Comunica che una passata di un'immagine interlacciata Adam7 è stata
+     * decodificata. L'anteprima corrispondente può essere ottenuta con
+     * {@link Adam7#upscale(RawImage, int)} o, senza allocare un'immagine a
+     * dimensione piena, con {@link Adam7#reduce(RawImage, int)}.
+     * <p>
+     * L'immagine può essere letta solo durante l'invocazione del metodo.
+     *
+     * @param image immagine in corso di decodifica, contenente i pixel delle
+     * passate completate
+     * @param pass indice della passata completata, a partire da 0
+     */
+    void passDecoded(RawImage image, int pass);
+}
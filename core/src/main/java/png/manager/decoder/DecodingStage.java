@@ -0,0 +1,48 @@
+package png.manager.decoder;
+
+/**
+ * Fasi in cui si articola l'apertura di un'immagine, di cui viene comunicato
+ * l'avanzamento a un {@link DecodingListener}.
+ */
+public enum DecodingStage {
+
+    /**
+     * Lettura del file e parsing dei chunk.
+     */
+    READ("Lettura"),
+    /**
+     * Controllo del CRC dei chunk.
+     */
+    CRC("Controllo CRC"),
+    /**
+     * Decompressione dei dati dell'immagine.
+     */
+    INFLATE("Decompressione"),
+    /**
+     * Defiltering delle scanline.
+     */
+    DEFILTER("Defiltering");
+
+    /**
+     * Descrizione della fase.
+     */
+    private final String description;
+
+    /**
+     * Costruttore della fase.
+     *
+     * @param description descrizione della fase
+     */
+    private DecodingStage(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Ritorna la descrizione della fase.
+     *
+     * @return descrizione della fase
+     */
+    public String getDescription() {
+        return description;
+    }
+}
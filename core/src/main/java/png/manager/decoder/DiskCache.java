@@ -0,0 +1,400 @@
+package png.manager.decoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+
+import png.manager.entity.Chunk;
+import png.manager.entity.PNGImage;
+import png.manager.entity.PixelBuffer;
+import png.manager.entity.RawImage;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Cache su disco dei campioni decodificati.
+ * <p>
+ * Ogni immagine decodificata viene salvata in un file, identificato
+ * dall'impronta SHA-256 del contenuto dei chunk e dal nome del decoder: un file
+ * rinominato o copiato viene quindi riconosciuto. Il file contiene una breve
+ * intestazione (dimensioni, formato, impronta e tavolozza) seguita dalle righe
+ * dell'immagine, che alla lettura vengono mappate in memoria senza copiarle
+ * nello heap. Quando la dimensione complessiva dei file supera quella massima,
+ * vengono eliminati i file usati meno di recente.
+ * <p>
+ * La cache è disattivata finché non viene indicata una cartella, con
+ * {@link #setDirectory(Path)} o con la proprietà di sistema
+ * <code>png.manager.diskcache.dir</code>; la dimensione massima, in megabyte,
+ * può essere impostata con la proprietà <code>png.manager.diskcache.size</code>.
+ */
+public class DiskCache {
+
+    /**
+     * Proprietà di sistema con cui indicare la cartella della cache.
+     */
+    public static final String CACHE_DIR_PROPERTY = "png.manager.diskcache.dir";
+    /**
+     * Proprietà di sistema con cui impostare la dimensione massima, in
+     * megabyte.
+     */
+    public static final String CACHE_SIZE_PROPERTY = "png.manager.diskcache.size";
+    /**
+     * Dimensione, in byte, sotto la quale i campioni non vengono salvati: le
+     * immagini piccole si decodificano più velocemente di quanto si leggano.
+     */
+    public static final long MIN_CACHED_SIZE = 1L << 20;
+
+    /**
+     * Dimensione massima predefinita, in megabyte.
+     */
+    private static final long DEFAULT_CACHE_SIZE = 4096;
+    /**
+     * Firma iniziale dei file della cache.
+     */
+    private static final byte[] FILE_SIGNATURE = "PNGMRAW1".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * Estensione dei file della cache.
+     */
+    private static final String FILE_EXTENSION = ".raw";
+    /**
+     * Lunghezza dell'impronta del contenuto, in byte.
+     */
+    private static final int HASH_LENGTH = 32;
+    /**
+     * Lunghezza della parte fissa dell'intestazione: firma, impronta,
+     * larghezza, altezza, tipo di colore, profondità di bit e lunghezza della
+     * tavolozza.
+     */
+    private static final int HEADER_LENGTH = 8 + HASH_LENGTH + 4 + 4 + 1 + 1 + 4;
+
+    /**
+     * Cartella della cache; null se la cache è disattivata.
+     */
+    private static Path directory = System.getProperty(CACHE_DIR_PROPERTY) == null ? null : Paths.get(System.getProperty(CACHE_DIR_PROPERTY));
+    /**
+     * Dimensione massima della cache, in byte.
+     */
+    private static long maxSize = Long.getLong(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE) << 20;
+
+    /**
+     * Costruttore privato della classe.
+     */
+    private DiskCache() {
+    }
+
+    /**
+     * Imposta la cartella della cache.
+     *
+     * @param dir cartella in cui salvare i file; null per disattivare la cache
+     */
+    public static synchronized void setDirectory(Path dir) {
+        directory = dir;
+    }
+
+    /**
+     * Ritorna la cartella della cache.
+     *
+     * @return cartella della cache; null se la cache è disattivata
+     */
+    public static synchronized Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Imposta la dimensione massima della cache.
+     *
+     * @param bytes dimensione massima, in byte
+     */
+    public static synchronized void setMaxSize(long bytes) {
+        maxSize = bytes;
+    }
+
+    /**
+     * Verifica se la cache è attiva.
+     *
+     * @return <code>true</code> se è stata indicata una cartella,
+     * <code>false</code> altrimenti
+     */
+    public static synchronized boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Calcola l'impronta SHA-256 del contenuto dell'immagine, ossia del tipo e
+     * dei dati di tutti i chunk.
+     *
+     * @param image immagine risultato del parsing
+     * @return impronta in esadecimale
+     */
+    public static String getContentHash(PNGImage image) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            //SHA-256 è disponibile in ogni implementazione della piattaforma
+            throw new IllegalStateException(e);
+        }
+
+        for (Chunk c : image.getChunks()) {
+            digest.update(c.getType());
+            digest.update(c.getData());
+        }
+
+        return Utility.bytesToHexString(digest.digest()).toLowerCase();
+    }
+
+    /**
+     * Legge dalla cache i campioni dell'immagine con l'impronta in input,
+     * mappandoli in memoria in sola lettura.
+     *
+     * @param hash impronta del contenuto dell'immagine
+     * @param decoderName nome del decoder che ha prodotto i campioni
+     * @return campioni dell'immagine; null se assenti o non leggibili
+     */
+    public static RawImage load(String hash, String decoderName) {
+        Path path = getPath(hash, decoderName);
+        if (path == null || !Files.isRegularFile(path)) {
+            return null;
+        }
+
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            readFully(channel, header, 0);
+            header.flip();
+
+            byte[] signature = new byte[FILE_SIGNATURE.length];
+            byte[] storedHash = new byte[HASH_LENGTH];
+            header.get(signature);
+            header.get(storedHash);
+            if (!Arrays.equals(signature, FILE_SIGNATURE) || !Arrays.equals(storedHash, hexToBytes(hash))) {
+                throw new IOException("File della cache non valido: " + path);
+            }
+
+            int width = header.getInt();
+            int height = header.getInt();
+            int colorType = header.get() & 0xFF;
+            int bitDepth = header.get() & 0xFF;
+            int paletteLength = header.getInt();
+
+            byte[] palette = null;
+            if (paletteLength > 0) {
+                ByteBuffer paletteData = ByteBuffer.allocate(paletteLength);
+                readFully(channel, paletteData, HEADER_LENGTH);
+                palette = paletteData.array();
+            }
+
+            int rowBytes = Utility.getRowBytes(width, colorType, bitDepth);
+            PixelBuffer pixels = PixelBuffer.map(channel, HEADER_LENGTH + Math.max(0, paletteLength), rowBytes, height);
+
+            //Aggiorna la data di modifica, usata come data di ultimo utilizzo
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return new RawImage(width, height, colorType, bitDepth, pixels, palette);
+        } catch (IOException | RuntimeException e) {
+            System.err.println(e.getMessage());
+            return null;
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println(e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Salva nella cache i campioni dell'immagine con l'impronta in input,
+     * poi elimina i file usati meno di recente se la cache è piena.
+     * <p>
+     * Il file viene prima scritto con un nome temporaneo e poi rinominato, per
+     * cui una lettura concorrente non vede mai un file incompleto. Gli errori
+     * vengono segnalati ma non interrompono la decodifica.
+     *
+     * @param hash impronta del contenuto dell'immagine
+     * @param decoderName nome del decoder che ha prodotto i campioni
+     * @param image campioni da salvare
+     */
+    public static void store(String hash, String decoderName, RawImage image) {
+        Path path = getPath(hash, decoderName);
+        PixelBuffer pixels = image.getPixels();
+        if (path == null || pixels.getSize() < MIN_CACHED_SIZE || Files.exists(path)) {
+            return;
+        }
+
+        Path tmp = null;
+        FileChannel channel = null;
+        try {
+            Files.createDirectories(path.getParent());
+            tmp = Files.createTempFile(path.getParent(), hash, ".tmp");
+            channel = FileChannel.open(tmp, StandardOpenOption.WRITE);
+
+            byte[] palette = image.getPalette();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH + (palette == null ? 0 : palette.length));
+            header.put(FILE_SIGNATURE);
+            header.put(hexToBytes(hash));
+            header.putInt(image.getWidth());
+            header.putInt(image.getHeight());
+            header.put((byte) image.getColorType());
+            header.put((byte) image.getBitDepth());
+            header.putInt(palette == null ? 0 : palette.length);
+            if (palette != null) {
+                header.put(palette);
+            }
+            header.flip();
+            writeFully(channel, header);
+
+            for (int y = 0; y < pixels.getRows(); y++) {
+                writeFully(channel, pixels.getRow(y));
+            }
+            channel.close();
+            channel = null;
+
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            tmp = null;
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println(e.getMessage());
+                }
+            }
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    System.err.println(e.getMessage());
+                }
+            }
+        }
+
+        evict();
+    }
+
+    /**
+     * Elimina i file usati meno di recente finché la dimensione complessiva
+     * della cache non rientra in quella massima.
+     */
+    private static synchronized void evict() {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+
+        ArrayList<Path> files = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+            for (Path file : stream) {
+                files.add(file);
+                total += Files.size(file);
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+
+        if (total <= maxSize) {
+            return;
+        }
+
+        Collections.sort(files, new Comparator<Path>() {
+            @Override
+            public int compare(Path p1, Path p2) {
+                try {
+                    return Files.getLastModifiedTime(p1).compareTo(Files.getLastModifiedTime(p2));
+                } catch (IOException e) {
+                    return 0;
+                }
+            }
+        });
+
+        for (Path file : files) {
+            if (total <= maxSize) {
+                break;
+            }
+            try {
+                long size = Files.size(file);
+                Files.delete(file);
+                total -= size;
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ritorna il percorso del file della cache per l'immagine in input.
+     *
+     * @param hash impronta del contenuto dell'immagine
+     * @param decoderName nome del decoder che ha prodotto i campioni
+     * @return percorso del file; null se la cache è disattivata
+     */
+    private static synchronized Path getPath(String hash, String decoderName) {
+        if (directory == null) {
+            return null;
+        }
+        return directory.resolve(hash + "-" + decoderName + FILE_EXTENSION);
+    }
+
+    /**
+     * Legge dal canale fino a riempire il buffer.
+     *
+     * @param channel canale da cui leggere
+     * @param buffer buffer da riempire
+     * @param position posizione da cui cominciare a leggere
+     * @throws IOException - se il file termina prima di riempire il buffer
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                throw new IOException("File della cache troncato.");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Scrive nel canale tutti i byte rimanenti del buffer.
+     *
+     * @param channel canale su cui scrivere
+     * @param buffer buffer da scrivere
+     * @throws IOException - se occorrono errori in scrittura
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Converte un'impronta esadecimale nei byte corrispondenti.
+     *
+     * @param hash impronta in esadecimale
+     * @return byte dell'impronta
+     */
+    private static byte[] hexToBytes(String hash) {
+        byte[] bytes = new byte[hash.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hash.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,101 @@
+package png.manager.decoder;
+
+import png.manager.entity.Chunk;
+import png.manager.entity.PNGImage;
+import png.manager.miscellaneous.PNGConstants;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Stima la memoria occupata al picco dalla decodifica di un'immagine, a
+ * partire dai campi del chunk IHDR e dal decoder scelto.
+ * <p>
+ * La stima comprende i dati compressi già letti, il buffer dei campioni
+ * decodificati e le scanline di lavoro. Per i decoder diversi da quello
+ * personale vengono conteggiate anche la copia dei dati compressi passata al
+ * lettore, l'immagine intermedia prodotta dal lettore e la conversione in
+ * campioni RGBA a 8 bit.
+ */
+public class MemoryEstimator {
+
+    /**
+     * Memoria occupata dallo stato dell'inflater, in byte.
+     */
+    private static final long INFLATER_OVERHEAD = 64 * 1024;
+    /**
+     * Byte per pixel dei campioni prodotti dai decoder esterni.
+     */
+    private static final int EXTERNAL_BYTES_PER_PIXEL = 4;
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private MemoryEstimator() {
+    }
+
+    /**
+     * Stima la memoria occupata al picco dalla decodifica dell'immagine con il
+     * decoder scelto da {@link DecoderSelector}.
+     *
+     * @param image immagine risultato del parsing
+     * @return memoria stimata, in byte
+     */
+    public static long estimate(PNGImage image) {
+        return estimate(image, DecoderSelector.selectDecoder(image));
+    }
+
+    /**
+     * Stima la memoria occupata al picco dalla decodifica dell'immagine con il
+     * decoder in input.
+     *
+     * @param image immagine risultato del parsing
+     * @param provider decoder da utilizzare; null se non ancora scelto, nel
+     * qual caso si assume il decoder personale
+     * @return memoria stimata, in byte
+     */
+    public static long estimate(PNGImage image, DecoderProvider provider) {
+        long width = image.getWidth();
+        long height = image.getHeight();
+        long rowBytes = (width * image.getBitDepth() * Utility.getSamplesPerPixel(image.getColorType()) + 7) / 8;
+        long compressed = getCompressedSize(image);
+
+        //Buffer dei campioni, riga di appoggio, scanline corrente e precedente
+        long result = compressed + rowBytes * height + 3 * (rowBytes + 1) + INFLATER_OVERHEAD;
+        if (image.getInterlacingMethod() == PNGConstants.ADAM7_INTERLACE) {
+            //Le scanline delle passate si aggiungono alla riga di appoggio
+            result += 2 * (rowBytes + 1);
+        }
+        if (provider != null && !(provider instanceof CustomDecoderProvider)) {
+            //Copia dei dati compressi e campioni RGBA convertiti dall'immagine del lettore
+            result += 2 * compressed + width * height * EXTERNAL_BYTES_PER_PIXEL;
+        }
+        return result;
+    }
+
+    /**
+     * Stima la memoria occupata dalla decodifica dell'immagine con
+     * {@link StreamingDecoder}, che conserva solo due scanline.
+     *
+     * @param image immagine contenente almeno il chunk IHDR
+     * @return memoria stimata, in byte
+     */
+    public static long estimateStreaming(PNGImage image) {
+        long rowBytes = ((long) image.getWidth() * image.getBitDepth() * Utility.getSamplesPerPixel(image.getColorType()) + 7) / 8;
+        return 2 * (rowBytes + 1) + INFLATER_OVERHEAD;
+    }
+
+    /**
+     * Ritorna la dimensione complessiva dei chunk IDAT dell'immagine.
+     *
+     * @param image immagine risultato del parsing
+     * @return dimensione dei dati compressi, in byte
+     */
+    private static long getCompressedSize(PNGImage image) {
+        long result = 0;
+        for (Chunk chunk : image.getChunks()) {
+            if (chunk.getTypeAsString().equals(PNGConstants.IMAGE_DATA_CHUNK_NAME)) {
+                result += chunk.getData().length;
+            }
+        }
+        return result;
+    }
+}
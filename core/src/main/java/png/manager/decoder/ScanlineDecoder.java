@@ -0,0 +1,232 @@
+package png.manager.decoder;
+
+import java.util.Iterator;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import png.manager.entity.Chunk;
+import png.manager.entity.PNGImage;
+import png.manager.exception.DecodingException;
+import png.manager.miscellaneous.PNGConstants;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Decodifica un'immagine non interlacciata una riga alla volta, dall'alto
+ * verso il basso, con il decoder personale.
+ * <p>
+ * Poiché i dati compressi possono essere letti solo in sequenza, per tornare
+ * a una riga già superata è necessario ricominciare con {@link #reset()}.
+ * L'oggetto non è utilizzabile da più thread contemporaneamente.
+ */
+public class ScanlineDecoder {
+
+    /**
+     * Immagine da decodificare.
+     */
+    private final PNGImage image;
+    /**
+     * Dimensione di una scanline, compreso il byte del filtro.
+     */
+    private final int scanlineSize;
+    /**
+     * Ampiezza di un pixel, in byte, ai fini del defiltering.
+     */
+    private final int pixelWidth;
+    /**
+     * Dati del chunk PLTE; null se l'immagine non usa una tavolozza.
+     */
+    private final byte[] palette;
+    /**
+     * Inflater dei dati compressi.
+     */
+    private Inflater inflater;
+    /**
+     * Chunk IDAT non ancora forniti all'inflater.
+     */
+    private Iterator<Chunk> dataChunks;
+    /**
+     * Scanline in corso di decodifica.
+     */
+    private byte[] currScanline;
+    /**
+     * Ultima scanline decodificata.
+     */
+    private byte[] previousScanline;
+    /**
+     * Indice della prossima riga da decodificare.
+     */
+    private int currentRow;
+    /**
+     * Ascoltatore dell'avanzamento; null se assente.
+     */
+    private DecodingListener listener;
+
+    /**
+     * Costruisce il decoder per l'immagine in input.
+     *
+     * @param image immagine risultato del parsing
+     * @throws DecodingException - se l'immagine è interlacciata, troppo larga
+     * o priva della tavolozza richiesta
+     */
+    public ScanlineDecoder(PNGImage image) throws DecodingException {
+        if (image.getInterlacingMethod() != PNGConstants.NO_INTERLACE) {
+            throw new DecodingException("Interlacciamento non supportato dal decoder personale.");
+        }
+
+        byte[] paletteData = CustomDecoder.getPalette(image);
+
+        long size = 1 + ((long) image.getWidth() * image.getBitDepth() * Utility.getSamplesPerPixel(image.getColorType()) + 7) / 8;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new DecodingException("Immagine troppo larga per essere decodificata.");
+        }
+
+        this.image = image;
+        this.palette = paletteData;
+        this.scanlineSize = CustomDefilterer.getScanlineSize(image.getColorType(), image.getWidth(), image.getBitDepth());
+        this.pixelWidth = CustomDefilterer.getPixelWidth(image.getBitDepth(), image.getColorType());
+        reset();
+    }
+
+    /**
+     * Ritorna l'immagine da decodificare.
+     *
+     * @return immagine risultato del parsing
+     */
+    public PNGImage getImage() {
+        return image;
+    }
+
+    /**
+     * Ritorna il numero di byte di ciascuna riga decodificata.
+     *
+     * @return dimensione di una riga in byte
+     */
+    public int getRowBytes() {
+        return scanlineSize - 1;
+    }
+
+    /**
+     * Ritorna i dati del chunk PLTE.
+     *
+     * @return tavolozza dell'immagine; null se l'immagine non ne usa una
+     */
+    public byte[] getPalette() {
+        return palette;
+    }
+
+    /**
+     * Ritorna l'indice della prossima riga che verrà decodificata.
+     *
+     * @return indice della riga
+     */
+    public int getCurrentRow() {
+        return currentRow;
+    }
+
+    /**
+     * Imposta l'ascoltatore a cui comunicare l'avanzamento di decompressione
+     * e defiltering, riga per riga.
+     *
+     * @param listener ascoltatore dell'avanzamento; null per rimuoverlo
+     */
+    public void setListener(DecodingListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Verifica se vi sono altre righe da decodificare.
+     *
+     * @return <code>true</code> se l'ultima riga non è ancora stata
+     * decodificata, <code>false</code> altrimenti
+     */
+    public boolean hasNextRow() {
+        return currentRow < image.getHeight();
+    }
+
+    /**
+     * Decodifica la prossima riga e la copia nell'array in input.
+     *
+     * @param dst array di destinazione
+     * @param offset posizione da cui cominciare a scrivere
+     * @throws DecodingException - se occorrono errori in fase di decodifica
+     */
+    public void nextRow(byte[] dst, int offset) throws DecodingException {
+        decodeRow();
+        System.arraycopy(previousScanline, 1, dst, offset, scanlineSize - 1);
+    }
+
+    /**
+     * Decodifica le prossime righe senza restituirle.
+     *
+     * @param rows numero di righe da saltare
+     * @throws DecodingException - se occorrono errori in fase di decodifica
+     */
+    public void skipRows(int rows) throws DecodingException {
+        for (int i = 0; i < rows; i++) {
+            decodeRow();
+        }
+    }
+
+    /**
+     * Riporta il decoder alla prima riga dell'immagine.
+     */
+    public final void reset() {
+        close();
+        inflater = new Inflater();
+        dataChunks = CustomDecoder.getDataChunks(image).iterator();
+        currScanline = new byte[scanlineSize];
+        previousScanline = new byte[scanlineSize];
+        currentRow = 0;
+    }
+
+    /**
+     * Rilascia le risorse native dell'inflater.
+     */
+    public final void close() {
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+    }
+
+    /**
+     * Decomprime e defiltra la prossima riga, che diventa la scanline
+     * precedente.
+     * <p>
+     * Prima di ogni riga viene controllato se il thread corrente è stato
+     * interrotto, nel qual caso la decodifica viene annullata.
+     *
+     * @throws DecodingException - se occorrono errori in fase di decodifica,
+     * le righe sono terminate o il thread corrente è stato interrotto
+     */
+    private void decodeRow() throws DecodingException {
+        if (!hasNextRow()) {
+            throw new DecodingException("Righe dell'immagine terminate.");
+        }
+        if (inflater == null) {
+            throw new DecodingException("Decoder chiuso.");
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new DecodingException("Decodifica annullata.");
+        }
+
+        try {
+            CustomDecoder.inflateScanline(inflater, dataChunks, currScanline);
+        } catch (DataFormatException e) {
+            System.err.println(e.getMessage());
+            throw new DecodingException("Errore nella decompressione dei dati.");
+        }
+        if (listener != null) {
+            listener.stageProgress(DecodingStage.INFLATE, currentRow + 1, image.getHeight());
+        }
+        CustomDefilterer.defilterScanline(currScanline, previousScanline, scanlineSize, pixelWidth, currentRow == 0);
+        if (listener != null) {
+            listener.stageProgress(DecodingStage.DEFILTER, currentRow + 1, image.getHeight());
+        }
+
+        byte[] tmp = previousScanline;
+        previousScanline = currScanline;
+        currScanline = tmp;
+        currentRow++;
+    }
+}
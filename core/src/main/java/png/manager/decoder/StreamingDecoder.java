@@ -0,0 +1,278 @@
+package png.manager.decoder;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import png.manager.entity.PNGImage;
+import png.manager.entity.PixelBuffer;
+import png.manager.exception.DecodingException;
+import png.manager.miscellaneous.PNGConstants;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Decomprime e defiltra i dati di un'immagine man mano che vengono ricevuti,
+ * con il decoder personale.
+ * <p>
+ * A differenza di {@link ScanlineDecoder}, che legge i chunk IDAT di
+ * un'immagine già interamente in memoria, i dati compressi vengono forniti a
+ * blocchi di dimensione qualsiasi con {@link #update(byte[], int, int)}, ad
+ * esempio durante la lettura di uno stream. In ogni momento vengono
+ * conservate solo la scanline in corso e la precedente, così che la memoria
+ * usata non dipenda dall'altezza dell'immagine; le immagini interlacciate
+ * vengono decodificate una passata alla volta. Le righe decodificate non
+ * vengono conservate: il decoder verifica che i dati compressi siano completi
+ * e decodificabili.
+ * <p>
+ * L'oggetto non è utilizzabile da più thread contemporaneamente.
+ */
+public class StreamingDecoder {
+
+    /**
+     * Larghezza dell'immagine.
+     */
+    private final int width;
+    /**
+     * Altezza dell'immagine.
+     */
+    private final int height;
+    /**
+     * Tipo di colore dell'immagine.
+     */
+    private final int colorType;
+    /**
+     * Profondità di bit dell'immagine.
+     */
+    private final int bitDepth;
+    /**
+     * Indica se l'immagine è interlacciata Adam7.
+     */
+    private final boolean interlaced;
+    /**
+     * Ampiezza di un pixel, in byte, ai fini del defiltering.
+     */
+    private final int pixelWidth;
+    /**
+     * Numero complessivo di righe, di tutte le passate.
+     */
+    private final long totalRows;
+    /**
+     * Inflater dei dati compressi.
+     */
+    private Inflater inflater = new Inflater();
+    /**
+     * Scanline in corso di decodifica.
+     */
+    private byte[] currScanline;
+    /**
+     * Ultima scanline decodificata.
+     */
+    private byte[] previousScanline;
+    /**
+     * Byte già decompressi della scanline in corso.
+     */
+    private int filled = 0;
+    /**
+     * Passata in corso; sempre 0 per le immagini non interlacciate.
+     */
+    private int pass = -1;
+    /**
+     * Dimensione delle scanline della passata in corso, compreso il byte del
+     * filtro.
+     */
+    private int scanlineSize;
+    /**
+     * Numero di righe della passata in corso.
+     */
+    private int passHeight;
+    /**
+     * Indice della prossima riga della passata in corso.
+     */
+    private int passRow;
+    /**
+     * Numero di righe decodificate, di tutte le passate.
+     */
+    private long decodedRows = 0;
+
+    /**
+     * Costruisce il decoder per l'immagine in input, di cui è sufficiente il
+     * chunk IHDR.
+     *
+     * @param image immagine contenente almeno il chunk IHDR
+     * @throws DecodingException - se l'immagine è troppo larga per essere
+     * decodificata
+     */
+    public StreamingDecoder(PNGImage image) throws DecodingException {
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.colorType = image.getColorType();
+        this.bitDepth = image.getBitDepth();
+        this.interlaced = image.getInterlacingMethod() == PNGConstants.ADAM7_INTERLACE;
+
+        long rowSize = ((long) width * bitDepth * Utility.getSamplesPerPixel(colorType) + 7) / 8;
+        if (rowSize > PixelBuffer.MAX_SEGMENT_SIZE) {
+            throw new DecodingException("Immagine troppo larga per essere decodificata.");
+        }
+        this.pixelWidth = CustomDefilterer.getPixelWidth(bitDepth, colorType);
+
+        long rows = 0;
+        if (interlaced) {
+            for (int p = 0; p < Adam7.PASSES; p++) {
+                if (Adam7.getPassWidth(p, width) > 0) {
+                    rows += Adam7.getPassHeight(p, height);
+                }
+            }
+        } else {
+            rows = height;
+        }
+        this.totalRows = rows;
+
+        //Le scanline delle passate sono più corte e riusano gli stessi array
+        this.currScanline = new byte[(int) rowSize + 1];
+        this.previousScanline = new byte[(int) rowSize + 1];
+        nextPass();
+    }
+
+    /**
+     * Fornisce al decoder un blocco di dati compressi, decodificando tutte le
+     * scanline che il blocco permette di completare. I dati successivi
+     * all'ultima riga vengono ignorati.
+     *
+     * @param data array contenente i dati compressi
+     * @param offset posizione del primo byte da leggere
+     * @param length numero di byte da leggere
+     * @throws DecodingException - se i dati compressi o i filtri non sono
+     * validi, se il decoder è stato chiuso o se il thread corrente è stato
+     * interrotto
+     */
+    public void update(byte[] data, int offset, int length) throws DecodingException {
+        if (inflater == null) {
+            throw new DecodingException("Decoder chiuso.");
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new DecodingException("Decodifica annullata.");
+        }
+        if (isComplete() || length == 0) {
+            return;
+        }
+
+        inflater.setInput(data, offset, length);
+        try {
+            while (!isComplete()) {
+                int read = inflater.inflate(currScanline, filled, scanlineSize - filled);
+                filled += read;
+                if (filled == scanlineSize) {
+                    completeScanline();
+                } else if (read == 0) {
+                    if (inflater.needsDictionary()) {
+                        throw new DecodingException("Errore nella decompressione dei dati.");
+                    }
+                    //Il blocco è esaurito, oppure lo stream compresso è terminato
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            System.err.println(e.getMessage());
+            throw new DecodingException("Errore nella decompressione dei dati.");
+        }
+    }
+
+    /**
+     * Verifica che tutte le righe dell'immagine siano state decodificate e
+     * rilascia le risorse del decoder.
+     *
+     * @throws DecodingException - se i dati compressi terminano prima
+     * dell'ultima riga
+     */
+    public void finish() throws DecodingException {
+        boolean complete = isComplete();
+        close();
+        if (!complete) {
+            throw new DecodingException("Dati dell'immagine incompleti.");
+        }
+    }
+
+    /**
+     * Indica se tutte le righe dell'immagine sono state decodificate.
+     *
+     * @return <code>true</code> se la decodifica è completa,
+     * <code>false</code> altrimenti
+     */
+    public boolean isComplete() {
+        return decodedRows == totalRows;
+    }
+
+    /**
+     * Ritorna il numero di righe decodificate, di tutte le passate.
+     *
+     * @return numero di righe
+     */
+    public long getDecodedRows() {
+        return decodedRows;
+    }
+
+    /**
+     * Ritorna il numero complessivo di righe da decodificare, di tutte le
+     * passate.
+     *
+     * @return numero di righe
+     */
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * Rilascia le risorse del decoder. Il metodo può essere chiamato più
+     * volte.
+     */
+    public void close() {
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+    }
+
+    /**
+     * Defiltra la scanline appena completata, che diventa la scanline
+     * precedente, e passa alla riga successiva.
+     *
+     * @throws DecodingException - se viene incontrato un filtro sconosciuto
+     */
+    private void completeScanline() throws DecodingException {
+        CustomDefilterer.defilterScanline(currScanline, previousScanline, scanlineSize, pixelWidth, passRow == 0);
+        byte[] tmp = previousScanline;
+        previousScanline = currScanline;
+        currScanline = tmp;
+        filled = 0;
+        decodedRows++;
+        passRow++;
+        if (passRow == passHeight) {
+            nextPass();
+        }
+    }
+
+    /**
+     * Passa alla prossima passata non vuota, se presente.
+     */
+    private void nextPass() {
+        if (!interlaced) {
+            if (pass < 0) {
+                pass = 0;
+                scanlineSize = currScanline.length;
+                passHeight = height;
+                passRow = 0;
+            }
+            return;
+        }
+
+        //Le passate vuote non sono presenti nei dati compressi
+        while (++pass < Adam7.PASSES) {
+            int passWidth = Adam7.getPassWidth(pass, width);
+            passHeight = Adam7.getPassHeight(pass, height);
+            if (passWidth > 0 && passHeight > 0) {
+                scanlineSize = CustomDefilterer.getScanlineSize(colorType, passWidth, bitDepth);
+                passRow = 0;
+                return;
+            }
+        }
+    }
+}
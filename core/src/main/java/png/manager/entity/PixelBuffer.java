@@ -0,0 +1,237 @@
+package png.manager.entity;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Contenitore di righe di pixel di dimensione arbitraria, indicizzato con
+ * <code>long</code>.
+ * <p>
+ * Le righe sono suddivise in segmenti, ciascuno dei quali contiene un numero
+ * intero di righe: nessuna riga è mai spezzata tra due segmenti. Le immagini
+ * piccole usano un unico segmento nello heap; quelle grandi usano segmenti
+ * diretti, allocati fuori dallo heap, superando così il limite di 2 GB degli
+ * array. La memoria diretta disponibile è limitata dall'opzione
+ * <code>-XX:MaxDirectMemorySize</code> della JVM.
+ */
+public class PixelBuffer {
+
+    /**
+     * Dimensione massima, in byte, di un segmento.
+     */
+    public static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+    /**
+     * Segmenti del contenitore.
+     */
+    private final ByteBuffer[] segments;
+    /**
+     * Numero di byte di ciascuna riga.
+     */
+    private final int rowBytes;
+    /**
+     * Numero di righe.
+     */
+    private final int rows;
+    /**
+     * Numero di righe contenute in ciascun segmento, tranne al più l'ultimo.
+     */
+    private final int rowsPerSegment;
+
+    /**
+     * Costruttore privato dell'oggetto.
+     *
+     * @param segments segmenti del contenitore
+     * @param rowBytes numero di byte di ciascuna riga
+     * @param rows numero di righe
+     * @param rowsPerSegment numero di righe di ciascun segmento
+     */
+    private PixelBuffer(ByteBuffer[] segments, int rowBytes, int rows, int rowsPerSegment) {
+        this.segments = segments;
+        this.rowBytes = rowBytes;
+        this.rows = rows;
+        this.rowsPerSegment = rowsPerSegment;
+    }
+
+    /**
+     * Alloca un nuovo contenitore.
+     *
+     * @param rowBytes numero di byte di ciascuna riga
+     * @param rows numero di righe
+     * @param direct <code>true</code> per allocare i segmenti fuori dallo
+     * heap, <code>false</code> altrimenti
+     * @return contenitore allocato, inizializzato a zero
+     */
+    public static PixelBuffer allocate(int rowBytes, int rows, boolean direct) {
+        if (rowBytes > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Riga troppo grande: " + rowBytes + " byte.");
+        }
+
+        int rowsPerSegment = Math.max(1, Math.min(rows, MAX_SEGMENT_SIZE / Math.max(1, rowBytes)));
+        int segmentCount = Math.max(1, (rows + rowsPerSegment - 1) / rowsPerSegment);
+        ByteBuffer[] segments = new ByteBuffer[segmentCount];
+
+        for (int i = 0; i < segmentCount; i++) {
+            int segmentRows = Math.min(rowsPerSegment, rows - i * rowsPerSegment);
+            int size = segmentRows * rowBytes;
+            segments[i] = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        }
+
+        return new PixelBuffer(segments, rowBytes, rows, rowsPerSegment);
+    }
+
+    /**
+     * Costruisce un contenitore con un unico segmento, a partire dai dati in
+     * input. I dati non vengono copiati.
+     *
+     * @param data righe di pixel, a partire dalla posizione corrente
+     * @param rowBytes numero di byte di ciascuna riga
+     * @param rows numero di righe
+     * @return contenitore dei dati
+     */
+    public static PixelBuffer wrap(ByteBuffer data, int rowBytes, int rows) {
+        if (data.remaining() < (long) rowBytes * rows) {
+            throw new IllegalArgumentException("Dati insufficienti per " + rows + " righe da " + rowBytes + " byte.");
+        }
+        return new PixelBuffer(new ByteBuffer[]{data.slice()}, rowBytes, rows, Math.max(1, rows));
+    }
+
+    /**
+     * Mappa in memoria, in sola lettura, le righe contenute nel file in input
+     * a partire dalla posizione in input. Le righe non vengono copiate nello
+     * heap: i segmenti restano validi anche dopo la chiusura del canale.
+     *
+     * @param channel canale del file da mappare
+     * @param position posizione della prima riga nel file
+     * @param rowBytes numero di byte di ciascuna riga
+     * @param rows numero di righe
+     * @return contenitore delle righe mappate
+     * @throws IOException - se il file è troppo corto o non può essere mappato
+     */
+    public static PixelBuffer map(FileChannel channel, long position, int rowBytes, int rows) throws IOException {
+        if (rowBytes > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Riga troppo grande: " + rowBytes + " byte.");
+        }
+        if (channel.size() - position < (long) rowBytes * rows) {
+            throw new IOException("File troppo corto per " + rows + " righe da " + rowBytes + " byte.");
+        }
+
+        int rowsPerSegment = Math.max(1, Math.min(rows, MAX_SEGMENT_SIZE / Math.max(1, rowBytes)));
+        int segmentCount = Math.max(1, (rows + rowsPerSegment - 1) / rowsPerSegment);
+        ByteBuffer[] segments = new ByteBuffer[segmentCount];
+
+        for (int i = 0; i < segmentCount; i++) {
+            int segmentRows = Math.min(rowsPerSegment, rows - i * rowsPerSegment);
+            long start = position + (long) i * rowsPerSegment * rowBytes;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, (long) segmentRows * rowBytes);
+        }
+
+        return new PixelBuffer(segments, rowBytes, rows, rowsPerSegment);
+    }
+
+    /**
+     * Ritorna il numero di byte di ciascuna riga.
+     *
+     * @return dimensione di una riga in byte
+     */
+    public int getRowBytes() {
+        return rowBytes;
+    }
+
+    /**
+     * Ritorna il numero di righe.
+     *
+     * @return numero di righe
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Ritorna la dimensione complessiva del contenitore.
+     *
+     * @return dimensione in byte
+     */
+    public long getSize() {
+        return (long) rowBytes * rows;
+    }
+
+    /**
+     * Ritorna il numero di segmenti.
+     *
+     * @return numero di segmenti
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Ritorna una vista indipendente del segmento in input.
+     *
+     * @param index indice del segmento
+     * @return segmento richiesto
+     */
+    public ByteBuffer getSegment(int index) {
+        return segments[index].duplicate();
+    }
+
+    /**
+     * Verifica se i segmenti sono allocati fuori dallo heap.
+     *
+     * @return <code>true</code> se i segmenti sono diretti,
+     * <code>false</code> altrimenti
+     */
+    public boolean isDirect() {
+        return segments[0].isDirect();
+    }
+
+    /**
+     * Ritorna una vista della riga in input, senza copiarne i dati.
+     *
+     * @param y indice della riga
+     * @return vista della riga, con posizione 0 e limite pari alla sua
+     * dimensione
+     */
+    public ByteBuffer getRow(int y) {
+        ByteBuffer segment = segments[y / rowsPerSegment].duplicate();
+        int start = (y % rowsPerSegment) * rowBytes;
+        segment.limit(start + rowBytes);
+        segment.position(start);
+        return segment.slice();
+    }
+
+    /**
+     * Copia la riga in input nell'array in input.
+     *
+     * @param y indice della riga
+     * @param dst array di destinazione
+     * @param offset posizione da cui cominciare a scrivere
+     */
+    public void getRow(int y, byte[] dst, int offset) {
+        getRow(y).get(dst, offset, rowBytes);
+    }
+
+    /**
+     * Sovrascrive la riga in input con i dati dell'array in input.
+     *
+     * @param y indice della riga
+     * @param src array d'origine
+     * @param offset posizione da cui cominciare a leggere
+     */
+    public void putRow(int y, byte[] src, int offset) {
+        getRow(y).put(src, offset, rowBytes);
+    }
+
+    /**
+     * Ritorna il byte alla posizione in input.
+     *
+     * @param index posizione del byte, a partire dall'inizio della prima riga
+     * @return byte richiesto
+     */
+    public byte get(long index) {
+        int y = (int) (index / rowBytes);
+        int x = (int) (index % rowBytes);
+        return segments[y / rowsPerSegment].get((y % rowsPerSegment) * rowBytes + x);
+    }
+}
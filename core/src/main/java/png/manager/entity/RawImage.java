@@ -0,0 +1,273 @@
+package png.manager.entity;
+
+import java.nio.ByteBuffer;
+
+import png.manager.miscellaneous.PNGConstants;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Modella un'immagine decodificata come semplice contenitore di campioni, senza
+ * alcuna dipendenza da AWT.
+ * <p>
+ * I campioni sono memorizzati riga per riga secondo la disposizione del
+ * formato PNG: ogni riga occupa <code>getRowBytes()</code> byte, i campioni
+ * con profondità inferiore a 8 bit sono impaccati a partire dal bit più
+ * significativo e quelli a 16 bit sono in ordine big-endian.
+ * <p>
+ * Le righe sono contenute in un {@link PixelBuffer}: le immagini più grandi
+ * di 2 GB sono memorizzate fuori dallo heap e sono accessibili solo per righe
+ * o per riquadri.
+ */
+public class RawImage {
+
+    /**
+     * Larghezza dell'immagine.
+     */
+    private final int width;
+    /**
+     * Altezza dell'immagine.
+     */
+    private final int height;
+    /**
+     * Tipo di colore dell'immagine.
+     */
+    private final int colorType;
+    /**
+     * Profondità in bit di ciascun campione.
+     */
+    private final int bitDepth;
+    /**
+     * Numero di campioni per pixel.
+     */
+    private final int channels;
+    /**
+     * Numero di byte di ciascuna riga.
+     */
+    private final int rowBytes;
+    /**
+     * Campioni dell'immagine.
+     */
+    private final PixelBuffer pixels;
+    /**
+     * Dati del chunk PLTE; null se l'immagine non usa una tavolozza.
+     */
+    private final byte[] palette;
+
+    /**
+     * Costruttore dell'oggetto.
+     *
+     * @param width larghezza dell'immagine
+     * @param height altezza dell'immagine
+     * @param colorType tipo di colore dell'immagine
+     * @param bitDepth profondità in bit di ciascun campione
+     * @param data campioni dell'immagine, riga per riga
+     * @param palette dati del chunk PLTE; null se assente
+     */
+    public RawImage(int width, int height, int colorType, int bitDepth, ByteBuffer data, byte[] palette) {
+        this(width, height, colorType, bitDepth, PixelBuffer.wrap(data, Utility.getRowBytes(width, colorType, bitDepth), height), palette);
+    }
+
+    /**
+     * Costruttore dell'oggetto.
+     *
+     * @param width larghezza dell'immagine
+     * @param height altezza dell'immagine
+     * @param colorType tipo di colore dell'immagine
+     * @param bitDepth profondità in bit di ciascun campione
+     * @param pixels righe dell'immagine
+     * @param palette dati del chunk PLTE; null se assente
+     */
+    public RawImage(int width, int height, int colorType, int bitDepth, PixelBuffer pixels, byte[] palette) {
+        this.width = width;
+        this.height = height;
+        this.colorType = colorType;
+        this.bitDepth = bitDepth;
+        this.channels = Utility.getSamplesPerPixel(colorType);
+        this.rowBytes = Utility.getRowBytes(width, colorType, bitDepth);
+        this.pixels = pixels;
+        this.palette = palette;
+
+        if (pixels.getRowBytes() != rowBytes || pixels.getRows() != height) {
+            throw new IllegalArgumentException("Dati non compatibili con un'immagine " + width + "x" + height + ".");
+        }
+    }
+
+    /**
+     * Ritorna la larghezza dell'immagine.
+     *
+     * @return larghezza dell'immagine
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Ritorna l'altezza dell'immagine.
+     *
+     * @return altezza dell'immagine
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Ritorna il tipo di colore dell'immagine.
+     *
+     * @return tipo di colore dell'immagine
+     */
+    public int getColorType() {
+        return colorType;
+    }
+
+    /**
+     * Ritorna la profondità in bit di ciascun campione.
+     *
+     * @return profondità di bit dell'immagine
+     */
+    public int getBitDepth() {
+        return bitDepth;
+    }
+
+    /**
+     * Ritorna il numero di campioni per pixel.
+     *
+     * @return numero di canali dell'immagine
+     */
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * Ritorna il numero di byte occupati da ciascuna riga.
+     *
+     * @return dimensione di una riga in byte
+     */
+    public int getRowBytes() {
+        return rowBytes;
+    }
+
+    /**
+     * Ritorna il numero di byte per pixel restituiti da
+     * {@link #getTile(int, int, int, int, byte[])}.
+     * <p>
+     * I campioni con profondità inferiore a 8 bit occupano un byte ciascuno.
+     *
+     * @return numero di byte per pixel
+     */
+    public int getBytesPerPixel() {
+        return Math.max(1, channels * bitDepth / 8);
+    }
+
+    /**
+     * Verifica se tutti i campioni sono contenuti in un unico buffer,
+     * accessibile con {@link #getData()}.
+     *
+     * @return <code>true</code> se l'immagine non è segmentata,
+     * <code>false</code> altrimenti
+     */
+    public boolean isContiguous() {
+        return pixels.getSegmentCount() == 1;
+    }
+
+    /**
+     * Ritorna una vista indipendente dei campioni dell'immagine.
+     * <p>
+     * La vista condivide il contenuto con l'immagine, ma ha posizione e limite
+     * propri.
+     *
+     * @return campioni dell'immagine
+     * @throws IllegalStateException - se l'immagine è suddivisa in più
+     * segmenti
+     */
+    public ByteBuffer getData() {
+        if (!isContiguous()) {
+            throw new IllegalStateException("Immagine troppo grande per un unico buffer: usare l'accesso per righe.");
+        }
+        return pixels.getSegment(0);
+    }
+
+    /**
+     * Ritorna le righe dell'immagine.
+     *
+     * @return contenitore delle righe
+     */
+    public PixelBuffer getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Ritorna una vista della riga in input, senza copiarne i dati.
+     *
+     * @param y indice della riga
+     * @return vista della riga
+     */
+    public ByteBuffer getRow(int y) {
+        return pixels.getRow(y);
+    }
+
+    /**
+     * Copia i pixel del riquadro in input nell'array in input, riga per riga.
+     * <p>
+     * Ogni pixel occupa {@link #getBytesPerPixel()} byte; i campioni con
+     * profondità inferiore a 8 bit vengono estratti, uno per byte.
+     *
+     * @param x colonna del primo pixel
+     * @param y riga del primo pixel
+     * @param w larghezza del riquadro
+     * @param h altezza del riquadro
+     * @param dst array di destinazione, di almeno
+     * <code>w * h * getBytesPerPixel()</code> byte
+     */
+    public void getTile(int x, int y, int w, int h, byte[] dst) {
+        if (x < 0 || y < 0 || w < 0 || h < 0 || x + w > width || y + h > height) {
+            throw new IndexOutOfBoundsException("Riquadro esterno all'immagine.");
+        }
+
+        int bytesPerPixel = getBytesPerPixel();
+        int offset = 0;
+        for (int r = 0; r < h; r++) {
+            ByteBuffer row = pixels.getRow(y + r);
+            if (bitDepth >= 8) {
+                row.position(x * bytesPerPixel);
+                row.get(dst, offset, w * bytesPerPixel);
+                offset += w * bytesPerPixel;
+            } else {
+                int mask = (1 << bitDepth) - 1;
+                for (int c = x; c < x + w; c++) {
+                    int bit = c * bitDepth;
+                    int shift = 8 - bitDepth - (bit & 7);
+                    dst[offset++] = (byte) ((row.get(bit >> 3) >> shift) & mask);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ritorna i dati del chunk PLTE.
+     *
+     * @return tavolozza dell'immagine; null se l'immagine non ne usa una
+     */
+    public byte[] getPalette() {
+        return palette;
+    }
+
+    /**
+     * Verifica se l'immagine usa una tavolozza.
+     *
+     * @return <code>true</code> se i campioni sono indici della tavolozza,
+     * <code>false</code> altrimenti
+     */
+    public boolean isIndexed() {
+        return colorType == PNGConstants.COLOR_TYPE_PALETTE;
+    }
+
+    /**
+     * Riepilogo delle caratteristiche dell'immagine.
+     *
+     * @return prospetto dell'immagine
+     */
+    @Override
+    public String toString() {
+        return "width: " + width + "px; height: " + height + "px; colorType: " + colorType + "; bitDepth: " + bitDepth + "; channels: " + channels + ".";
+    }
+}
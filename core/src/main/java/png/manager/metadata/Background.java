@@ -0,0 +1,62 @@
+package png.manager.metadata;
+
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Informazioni del chunk bKGD: colore di sfondo suggerito.
+ */
+public final class Background implements ChunkInfo {
+
+    /**
+     * Tipo di colore dell'immagine, da cui dipende il formato del chunk.
+     */
+    private final int colorType;
+    /**
+     * Campioni del colore: uno per le immagini grayscale, tre per quelle RGB,
+     * l'indice della voce per quelle con tavolozza.
+     */
+    private final int[] samples;
+
+    /**
+     * Costruisce l'oggetto memorizzando i campi del chunk.
+     *
+     * @param colorType tipo di colore dell'immagine
+     * @param samples campioni del colore o indice della voce della tavolozza
+     */
+    public Background(int colorType, int[] samples) {
+        this.colorType = colorType;
+        this.samples = samples.clone();
+    }
+
+    /**
+     * Ritorna il nome del chunk.
+     *
+     * @return bKGD
+     */
+    @Override
+    public String getType() {
+        return PNGConstants.BACKGROUND_CHUNK_NAME;
+    }
+
+    /**
+     * Ritorna i campioni del colore di sfondo.
+     *
+     * @return uno o tre campioni, oppure l'indice della voce della tavolozza
+     */
+    public int[] getSamples() {
+        return samples.clone();
+    }
+
+    /**
+     * Rappresentazione testuale del chunk.
+     *
+     * @return colore di sfondo o voce della tavolozza
+     */
+    @Override
+    public String toString() {
+        if (colorType == PNGConstants.COLOR_TYPE_PALETTE) {
+            return "Entry #" + samples[0];
+        }
+        return ChunkDecoders.formatColor(samples);
+    }
+}
@@ -0,0 +1,58 @@
+package png.manager.metadata;
+
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Informazioni del chunk cHRM: cromaticità dei primari e del punto di bianco.
+ */
+public final class Chromaticities implements ChunkInfo {
+
+    /**
+     * Coordinate x e y, moltiplicate per 100000, nell'ordine: punto di
+     * bianco, rosso, verde e blu.
+     */
+    private final long[] values;
+
+    /**
+     * Costruisce l'oggetto memorizzando i campi del chunk.
+     *
+     * @param values otto coordinate moltiplicate per 100000
+     */
+    public Chromaticities(long[] values) {
+        this.values = values.clone();
+    }
+
+    /**
+     * Ritorna il nome del chunk.
+     *
+     * @return cHRM
+     */
+    @Override
+    public String getType() {
+        return PNGConstants.CHROMACITIES_CHUNK_NAME;
+    }
+
+    /**
+     * Ritorna una coordinata.
+     *
+     * @param index indice della coordinata, da 0 (x del punto di bianco) a 7
+     * (y del blu)
+     * @return coordinata
+     */
+    public double getValue(int index) {
+        return values[index] / 100000.0;
+    }
+
+    /**
+     * Rappresentazione testuale del chunk.
+     *
+     * @return coordinate del punto di bianco e dei primari, una riga ciascuno
+     */
+    @Override
+    public String toString() {
+        return "White Point x: " + getValue(0) + "; White Point y: " + getValue(1)
+                + "\nRed x: " + getValue(2) + "; Red y: " + getValue(3)
+                + "\nGreen x: " + getValue(4) + "; Green y: " + getValue(5)
+                + "\nBlue x: " + getValue(6) + "; Blue y: " + getValue(7);
+    }
+}
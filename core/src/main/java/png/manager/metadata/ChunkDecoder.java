@@ -0,0 +1,29 @@
+package png.manager.metadata;
+
+import java.nio.ByteBuffer;
+
+import png.manager.exception.ChunkParserException;
+
+/**
+ * Interpreta i dati di un tipo di chunk.
+ *
+ * @param <T> tipo delle informazioni estratte
+ */
+public interface ChunkDecoder<T extends ChunkInfo> {
+
+    /**
+     * Interpreta i dati del chunk, leggendone i campi in ordine big-endian.
+     * <p>
+     * Il buffer è in sola lettura e posizionato all'inizio dei dati; la
+     * lettura oltre la fine dei dati viene segnalata dal registro come chunk
+     * non valido.
+     *
+     * @param data dati del chunk
+     * @param colorType tipo di colore dell'immagine, necessario per i chunk il
+     * cui formato ne dipende
+     * @return informazioni estratte
+     * @throws ChunkParserException - se i dati non rispettano il formato del
+     * chunk
+     */
+    T decode(ByteBuffer data, int colorType) throws ChunkParserException;
+}
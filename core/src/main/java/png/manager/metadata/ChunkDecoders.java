@@ -0,0 +1,362 @@
+package png.manager.metadata;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import png.manager.entity.Chunk;
+import png.manager.entity.PNGImage;
+import png.manager.exception.ChunkParserException;
+import png.manager.exception.DecodingException;
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Registro degli interpreti dei chunk ausiliari.
+ * <p>
+ * Gli interpreti sono indicizzati dal nome del chunk letto come intero
+ * big-endian, così che la ricerca non richieda la conversione del nome in
+ * stringa. Ciascun interprete legge i campi del chunk direttamente dai suoi
+ * dati e produce un oggetto immutabile; i testi e i profili compressi vengono
+ * decompressi solo quando richiesti.
+ */
+public class ChunkDecoders {
+
+    /**
+     * Metodo di compressione deflate, l'unico definito dalle specifiche.
+     */
+    private static final int DEFLATE_METHOD = 0;
+    /**
+     * Dimensione massima di un testo decompresso, in byte.
+     */
+    static final int MAX_INFLATED_TEXT_SIZE = 4 * 1024 * 1024;
+    /**
+     * Dimensione massima di un profilo ICC decompresso, in byte.
+     */
+    static final int MAX_INFLATED_PROFILE_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Interpreti registrati, indicizzati dal codice del nome del chunk.
+     */
+    private static final Map<Integer, ChunkDecoder<?>> decoders = new ConcurrentHashMap<>();
+
+    static {
+        //Vedere le specifiche dei chunk per comprendere come vengono interpretati i dati
+        register(PNGConstants.GAMMA_CHUNK_NAME, new ChunkDecoder<Gamma>() {
+            @Override
+            public Gamma decode(ByteBuffer data, int colorType) {
+                return new Gamma(readUnsignedInt(data));
+            }
+        });
+        register(PNGConstants.PHYSICAL_PIXEL_DIMENSION_CHUNK_NAME, new ChunkDecoder<PhysicalDimensions>() {
+            @Override
+            public PhysicalDimensions decode(ByteBuffer data, int colorType) {
+                long x = readUnsignedInt(data);
+                long y = readUnsignedInt(data);
+                return new PhysicalDimensions(x, y, data.get() & 0xFF);
+            }
+        });
+        register(PNGConstants.TRANSPARENCY_CHUNK_NAME, new ChunkDecoder<Transparency>() {
+            @Override
+            public Transparency decode(ByteBuffer data, int colorType) {
+                byte[] paletteAlpha = new byte[0];
+                int[] samples = new int[0];
+                if (colorType == PNGConstants.COLOR_TYPE_PALETTE) {
+                    paletteAlpha = new byte[data.remaining()];
+                    data.get(paletteAlpha);
+                } else if (colorType == PNGConstants.COLOR_TYPE_GRAYSCALE || colorType == PNGConstants.COLOR_TYPE_RGB) {
+                    samples = readSamples(data, colorType);
+                }
+                return new Transparency(colorType, samples, paletteAlpha);
+            }
+        });
+        register(PNGConstants.BACKGROUND_CHUNK_NAME, new ChunkDecoder<Background>() {
+            @Override
+            public Background decode(ByteBuffer data, int colorType) {
+                if (colorType == PNGConstants.COLOR_TYPE_PALETTE) {
+                    return new Background(colorType, new int[]{data.get() & 0xFF});
+                }
+                return new Background(colorType, readSamples(data, colorType));
+            }
+        });
+        register(PNGConstants.CHROMACITIES_CHUNK_NAME, new ChunkDecoder<Chromaticities>() {
+            @Override
+            public Chromaticities decode(ByteBuffer data, int colorType) {
+                long[] values = new long[8];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readUnsignedInt(data);
+                }
+                return new Chromaticities(values);
+            }
+        });
+        register(PNGConstants.STANDARD_RGB_COLOR_SPACE_CHUNK_NAME, new ChunkDecoder<StandardRGB>() {
+            @Override
+            public StandardRGB decode(ByteBuffer data, int colorType) {
+                return new StandardRGB(data.get() & 0xFF);
+            }
+        });
+        register(PNGConstants.TIME_CHUNK_NAME, new ChunkDecoder<ModificationTime>() {
+            @Override
+            public ModificationTime decode(ByteBuffer data, int colorType) {
+                int year = data.getShort() & 0xFFFF;
+                return new ModificationTime(year, data.get(), data.get(), data.get(), data.get(), data.get());
+            }
+        });
+        register(PNGConstants.TEXT_CHUNK_NAME, new ChunkDecoder<TextualData>() {
+            @Override
+            public TextualData decode(ByteBuffer data, int colorType) {
+                String keyword = readString(data, StandardCharsets.ISO_8859_1);
+                return new TextualData(PNGConstants.TEXT_CHUNK_NAME, keyword, "", "", readRemaining(data), false, StandardCharsets.ISO_8859_1);
+            }
+        });
+        register(PNGConstants.COMPRESSED_TEXT_CHUNK_NAME, new ChunkDecoder<TextualData>() {
+            @Override
+            public TextualData decode(ByteBuffer data, int colorType) throws ChunkParserException {
+                String keyword = readString(data, StandardCharsets.ISO_8859_1);
+                checkCompressionMethod(data.get(), PNGConstants.COMPRESSED_TEXT_CHUNK_NAME);
+                return new TextualData(PNGConstants.COMPRESSED_TEXT_CHUNK_NAME, keyword, "", "", readRemaining(data), true, StandardCharsets.ISO_8859_1);
+            }
+        });
+        register(PNGConstants.INTERNATIONAL_TEXT_CHUNK_NAME, new ChunkDecoder<TextualData>() {
+            @Override
+            public TextualData decode(ByteBuffer data, int colorType) throws ChunkParserException {
+                String keyword = readString(data, StandardCharsets.ISO_8859_1);
+                boolean compressed = data.get() != 0;
+                byte method = data.get();
+                if (compressed) {
+                    checkCompressionMethod(method, PNGConstants.INTERNATIONAL_TEXT_CHUNK_NAME);
+                }
+                String languageTag = readString(data, StandardCharsets.US_ASCII);
+                String translatedKeyword = readString(data, StandardCharsets.UTF_8);
+                return new TextualData(PNGConstants.INTERNATIONAL_TEXT_CHUNK_NAME, keyword, languageTag, translatedKeyword, readRemaining(data), compressed, StandardCharsets.UTF_8);
+            }
+        });
+        register(PNGConstants.ICC_PROFILE_CHUNK_NAME, new ChunkDecoder<ICCProfile>() {
+            @Override
+            public ICCProfile decode(ByteBuffer data, int colorType) throws ChunkParserException {
+                String name = readString(data, StandardCharsets.ISO_8859_1);
+                checkCompressionMethod(data.get(), PNGConstants.ICC_PROFILE_CHUNK_NAME);
+                return new ICCProfile(name, readRemaining(data));
+            }
+        });
+    }
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private ChunkDecoders() {
+    }
+
+    /**
+     * Ritorna il codice del nome di un chunk.
+     *
+     * @param type nome del chunk, di 4 byte
+     * @return nome del chunk letto come intero big-endian
+     */
+    public static int getTypeCode(byte[] type) {
+        return (type[0] & 0xFF) << 24 | (type[1] & 0xFF) << 16 | (type[2] & 0xFF) << 8 | (type[3] & 0xFF);
+    }
+
+    /**
+     * Registra l'interprete di un tipo di chunk, sostituendo quello
+     * eventualmente già presente.
+     *
+     * @param type nome del chunk
+     * @param decoder interprete dei dati del chunk
+     */
+    public static void register(String type, ChunkDecoder<?> decoder) {
+        decoders.put(getTypeCode(type.getBytes(StandardCharsets.US_ASCII)), decoder);
+    }
+
+    /**
+     * Verifica se è registrato un interprete per il chunk in input.
+     *
+     * @param chunk chunk da interpretare
+     * @return <code>true</code> se il chunk può essere interpretato,
+     * <code>false</code> altrimenti
+     */
+    public static boolean isSupported(Chunk chunk) {
+        return decoders.containsKey(getTypeCode(chunk.getType()));
+    }
+
+    /**
+     * Interpreta i dati del chunk in input.
+     *
+     * @param chunk chunk da interpretare
+     * @param colorType tipo di colore dell'immagine a cui appartiene il chunk
+     * @return informazioni estratte; <code>null</code> se non è registrato un
+     * interprete per il chunk
+     * @throws ChunkParserException - se i dati non rispettano il formato del
+     * chunk
+     */
+    public static ChunkInfo decode(Chunk chunk, int colorType) throws ChunkParserException {
+        ChunkDecoder<?> decoder = decoders.get(getTypeCode(chunk.getType()));
+        if (decoder == null) {
+            return null;
+        }
+
+        try {
+            return decoder.decode(ByteBuffer.wrap(chunk.getData()).asReadOnlyBuffer(), colorType);
+        } catch (BufferUnderflowException e) {
+            System.err.println("Dati del chunk " + chunk.getTypeAsString() + " troncati.");
+            throw new ChunkParserException("Il chunk " + chunk.getTypeAsString() + " non rispetta il formato previsto.");
+        }
+    }
+
+    /**
+     * Interpreta i chunk ausiliari dell'immagine in input per cui è registrato
+     * un interprete, nell'ordine in cui compaiono.
+     *
+     * @param image immagine da analizzare
+     * @return informazioni estratte dai chunk
+     * @throws ChunkParserException - se i dati di un chunk non rispettano il
+     * formato previsto
+     */
+    public static ArrayList<ChunkInfo> decodeAll(PNGImage image) throws ChunkParserException {
+        ArrayList<ChunkInfo> result = new ArrayList<>();
+        for (Chunk c : image.getChunks()) {
+            if (c.isAncillary()) {
+                ChunkInfo info = decode(c, image.getColorType());
+                if (info != null) {
+                    result.add(info);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decomprime dati compressi con l'algoritmo deflate.
+     *
+     * Pochi byte compressi possono espandersi in gigabyte: la decompressione
+     * si interrompe appena i dati superano la dimensione massima indicata.
+     *
+     * @param data dati compressi in formato zlib
+     * @param maxLength dimensione massima dei dati decompressi, in byte
+     * @return dati decompressi
+     * @throws DecodingException - se i dati compressi non sono validi, sono
+     * incompleti o superano la dimensione massima
+     */
+    static byte[] inflate(byte[] data, int maxLength) throws DecodingException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(maxLength, data.length * 2L));
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DecodingException("Dati compressi incompleti.");
+                }
+                if (out.size() + n > maxLength) {
+                    throw new DecodingException("Dati decompressi troppo grandi: oltre " + maxLength + " byte.");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            System.err.println(e.getMessage());
+            throw new DecodingException("Errore nella decompressione dei dati.");
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Ritorna una rappresentazione testuale di un colore.
+     *
+     * @param samples un campione grayscale o tre campioni RGB
+     * @return valore dei campioni; vuota se non ci sono campioni
+     */
+    static String formatColor(int[] samples) {
+        switch (samples.length) {
+            case 1:
+                return String.valueOf(samples[0]);
+            case 3:
+                return "R: " + samples[0] + "; G: " + samples[1] + "; B: " + samples[2];
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Legge un intero senza segno di 4 byte.
+     *
+     * @param data dati del chunk
+     * @return valore letto
+     */
+    private static long readUnsignedInt(ByteBuffer data) {
+        return data.getInt() & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Legge i campioni di 2 byte di un colore.
+     *
+     * @param data dati del chunk
+     * @param colorType tipo di colore dell'immagine
+     * @return un campione per le immagini grayscale, tre per quelle RGB
+     */
+    private static int[] readSamples(ByteBuffer data, int colorType) {
+        boolean gray = colorType == PNGConstants.COLOR_TYPE_GRAYSCALE || colorType == PNGConstants.COLOR_TYPE_GRAYSCALE_ALPHA;
+        int[] samples = new int[gray ? 1 : 3];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = data.getShort() & 0xFFFF;
+        }
+        return samples;
+    }
+
+    /**
+     * Legge una stringa terminata dal byte nullo, consumando il terminatore.
+     *
+     * @param data dati del chunk
+     * @param charset codifica dei caratteri della stringa
+     * @return stringa letta
+     * @throws BufferUnderflowException - se il terminatore non è presente
+     */
+    private static String readString(ByteBuffer data, Charset charset) {
+        int start = data.position();
+        int end = start;
+        while (end < data.limit() && data.get(end) != 0) {
+            end++;
+        }
+        if (end == data.limit()) {
+            throw new BufferUnderflowException();
+        }
+
+        byte[] bytes = new byte[end - start];
+        data.get(bytes);
+        data.get();
+        return new String(bytes, charset);
+    }
+
+    /**
+     * Legge i byte restanti dei dati del chunk.
+     *
+     * @param data dati del chunk
+     * @return byte restanti
+     */
+    private static byte[] readRemaining(ByteBuffer data) {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Verifica che il metodo di compressione di un chunk sia deflate.
+     *
+     * @param method metodo di compressione
+     * @param type nome del chunk
+     * @throws ChunkParserException - se il metodo non è supportato
+     */
+    private static void checkCompressionMethod(byte method, String type) throws ChunkParserException {
+        if (method != DEFLATE_METHOD) {
+            throw new ChunkParserException("Metodo di compressione del chunk " + type + " non supportato.");
+        }
+    }
+}
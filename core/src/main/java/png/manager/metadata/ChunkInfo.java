@@ -0,0 +1,18 @@
+package png.manager.metadata;
+
+/**
+ * Informazioni estratte dai dati di un chunk ausiliario.
+ * <p>
+ * Le implementazioni sono immutabili e la loro rappresentazione testuale
+ * descrive i campi del chunk; le righe successive alla prima sono separate da
+ * <code>'\n'</code>.
+ */
+public interface ChunkInfo {
+
+    /**
+     * Ritorna il nome del chunk da cui sono state estratte le informazioni.
+     *
+     * @return nome del chunk
+     */
+    String getType();
+}
@@ -0,0 +1,52 @@
+package png.manager.metadata;
+
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Informazioni del chunk gAMA: gamma dell'immagine.
+ */
+public final class Gamma implements ChunkInfo {
+
+    /**
+     * Gamma moltiplicato per 100000, come memorizzato nel chunk.
+     */
+    private final long gamma;
+
+    /**
+     * Costruisce l'oggetto memorizzando il valore del chunk.
+     *
+     * @param gamma gamma moltiplicato per 100000
+     */
+    public Gamma(long gamma) {
+        this.gamma = gamma;
+    }
+
+    /**
+     * Ritorna il nome del chunk.
+     *
+     * @return gAMA
+     */
+    @Override
+    public String getType() {
+        return PNGConstants.GAMMA_CHUNK_NAME;
+    }
+
+    /**
+     * Ritorna il gamma dell'immagine.
+     *
+     * @return gamma
+     */
+    public double getGamma() {
+        return gamma / 100000.0;
+    }
+
+    /**
+     * Rappresentazione testuale del chunk.
+     *
+     * @return gamma dell'immagine
+     */
+    @Override
+    public String toString() {
+        return String.valueOf(getGamma());
+    }
+}
@@ -0,0 +1,91 @@
+package png.manager.metadata;
+
+import png.manager.exception.DecodingException;
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Informazioni del chunk iCCP: profilo ICC incorporato nell'immagine.
+ * <p>
+ * Il profilo viene decompresso solo alla prima richiesta.
+ */
+public final class ICCProfile implements ChunkInfo {
+
+    /**
+     * Nome del profilo.
+     */
+    private final String name;
+    /**
+     * Profilo compresso.
+     */
+    private final byte[] compressedProfile;
+    /**
+     * Profilo decompresso, calcolato alla prima richiesta.
+     */
+    private volatile byte[] profile;
+
+    /**
+     * Costruisce l'oggetto memorizzando i campi del chunk.
+     *
+     * @param name nome del profilo
+     * @param compressedProfile profilo compresso
+     */
+    public ICCProfile(String name, byte[] compressedProfile) {
+        this.name = name;
+        this.compressedProfile = compressedProfile.clone();
+    }
+
+    /**
+     * Ritorna il nome del chunk.
+     *
+     * @return iCCP
+     */
+    @Override
+    public String getType() {
+        return PNGConstants.ICC_PROFILE_CHUNK_NAME;
+    }
+
+    /**
+     * Ritorna il nome del profilo.
+     *
+     * @return nome del profilo
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Ritorna la dimensione del profilo compresso.
+     *
+     * @return numero di byte del profilo compresso
+     */
+    public int getCompressedSize() {
+        return compressedProfile.length;
+    }
+
+    /**
+     * Ritorna il profilo, decomprimendolo alla prima richiesta.
+     *
+     * @return byte del profilo ICC
+     * @throws DecodingException - se il profilo compresso non è valido o
+     * supera la dimensione massima
+     */
+    public byte[] getProfile() throws DecodingException {
+        byte[] result = profile;
+        if (result == null) {
+            result = ChunkDecoders.inflate(compressedProfile, ChunkDecoders.MAX_INFLATED_PROFILE_SIZE);
+            profile = result;
+        }
+        return result.clone();
+    }
+
+    /**
+     * Rappresentazione testuale del chunk, che non richiede la decompressione
+     * del profilo.
+     *
+     * @return nome del profilo e dimensione compressa
+     */
+    @Override
+    public String toString() {
+        return name + " (" + compressedProfile.length + " bytes compressed)";
+    }
+}
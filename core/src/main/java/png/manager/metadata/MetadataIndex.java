@@ -0,0 +1,548 @@
+package png.manager.metadata;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import png.manager.entity.Chunk;
+import png.manager.entity.PNGImage;
+import png.manager.exception.ChunkParserException;
+
+/**
+ * Indice dei metadati di un insieme di immagini PNG.
+ * <p>
+ * L'indice è organizzato per colonne: ciascun campo del chunk IHDR, la data di
+ * modifica e la dimensione dei file sono memorizzati in un array dedicato, i
+ * tipi di chunk presenti in una maschera di bit per immagine e le parole
+ * chiave testuali in un insieme di righe per parola chiave. Le interrogazioni
+ * scorrono quindi array di tipi primitivi senza accedere ai file.
+ * <p>
+ * Le righe delle immagini rimosse o reindicizzate vengono marcate come
+ * eliminate e scartate al salvataggio. I file che non possono essere
+ * interpretati hanno una riga marcata come non valida, con la sola data di
+ * modifica e dimensione: non compaiono nei risultati delle interrogazioni, ma
+ * non vengono riletti finché non cambiano.
+ */
+public class MetadataIndex {
+
+    /**
+     * Chunk definiti dalle specifiche, nell'ordine dei bit a loro assegnati.
+     */
+    private static final String[] KNOWN_CHUNKS = {"IHDR", "PLTE", "IDAT", "IEND", "tRNS", "cHRM", "gAMA", "iCCP", "sBIT", "sRGB",
+        "tEXt", "zTXt", "iTXt", "bKGD", "hIST", "pHYs", "sPLT", "tIME"};
+    /**
+     * Bit assegnato ai chunk non previsti dalle specifiche.
+     */
+    private static final long OTHER_CHUNK_BIT = 1L << 63;
+    /**
+     * Identificativo del formato del file dell'indice.
+     */
+    private static final int FILE_MAGIC = 0x504E4749;
+    /**
+     * Versione del formato del file dell'indice.
+     */
+    private static final int FILE_VERSION = 2;
+    /**
+     * Capacità iniziale delle colonne.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Numero di righe, comprese quelle eliminate.
+     */
+    private int rows = 0;
+    /**
+     * Percorso assoluto di ciascuna immagine.
+     */
+    private String[] paths = new String[INITIAL_CAPACITY];
+    /**
+     * Data di ultima modifica di ciascun file, in millisecondi.
+     */
+    private long[] modified = new long[INITIAL_CAPACITY];
+    /**
+     * Dimensione in byte di ciascun file.
+     */
+    private long[] fileSizes = new long[INITIAL_CAPACITY];
+    /**
+     * Larghezza di ciascuna immagine.
+     */
+    private int[] widths = new int[INITIAL_CAPACITY];
+    /**
+     * Altezza di ciascuna immagine.
+     */
+    private int[] heights = new int[INITIAL_CAPACITY];
+    /**
+     * Tipo di colore di ciascuna immagine.
+     */
+    private byte[] colorTypes = new byte[INITIAL_CAPACITY];
+    /**
+     * Profondità di bit di ciascuna immagine.
+     */
+    private byte[] bitDepths = new byte[INITIAL_CAPACITY];
+    /**
+     * Metodo di interlacciamento di ciascuna immagine.
+     */
+    private byte[] interlacingMethods = new byte[INITIAL_CAPACITY];
+    /**
+     * Maschera dei tipi di chunk presenti in ciascuna immagine.
+     */
+    private long[] chunks = new long[INITIAL_CAPACITY];
+    /**
+     * Righe eliminate.
+     */
+    private final BitSet deleted = new BitSet();
+    /**
+     * Righe dei file che non possono essere interpretati, esclusi quelli
+     * eliminati.
+     */
+    private final BitSet invalid = new BitSet();
+    /**
+     * Riga corrente di ciascun percorso.
+     */
+    private final HashMap<String, Integer> rowByPath = new HashMap<>();
+    /**
+     * Righe delle immagini che contengono ciascuna parola chiave.
+     */
+    private final HashMap<String, BitSet> keywordRows = new HashMap<>();
+
+    /**
+     * Ritorna il bit assegnato al tipo di chunk in input.
+     *
+     * @param type nome del chunk
+     * @return maschera con il solo bit del chunk
+     */
+    public static long getChunkBit(String type) {
+        for (int i = 0; i < KNOWN_CHUNKS.length; i++) {
+            if (KNOWN_CHUNKS[i].equals(type)) {
+                return 1L << i;
+            }
+        }
+        return OTHER_CHUNK_BIT;
+    }
+
+    /**
+     * Ritorna il numero di immagini indicizzate.
+     *
+     * @return numero di righe non eliminate, esclusi i file non validi
+     */
+    public synchronized int size() {
+        return rowByPath.size() - invalid.cardinality();
+    }
+
+    /**
+     * Ritorna il numero di file registrati come non validi.
+     *
+     * @return numero di file che non hanno potuto essere interpretati
+     */
+    public synchronized int getInvalidCount() {
+        return invalid.cardinality();
+    }
+
+    /**
+     * Verifica se l'immagine in input è indicizzata, anche come file non
+     * valido, e non è stata modificata dopo l'indicizzazione.
+     *
+     * @param path percorso assoluto dell'immagine
+     * @param lastModified data di ultima modifica del file
+     * @param fileSize dimensione del file
+     * @return <code>true</code> se la riga dell'immagine è aggiornata,
+     * <code>false</code> altrimenti
+     */
+    public synchronized boolean isUpToDate(String path, long lastModified, long fileSize) {
+        Integer row = rowByPath.get(path);
+        return row != null && modified[row] == lastModified && fileSizes[row] == fileSize;
+    }
+
+    /**
+     * Ritorna i percorsi dei file indicizzati, compresi quelli non validi.
+     *
+     * @return percorsi assoluti
+     */
+    public synchronized List<String> getPaths() {
+        return new ArrayList<>(rowByPath.keySet());
+    }
+
+    /**
+     * Aggiunge un'immagine all'indice, sostituendo la riga eventualmente già
+     * presente per lo stesso percorso.
+     *
+     * @param path percorso assoluto dell'immagine
+     * @param lastModified data di ultima modifica del file
+     * @param fileSize dimensione del file
+     * @param image immagine, anche priva dei chunk IDAT
+     */
+    public synchronized void add(String path, long lastModified, long fileSize, PNGImage image) {
+        long chunkMask = 0;
+        ArrayList<String> keywords = new ArrayList<>();
+        for (Chunk c : image.getChunks()) {
+            chunkMask |= getChunkBit(c.getTypeAsString());
+            if (!c.isAncillary()) {
+                continue;
+            }
+            try {
+                ChunkInfo info = ChunkDecoders.decode(c, image.getColorType());
+                if (info instanceof TextualData) {
+                    keywords.add(((TextualData) info).getKeyword());
+                }
+            } catch (ChunkParserException e) {
+                System.err.println(path + ": " + e.getMessage());
+            }
+        }
+
+        remove(path);
+        int row = appendRow(path, lastModified, fileSize, image.getWidth(), image.getHeight(),
+                image.getColorType(), image.getBitDepth(), image.getInterlacingMethod(), chunkMask);
+        for (String k : keywords) {
+            addKeyword(k, row);
+        }
+    }
+
+    /**
+     * Registra un file che non può essere interpretato, sostituendo la riga
+     * eventualmente già presente per lo stesso percorso. Il file viene escluso
+     * dalle interrogazioni, ma risulta aggiornato finché la data di modifica e
+     * la dimensione non cambiano.
+     *
+     * @param path percorso assoluto del file
+     * @param lastModified data di ultima modifica del file
+     * @param fileSize dimensione del file
+     */
+    public synchronized void addInvalid(String path, long lastModified, long fileSize) {
+        remove(path);
+        int row = appendRow(path, lastModified, fileSize, 0, 0, 0, 0, 0, 0);
+        invalid.set(row);
+    }
+
+    /**
+     * Rimuove un'immagine dall'indice.
+     *
+     * @param path percorso assoluto dell'immagine
+     * @return <code>true</code> se l'immagine era indicizzata,
+     * <code>false</code> altrimenti
+     */
+    public synchronized boolean remove(String path) {
+        Integer row = rowByPath.remove(path);
+        if (row == null) {
+            return false;
+        }
+        deleted.set(row);
+        invalid.clear(row);
+        return true;
+    }
+
+    /**
+     * Ritorna le immagini che soddisfano l'interrogazione in input.
+     * <p>
+     * I vincoli sulle parole chiave restringono prima le righe candidate
+     * tramite i rispettivi insiemi; le righe restanti vengono poi confrontate
+     * con i vincoli sulle colonne.
+     *
+     * @param query interrogazione
+     * @return percorsi assoluti delle immagini, nell'ordine di indicizzazione
+     */
+    public synchronized List<String> search(MetadataQuery query) {
+        BitSet candidates = new BitSet(rows);
+        candidates.set(0, rows);
+        candidates.andNot(deleted);
+        candidates.andNot(invalid);
+        for (String k : query.getKeywords()) {
+            BitSet set = keywordRows.get(k);
+            if (set == null) {
+                return new ArrayList<>();
+            }
+            candidates.and(set);
+        }
+
+        ArrayList<String> result = new ArrayList<>();
+        for (int row = candidates.nextSetBit(0); row >= 0; row = candidates.nextSetBit(row + 1)) {
+            if (query.matches(widths[row], heights[row], colorTypes[row] & 0xFF, bitDepths[row] & 0xFF, interlacingMethods[row] & 0xFF, chunks[row])) {
+                result.add(paths[row]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Salva l'indice su file, scartando le righe eliminate.
+     * <p>
+     * L'indice viene scritto prima in un file temporaneo nella stessa
+     * cartella, così che un'interruzione non lasci un file incompleto.
+     *
+     * @param file file dell'indice
+     * @throws IOException - se occorrono errori in scrittura
+     */
+    public synchronized void save(Path file) throws IOException {
+        compact();
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "index", ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)));
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(rows);
+            for (int i = 0; i < rows; i++) {
+                out.writeUTF(paths[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.writeLong(modified[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.writeLong(fileSizes[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.writeInt(widths[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.writeInt(heights[i]);
+            }
+            out.write(colorTypes, 0, rows);
+            out.write(bitDepths, 0, rows);
+            out.write(interlacingMethods, 0, rows);
+            for (int i = 0; i < rows; i++) {
+                out.writeLong(chunks[i]);
+            }
+            long[] invalidWords = invalid.toLongArray();
+            out.writeInt(invalidWords.length);
+            for (long w : invalidWords) {
+                out.writeLong(w);
+            }
+            out.writeInt(keywordRows.size());
+            for (Map.Entry<String, BitSet> e : keywordRows.entrySet()) {
+                out.writeUTF(e.getKey());
+                long[] words = e.getValue().toLongArray();
+                out.writeInt(words.length);
+                for (long w : words) {
+                    out.writeLong(w);
+                }
+            }
+            out.close();
+            out = null;
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    System.err.println(e.getMessage());
+                }
+            }
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Carica un indice salvato con {@link #save(Path)}.
+     *
+     * @param file file dell'indice
+     * @return indice caricato; un indice vuoto se il file non esiste
+     * @throws IOException - se occorrono errori in lettura o il file non è un
+     * indice valido
+     */
+    public static MetadataIndex load(Path file) throws IOException {
+        MetadataIndex index = new MetadataIndex();
+        if (!Files.exists(file)) {
+            return index;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Formato dell'indice non riconosciuto.");
+            }
+            int version = in.readInt();
+            if (version < 1 || version > FILE_VERSION) {
+                throw new IOException("Formato dell'indice non riconosciuto.");
+            }
+            int n = in.readInt();
+            index.ensureCapacity(n);
+            index.rows = n;
+            for (int i = 0; i < n; i++) {
+                index.paths[i] = in.readUTF();
+                index.rowByPath.put(index.paths[i], i);
+            }
+            for (int i = 0; i < n; i++) {
+                index.modified[i] = in.readLong();
+            }
+            for (int i = 0; i < n; i++) {
+                index.fileSizes[i] = in.readLong();
+            }
+            for (int i = 0; i < n; i++) {
+                index.widths[i] = in.readInt();
+            }
+            for (int i = 0; i < n; i++) {
+                index.heights[i] = in.readInt();
+            }
+            in.readFully(index.colorTypes, 0, n);
+            in.readFully(index.bitDepths, 0, n);
+            in.readFully(index.interlacingMethods, 0, n);
+            for (int i = 0; i < n; i++) {
+                index.chunks[i] = in.readLong();
+            }
+            if (version >= 2) {
+                //La versione 1 non registrava i file non validi
+                long[] invalidWords = new long[in.readInt()];
+                for (int i = 0; i < invalidWords.length; i++) {
+                    invalidWords[i] = in.readLong();
+                }
+                index.invalid.or(BitSet.valueOf(invalidWords));
+            }
+            int keywords = in.readInt();
+            for (int k = 0; k < keywords; k++) {
+                String keyword = in.readUTF();
+                long[] words = new long[in.readInt()];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = in.readLong();
+                }
+                index.keywordRows.put(keyword, BitSet.valueOf(words));
+            }
+            return index;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    System.err.println(e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Aggiunge una riga in fondo alle colonne.
+     *
+     * @param path percorso assoluto dell'immagine
+     * @param lastModified data di ultima modifica del file
+     * @param fileSize dimensione del file
+     * @param width larghezza dell'immagine
+     * @param height altezza dell'immagine
+     * @param colorType tipo di colore dell'immagine
+     * @param bitDepth profondità di bit dell'immagine
+     * @param interlacingMethod metodo di interlacciamento dell'immagine
+     * @param chunkMask maschera dei chunk presenti
+     * @return indice della riga aggiunta
+     */
+    private int appendRow(String path, long lastModified, long fileSize, int width, int height, int colorType, int bitDepth, int interlacingMethod, long chunkMask) {
+        ensureCapacity(rows + 1);
+        int row = rows++;
+        paths[row] = path;
+        modified[row] = lastModified;
+        fileSizes[row] = fileSize;
+        widths[row] = width;
+        heights[row] = height;
+        colorTypes[row] = (byte) colorType;
+        bitDepths[row] = (byte) bitDepth;
+        interlacingMethods[row] = (byte) interlacingMethod;
+        chunks[row] = chunkMask;
+        rowByPath.put(path, row);
+        return row;
+    }
+
+    /**
+     * Associa una parola chiave a una riga.
+     *
+     * @param keyword parola chiave
+     * @param row indice della riga
+     */
+    private void addKeyword(String keyword, int row) {
+        BitSet set = keywordRows.get(keyword);
+        if (set == null) {
+            set = new BitSet();
+            keywordRows.put(keyword, set);
+        }
+        set.set(row);
+    }
+
+    /**
+     * Rimuove le righe eliminate spostando verso l'alto quelle successive.
+     */
+    private void compact() {
+        if (deleted.isEmpty()) {
+            return;
+        }
+
+        int[] newRow = new int[rows];
+        int next = 0;
+        for (int row = 0; row < rows; row++) {
+            if (deleted.get(row)) {
+                newRow[row] = -1;
+                continue;
+            }
+            newRow[row] = next;
+            paths[next] = paths[row];
+            modified[next] = modified[row];
+            fileSizes[next] = fileSizes[row];
+            widths[next] = widths[row];
+            heights[next] = heights[row];
+            colorTypes[next] = colorTypes[row];
+            bitDepths[next] = bitDepths[row];
+            interlacingMethods[next] = interlacingMethods[row];
+            chunks[next] = chunks[row];
+            rowByPath.put(paths[next], next);
+            next++;
+        }
+        Arrays.fill(paths, next, rows, null);
+        rows = next;
+        deleted.clear();
+
+        BitSet oldInvalid = (BitSet) invalid.clone();
+        invalid.clear();
+        for (int row = oldInvalid.nextSetBit(0); row >= 0; row = oldInvalid.nextSetBit(row + 1)) {
+            if (newRow[row] >= 0) {
+                invalid.set(newRow[row]);
+            }
+        }
+
+        ArrayList<String> emptyKeywords = new ArrayList<>();
+        for (Map.Entry<String, BitSet> e : keywordRows.entrySet()) {
+            BitSet old = e.getValue();
+            BitSet set = new BitSet();
+            for (int row = old.nextSetBit(0); row >= 0; row = old.nextSetBit(row + 1)) {
+                if (newRow[row] >= 0) {
+                    set.set(newRow[row]);
+                }
+            }
+            e.setValue(set);
+            if (set.isEmpty()) {
+                emptyKeywords.add(e.getKey());
+            }
+        }
+        for (String k : emptyKeywords) {
+            keywordRows.remove(k);
+        }
+    }
+
+    /**
+     * Espande le colonne fino a contenere il numero di righe in input.
+     *
+     * @param capacity numero di righe richiesto
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= paths.length) {
+            return;
+        }
+        int size = Math.max(capacity, paths.length * 2);
+        paths = Arrays.copyOf(paths, size);
+        modified = Arrays.copyOf(modified, size);
+        fileSizes = Arrays.copyOf(fileSizes, size);
+        widths = Arrays.copyOf(widths, size);
+        heights = Arrays.copyOf(heights, size);
+        colorTypes = Arrays.copyOf(colorTypes, size);
+        bitDepths = Arrays.copyOf(bitDepths, size);
+        interlacingMethods = Arrays.copyOf(interlacingMethods, size);
+        chunks = Arrays.copyOf(chunks, size);
+    }
+}
@@ -0,0 +1,155 @@
+package png.manager.metadata;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import png.manager.decoder.Decoder;
+import png.manager.entity.PNGImage;
+import png.manager.exception.ChunkParserException;
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Aggiorna un {@link MetadataIndex} con le immagini contenute in una
+ * cartella e nelle sue sottocartelle.
+ * <p>
+ * Di ogni immagine vengono letti solo i chunk di metadati, saltando i dati
+ * compressi; le immagini la cui data di modifica e dimensione corrispondono a
+ * quelle indicizzate non vengono rilette, e quelle non più presenti vengono
+ * rimosse dall'indice. Anche i file che non possono essere interpretati
+ * vengono registrati nell'indice, come non validi, così da non essere riletti
+ * finché non cambiano. La lettura avviene in parallelo, a blocchi di file.
+ */
+public class MetadataIndexer {
+
+    /**
+     * Numero di file letti per blocco.
+     */
+    private static final int BATCH_SIZE = 256;
+    /**
+     * Numero di thread di lettura.
+     */
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private MetadataIndexer() {
+    }
+
+    /**
+     * Aggiorna l'indice con le immagini contenute nella cartella in input.
+     * <p>
+     * I file che non possono essere letti vengono segnalati e ignorati;
+     * quelli che non sono immagini PNG valide vengono segnalati e registrati
+     * come non validi, e sono contati da
+     * {@link MetadataIndex#getInvalidCount()}.
+     *
+     * @param index indice da aggiornare
+     * @param root cartella da visitare
+     * @return numero di immagini lette e indicizzate, esclusi i file non
+     * validi
+     * @throws IOException - se la cartella non può essere visitata
+     * @throws InterruptedException - se l'aggiornamento viene interrotto
+     */
+    public static int update(final MetadataIndex index, Path root) throws IOException, InterruptedException {
+        final Path base = root.toAbsolutePath().normalize();
+        final ArrayList<Path> toRead = new ArrayList<>();
+        final HashSet<String> found = new HashSet<>();
+
+        Files.walkFileTree(base, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && isPNGFile(file)) {
+                    String path = file.toString();
+                    found.add(path);
+                    if (!index.isUpToDate(path, attrs.lastModifiedTime().toMillis(), attrs.size())) {
+                        toRead.add(file);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                System.err.println(e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        for (String path : index.getPaths()) {
+            if (!found.contains(path) && base.getFileSystem().getPath(path).startsWith(base)) {
+                index.remove(path);
+            }
+        }
+
+        int read = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "metadata-indexer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            for (int first = 0; first < toRead.size(); first += BATCH_SIZE) {
+                List<Path> batch = toRead.subList(first, Math.min(toRead.size(), first + BATCH_SIZE));
+                ArrayList<Callable<Boolean>> tasks = new ArrayList<>();
+                for (final Path file : batch) {
+                    tasks.add(new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws IOException {
+                            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                            try {
+                                PNGImage image = Decoder.getPNGMetadataFromFile(file.toString());
+                                index.add(file.toString(), attrs.lastModifiedTime().toMillis(), attrs.size(), image);
+                                return true;
+                            } catch (ChunkParserException e) {
+                                System.err.println(file + ": " + e.getMessage());
+                                index.addInvalid(file.toString(), attrs.lastModifiedTime().toMillis(), attrs.size());
+                                return false;
+                            }
+                        }
+                    });
+                }
+                for (Future<Boolean> f : executor.invokeAll(tasks)) {
+                    try {
+                        if (f.get()) {
+                            read++;
+                        }
+                    } catch (ExecutionException e) {
+                        System.err.println(e.getCause().getMessage());
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return read;
+    }
+
+    /**
+     * Verifica se il file in input ha l'estensione delle immagini PNG.
+     *
+     * @param file file da verificare
+     * @return <code>true</code> se il file ha estensione png,
+     * <code>false</code> altrimenti
+     */
+    private static boolean isPNGFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith("." + PNGConstants.LOWERCASE_EXTENSION) || name.endsWith("." + PNGConstants.UPPERCASE_EXTENSION);
+    }
+}
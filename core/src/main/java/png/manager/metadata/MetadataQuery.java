@@ -0,0 +1,184 @@
+package png.manager.metadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Interrogazione di un {@link MetadataIndex}.
+ * <p>
+ * Ogni metodo aggiunge un vincolo e ritorna l'interrogazione stessa, così che
+ * i vincoli possano essere concatenati; un'immagine soddisfa l'interrogazione
+ * se rispetta tutti i vincoli.
+ */
+public class MetadataQuery {
+
+    /**
+     * Larghezza minima.
+     */
+    private int minWidth = 0;
+    /**
+     * Larghezza massima.
+     */
+    private int maxWidth = Integer.MAX_VALUE;
+    /**
+     * Altezza minima.
+     */
+    private int minHeight = 0;
+    /**
+     * Altezza massima.
+     */
+    private int maxHeight = Integer.MAX_VALUE;
+    /**
+     * Tipo di colore richiesto; -1 se indifferente.
+     */
+    private int colorType = -1;
+    /**
+     * Profondità di bit richiesta; -1 se indifferente.
+     */
+    private int bitDepth = -1;
+    /**
+     * Metodo di interlacciamento richiesto; -1 se indifferente.
+     */
+    private int interlacingMethod = -1;
+    /**
+     * Bit dei chunk che devono essere presenti.
+     */
+    private long requiredChunks = 0;
+    /**
+     * Parole chiave testuali che devono essere presenti.
+     */
+    private final ArrayList<String> keywords = new ArrayList<>();
+
+    /**
+     * Richiede una larghezza minima.
+     *
+     * @param width larghezza minima, inclusa
+     * @return interrogazione stessa
+     */
+    public MetadataQuery minWidth(int width) {
+        minWidth = width;
+        return this;
+    }
+
+    /**
+     * Richiede una larghezza massima.
+     *
+     * @param width larghezza massima, inclusa
+     * @return interrogazione stessa
+     */
+    public MetadataQuery maxWidth(int width) {
+        maxWidth = width;
+        return this;
+    }
+
+    /**
+     * Richiede un'altezza minima.
+     *
+     * @param height altezza minima, inclusa
+     * @return interrogazione stessa
+     */
+    public MetadataQuery minHeight(int height) {
+        minHeight = height;
+        return this;
+    }
+
+    /**
+     * Richiede un'altezza massima.
+     *
+     * @param height altezza massima, inclusa
+     * @return interrogazione stessa
+     */
+    public MetadataQuery maxHeight(int height) {
+        maxHeight = height;
+        return this;
+    }
+
+    /**
+     * Richiede un tipo di colore.
+     *
+     * @param colorType identificativo del tipo di colore
+     * @return interrogazione stessa
+     */
+    public MetadataQuery colorType(int colorType) {
+        this.colorType = colorType;
+        return this;
+    }
+
+    /**
+     * Richiede una profondità di bit.
+     *
+     * @param bitDepth profondità di bit
+     * @return interrogazione stessa
+     */
+    public MetadataQuery bitDepth(int bitDepth) {
+        this.bitDepth = bitDepth;
+        return this;
+    }
+
+    /**
+     * Richiede un metodo di interlacciamento.
+     *
+     * @param interlacingMethod identificativo del metodo di interlacciamento
+     * @return interrogazione stessa
+     */
+    public MetadataQuery interlacingMethod(int interlacingMethod) {
+        this.interlacingMethod = interlacingMethod;
+        return this;
+    }
+
+    /**
+     * Richiede la presenza di un tipo di chunk. I chunk non previsti dalle
+     * specifiche sono indicizzati insieme, per cui richiederne uno equivale a
+     * richiedere la presenza di un qualsiasi chunk non previsto.
+     *
+     * @param type nome del chunk
+     * @return interrogazione stessa
+     */
+    public MetadataQuery hasChunk(String type) {
+        requiredChunks |= MetadataIndex.getChunkBit(type);
+        return this;
+    }
+
+    /**
+     * Richiede la presenza di una parola chiave in un chunk tEXt, zTXt o
+     * iTXt.
+     *
+     * @param keyword parola chiave
+     * @return interrogazione stessa
+     */
+    public MetadataQuery hasKeyword(String keyword) {
+        keywords.add(keyword);
+        return this;
+    }
+
+    /**
+     * Ritorna le parole chiave richieste.
+     *
+     * @return parole chiave
+     */
+    List<String> getKeywords() {
+        return Collections.unmodifiableList(keywords);
+    }
+
+    /**
+     * Verifica se i valori in input rispettano i vincoli sui campi del chunk
+     * IHDR e sui chunk presenti.
+     *
+     * @param width larghezza dell'immagine
+     * @param height altezza dell'immagine
+     * @param colorType tipo di colore dell'immagine
+     * @param bitDepth profondità di bit dell'immagine
+     * @param interlacingMethod metodo di interlacciamento dell'immagine
+     * @param chunks bit dei chunk presenti nell'immagine
+     * @return <code>true</code> se i vincoli sono rispettati,
+     * <code>false</code> altrimenti
+     */
+    boolean matches(int width, int height, int colorType, int bitDepth, int interlacingMethod, long chunks) {
+        return width >= minWidth && width <= maxWidth && height >= minHeight && height <= maxHeight
+                && (this.colorType == -1 || this.colorType == colorType)
+                && (this.bitDepth == -1 || this.bitDepth == bitDepth)
+                && (this.interlacingMethod == -1 || this.interlacingMethod == interlacingMethod)
+                && (chunks & requiredChunks) == requiredChunks;
+    }
+}
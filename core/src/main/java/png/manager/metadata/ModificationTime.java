@@ -0,0 +1,103 @@
+package png.manager.metadata;
+
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Informazioni del chunk tIME: data dell'ultima modifica dell'immagine, in
+ * UTC.
+ */
+public final class ModificationTime implements ChunkInfo {
+
+    /**
+     * Anno, mese, giorno, ora, minuto e secondo.
+     */
+    private final int[] fields;
+
+    /**
+     * Costruisce l'oggetto memorizzando i campi del chunk.
+     *
+     * @param year anno
+     * @param month mese, da 1 a 12
+     * @param day giorno, da 1 a 31
+     * @param hour ora, da 0 a 23
+     * @param minute minuto, da 0 a 59
+     * @param second secondo, da 0 a 60
+     */
+    public ModificationTime(int year, int month, int day, int hour, int minute, int second) {
+        this.fields = new int[]{year, month, day, hour, minute, second};
+    }
+
+    /**
+     * Ritorna il nome del chunk.
+     *
+     * @return tIME
+     */
+    @Override
+    public String getType() {
+        return PNGConstants.TIME_CHUNK_NAME;
+    }
+
+    /**
+     * Ritorna l'anno.
+     *
+     * @return anno
+     */
+    public int getYear() {
+        return fields[0];
+    }
+
+    /**
+     * Ritorna il mese.
+     *
+     * @return mese, da 1 a 12
+     */
+    public int getMonth() {
+        return fields[1];
+    }
+
+    /**
+     * Ritorna il giorno.
+     *
+     * @return giorno, da 1 a 31
+     */
+    public int getDay() {
+        return fields[2];
+    }
+
+    /**
+     * Ritorna l'ora.
+     *
+     * @return ora, da 0 a 23
+     */
+    public int getHour() {
+        return fields[3];
+    }
+
+    /**
+     * Ritorna il minuto.
+     *
+     * @return minuto, da 0 a 59
+     */
+    public int getMinute() {
+        return fields[4];
+    }
+
+    /**
+     * Ritorna il secondo.
+     *
+     * @return secondo, da 0 a 60
+     */
+    public int getSecond() {
+        return fields[5];
+    }
+
+    /**
+     * Rappresentazione testuale del chunk.
+     *
+     * @return data in formato ISO 8601
+     */
+    @Override
+    public String toString() {
+        return String.format("%04d-%02d-%02dT%02d:%02d:%02dZ", fields[0], fields[1], fields[2], fields[3], fields[4], fields[5]);
+    }
+}
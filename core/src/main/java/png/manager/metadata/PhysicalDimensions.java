@@ -0,0 +1,87 @@
+package png.manager.metadata;
+
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Informazioni del chunk pHYs: dimensioni fisiche dei pixel.
+ */
+public final class PhysicalDimensions implements ChunkInfo {
+
+    /**
+     * Unità di misura del metro.
+     */
+    public static final int UNIT_METER = 1;
+
+    /**
+     * Pixel per unità lungo l'asse X.
+     */
+    private final long pixelsPerUnitX;
+    /**
+     * Pixel per unità lungo l'asse Y.
+     */
+    private final long pixelsPerUnitY;
+    /**
+     * Unità di misura: 0 se non specificata, {@link #UNIT_METER} per il metro.
+     */
+    private final int unit;
+
+    /**
+     * Costruisce l'oggetto memorizzando i campi del chunk.
+     *
+     * @param pixelsPerUnitX pixel per unità lungo l'asse X
+     * @param pixelsPerUnitY pixel per unità lungo l'asse Y
+     * @param unit unità di misura
+     */
+    public PhysicalDimensions(long pixelsPerUnitX, long pixelsPerUnitY, int unit) {
+        this.pixelsPerUnitX = pixelsPerUnitX;
+        this.pixelsPerUnitY = pixelsPerUnitY;
+        this.unit = unit;
+    }
+
+    /**
+     * Ritorna il nome del chunk.
+     *
+     * @return pHYs
+     */
+    @Override
+    public String getType() {
+        return PNGConstants.PHYSICAL_PIXEL_DIMENSION_CHUNK_NAME;
+    }
+
+    /**
+     * Ritorna i pixel per unità lungo l'asse X.
+     *
+     * @return pixel per unità
+     */
+    public long getPixelsPerUnitX() {
+        return pixelsPerUnitX;
+    }
+
+    /**
+     * Ritorna i pixel per unità lungo l'asse Y.
+     *
+     * @return pixel per unità
+     */
+    public long getPixelsPerUnitY() {
+        return pixelsPerUnitY;
+    }
+
+    /**
+     * Ritorna l'unità di misura.
+     *
+     * @return 0 se non specificata, {@link #UNIT_METER} per il metro
+     */
+    public int getUnit() {
+        return unit;
+    }
+
+    /**
+     * Rappresentazione testuale del chunk.
+     *
+     * @return pixel per unità lungo i due assi e unità di misura
+     */
+    @Override
+    public String toString() {
+        return "X axis: " + pixelsPerUnitX + "; Y axis: " + pixelsPerUnitY + (unit == UNIT_METER ? " m" : " (pixel size unspecified)");
+    }
+}
@@ -0,0 +1,57 @@
+package png.manager.metadata;
+
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Informazioni del chunk sRGB: intento di rendering nello spazio sRGB.
+ */
+public final class StandardRGB implements ChunkInfo {
+
+    /**
+     * Descrizione di ciascun intento di rendering.
+     */
+    private static final String[] INTENTS = {"Perceptual", "Relative colorimetric", "Saturation", "Absolute colorimetric"};
+
+    /**
+     * Intento di rendering.
+     */
+    private final int renderingIntent;
+
+    /**
+     * Costruisce l'oggetto memorizzando il campo del chunk.
+     *
+     * @param renderingIntent intento di rendering
+     */
+    public StandardRGB(int renderingIntent) {
+        this.renderingIntent = renderingIntent;
+    }
+
+    /**
+     * Ritorna il nome del chunk.
+     *
+     * @return sRGB
+     */
+    @Override
+    public String getType() {
+        return PNGConstants.STANDARD_RGB_COLOR_SPACE_CHUNK_NAME;
+    }
+
+    /**
+     * Ritorna l'intento di rendering.
+     *
+     * @return intento di rendering, da 0 a 3
+     */
+    public int getRenderingIntent() {
+        return renderingIntent;
+    }
+
+    /**
+     * Rappresentazione testuale del chunk.
+     *
+     * @return intento di rendering e sua descrizione
+     */
+    @Override
+    public String toString() {
+        return renderingIntent < INTENTS.length ? renderingIntent + " (" + INTENTS[renderingIntent] + ")" : String.valueOf(renderingIntent);
+    }
+}
@@ -0,0 +1,173 @@
+package png.manager.metadata;
+
+import java.nio.charset.Charset;
+
+import png.manager.exception.DecodingException;
+
+/**
+ * Informazioni dei chunk testuali tEXt, zTXt e iTXt: una parola chiave e il
+ * testo associato.
+ * <p>
+ * Il testo compresso viene decompresso solo alla prima richiesta, così che
+ * l'interpretazione dei metadati non paghi la decompressione di testi che non
+ * vengono letti.
+ */
+public final class TextualData implements ChunkInfo {
+
+    /**
+     * Numero massimo di byte del testo mostrati da {@link #toString()}.
+     */
+    private static final int PREVIEW_LENGTH = 80;
+
+    /**
+     * Nome del chunk.
+     */
+    private final String type;
+    /**
+     * Parola chiave.
+     */
+    private final String keyword;
+    /**
+     * Lingua del testo; vuota se non indicata.
+     */
+    private final String languageTag;
+    /**
+     * Parola chiave tradotta nella lingua del testo; vuota se non indicata.
+     */
+    private final String translatedKeyword;
+    /**
+     * Byte del testo, eventualmente compressi.
+     */
+    private final byte[] textBytes;
+    /**
+     * Indica se i byte del testo sono compressi.
+     */
+    private final boolean compressed;
+    /**
+     * Codifica dei caratteri del testo.
+     */
+    private final Charset charset;
+    /**
+     * Testo, calcolato alla prima richiesta.
+     */
+    private volatile String text;
+
+    /**
+     * Costruisce l'oggetto memorizzando i campi del chunk.
+     *
+     * @param type nome del chunk
+     * @param keyword parola chiave
+     * @param languageTag lingua del testo
+     * @param translatedKeyword parola chiave tradotta
+     * @param textBytes byte del testo
+     * @param compressed <code>true</code> se i byte del testo sono compressi
+     * @param charset codifica dei caratteri del testo
+     */
+    public TextualData(String type, String keyword, String languageTag, String translatedKeyword, byte[] textBytes, boolean compressed, Charset charset) {
+        this.type = type;
+        this.keyword = keyword;
+        this.languageTag = languageTag;
+        this.translatedKeyword = translatedKeyword;
+        this.textBytes = textBytes.clone();
+        this.compressed = compressed;
+        this.charset = charset;
+    }
+
+    /**
+     * Ritorna il nome del chunk.
+     *
+     * @return tEXt, zTXt o iTXt
+     */
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Ritorna la parola chiave.
+     *
+     * @return parola chiave
+     */
+    public String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * Ritorna la lingua del testo.
+     *
+     * @return lingua del testo; vuota se non indicata
+     */
+    public String getLanguageTag() {
+        return languageTag;
+    }
+
+    /**
+     * Ritorna la parola chiave tradotta nella lingua del testo.
+     *
+     * @return parola chiave tradotta; vuota se non indicata
+     */
+    public String getTranslatedKeyword() {
+        return translatedKeyword;
+    }
+
+    /**
+     * Indica se il testo è memorizzato compresso nel chunk.
+     *
+     * @return <code>true</code> se il testo è compresso, <code>false</code>
+     * altrimenti
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Ritorna il testo, decomprimendolo alla prima richiesta.
+     *
+     * @return testo associato alla parola chiave
+     * @throws DecodingException - se il testo compresso non è valido o
+     * supera la dimensione massima
+     */
+    public String getText() throws DecodingException {
+        String result = text;
+        if (result == null) {
+            byte[] bytes = compressed ? ChunkDecoders.inflate(textBytes, ChunkDecoders.MAX_INFLATED_TEXT_SIZE) : textBytes;
+            result = new String(bytes, charset);
+            text = result;
+        }
+        return result;
+    }
+
+    /**
+     * Rappresentazione testuale del chunk.
+     * <p>
+     * Il testo non viene decompresso: un testo compresso e non ancora letto
+     * con {@link #getText()} è indicato solo dalla sua lunghezza, mentre un
+     * testo non compresso viene troncato a {@value #PREVIEW_LENGTH} byte.
+     *
+     * @return parola chiave, lingua e anteprima o lunghezza del testo
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(keyword);
+        if (!languageTag.isEmpty()) {
+            result.append(" (").append(languageTag).append(')');
+        }
+        result.append(": ");
+        String inflated = text;
+        if (inflated != null) {
+            if (inflated.length() > PREVIEW_LENGTH) {
+                result.append(inflated, 0, PREVIEW_LENGTH).append("...");
+            } else {
+                result.append(inflated);
+            }
+        } else if (compressed) {
+            result.append("(").append(textBytes.length).append(" byte compressi)");
+        } else {
+            result.append(new String(textBytes, 0, Math.min(textBytes.length, PREVIEW_LENGTH), charset));
+            if (textBytes.length > PREVIEW_LENGTH) {
+                result.append("...");
+            }
+        }
+        return result.toString();
+    }
+}
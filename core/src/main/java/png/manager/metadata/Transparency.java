@@ -0,0 +1,79 @@
+package png.manager.metadata;
+
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Informazioni del chunk tRNS: colore trasparente oppure, per le immagini con
+ * tavolozza, alfa delle voci della tavolozza.
+ */
+public final class Transparency implements ChunkInfo {
+
+    /**
+     * Tipo di colore dell'immagine, da cui dipende il formato del chunk.
+     */
+    private final int colorType;
+    /**
+     * Campioni del colore trasparente: uno per le immagini grayscale, tre per
+     * quelle RGB; vuoto per quelle con tavolozza.
+     */
+    private final int[] samples;
+    /**
+     * Alfa delle prime voci della tavolozza; vuoto per le immagini senza
+     * tavolozza.
+     */
+    private final byte[] paletteAlpha;
+
+    /**
+     * Costruisce l'oggetto memorizzando i campi del chunk.
+     *
+     * @param colorType tipo di colore dell'immagine
+     * @param samples campioni del colore trasparente
+     * @param paletteAlpha alfa delle voci della tavolozza
+     */
+    public Transparency(int colorType, int[] samples, byte[] paletteAlpha) {
+        this.colorType = colorType;
+        this.samples = samples.clone();
+        this.paletteAlpha = paletteAlpha.clone();
+    }
+
+    /**
+     * Ritorna il nome del chunk.
+     *
+     * @return tRNS
+     */
+    @Override
+    public String getType() {
+        return PNGConstants.TRANSPARENCY_CHUNK_NAME;
+    }
+
+    /**
+     * Ritorna i campioni del colore trasparente.
+     *
+     * @return uno o tre campioni; vuoto per le immagini con tavolozza
+     */
+    public int[] getSamples() {
+        return samples.clone();
+    }
+
+    /**
+     * Ritorna l'alfa delle voci della tavolozza.
+     *
+     * @return alfa delle prime voci; vuoto per le immagini senza tavolozza
+     */
+    public byte[] getPaletteAlpha() {
+        return paletteAlpha.clone();
+    }
+
+    /**
+     * Rappresentazione testuale del chunk.
+     *
+     * @return colore trasparente o numero di voci con alfa
+     */
+    @Override
+    public String toString() {
+        if (colorType == PNGConstants.COLOR_TYPE_PALETTE) {
+            return paletteAlpha.length + " values found";
+        }
+        return ChunkDecoders.formatColor(samples);
+    }
+}
@@ -78,6 +78,10 @@ public class PNGConstants {
      * Nome del chunk PLTE.
      */
     public final static String PALETTE_CHUNK_NAME = "PLTE";
+    /**
+     * Nome del chunk IEND.
+     */
+    public final static String END_CHUNK_NAME = "IEND";
     /**
      * Nome del chunk gAMA.
      */
@@ -106,6 +110,22 @@ public class PNGConstants {
      * Nome del chunk sRGB.
      */
     public final static String STANDARD_RGB_COLOR_SPACE_CHUNK_NAME = "sRGB";
+    /**
+     * Nome del chunk zTXt.
+     */
+    public final static String COMPRESSED_TEXT_CHUNK_NAME = "zTXt";
+    /**
+     * Nome del chunk iTXt.
+     */
+    public final static String INTERNATIONAL_TEXT_CHUNK_NAME = "iTXt";
+    /**
+     * Nome del chunk tIME.
+     */
+    public final static String TIME_CHUNK_NAME = "tIME";
+    /**
+     * Nome del chunk iCCP.
+     */
+    public final static String ICC_PROFILE_CHUNK_NAME = "iCCP";
 
     /**
      * Lunghezza della stringa in alfabeto esadecimale contenente il CRC di un
@@ -151,6 +171,10 @@ public class PNGConstants {
      * Numero di campioni per il tipo di colore RGB.
      */
     public static final int COLOR_TYPE_2_SAMPLES = 3;
+    /**
+     * Numero di campioni per il tipo di colore tavolozza.
+     */
+    public static final int COLOR_TYPE_3_SAMPLES = 1;
     /**
      * Numero di campioni per il tipo di colore grayscale con alpha.
      */
@@ -0,0 +1,123 @@
+package png.manager.miscellaneous;
+
+import java.util.ArrayList;
+
+import png.manager.entity.Chunk;
+import png.manager.entity.PNGImage;
+import png.manager.exception.PNGStructureException;
+
+/**
+ * Modella una trasformazione dei colori che, per le immagini con tavolozza,
+ * può essere applicata alle sole voci della tavolozza anziché a ciascun pixel.
+ * <p>
+ * Poiché i pixel di un'immagine con tavolozza sono indici, l'immagine
+ * trasformata si ottiene riscrivendo il solo chunk PLTE, col relativo CRC, e
+ * copiando invariati tutti gli altri chunk, compresi gli IDAT.
+ */
+public abstract class PaletteTransform {
+
+    /**
+     * Conversione in scala di grigi, con i pesi della raccomandazione ITU-R
+     * BT.601.
+     */
+    public static final PaletteTransform GRAYSCALE = new PaletteTransform("Scala di grigi") {
+        /**
+         * Sostituisce il colore con la sua luminanza.
+         */
+        @Override
+        public int transformColor(int red, int green, int blue) {
+            int luma = (77 * red + 150 * green + 29 * blue) >> 8;
+            return luma << 16 | luma << 8 | luma;
+        }
+    };
+    /**
+     * Inversione dei colori.
+     */
+    public static final PaletteTransform NEGATIVE = new PaletteTransform("Negativo") {
+        /**
+         * Sostituisce il colore col suo complemento.
+         */
+        @Override
+        public int transformColor(int red, int green, int blue) {
+            return (255 - red) << 16 | (255 - green) << 8 | (255 - blue);
+        }
+    };
+
+    /**
+     * Nome della trasformazione.
+     */
+    private final String name;
+
+    /**
+     * Costruisce la trasformazione memorizzandone il nome.
+     *
+     * @param name nome della trasformazione
+     */
+    protected PaletteTransform(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Ritorna il nome della trasformazione.
+     *
+     * @return nome della trasformazione
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Trasforma un colore.
+     *
+     * @param red componente rossa, da 0 a 255
+     * @param green componente verde, da 0 a 255
+     * @param blue componente blu, da 0 a 255
+     * @return colore trasformato, nel formato 0xRRGGBB
+     */
+    public abstract int transformColor(int red, int green, int blue);
+
+    /**
+     * Trasforma ciascuna voce di una tavolozza.
+     *
+     * @param palette tavolozza, con tre byte RGB per voce
+     * @return nuova tavolozza trasformata
+     */
+    public byte[] transformPalette(byte[] palette) {
+        byte[] result = new byte[palette.length];
+        for (int i = 0; i + 2 < palette.length; i += 3) {
+            int rgb = transformColor(palette[i] & 0xFF, palette[i + 1] & 0xFF, palette[i + 2] & 0xFF);
+            result[i] = (byte) (rgb >> 16);
+            result[i + 1] = (byte) (rgb >> 8);
+            result[i + 2] = (byte) rgb;
+        }
+        return result;
+    }
+
+    /**
+     * Applica la trasformazione a un'immagine con tavolozza, riscrivendone il
+     * solo chunk PLTE.
+     * <p>
+     * Gli altri chunk, compresi gli IDAT, sono condivisi con l'immagine in
+     * input; la trasparenza eventualmente definita dal chunk tRNS si riferisce
+     * agli indici e resta quindi valida.
+     *
+     * @param image immagine risultato del parsing
+     * @return nuova immagine trasformata
+     * @throws PNGStructureException - se l'immagine non ha tavolozza
+     */
+    public PNGImage transformImage(PNGImage image) throws PNGStructureException {
+        if (image.getColorType() != PNGConstants.COLOR_TYPE_PALETTE || !image.containsChunk(PNGConstants.PALETTE_CHUNK_NAME)) {
+            throw new PNGStructureException("Trasformazione disponibile solo per le immagini con tavolozza.");
+        }
+
+        ArrayList<Chunk> chunks = new ArrayList<>(image.getChunks().size());
+        for (Chunk c : image.getChunks()) {
+            if (c.getTypeAsString().equals(PNGConstants.PALETTE_CHUNK_NAME)) {
+                chunks.add(Utility.buildChunk(c.getType(), transformPalette(c.getData())));
+            } else {
+                chunks.add(c);
+            }
+        }
+        return new PNGImage(chunks);
+    }
+}
@@ -0,0 +1,360 @@
+package png.manager.miscellaneous;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import png.manager.entity.Chunk;
+import png.manager.entity.PNGImage;
+
+/**
+ * Fornisce diverse funzionalità necessarie al programma.
+ */
+public class Utility {
+
+    /**
+     * Elenco dei caratteri presenti nel sistema numerico esadecimale.
+     */
+    private static final char[] hexArray = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private Utility() {
+    }
+
+    /**
+     * Converte un array di byte in un array di caratteri.
+     *
+     * @param bytes array di byte da convertire
+     * @return array di caratteri convertiti
+     */
+    public static char[] bytesToHexChar(byte[] bytes) {
+        char[] hexChars = new char[bytes.length * 2];
+        int v;
+        for (int j = 0; j < bytes.length; j++) {
+            v = bytes[j] & 0xFF;
+            hexChars[j * 2] = hexArray[v >>> 4];
+            hexChars[j * 2 + 1] = hexArray[v & 0x0F];
+        }
+        return hexChars;
+    }
+
+    /**
+     * Converte un array di byte in una stringa in alfabeto esadecimale.
+     *
+     * @param bytes array di byte da convertire
+     * @return stringa convertita
+     */
+    public static String bytesToHexString(byte[] bytes) {
+        char[] hexChars = bytesToHexChar(bytes);
+        return new String(hexChars);
+    }
+
+    /**
+     * Converte un array di byte in una stringa in alfabeto esadecimale,
+     * inserendo uno spazio dopo ogni coppia di caratteri.
+     *
+     * @param bytes array di byte da convertire
+     * @return stringa convertita
+     */
+    public static String bytesToSplittedHexString(byte[] bytes) {
+        return bytesToSplittedHexString(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Converte una porzione di un array di byte in una stringa in alfabeto
+     * esadecimale, inserendo uno spazio dopo ogni coppia di caratteri.
+     * <p>
+     * Viene allocata solo la stringa risultante, così che porzioni di array
+     * molto grandi possano essere convertite al bisogno.
+     *
+     * @param bytes array di byte da convertire
+     * @param offset posizione del primo byte da convertire
+     * @param length numero di byte da convertire
+     * @return stringa convertita
+     */
+    public static String bytesToSplittedHexString(byte[] bytes, int offset, int length) {
+        if (length <= 0) {
+            return "";
+        }
+        char[] hexChars = new char[length * 3 - 1];
+        for (int j = 0; j < length; j++) {
+            int v = bytes[offset + j] & 0xFF;
+            hexChars[j * 3] = hexArray[v >>> 4];
+            hexChars[j * 3 + 1] = hexArray[v & 0x0F];
+            if (j != length - 1) {
+                hexChars[j * 3 + 2] = ' ';
+            }
+        }
+        return new String(hexChars);
+    }
+
+    /**
+     * Converte una porzione di un array di byte in caratteri ASCII,
+     * sostituendo con un punto i caratteri non stampabili.
+     *
+     * @param bytes array di byte da convertire
+     * @param offset posizione del primo byte da convertire
+     * @param length numero di byte da convertire
+     * @return stringa convertita
+     */
+    public static String bytesToPrintableString(byte[] bytes, int offset, int length) {
+        char[] chars = new char[Math.max(0, length)];
+        for (int j = 0; j < chars.length; j++) {
+            int v = bytes[offset + j] & 0xFF;
+            chars[j] = v >= 0x20 && v < 0x7F ? (char) v : '.';
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Converte una stringa in alfabeto esadecimale in una stringa in alfabeto
+     * decimale.
+     *
+     * @param hex stringa in alfabeto esadecimale da convertire
+     * @return stringa in alfabeto decimale convertita
+     */
+    public static String hexStringToASCIIString(String hex) {
+        StringBuilder sb = new StringBuilder();
+        StringBuilder tmp = new StringBuilder();
+
+        for (int i = 0; i < hex.length() - 1; i += 2) { 
+            //Prendo i caratteri a coppie
+            String output = hex.substring(i, (i + 2));
+            int decimal = Integer.parseInt(output, 16);
+            sb.append((char) decimal);
+            tmp.append(decimal);
+        } 
+
+        return sb.toString();
+    }
+
+    /**
+     * Converte una stringa in alfabeto esadecimale in un intero.
+     *
+     * @param hex stringa in alfabeto esadecimale da convertire
+     * @return intero convertito
+     */
+    public static int hexStringToInt(String hex) {
+        return Integer.parseInt(hex, 16);
+    }
+
+    /**
+     * Converte un byte in un intero senza segno.
+     *
+     * @param b byte da convertire
+     * @return intero senza segno convertito
+     */
+    public static int byteToUnsignedInt(byte b) {
+        return ((int) b & 0x000000FF);
+    }
+
+    /**
+     * Converte una coppia di byte in un intero senza segno.
+     *
+     * @param b1 primo byte da convertire
+     * @param b2 secondo byte ad convertire
+     * @return intero senza segno convertito
+     */
+    public static int bytes2ToUnsignedInt(byte b1, byte b2) {
+        return (b1 & 0x000000FF) | (b2 & 0x000000FF) << 8;
+    }
+
+    /**
+     * Ritorna il numero di campioni per pixel del tipo di colore in input.
+     *
+     * @param colorType tipo di colore dell'immagine
+     * @return numero di campioni per pixel; 0 se il tipo di colore non è
+     * valido
+     */
+    public static int getSamplesPerPixel(int colorType) {
+        switch (colorType) {
+            case PNGConstants.COLOR_TYPE_GRAYSCALE:
+                return PNGConstants.COLOR_TYPE_0_SAMPLES;
+            case PNGConstants.COLOR_TYPE_RGB:
+                return PNGConstants.COLOR_TYPE_2_SAMPLES;
+            case PNGConstants.COLOR_TYPE_PALETTE:
+                return PNGConstants.COLOR_TYPE_3_SAMPLES;
+            case PNGConstants.COLOR_TYPE_GRAYSCALE_ALPHA:
+                return PNGConstants.COLOR_TYPE_4_SAMPLES;
+            case PNGConstants.COLOR_TYPE_RGB_ALPHA:
+                return PNGConstants.COLOR_TYPE_6_SAMPLES;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Calcola il numero di byte di una riga dell'immagine, escluso il byte del
+     * filtro.
+     *
+     * @param width larghezza dell'immagine
+     * @param colorType tipo di colore dell'immagine
+     * @param bitDepth profondità di bit dell'immagine
+     * @return dimensione della riga in byte
+     */
+    public static int getRowBytes(int width, int colorType, int bitDepth) {
+        return (int) (((long) width * getSamplesPerPixel(colorType) * bitDepth + 7) / 8);
+    }
+
+    /**
+     * Ritorna un sub-array della lunghezza specificata in input a partire da un
+     * array passato in input.
+     *
+     * @param array array d'origine
+     * @param len lunghezza del sub-array
+     * @param offset elemento da cui cominciare la copia
+     * @return sub-array
+     */
+    public static byte[] getBytesFromArray(byte[] array, int len, int offset) {
+        byte[] data = new byte[len];
+        for (int i = 0; i < len; i++) {
+            data[i] = array[i + offset];
+        }
+        return data;
+    }
+
+    /**
+     * Concatena due array di byte.
+     *
+     * @param A primo array da concatenare
+     * @param B secondo array da concatenare
+     * @return concatenazione dei due array
+     */
+    public static byte[] concatArray(byte[] A, byte[] B) {
+        int aLen = A.length;
+        int bLen = B.length;
+        byte[] C = new byte[aLen + bLen];
+        System.arraycopy(A, 0, C, 0, aLen);
+        System.arraycopy(B, 0, C, aLen, bLen);
+        return C;
+    }
+
+    /**
+     * Costruisce un chunk a partire dal nome e dai dati, calcolandone
+     * lunghezza e CRC.
+     *
+     * @param type nome del chunk
+     * @param data dati del chunk
+     * @return chunk costruito
+     */
+    public static Chunk buildChunk(byte[] type, byte[] data) {
+        byte[] length = new byte[PNGConstants.CHUNK_LENGTH_FIELD_SIZE];
+        for (int i = 0; i < length.length; i++) {
+            length[i] = (byte) (data.length >>> (8 * (length.length - 1 - i)));
+        }
+
+        CRC32 checksum = new CRC32();
+        //Il CRC deve essere calcolato sulla concatenazione di nome e dati
+        checksum.update(type, 0, type.length);
+        checksum.update(data, 0, data.length);
+        long value = checksum.getValue();
+        byte[] CRC = new byte[PNGConstants.CHUNK_CRC_FIELD_SIZE];
+        for (int i = 0; i < CRC.length; i++) {
+            CRC[i] = (byte) (value >>> (8 * (CRC.length - 1 - i)));
+        }
+
+        return new Chunk(length, type.clone(), data, CRC);
+    }
+
+    /**
+     * Scrive l'immagine in input, firma compresa, sullo stream in input.
+     *
+     * @param out stream su cui scrivere
+     * @param image immagine da scrivere
+     * @param ancillary <code>true</code> per scrivere anche i chunk ausiliari,
+     * <code>false</code> altrimenti
+     * @throws IOException - se occorrono errori in fase di scrittura
+     */
+    public static void writeImage(OutputStream out, PNGImage image, boolean ancillary) throws IOException {
+        out.write(PNGConstants.FORMAT_SIGNATURE);
+
+        for (Chunk c : image.getChunks()) {
+            if (ancillary || !c.isAncillary()) {
+                //Scrivo i 4 campi del chunk
+                out.write(c.getLength());
+                out.write(c.getType());
+                out.write(c.getData());
+                out.write(c.getCRC());
+            }
+        }
+    }
+
+    /**
+     * Salva l'immagine in input in un nuovo file, senza scrivere chunk
+     * ausiliari.
+     *
+     * @param path percorso della nuova immagine
+     * @param image immagine da scrivere
+     * @return <code>true</code> se l'operazione è terminata con successo,
+     * <code>false</code> altrimenti.
+     */
+    public static boolean exportImage(String path, PNGImage image) {
+        return exportImage(path, image, false);
+    }
+
+    /**
+     * Salva l'immagine in input in un nuovo file.
+     *
+     * @param path percorso della nuova immagine
+     * @param image immagine da scrivere
+     * @param ancillary <code>true</code> per scrivere anche i chunk ausiliari,
+     * <code>false</code> altrimenti
+     * @return <code>true</code> se l'operazione è terminata con successo,
+     * <code>false</code> altrimenti.
+     */
+    public static boolean exportImage(String path, PNGImage image, boolean ancillary) {
+        FileOutputStream fos = null;
+        boolean success = false;
+        try {
+            fos = new FileOutputStream(path);
+            writeImage(fos, image, ancillary);
+            success = true;
+        } catch (IOException ex) {
+            System.err.println(ex.getMessage());
+        } finally {
+            if (fos != null) {
+                try {
+                    fos.close();
+                } catch (IOException ex) {
+                    System.err.println(ex.getMessage());
+                }
+            }
+        }
+
+        return success;
+    }
+
+    /**
+     * Verifica se il file in input inizia con la firma del formato PNG,
+     * indipendentemente dalla sua estensione.
+     *
+     * @param file file da verificare
+     * @return <code>true</code> se i primi byte del file sono la firma PNG,
+     * <code>false</code> altrimenti
+     * @throws IOException - se il file non può essere letto
+     */
+    public static boolean hasPNGSignature(Path file) throws IOException {
+        byte[] header = new byte[PNGConstants.HEADER_LENGTH];
+        InputStream in = Files.newInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < header.length) {
+                int read = in.read(header, offset, header.length - offset);
+                if (read == -1) {
+                    return false;
+                }
+                offset += read;
+            }
+        } finally {
+            in.close();
+        }
+        return Arrays.equals(header, PNGConstants.FORMAT_SIGNATURE);
+    }
+}
@@ -0,0 +1,196 @@
+package png.manager.service;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistiche delle richieste a un endpoint di {@link PNGService}.
+ * <p>
+ * Le richieste vengono distinte in accettate con esito valido, rifiutate
+ * perché l'immagine non è valida, fallite per errori di lettura o scrittura
+ * e scartate con risposta 503 perché il servizio era saturo. La latenza di
+ * ciascuna richiesta elaborata viene registrata in un
+ * {@link LatencyHistogram}.
+ */
+public class EndpointStatistics {
+
+    /**
+     * Percorso dell'endpoint.
+     */
+    private final String path;
+    /**
+     * Istante di creazione delle statistiche, in nanosecondi.
+     */
+    private final long created = System.nanoTime();
+    /**
+     * Numero di richieste con immagine valida.
+     */
+    private final AtomicLong succeeded = new AtomicLong();
+    /**
+     * Numero di richieste con immagine non valida.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+    /**
+     * Numero di richieste fallite per errori di lettura o scrittura.
+     */
+    private final AtomicLong failed = new AtomicLong();
+    /**
+     * Numero di richieste scartate perché il servizio era saturo.
+     */
+    private final AtomicLong shed = new AtomicLong();
+    /**
+     * Numero di byte letti dalle richieste.
+     */
+    private final AtomicLong bytesRead = new AtomicLong();
+    /**
+     * Numero di byte scritti nelle risposte.
+     */
+    private final AtomicLong bytesWritten = new AtomicLong();
+    /**
+     * Latenze delle richieste elaborate.
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Costruisce le statistiche.
+     *
+     * @param path percorso dell'endpoint
+     */
+    EndpointStatistics(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Registra una richiesta elaborata.
+     *
+     * @param valid <code>true</code> se l'immagine è valida,
+     * <code>false</code> se è stata rifiutata
+     * @param read byte letti dalla richiesta
+     * @param written byte scritti nella risposta
+     * @param nanos durata della richiesta, in nanosecondi
+     */
+    void processed(boolean valid, long read, long written, long nanos) {
+        (valid ? succeeded : rejected).incrementAndGet();
+        bytesRead.addAndGet(read);
+        bytesWritten.addAndGet(written);
+        latency.record(nanos);
+    }
+
+    /**
+     * Registra una richiesta fallita per errori di lettura o scrittura.
+     *
+     * @param read byte letti dalla richiesta
+     * @param nanos durata della richiesta, in nanosecondi
+     */
+    void failed(long read, long nanos) {
+        failed.incrementAndGet();
+        bytesRead.addAndGet(read);
+        latency.record(nanos);
+    }
+
+    /**
+     * Registra una richiesta scartata perché il servizio era saturo.
+     */
+    void shed() {
+        shed.incrementAndGet();
+    }
+
+    /**
+     * Ritorna il percorso dell'endpoint.
+     *
+     * @return percorso
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Ritorna il numero di richieste con immagine valida.
+     *
+     * @return numero di richieste
+     */
+    public long getSucceeded() {
+        return succeeded.get();
+    }
+
+    /**
+     * Ritorna il numero di richieste con immagine non valida.
+     *
+     * @return numero di richieste
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Ritorna il numero di richieste fallite per errori di lettura o
+     * scrittura.
+     *
+     * @return numero di richieste
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Ritorna il numero di richieste scartate perché il servizio era saturo.
+     *
+     * @return numero di richieste
+     */
+    public long getShed() {
+        return shed.get();
+    }
+
+    /**
+     * Ritorna le latenze delle richieste elaborate.
+     *
+     * @return istogramma delle latenze
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Ritorna il numero medio di richieste elaborate al secondo dalla
+     * creazione delle statistiche.
+     *
+     * @return richieste al secondo
+     */
+    public double getRequestsPerSecond() {
+        return latency.getCount() / getUptime();
+    }
+
+    /**
+     * Ritorna il numero medio di megabyte letti al secondo dalla creazione
+     * delle statistiche.
+     *
+     * @return megabyte al secondo
+     */
+    public double getMegabytesPerSecond() {
+        return bytesRead.get() / 1048576.0 / getUptime();
+    }
+
+    /**
+     * Rappresentazione testuale delle statistiche, su una riga di coppie
+     * <code>chiave=valore</code>.
+     *
+     * @return statistiche dell'endpoint
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s richieste=%d valide=%d rifiutate=%d fallite=%d scartate=%d byte_letti=%d byte_scritti=%d "
+                + "richieste_al_s=%.2f mb_al_s=%.3f p50_ms=%.3f p90_ms=%.3f p99_ms=%.3f p999_ms=%.3f max_ms=%.3f",
+                path, latency.getCount() + shed.get(), succeeded.get(), rejected.get(), failed.get(), shed.get(), bytesRead.get(), bytesWritten.get(),
+                getRequestsPerSecond(), getMegabytesPerSecond(), latency.getPercentile(50), latency.getPercentile(90),
+                latency.getPercentile(99), latency.getPercentile(99.9), latency.getMax());
+    }
+
+    /**
+     * Ritorna il tempo trascorso dalla creazione delle statistiche.
+     *
+     * @return tempo trascorso, in secondi
+     */
+    private double getUptime() {
+        return Math.max(1e-3, (System.nanoTime() - created) / 1e9);
+    }
+}
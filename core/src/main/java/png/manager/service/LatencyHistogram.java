@@ -0,0 +1,98 @@
+package png.manager.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Istogramma delle latenze, da cui ricavare i percentili senza conservare le
+ * singole misure.
+ * <p>
+ * Le latenze vengono raccolte in intervalli di ampiezza crescente, con
+ * {@link #BUCKETS_PER_OCTAVE} intervalli per ogni raddoppio: l'errore relativo
+ * di un percentile è quindi inferiore al 10% qualunque sia la latenza, e la
+ * memoria occupata è costante. Le misure possono essere registrate da più
+ * thread contemporaneamente.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Numero di intervalli per ogni raddoppio della latenza.
+     */
+    private static final int BUCKETS_PER_OCTAVE = 8;
+    /**
+     * Numero di raddoppi coperti, a partire da un microsecondo.
+     */
+    private static final int OCTAVES = 40;
+
+    /**
+     * Numero di misure di ciascun intervallo.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS_PER_OCTAVE * OCTAVES);
+    /**
+     * Numero complessivo di misure.
+     */
+    private final AtomicLong count = new AtomicLong();
+    /**
+     * Latenza massima, in nanosecondi.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Registra una misura.
+     *
+     * @param nanos latenza, in nanosecondi
+     */
+    public void record(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        int index = (int) Math.min(buckets.length() - 1, Math.floor(Math.log(micros) / Math.log(2) * BUCKETS_PER_OCTAVE));
+        buckets.incrementAndGet(index);
+        count.incrementAndGet();
+
+        long current;
+        while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+            //Un altro thread ha aggiornato il massimo nel frattempo
+        }
+    }
+
+    /**
+     * Ritorna il numero di misure registrate.
+     *
+     * @return numero di misure
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Ritorna la latenza massima registrata.
+     *
+     * @return latenza massima, in millisecondi
+     */
+    public double getMax() {
+        return max.get() / 1e6;
+    }
+
+    /**
+     * Ritorna il percentile in input delle latenze registrate, approssimato
+     * per eccesso all'estremo superiore del suo intervallo.
+     *
+     * @param percentile percentile richiesto, tra 0 e 100
+     * @return latenza, in millisecondi; 0 se non sono state registrate misure
+     */
+    public double getPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                //Il massimo è più preciso dell'estremo dell'ultimo intervallo
+                return Math.min(getMax(), Math.pow(2, (double) (i + 1) / BUCKETS_PER_OCTAVE) / 1000);
+            }
+        }
+        return getMax();
+    }
+}
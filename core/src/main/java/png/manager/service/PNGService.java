@@ -0,0 +1,431 @@
+package png.manager.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import png.manager.batch.MemoryBudget;
+import png.manager.entity.PNGImage;
+import png.manager.stream.StreamOperation;
+import png.manager.stream.StreamProcessor;
+
+/**
+ * Servizio HTTP incorporabile che valida, decodifica e ripulisce immagini PNG
+ * inviate nel corpo delle richieste.
+ * <p>
+ * Gli endpoint <code>/validate</code>, <code>/decode</code> e
+ * <code>/strip</code> accettano richieste POST e ne elaborano il corpo con
+ * uno {@link StreamProcessor}, un chunk alla volta e senza mai conservare
+ * l'intero file in memoria. I primi due rispondono con una riga
+ * <code>esito TAB dettaglio</code>, con codice 200 se l'immagine è valida e
+ * 422 altrimenti; <code>/strip</code> risponde con l'immagine priva dei chunk
+ * ausiliari, scritta man mano che la richiesta viene letta. Se un errore
+ * emerge dopo l'inizio della risposta, la connessione viene chiusa senza
+ * completarla, così che il client non scambi l'immagine parziale per
+ * un'immagine completa.
+ * <p>
+ * Al più un numero fissato di richieste viene elaborato contemporaneamente:
+ * quelle in eccesso ricevono subito una risposta 503, invece di accumularsi
+ * in attesa, e il client può riprovare dopo il tempo indicato
+ * nell'intestazione <code>Retry-After</code>. La memoria delle decodifiche è
+ * inoltre limitata da un {@link MemoryBudget}. L'endpoint
+ * <code>/stats</code> espone, per ciascun endpoint, richieste elaborate e
+ * scartate, throughput e percentili della latenza.
+ */
+public class PNGService {
+
+    /**
+     * Numero predefinito di richieste elaborate contemporaneamente.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * Numero di thread, oltre a quelli di elaborazione, che rispondono alle
+     * richieste scartate.
+     */
+    private static final int SHEDDING_THREADS = 2;
+    /**
+     * Secondi dopo i quali un client può ripetere una richiesta scartata.
+     */
+    private static final String RETRY_AFTER = "1";
+    /**
+     * Codice di risposta per le immagini non valide.
+     */
+    private static final int UNPROCESSABLE = 422;
+    /**
+     * Codice di risposta per le richieste scartate.
+     */
+    private static final int UNAVAILABLE = 503;
+
+    /**
+     * Server HTTP.
+     */
+    private final HttpServer server;
+    /**
+     * Thread che gestiscono le richieste.
+     */
+    private final ThreadPoolExecutor executor;
+    /**
+     * Permessi delle richieste in elaborazione.
+     */
+    private final Semaphore permits;
+    /**
+     * Numero massimo di richieste elaborate contemporaneamente.
+     */
+    private final int maxConcurrent;
+    /**
+     * Budget di memoria delle decodifiche.
+     */
+    private final MemoryBudget budget;
+    /**
+     * Statistiche di ciascun endpoint di elaborazione.
+     */
+    private final List<EndpointStatistics> statistics = new ArrayList<>();
+    /**
+     * Istante di avvio del servizio, in nanosecondi.
+     */
+    private final long created = System.nanoTime();
+
+    /**
+     * Crea il servizio, senza avviarlo.
+     *
+     * @param address indirizzo e porta su cui ricevere le richieste; porta 0
+     * per sceglierne una libera
+     * @param maxConcurrent numero massimo di richieste elaborate
+     * contemporaneamente
+     * @param budget budget di memoria delle decodifiche
+     * @throws IOException - se l'indirizzo non può essere usato
+     */
+    public PNGService(InetSocketAddress address, int maxConcurrent, MemoryBudget budget) throws IOException {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("Il numero di richieste contemporanee deve essere positivo.");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        this.budget = budget;
+        this.server = HttpServer.create(address, 0);
+        //I thread in più rispondono subito alle richieste in eccesso
+        this.executor = new ThreadPoolExecutor(maxConcurrent + SHEDDING_THREADS, maxConcurrent + SHEDDING_THREADS, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "http-worker-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        server.setExecutor(executor);
+
+        addEndpoint("/validate", StreamOperation.VALIDATE);
+        addEndpoint("/decode", StreamOperation.DECODE);
+        addEndpoint("/strip", StreamOperation.STRIP);
+        server.createContext("/stats", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, 200, "text/plain; charset=UTF-8", getStatisticsReport());
+                exchange.close();
+            }
+        });
+    }
+
+    /**
+     * Avvia il servizio.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Arresta il servizio, attendendo al più il tempo indicato il termine
+     * delle richieste in corso.
+     *
+     * @param delay tempo massimo di attesa, in secondi
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Ritorna l'indirizzo su cui il servizio riceve le richieste.
+     *
+     * @return indirizzo e porta effettivi
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Ritorna le statistiche degli endpoint di elaborazione.
+     *
+     * @return statistiche di ciascun endpoint
+     */
+    public List<EndpointStatistics> getStatistics() {
+        return new ArrayList<>(statistics);
+    }
+
+    /**
+     * Ritorna il testo esposto dall'endpoint <code>/stats</code>: una riga per
+     * lo stato del servizio, una per il budget di memoria e una per ciascun
+     * endpoint.
+     *
+     * @return statistiche del servizio
+     */
+    public String getStatisticsReport() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format(Locale.ROOT, "servizio attivo_s=%.1f in_corso=%d limite=%d in_coda=%d\n",
+                (System.nanoTime() - created) / 1e9, maxConcurrent - permits.availablePermits(), maxConcurrent, executor.getQueue().size()));
+        result.append("memoria ").append(budget).append("\n");
+        for (EndpointStatistics s : statistics) {
+            result.append(s).append("\n");
+        }
+        return result.toString();
+    }
+
+    /**
+     * Registra un endpoint di elaborazione.
+     *
+     * @param path percorso dell'endpoint
+     * @param operation operazione eseguita sul corpo delle richieste
+     */
+    private void addEndpoint(String path, StreamOperation operation) {
+        EndpointStatistics stats = new EndpointStatistics(path);
+        statistics.add(stats);
+        server.createContext(path, new OperationHandler(operation, stats));
+    }
+
+    /**
+     * Invia una risposta completa e di lunghezza nota.
+     *
+     * @param exchange richiesta a cui rispondere
+     * @param code codice della risposta
+     * @param contentType tipo del contenuto
+     * @param body corpo della risposta
+     * @throws IOException - se occorrono errori in scrittura
+     */
+    private static void respond(HttpExchange exchange, int code, String contentType, String body) throws IOException {
+        byte[] data = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(code, data.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(data);
+        out.close();
+    }
+
+    /**
+     * Gestisce le richieste a un endpoint di elaborazione.
+     */
+    private class OperationHandler implements HttpHandler {
+
+        /**
+         * Operazione eseguita sul corpo delle richieste.
+         */
+        private final StreamOperation operation;
+        /**
+         * Statistiche dell'endpoint.
+         */
+        private final EndpointStatistics stats;
+
+        /**
+         * Costruisce il gestore.
+         *
+         * @param operation operazione eseguita sul corpo delle richieste
+         * @param stats statistiche dell'endpoint
+         */
+        OperationHandler(StreamOperation operation, EndpointStatistics stats) {
+            this.operation = operation;
+            this.stats = stats;
+        }
+
+        /**
+         * Elabora una richiesta, o la scarta se il servizio è saturo.
+         *
+         * @param exchange richiesta da elaborare
+         * @throws IOException - se occorrono errori di comunicazione, o per
+         * chiudere la connessione di una risposta rimasta incompleta
+         */
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, "text/plain; charset=UTF-8", "Usare il metodo POST.\n");
+            } else if (!permits.tryAcquire()) {
+                stats.shed();
+                exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER);
+                respond(exchange, UNAVAILABLE, "text/plain; charset=UTF-8", "Servizio saturo, riprovare piu' tardi.\n");
+            } else {
+                try {
+                    process(exchange);
+                } finally {
+                    permits.release();
+                }
+            }
+            //In caso di eccezione lo scambio non viene chiuso: il server chiude
+            //la connessione senza terminare la risposta
+            exchange.close();
+        }
+
+        /**
+         * Elabora il corpo della richiesta e invia la risposta.
+         *
+         * @param exchange richiesta da elaborare
+         * @throws IOException - se occorrono errori di comunicazione, o per
+         * chiudere la connessione di una risposta rimasta incompleta
+         */
+        private void process(HttpExchange exchange) throws IOException {
+            long start = System.nanoTime();
+            StreamProcessor processor = new StreamProcessor(operation, budget);
+            ResponseStream out = new ResponseStream(exchange);
+            InputStream in = exchange.getRequestBody();
+            try {
+                processor.process(in, out);
+                if (operation.writesOutput()) {
+                    out.close();
+                } else {
+                    respond(exchange, 200, "text/plain; charset=UTF-8", processor.getStatus() + "\t" + describe(processor) + "\n");
+                }
+                stats.processed(true, processor.getBytesRead(), processor.getBytesWritten(), System.nanoTime() - start);
+            } catch (IOException e) {
+                //Connessione interrotta dal client o corpo della richiesta illeggibile
+                stats.failed(processor.getBytesRead(), System.nanoTime() - start);
+                throw e;
+            } catch (Exception e) {
+                stats.processed(false, processor.getBytesRead(), processor.getBytesWritten(), System.nanoTime() - start);
+                if (out.isCommitted()) {
+                    throw new IOException("Risposta interrotta: " + e.getMessage());
+                }
+                respond(exchange, UNPROCESSABLE, "text/plain; charset=UTF-8",
+                        processor.getStatus() + "\t" + String.valueOf(e.getMessage()).replace('\n', ' ') + "\n");
+            }
+        }
+
+        /**
+         * Descrive un'immagine elaborata con successo.
+         *
+         * @param processor elaborazione terminata
+         * @return dimensioni, formato, numero di chunk e byte letti
+         */
+        private String describe(StreamProcessor processor) {
+            PNGImage image = processor.getImage();
+            String result = image.getWidth() + "x" + image.getHeight() + ", tipo di colore " + image.getColorType()
+                    + ", profondita' " + image.getBitDepth() + ", " + processor.getChunkCount() + " chunk, " + processor.getBytesRead() + " byte";
+            if (operation.decodes()) {
+                result += ", " + processor.getDecodedRows() + " righe decodificate";
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Corpo di una risposta di lunghezza ignota, le cui intestazioni vengono
+     * inviate solo alla prima scrittura, così che gli errori rilevati prima
+     * possano ancora ricevere una risposta di errore.
+     */
+    private static class ResponseStream extends OutputStream {
+
+        /**
+         * Richiesta a cui rispondere.
+         */
+        private final HttpExchange exchange;
+        /**
+         * Corpo della risposta; null finché le intestazioni non sono inviate.
+         */
+        private OutputStream body = null;
+
+        /**
+         * Costruisce lo stream.
+         *
+         * @param exchange richiesta a cui rispondere
+         */
+        ResponseStream(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        /**
+         * Indica se le intestazioni della risposta sono già state inviate.
+         *
+         * @return <code>true</code> se la risposta è iniziata,
+         * <code>false</code> altrimenti
+         */
+        boolean isCommitted() {
+            return body != null;
+        }
+
+        /**
+         * Scrive un byte della risposta.
+         *
+         * @param b byte da scrivere
+         * @throws IOException - se occorrono errori in scrittura
+         */
+        @Override
+        public void write(int b) throws IOException {
+            commit().write(b);
+        }
+
+        /**
+         * Scrive un blocco della risposta.
+         *
+         * @param b array contenente i dati
+         * @param offset posizione del primo byte da scrivere
+         * @param length numero di byte da scrivere
+         * @throws IOException - se occorrono errori in scrittura
+         */
+        @Override
+        public void write(byte[] b, int offset, int length) throws IOException {
+            commit().write(b, offset, length);
+        }
+
+        /**
+         * Invia i dati già scritti.
+         *
+         * @throws IOException - se occorrono errori in scrittura
+         */
+        @Override
+        public void flush() throws IOException {
+            if (body != null) {
+                body.flush();
+            }
+        }
+
+        /**
+         * Completa la risposta.
+         *
+         * @throws IOException - se occorrono errori in scrittura
+         */
+        @Override
+        public void close() throws IOException {
+            commit().close();
+        }
+
+        /**
+         * Invia le intestazioni della risposta, se non ancora inviate.
+         *
+         * @return corpo della risposta
+         * @throws IOException - se occorrono errori in scrittura
+         */
+        private OutputStream commit() throws IOException {
+            if (body == null) {
+                exchange.getResponseHeaders().set("Content-Type", "image/png");
+                exchange.sendResponseHeaders(200, 0);
+                body = exchange.getResponseBody();
+            }
+            return body;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package png.manager.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import png.manager.exception.ChunkParserException;
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Legge un'immagine PNG da uno stream un chunk alla volta, senza conservarne
+ * i dati in memoria.
+ * <p>
+ * Dopo la firma, {@link #nextChunk()} legge lunghezza e nome di ciascun
+ * chunk; i dati vengono poi letti a blocchi con {@link #read(byte[], int, int)}
+ * e il CRC viene calcolato man mano. {@link #finishChunk()} salta i dati non
+ * letti e confronta il CRC calcolato con quello memorizzato nel chunk. Gli
+ * errori di lettura dello stream vengono propagati come
+ * {@link IOException}, mentre uno stream che termina all'interno di un chunk
+ * viene segnalato con una {@link ChunkParserException}.
+ */
+public class ChunkStreamReader {
+
+    /**
+     * Lunghezza massima dei dati di un chunk, secondo le specifiche del
+     * formato.
+     */
+    private static final long MAX_CHUNK_LENGTH = Integer.MAX_VALUE;
+
+    /**
+     * Stream da cui leggere.
+     */
+    private final InputStream in;
+    /**
+     * CRC dei campi nome e dati del chunk corrente.
+     */
+    private final CRC32 crc = new CRC32();
+    /**
+     * Buffer usato per leggere i campi di lunghezza fissa e per saltare i dati.
+     */
+    private final byte[] buffer = new byte[8192];
+    /**
+     * Campo nome del chunk corrente.
+     */
+    private final byte[] type = new byte[PNGConstants.CHUNK_NAME_FIELD_SIZE];
+    /**
+     * Lunghezza dei dati del chunk corrente.
+     */
+    private int length = -1;
+    /**
+     * Byte dei dati del chunk corrente non ancora letti.
+     */
+    private int remaining = 0;
+    /**
+     * CRC memorizzato nell'ultimo chunk terminato.
+     */
+    private long storedCRC = 0;
+    /**
+     * Numero di byte letti dallo stream.
+     */
+    private long bytesRead = 0;
+
+    /**
+     * Costruisce il lettore.
+     *
+     * @param in stream da cui leggere; non viene chiuso
+     */
+    public ChunkStreamReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Legge e controlla la firma del formato PNG.
+     *
+     * @throws ChunkParserException - se lo stream non inizia con la firma
+     * @throws IOException - se occorrono errori in lettura
+     */
+    public void readSignature() throws ChunkParserException, IOException {
+        byte[] header = new byte[PNGConstants.HEADER_LENGTH];
+        if (readFully(header, 0, header.length) != header.length || !Arrays.equals(header, PNGConstants.FORMAT_SIGNATURE)) {
+            throw new ChunkParserException("Intestazione del file errata: il file non e' un'immagine PNG valida.");
+        }
+    }
+
+    /**
+     * Legge lunghezza e nome del prossimo chunk. Il chunk precedente deve
+     * essere stato terminato con {@link #finishChunk()}.
+     *
+     * @return <code>true</code> se è stato letto un chunk, <code>false</code>
+     * se lo stream è terminato
+     * @throws ChunkParserException - se lo stream termina all'interno
+     * dell'intestazione del chunk o la lunghezza non è valida
+     * @throws IOException - se occorrono errori in lettura
+     */
+    public boolean nextChunk() throws ChunkParserException, IOException {
+        if (length >= 0) {
+            throw new IllegalStateException("Chunk precedente non terminato.");
+        }
+
+        int read = readFully(buffer, 0, PNGConstants.CHUNK_LENGTH_FIELD_SIZE);
+        if (read == 0) {
+            return false;
+        }
+        if (read != PNGConstants.CHUNK_LENGTH_FIELD_SIZE) {
+            throw new ChunkParserException("Campo lunghezza del chunk incompleto.");
+        }
+        long value = readUnsignedInt(buffer, 0);
+        if (value > MAX_CHUNK_LENGTH) {
+            throw new ChunkParserException("Lunghezza del chunk non valida: " + value + ".");
+        }
+        if (readFully(type, 0, type.length) != type.length) {
+            throw new ChunkParserException("Chunk incompleto.");
+        }
+
+        length = (int) value;
+        remaining = length;
+        crc.reset();
+        crc.update(type, 0, type.length);
+        return true;
+    }
+
+    /**
+     * Ritorna il nome del chunk corrente.
+     *
+     * @return nome del chunk
+     */
+    public String getType() {
+        return new String(type, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Ritorna il campo nome del chunk corrente.
+     *
+     * @return copia del campo nome
+     */
+    public byte[] getTypeBytes() {
+        return type.clone();
+    }
+
+    /**
+     * Indica se il chunk corrente è ausiliario, ovvero se il quinto bit del
+     * primo byte del nome è 1.
+     *
+     * @return <code>true</code> se il chunk è ausiliario, <code>false</code>
+     * altrimenti
+     */
+    public boolean isAncillary() {
+        return (type[0] & 0x20) != 0;
+    }
+
+    /**
+     * Ritorna la lunghezza dei dati del chunk corrente.
+     *
+     * @return lunghezza in byte
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Legge un blocco dei dati del chunk corrente.
+     *
+     * @param b array in cui scrivere i dati
+     * @param offset posizione del primo byte da scrivere
+     * @param max numero massimo di byte da leggere
+     * @return numero di byte letti; -1 se i dati del chunk sono terminati
+     * @throws ChunkParserException - se lo stream termina all'interno dei dati
+     * @throws IOException - se occorrono errori in lettura
+     */
+    public int read(byte[] b, int offset, int max) throws ChunkParserException, IOException {
+        if (remaining == 0) {
+            return -1;
+        }
+        int read = in.read(b, offset, Math.min(max, remaining));
+        if (read == -1) {
+            throw new ChunkParserException("Chunk incompleto.");
+        }
+        crc.update(b, offset, read);
+        remaining -= read;
+        bytesRead += read;
+        return read;
+    }
+
+    /**
+     * Legge tutti i dati del chunk corrente, se non superano la lunghezza
+     * massima in input. Da usare per i chunk di dimensione contenuta, come
+     * IHDR e PLTE.
+     *
+     * @param maxLength lunghezza massima ammessa dei dati
+     * @return dati non ancora letti del chunk
+     * @throws ChunkParserException - se i dati superano la lunghezza massima o
+     * lo stream termina all'interno dei dati
+     * @throws IOException - se occorrono errori in lettura
+     */
+    public byte[] readData(int maxLength) throws ChunkParserException, IOException {
+        if (remaining > maxLength) {
+            throw new ChunkParserException("Chunk " + getType() + " troppo lungo: " + length + " byte.");
+        }
+        byte[] data = new byte[remaining];
+        int offset = 0;
+        while (offset < data.length) {
+            offset += read(data, offset, data.length - offset);
+        }
+        return data;
+    }
+
+    /**
+     * Termina il chunk corrente, saltando i dati non letti e leggendo il CRC.
+     *
+     * @return <code>true</code> se il CRC memorizzato coincide con quello
+     * calcolato, <code>false</code> altrimenti
+     * @throws ChunkParserException - se lo stream termina prima della fine del
+     * chunk
+     * @throws IOException - se occorrono errori in lettura
+     */
+    public boolean finishChunk() throws ChunkParserException, IOException {
+        while (read(buffer, 0, buffer.length) != -1) {
+            //Salta i dati non letti, aggiornando il CRC
+        }
+        if (readFully(buffer, 0, PNGConstants.CHUNK_CRC_FIELD_SIZE) != PNGConstants.CHUNK_CRC_FIELD_SIZE) {
+            throw new ChunkParserException("Chunk incompleto.");
+        }
+        storedCRC = readUnsignedInt(buffer, 0);
+        length = -1;
+        return storedCRC == crc.getValue();
+    }
+
+    /**
+     * Ritorna il CRC calcolato sui dati letti del chunk corrente o, dopo
+     * {@link #finishChunk()}, dell'ultimo chunk terminato.
+     *
+     * @return CRC calcolato
+     */
+    public long getComputedCRC() {
+        return crc.getValue();
+    }
+
+    /**
+     * Ritorna il CRC memorizzato nell'ultimo chunk terminato.
+     *
+     * @return CRC memorizzato
+     */
+    public long getStoredCRC() {
+        return storedCRC;
+    }
+
+    /**
+     * Ritorna il numero di byte letti dallo stream, firma compresa.
+     *
+     * @return numero di byte
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Legge dallo stream fino a riempire la porzione dell'array indicata o
+     * fino alla fine dello stream.
+     *
+     * @param b array da riempire
+     * @param offset posizione del primo byte da scrivere
+     * @param count numero di byte da leggere
+     * @return numero di byte letti
+     * @throws IOException - se occorrono errori in lettura
+     */
+    private int readFully(byte[] b, int offset, int count) throws IOException {
+        int total = 0;
+        while (total < count) {
+            int read = in.read(b, offset + total, count - total);
+            if (read == -1) {
+                break;
+            }
+            total += read;
+        }
+        bytesRead += total;
+        return total;
+    }
+
+    /**
+     * Interpreta 4 byte in ordine big-endian come intero senza segno.
+     *
+     * @param b array contenente i byte
+     * @param offset posizione del primo byte
+     * @return valore letto
+     */
+    static long readUnsignedInt(byte[] b, int offset) {
+        return ((b[offset] & 0xFFL) << 24) | ((b[offset + 1] & 0xFFL) << 16) | ((b[offset + 2] & 0xFFL) << 8) | (b[offset + 3] & 0xFFL);
+    }
+}
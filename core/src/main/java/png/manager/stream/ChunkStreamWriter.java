@@ -0,0 +1,147 @@
+package png.manager.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Scrive un'immagine PNG su uno stream un chunk alla volta.
+ * <p>
+ * Lunghezza e nome di ciascun chunk vengono scritti con
+ * {@link #beginChunk(byte[], int)}, i dati a blocchi con
+ * {@link #write(byte[], int, int)} e il CRC, calcolato durante la scrittura,
+ * con {@link #endChunk()}. In questo modo i dati di un chunk possono essere
+ * scritti mentre vengono ancora letti.
+ */
+public class ChunkStreamWriter {
+
+    /**
+     * Stream su cui scrivere.
+     */
+    private final OutputStream out;
+    /**
+     * CRC dei campi nome e dati del chunk corrente.
+     */
+    private final CRC32 crc = new CRC32();
+    /**
+     * Buffer usato per scrivere i campi di lunghezza fissa.
+     */
+    private final byte[] field = new byte[4];
+    /**
+     * Byte dei dati del chunk corrente non ancora scritti; -1 se nessun chunk
+     * è in corso.
+     */
+    private long remaining = -1;
+    /**
+     * Numero di byte scritti sullo stream.
+     */
+    private long bytesWritten = 0;
+
+    /**
+     * Costruisce lo scrittore.
+     *
+     * @param out stream su cui scrivere; non viene chiuso
+     */
+    public ChunkStreamWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Scrive la firma del formato PNG.
+     *
+     * @throws IOException - se occorrono errori in scrittura
+     */
+    public void writeSignature() throws IOException {
+        out.write(PNGConstants.FORMAT_SIGNATURE);
+        bytesWritten += PNGConstants.FORMAT_SIGNATURE.length;
+    }
+
+    /**
+     * Inizia un chunk, scrivendone lunghezza e nome.
+     *
+     * @param type campo nome del chunk
+     * @param length lunghezza dei dati del chunk
+     * @throws IOException - se occorrono errori in scrittura
+     */
+    public void beginChunk(byte[] type, int length) throws IOException {
+        if (remaining >= 0) {
+            throw new IllegalStateException("Chunk precedente non terminato.");
+        }
+        writeInt(length);
+        out.write(type, 0, PNGConstants.CHUNK_NAME_FIELD_SIZE);
+        bytesWritten += PNGConstants.CHUNK_NAME_FIELD_SIZE;
+        crc.reset();
+        crc.update(type, 0, PNGConstants.CHUNK_NAME_FIELD_SIZE);
+        remaining = length;
+    }
+
+    /**
+     * Scrive un blocco dei dati del chunk corrente.
+     *
+     * @param b array contenente i dati
+     * @param offset posizione del primo byte da scrivere
+     * @param count numero di byte da scrivere
+     * @throws IOException - se occorrono errori in scrittura
+     */
+    public void write(byte[] b, int offset, int count) throws IOException {
+        if (count > remaining) {
+            throw new IllegalStateException("Dati oltre la lunghezza dichiarata del chunk.");
+        }
+        out.write(b, offset, count);
+        crc.update(b, offset, count);
+        remaining -= count;
+        bytesWritten += count;
+    }
+
+    /**
+     * Termina il chunk corrente, scrivendo il CRC calcolato sui dati scritti.
+     *
+     * @throws IOException - se occorrono errori in scrittura
+     */
+    public void endChunk() throws IOException {
+        if (remaining != 0) {
+            throw new IllegalStateException("Dati del chunk incompleti.");
+        }
+        writeInt((int) crc.getValue());
+        remaining = -1;
+    }
+
+    /**
+     * Scrive un chunk completo.
+     *
+     * @param type campo nome del chunk
+     * @param data dati del chunk
+     * @throws IOException - se occorrono errori in scrittura
+     */
+    public void writeChunk(byte[] type, byte[] data) throws IOException {
+        beginChunk(type, data.length);
+        write(data, 0, data.length);
+        endChunk();
+    }
+
+    /**
+     * Ritorna il numero di byte scritti sullo stream.
+     *
+     * @return numero di byte
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Scrive un intero di 4 byte in ordine big-endian.
+     *
+     * @param value valore da scrivere
+     * @throws IOException - se occorrono errori in scrittura
+     */
+    private void writeInt(int value) throws IOException {
+        field[0] = (byte) (value >>> 24);
+        field[1] = (byte) (value >>> 16);
+        field[2] = (byte) (value >>> 8);
+        field[3] = (byte) value;
+        out.write(field, 0, field.length);
+        bytesWritten += field.length;
+    }
+}
@@ -0,0 +1,97 @@
+package png.manager.stream;
+
+/**
+ * Operazioni eseguibili da {@link StreamProcessor} su un'immagine letta da
+ * uno stream.
+ */
+public enum StreamOperation {
+
+    /**
+     * Controlla la struttura, i CRC e il chunk IHDR, senza scrivere nulla.
+     */
+    VALIDATE(false, false, false),
+    /**
+     * Esegue i controlli di {@link #VALIDATE} e decodifica completamente i
+     * dati dell'immagine, senza conservarne i pixel.
+     */
+    DECODE(false, false, true),
+    /**
+     * Esegue i controlli di {@link #VALIDATE} e scrive l'immagine priva dei
+     * chunk ausiliari.
+     */
+    STRIP(true, false, false),
+    /**
+     * Esegue i controlli di {@link #VALIDATE} e scrive l'immagine invariata,
+     * esclusi gli eventuali dati successivi al chunk IEND.
+     */
+    COPY(true, true, false),
+    /**
+     * Scrive l'immagine sostituendo i CRC non validi con quelli calcolati sui
+     * dati. Gli altri controlli di {@link #VALIDATE} vengono eseguiti.
+     */
+    REPAIR_CRC(true, true, false),
+    /**
+     * Esegue i controlli di {@link #VALIDATE} e scrive l'immagine
+     * suddividendo i dati compressi in chunk IDAT di dimensione fissata.
+     */
+    RECHUNK(true, true, false);
+
+    /**
+     * Indica se l'operazione scrive l'immagine elaborata.
+     */
+    private final boolean writesOutput;
+    /**
+     * Indica se l'operazione scrive anche i chunk ausiliari.
+     */
+    private final boolean keepsAncillary;
+    /**
+     * Indica se l'operazione decodifica i dati dell'immagine.
+     */
+    private final boolean decodes;
+
+    /**
+     * Costruisce l'operazione.
+     *
+     * @param writesOutput <code>true</code> se l'operazione scrive l'immagine
+     * elaborata
+     * @param keepsAncillary <code>true</code> se l'operazione scrive anche i
+     * chunk ausiliari
+     * @param decodes <code>true</code> se l'operazione decodifica i dati
+     * dell'immagine
+     */
+    private StreamOperation(boolean writesOutput, boolean keepsAncillary, boolean decodes) {
+        this.writesOutput = writesOutput;
+        this.keepsAncillary = keepsAncillary;
+        this.decodes = decodes;
+    }
+
+    /**
+     * Indica se l'operazione scrive l'immagine elaborata.
+     *
+     * @return <code>true</code> se l'operazione scrive un'immagine,
+     * <code>false</code> altrimenti
+     */
+    public boolean writesOutput() {
+        return writesOutput;
+    }
+
+    /**
+     * Indica se l'operazione scrive anche i chunk ausiliari.
+     *
+     * @return <code>true</code> se i chunk ausiliari vengono scritti,
+     * <code>false</code> se vengono scartati
+     */
+    public boolean keepsAncillary() {
+        return keepsAncillary;
+    }
+
+    /**
+     * Indica se l'operazione decodifica i dati dell'immagine.
+     *
+     * @return <code>true</code> se l'operazione decodifica,
+     * <code>false</code> altrimenti
+     */
+    public boolean decodes() {
+        return decodes;
+    }
+}
@@ -0,0 +1,459 @@
+package png.manager.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import png.manager.batch.MemoryBudget;
+import png.manager.batch.ValidationStatus;
+import png.manager.checker.Checker;
+import png.manager.decoder.MemoryEstimator;
+import png.manager.decoder.StreamingDecoder;
+import png.manager.entity.Chunk;
+import png.manager.entity.PNGImage;
+import png.manager.exception.ChunkParserException;
+import png.manager.exception.DecodingException;
+import png.manager.exception.PNGStructureException;
+import png.manager.miscellaneous.PNGConstants;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Esegue una {@link StreamOperation} su un'immagine letta da uno stream, un
+ * chunk alla volta.
+ * <p>
+ * I dati di ciascun chunk attraversano un buffer di dimensione fissa: vengono
+ * controllati, eventualmente decodificati e scritti sullo stream di uscita
+ * man mano che vengono letti, così che la memoria usata non dipenda dalla
+ * dimensione dell'immagine. Vengono controllati la firma, la posizione del
+ * chunk IHDR e dei chunk IDAT, il CRC di ogni chunk, i campi del chunk IHDR e
+ * la presenza del chunk IEND; i dati successivi al chunk IEND vengono
+ * ignorati.
+ * <p>
+ * Nulla viene scritto prima che il chunk IHDR sia stato controllato. Un errore
+ * successivo interrompe invece l'elaborazione lasciando incompleta l'immagine
+ * già scritta in parte: chi scrive su una connessione deve quindi chiuderla
+ * senza completare la risposta. Dopo l'elaborazione, anche se fallita,
+ * {@link #getStatus()} ne classifica l'esito. L'oggetto elabora un solo
+ * stream e non è utilizzabile da più thread contemporaneamente.
+ */
+public class StreamProcessor {
+
+    /**
+     * Dimensione del buffer dei dati, in byte.
+     */
+    private static final int BUFFER_SIZE = 65536;
+    /**
+     * Lunghezza dei dati del chunk IHDR.
+     */
+    private static final int HEADER_LENGTH = 13;
+    /**
+     * Dimensione predefinita dei chunk IDAT scritti da
+     * {@link StreamOperation#RECHUNK}, in byte.
+     */
+    public static final int DEFAULT_DATA_CHUNK_SIZE = 8192;
+
+    /**
+     * Operazione da eseguire.
+     */
+    private final StreamOperation operation;
+    /**
+     * Budget di memoria delle decodifiche; null se assente.
+     */
+    private final MemoryBudget budget;
+    /**
+     * Esito dell'elaborazione; null se non ancora terminata.
+     */
+    private ValidationStatus status = null;
+    /**
+     * Immagine contenente il solo chunk IHDR; null se non ancora letto.
+     */
+    private PNGImage image = null;
+    /**
+     * Numero di chunk letti.
+     */
+    private int chunks = 0;
+    /**
+     * Numero di byte letti.
+     */
+    private long bytesRead = 0;
+    /**
+     * Numero di byte scritti.
+     */
+    private long bytesWritten = 0;
+    /**
+     * Numero di righe decodificate, di tutte le passate.
+     */
+    private long decodedRows = 0;
+    /**
+     * Numero di chunk con CRC non valido sostituito.
+     */
+    private int repairedChunks = 0;
+    /**
+     * Dimensione dei chunk IDAT scritti da {@link StreamOperation#RECHUNK}.
+     */
+    private int dataChunkSize = DEFAULT_DATA_CHUNK_SIZE;
+
+    /**
+     * Costruisce l'oggetto.
+     *
+     * @param operation operazione da eseguire
+     */
+    public StreamProcessor(StreamOperation operation) {
+        this(operation, null);
+    }
+
+    /**
+     * Costruisce l'oggetto. Se l'operazione decodifica l'immagine, la memoria
+     * stimata per la decodifica viene richiesta al budget dopo la lettura del
+     * chunk IHDR e restituita al termine.
+     *
+     * @param operation operazione da eseguire
+     * @param budget budget di memoria delle decodifiche; null se assente
+     */
+    public StreamProcessor(StreamOperation operation, MemoryBudget budget) {
+        this.operation = operation;
+        this.budget = budget;
+    }
+
+    /**
+     * Legge un'immagine dallo stream in input ed esegue l'operazione,
+     * scrivendo l'eventuale risultato sullo stream di uscita.
+     *
+     * @param in stream da cui leggere l'immagine; non viene chiuso
+     * @param out stream su cui scrivere il risultato; ignorato se
+     * l'operazione non scrive un'immagine, e non viene chiuso
+     * @throws ChunkParserException - se lo stream non è un'immagine PNG o non
+     * è suddiviso correttamente in chunk
+     * @throws PNGStructureException - se un CRC o i campi del chunk IHDR non
+     * sono validi
+     * @throws DecodingException - se i dati dell'immagine non possono essere
+     * decodificati
+     * @throws IOException - se occorrono errori in lettura o in scrittura
+     */
+    public void process(InputStream in, OutputStream out) throws ChunkParserException, PNGStructureException, DecodingException, IOException {
+        ChunkStreamReader reader = new ChunkStreamReader(in);
+        ChunkStreamWriter writer = operation.writesOutput() ? new ChunkStreamWriter(out) : null;
+        StreamingDecoder decoder = null;
+        long memory = 0;
+        try {
+            try {
+                reader.readSignature();
+            } catch (ChunkParserException e) {
+                status = ValidationStatus.NOT_PNG;
+                throw e;
+            }
+
+            byte[] header = readHeader(reader);
+            if (operation.decodes()) {
+                if (budget != null) {
+                    memory = acquire(MemoryEstimator.estimateStreaming(image));
+                }
+                decoder = new StreamingDecoder(image);
+            }
+            if (writer != null) {
+                writer.writeSignature();
+                writer.writeChunk(PNGConstants.MAIN_CHUNK_NAME.getBytes(StandardCharsets.US_ASCII), header);
+            }
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            //Dati compressi non ancora scritti da RECHUNK
+            byte[] pending = null;
+            int pendingLength = 0;
+            boolean dataStarted = false;
+            boolean dataEnded = false;
+            boolean end = false;
+            while (!end && reader.nextChunk()) {
+                chunks++;
+                String type = reader.getType();
+                if (type.equals(PNGConstants.MAIN_CHUNK_NAME)) {
+                    throw malformed("Chunk IHDR duplicato.");
+                }
+                boolean data = type.equals(PNGConstants.IMAGE_DATA_CHUNK_NAME);
+                if (data && dataEnded) {
+                    throw malformed("I chunk IDAT devono essere consecutivi.");
+                }
+                dataEnded = dataStarted && !data;
+                dataStarted = dataStarted || data;
+                end = type.equals(PNGConstants.END_CHUNK_NAME);
+
+                boolean rechunk = data && operation == StreamOperation.RECHUNK;
+                if (!data && pendingLength > 0) {
+                    //I dati compressi sono terminati: scrive l'ultimo chunk IDAT
+                    writeData(writer, pending, pendingLength);
+                    pendingLength = 0;
+                }
+                boolean copy = writer != null && !rechunk && (operation.keepsAncillary() || !reader.isAncillary());
+                if (copy) {
+                    writer.beginChunk(reader.getTypeBytes(), reader.getLength());
+                }
+                if (rechunk) {
+                    if (pending == null) {
+                        pending = new byte[dataChunkSize];
+                    }
+                    int read;
+                    while ((read = reader.read(pending, pendingLength, pending.length - pendingLength)) != -1) {
+                        pendingLength += read;
+                        if (pendingLength == pending.length) {
+                            writeData(writer, pending, pendingLength);
+                            pendingLength = 0;
+                        }
+                    }
+                } else if (copy || (data && decoder != null)) {
+                    int read;
+                    while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+                        if (copy) {
+                            writer.write(buffer, 0, read);
+                        }
+                        if (data && decoder != null) {
+                            decoder.update(buffer, 0, read);
+                        }
+                    }
+                }
+                checkCRC(reader, type);
+                if (copy) {
+                    writer.endChunk();
+                }
+            }
+
+            if (!dataStarted) {
+                throw malformed("Chunk IDAT assente.");
+            }
+            if (!end) {
+                throw malformed("Chunk IEND assente: l'immagine e' incompleta.");
+            }
+            if (decoder != null) {
+                decodedRows = decoder.getDecodedRows();
+                decoder.finish();
+            }
+            if (writer != null) {
+                out.flush();
+            }
+            status = ValidationStatus.VALID;
+        } catch (ChunkParserException e) {
+            setStatus(ValidationStatus.MALFORMED);
+            throw e;
+        } catch (DecodingException e) {
+            setStatus(ValidationStatus.INVALID_DATA);
+            throw e;
+        } catch (IOException e) {
+            setStatus(ValidationStatus.UNREADABLE);
+            throw e;
+        } finally {
+            if (decoder != null) {
+                decodedRows = decoder.getDecodedRows();
+                decoder.close();
+            }
+            if (memory > 0) {
+                budget.release(memory);
+            }
+            bytesRead = reader.getBytesRead();
+            bytesWritten = writer != null ? writer.getBytesWritten() : 0;
+        }
+    }
+
+    /**
+     * Imposta la dimensione dei chunk IDAT scritti da
+     * {@link StreamOperation#RECHUNK}. I dati compressi restanti vengono
+     * scritti in un ultimo chunk più piccolo.
+     *
+     * @param size dimensione dei chunk, in byte
+     */
+    public void setDataChunkSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("La dimensione dei chunk deve essere positiva.");
+        }
+        this.dataChunkSize = size;
+    }
+
+    /**
+     * Ritorna l'esito dell'elaborazione.
+     *
+     * @return esito; null se l'elaborazione non è terminata
+     */
+    public ValidationStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Ritorna l'immagine contenente il solo chunk IHDR, da cui ricavare
+     * dimensioni e formato.
+     *
+     * @return immagine; null se il chunk IHDR non è stato letto
+     */
+    public PNGImage getImage() {
+        return image;
+    }
+
+    /**
+     * Ritorna il numero di chunk letti.
+     *
+     * @return numero di chunk
+     */
+    public int getChunkCount() {
+        return chunks;
+    }
+
+    /**
+     * Ritorna il numero di byte letti.
+     *
+     * @return numero di byte
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Ritorna il numero di byte scritti.
+     *
+     * @return numero di byte
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Ritorna il numero di righe decodificate, di tutte le passate.
+     *
+     * @return numero di righe
+     */
+    public long getDecodedRows() {
+        return decodedRows;
+    }
+
+    /**
+     * Ritorna il numero di chunk il cui CRC non valido è stato sostituito da
+     * {@link StreamOperation#REPAIR_CRC}.
+     *
+     * @return numero di chunk
+     */
+    public int getRepairedChunks() {
+        return repairedChunks;
+    }
+
+    /**
+     * Legge e controlla il chunk IHDR, che deve essere il primo.
+     *
+     * @param reader lettore posizionato dopo la firma
+     * @return dati del chunk IHDR
+     * @throws ChunkParserException - se il primo chunk non è un IHDR valido
+     * @throws PNGStructureException - se il CRC o i campi del chunk non sono
+     * validi
+     * @throws IOException - se occorrono errori in lettura
+     */
+    private byte[] readHeader(ChunkStreamReader reader) throws ChunkParserException, PNGStructureException, IOException {
+        if (!reader.nextChunk() || !reader.getType().equals(PNGConstants.MAIN_CHUNK_NAME)) {
+            throw malformed("Il chunk IHDR deve precedere gli altri chunk.");
+        }
+        chunks++;
+        byte[] header = reader.readData(HEADER_LENGTH);
+        if (header.length != HEADER_LENGTH) {
+            throw malformed("Chunk IHDR di lunghezza non valida.");
+        }
+        checkCRC(reader, PNGConstants.MAIN_CHUNK_NAME);
+
+        ArrayList<Chunk> list = new ArrayList<>();
+        list.add(Utility.buildChunk(reader.getTypeBytes(), header));
+        image = new PNGImage(list);
+        if (!Checker.checkDimension(image)) {
+            throw invalid(ValidationStatus.INVALID_HEADER, "Dimensioni invalide per l'immagine: altezza o larghezza nulle.");
+        }
+        if (!Checker.checkColorTypeBitDepthCombination(image)) {
+            throw invalid(ValidationStatus.INVALID_HEADER, "Immagine non conforme al formato.\nCombinazione invalida di tipo di colore e profondita' di bit.");
+        }
+        if (image.getInterlacingMethod() != PNGConstants.NO_INTERLACE && image.getInterlacingMethod() != PNGConstants.ADAM7_INTERLACE) {
+            throw invalid(ValidationStatus.INVALID_HEADER, "Metodo di interlacciamento sconosciuto.");
+        }
+        return header;
+    }
+
+    /**
+     * Richiede al budget la memoria della decodifica.
+     *
+     * @param bytes memoria stimata, in byte
+     * @return memoria assegnata, in byte
+     * @throws DecodingException - se l'attesa viene interrotta
+     */
+    private long acquire(long bytes) throws DecodingException {
+        try {
+            return budget.acquire(bytes);
+        } catch (InterruptedException e) {
+            System.err.println(e.getMessage());
+            Thread.currentThread().interrupt();
+            throw new DecodingException("Decodifica annullata.");
+        }
+    }
+
+    /**
+     * Scrive un chunk IDAT con i dati compressi in input.
+     *
+     * @param writer scrittore dell'immagine
+     * @param data array contenente i dati
+     * @param length numero di byte da scrivere
+     * @throws IOException - se occorrono errori in scrittura
+     */
+    private static void writeData(ChunkStreamWriter writer, byte[] data, int length) throws IOException {
+        writer.beginChunk(PNGConstants.IMAGE_DATA_CHUNK_NAME.getBytes(StandardCharsets.US_ASCII), length);
+        writer.write(data, 0, length);
+        writer.endChunk();
+    }
+
+    /**
+     * Termina il chunk corrente e ne controlla il CRC. Con
+     * {@link StreamOperation#REPAIR_CRC} un CRC non valido viene solo contato,
+     * poiché lo scrittore scrive comunque il CRC calcolato.
+     *
+     * @param reader lettore posizionato nel chunk
+     * @param type nome del chunk
+     * @throws ChunkParserException - se lo stream termina prima della fine del
+     * chunk
+     * @throws PNGStructureException - se il CRC non è valido
+     * @throws IOException - se occorrono errori in lettura
+     */
+    private void checkCRC(ChunkStreamReader reader, String type) throws ChunkParserException, PNGStructureException, IOException {
+        if (!reader.finishChunk()) {
+            if (operation == StreamOperation.REPAIR_CRC) {
+                repairedChunks++;
+                return;
+            }
+            throw invalid(ValidationStatus.CRC_ERROR, "Controllo di integrita' CRC non superato al chunk " + chunks + " (" + type + "): i dati sono corrotti.");
+        }
+    }
+
+    /**
+     * Crea l'eccezione di un errore nella suddivisione in chunk, registrando
+     * l'esito.
+     *
+     * @param message messaggio dell'errore
+     * @return eccezione da lanciare
+     */
+    private ChunkParserException malformed(String message) {
+        status = ValidationStatus.MALFORMED;
+        return new ChunkParserException(message);
+    }
+
+    /**
+     * Crea l'eccezione di un errore nella struttura dell'immagine, registrando
+     * l'esito.
+     *
+     * @param status esito dell'elaborazione
+     * @param message messaggio dell'errore
+     * @return eccezione da lanciare
+     */
+    private PNGStructureException invalid(ValidationStatus status, String message) {
+        this.status = status;
+        return new PNGStructureException(message);
+    }
+
+    /**
+     * Registra l'esito dell'elaborazione, se non già registrato.
+     *
+     * @param status esito dell'elaborazione
+     */
+    private void setStatus(ValidationStatus status) {
+        if (this.status == null) {
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package png.manager.gui;
+
+import java.awt.image.BufferedImage;
+import java.util.IdentityHashMap;
+
+import png.manager.entity.Chunk;
+import png.manager.entity.PNGImage;
+
+/**
+ * Modella le immagini decodificate a partire da un file, conservate
+ * nell'{@link ImageCache}.
+ * <p>
+ * Oltre all'immagine decodificata contiene le varianti calcolate su richiesta:
+ * quella con i metadati e quelle in bianco e nero.
+ */
+class CachedImage {
+
+    /**
+     * Immagine risultato del parsing.
+     */
+    private final PNGImage parsedImage;
+    /**
+     * Immagine decodificata.
+     */
+    private final BufferedImage image;
+    /**
+     * Flag che indica se l'immagine è stata decodificata tenendo già conto
+     * dei metadati.
+     */
+    private final boolean decodedWithMeta;
+    /**
+     * Immagine decodificata con l'impiego dei metadati.
+     */
+    private BufferedImage imageWithMeta;
+    /**
+     * Immagine in bianco e nero ottenuta dall'immagine decodificata.
+     */
+    private BufferedImage blackAndWhiteImage;
+    /**
+     * Immagine in bianco e nero ottenuta dall'immagine con i metadati.
+     */
+    private BufferedImage blackAndWhiteImageWithMeta;
+
+    /**
+     * Costruisce l'oggetto memorizzando l'immagine in input.
+     *
+     * @param parsedImage immagine risultato del parsing
+     * @param image immagine decodificata
+     * @param decodedWithMeta <code>true</code> se l'immagine è stata
+     * decodificata tenendo già conto dei metadati, <code>false</code>
+     * altrimenti
+     */
+    CachedImage(PNGImage parsedImage, BufferedImage image, boolean decodedWithMeta) {
+        this.parsedImage = parsedImage;
+        this.image = image;
+        this.decodedWithMeta = decodedWithMeta;
+        if (decodedWithMeta) {
+            this.imageWithMeta = image;
+        }
+    }
+
+    /**
+     * Ritorna l'immagine risultato del parsing.
+     *
+     * @return immagine risultato del parsing
+     */
+    PNGImage getParsedImage() {
+        return parsedImage;
+    }
+
+    /**
+     * Ritorna l'immagine decodificata.
+     *
+     * @return immagine decodificata
+     */
+    BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Verifica se l'immagine è stata decodificata tenendo già conto dei
+     * metadati.
+     *
+     * @return <code>true</code> se l'immagine tiene già conto dei metadati,
+     * <code>false</code> altrimenti
+     */
+    boolean isDecodedWithMeta() {
+        return decodedWithMeta;
+    }
+
+    /**
+     * Ritorna l'immagine decodificata con l'impiego dei metadati.
+     *
+     * @return immagine con i metadati; null se non ancora calcolata
+     */
+    BufferedImage getImageWithMeta() {
+        return imageWithMeta;
+    }
+
+    /**
+     * Memorizza l'immagine decodificata con l'impiego dei metadati.
+     *
+     * @param imageWithMeta immagine con i metadati
+     */
+    void setImageWithMeta(BufferedImage imageWithMeta) {
+        this.imageWithMeta = imageWithMeta;
+    }
+
+    /**
+     * Ritorna l'immagine in bianco e nero.
+     *
+     * @param withMeta <code>true</code> per la variante ottenuta
+     * dall'immagine con i metadati, <code>false</code> altrimenti
+     * @return immagine in bianco e nero; null se non ancora calcolata
+     */
+    BufferedImage getBlackAndWhiteImage(boolean withMeta) {
+        return withMeta ? blackAndWhiteImageWithMeta : blackAndWhiteImage;
+    }
+
+    /**
+     * Memorizza l'immagine in bianco e nero.
+     *
+     * @param withMeta <code>true</code> per la variante ottenuta
+     * dall'immagine con i metadati, <code>false</code> altrimenti
+     * @param blackAndWhiteImage immagine in bianco e nero
+     */
+    void setBlackAndWhiteImage(boolean withMeta, BufferedImage blackAndWhiteImage) {
+        if (withMeta) {
+            this.blackAndWhiteImageWithMeta = blackAndWhiteImage;
+        } else {
+            this.blackAndWhiteImage = blackAndWhiteImage;
+        }
+    }
+
+    /**
+     * Calcola la memoria occupata dai pixel di tutte le immagini contenute e
+     * dai dati dei chunk. Le immagini condivise tra più varianti vengono
+     * contate una sola volta.
+     *
+     * @return dimensione in byte
+     */
+    long getSize() {
+        IdentityHashMap<BufferedImage, Boolean> images = new IdentityHashMap<>();
+        for (BufferedImage variant : new BufferedImage[]{image, imageWithMeta, blackAndWhiteImage, blackAndWhiteImageWithMeta}) {
+            if (variant != null) {
+                images.put(variant, Boolean.TRUE);
+            }
+        }
+
+        long size = 0;
+        for (Chunk c : parsedImage.getChunks()) {
+            size += c.getLengthAsInt();
+        }
+        for (BufferedImage variant : images.keySet()) {
+            size += GUIUtility.getImageSize(variant);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,93 @@
+package png.manager.gui;
+
+import javax.swing.table.AbstractTableModel;
+
+import png.manager.entity.Chunk;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Modello di tabella che mostra i dati di un chunk in esadecimale, una riga
+ * di {@link #BYTES_PER_ROW} byte per volta.
+ * <p>
+ * Le righe vengono formattate solo quando la tabella le richiede, ossia
+ * quando sono visibili, leggendo direttamente i dati del chunk: la memoria
+ * usata e il tempo di apertura non dipendono dalla dimensione del chunk.
+ */
+public class ChunkHexTableModel extends AbstractTableModel {
+
+    /**
+     * Numero di byte mostrati in ciascuna riga.
+     */
+    public static final int BYTES_PER_ROW = 16;
+    /**
+     * Intestazioni delle colonne.
+     */
+    private static final String[] COLUMN_NAMES = {"Offset", "Esadecimale", "ASCII"};
+
+    /**
+     * Dati del chunk visualizzato.
+     */
+    private byte[] data = new byte[0];
+
+    /**
+     * Visualizza i dati del chunk in input.
+     *
+     * @param chunk chunk da visualizzare; null per svuotare la tabella
+     */
+    public void setChunk(Chunk chunk) {
+        data = chunk != null ? chunk.getData() : new byte[0];
+        fireTableDataChanged();
+    }
+
+    /**
+     * Ritorna il numero di righe necessarie a mostrare tutti i dati.
+     *
+     * @return numero di righe
+     */
+    @Override
+    public int getRowCount() {
+        return (data.length + BYTES_PER_ROW - 1) / BYTES_PER_ROW;
+    }
+
+    /**
+     * Ritorna il numero di colonne: offset, esadecimale e ASCII.
+     *
+     * @return numero di colonne
+     */
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    /**
+     * Ritorna l'intestazione della colonna in input.
+     *
+     * @param column indice della colonna
+     * @return intestazione della colonna
+     */
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    /**
+     * Formatta la cella in input a partire dai byte della riga.
+     *
+     * @param row indice della riga
+     * @param column indice della colonna
+     * @return testo della cella
+     */
+    @Override
+    public Object getValueAt(int row, int column) {
+        int offset = row * BYTES_PER_ROW;
+        int length = Math.min(BYTES_PER_ROW, data.length - offset);
+        switch (column) {
+            case 0:
+                return String.format("%08X", offset);
+            case 1:
+                return Utility.bytesToSplittedHexString(data, offset, length);
+            default:
+                return Utility.bytesToPrintableString(data, offset, length);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package png.manager.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Frame;
+import java.util.List;
+import javax.swing.AbstractListModel;
+import javax.swing.JDialog;
+import javax.swing.JList;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+
+import png.manager.entity.Chunk;
+import png.manager.entity.PNGImage;
+
+/**
+ * Finestra che mostra l'elenco dei chunk di un'immagine e i dati del chunk
+ * selezionato in esadecimale.
+ * <p>
+ * Sia l'elenco sia la tabella dei dati formattano solo gli elementi visibili,
+ * così che immagini con molti chunk o chunk di grandi dimensioni vengano
+ * ispezionati senza costruirne l'intera rappresentazione testuale.
+ */
+public class ChunkInspector extends JDialog {
+
+    /**
+     * Larghezza predefinita della finestra.
+     */
+    private static final int WINDOW_WIDTH = 900;
+    /**
+     * Altezza predefinita della finestra.
+     */
+    private static final int WINDOW_HEIGHT = 500;
+    /**
+     * Larghezza predefinita dell'elenco dei chunk.
+     */
+    private static final int LIST_WIDTH = 260;
+
+    /**
+     * Costruisce la finestra per l'immagine in input, selezionando il primo
+     * chunk.
+     *
+     * @param owner finestra principale
+     * @param image immagine da ispezionare
+     */
+    public ChunkInspector(Frame owner, PNGImage image) {
+        super(owner, "Ispezione dei chunk");
+        final List<Chunk> chunks = image.getChunks();
+        final ChunkHexTableModel model = new ChunkHexTableModel();
+
+        final JList<String> chunkList = new JList<>(new AbstractListModel<String>() {
+            @Override
+            public int getSize() {
+                return chunks.size();
+            }
+
+            @Override
+            public String getElementAt(int index) {
+                return (index + 1) + ". " + chunks.get(index);
+            }
+        });
+        chunkList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        //Un prototipo evita di misurare tutti gli elementi per dimensionare l'elenco
+        chunkList.setPrototypeCellValue("00000. [0000000000] [IDAT] [00000000]");
+        chunkList.addListSelectionListener(new ListSelectionListener() {
+            @Override
+            public void valueChanged(ListSelectionEvent e) {
+                int index = chunkList.getSelectedIndex();
+                model.setChunk(index >= 0 ? chunks.get(index) : null);
+            }
+        });
+
+        JTable table = new JTable(model);
+        table.setFont(new Font(Font.MONOSPACED, Font.PLAIN, table.getFont().getSize()));
+        table.setAutoResizeMode(JTable.AUTO_RESIZE_LAST_COLUMN);
+        table.getColumnModel().getColumn(0).setPreferredWidth(90);
+        table.getColumnModel().getColumn(1).setPreferredWidth(420);
+        table.getColumnModel().getColumn(2).setPreferredWidth(150);
+
+        JScrollPane listScrollPane = new JScrollPane(chunkList);
+        listScrollPane.setPreferredSize(new Dimension(LIST_WIDTH, WINDOW_HEIGHT));
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, listScrollPane, new JScrollPane(table));
+        add(splitPane, BorderLayout.CENTER);
+
+        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        setSize(new Dimension(WINDOW_WIDTH, WINDOW_HEIGHT));
+        setLocationRelativeTo(owner);
+        if (!chunks.isEmpty()) {
+            chunkList.setSelectedIndex(0);
+        }
+    }
+}
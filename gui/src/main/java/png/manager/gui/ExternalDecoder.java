@@ -0,0 +1,77 @@
+package png.manager.gui;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import png.manager.decoder.DecodingListener;
+import png.manager.entity.PNGImage;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Decoder di Java.
+ */
+class ExternalDecoder {
+    
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private ExternalDecoder() {}
+    
+    /**
+     * Genera l'immagine da visualizzare nell'interfaccia grafica, invocando il metodo della libreria.
+     * <p>
+     * Il datastream viene ricostruito in memoria a partire dai chunk, senza rileggere il file.
+     * 
+     * @param image immagine risultato del parsing
+     * @return immagine pronta per la visualizzazione
+     * @throws IOException - se occorrono errori in fase di decodifica
+     */
+    static BufferedImage getBufferedImage(PNGImage image) throws IOException {
+        return getBufferedImage(image, null);
+    }
+
+    /**
+     * Genera l'immagine da visualizzare nell'interfaccia grafica, comunicando
+     * l'avanzamento all'ascoltatore in input.
+     * <p>
+     * Se il thread corrente viene interrotto, la lettura viene annullata al
+     * termine della riga in corso.
+     *
+     * @param image immagine risultato del parsing
+     * @param listener ascoltatore dell'avanzamento; null se assente
+     * @return immagine pronta per la visualizzazione
+     * @throws IOException - se occorrono errori in fase di decodifica o se la
+     * lettura viene interrotta
+     */
+    static BufferedImage getBufferedImage(PNGImage image, DecodingListener listener) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utility.writeImage(out, image, true);
+        ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(out.toByteArray()));
+        ImageReader reader = null;
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Nessun lettore disponibile per l'immagine.");
+            }
+            reader = readers.next();
+            reader.setInput(in, true, true);
+            reader.addIIOReadProgressListener(new ReadProgressAdapter(listener));
+            BufferedImage result = reader.read(0);
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IOException("Decodifica annullata.");
+            }
+            return result;
+        } finally {
+            if (reader != null) {
+                reader.dispose();
+            }
+            in.close();
+        }
+    }
+}
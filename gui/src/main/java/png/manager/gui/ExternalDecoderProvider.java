@@ -0,0 +1,95 @@
+package png.manager.gui;
+
+import java.io.IOException;
+
+import png.manager.awt.RawImageAdapter;
+import png.manager.decoder.DecoderProvider;
+import png.manager.decoder.DecodingListener;
+import png.manager.entity.PNGImage;
+import png.manager.entity.RawImage;
+import png.manager.exception.DecodingException;
+
+/**
+ * Espone il decoder di Java come {@link DecoderProvider}.
+ */
+public class ExternalDecoderProvider implements DecoderProvider {
+
+    /**
+     * Nome del decoder.
+     */
+    public static final String NAME = "EXTERNAL";
+
+    /**
+     * Tempo stimato di decodifica per pixel, in nanosecondi.
+     */
+    private static final double COST_HINT = 40;
+
+    /**
+     * Ritorna il nome del decoder.
+     *
+     * @return nome del decoder
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Ritorna la priorità del decoder.
+     *
+     * @return priorità del decoder
+     */
+    @Override
+    public int getPriority() {
+        return 0;
+    }
+
+    /**
+     * Il decoder di Java supporta tutti i formati.
+     *
+     * @param colorType tipo di colore dell'immagine
+     * @param bitDepth profondità di bit dell'immagine
+     * @param interlaceMethod metodo di interlacciamento dell'immagine
+     * @return <code>true</code>
+     */
+    @Override
+    public boolean supports(int colorType, int bitDepth, int interlaceMethod) {
+        return true;
+    }
+
+    /**
+     * Stima il tempo di decodifica per pixel.
+     *
+     * @param colorType tipo di colore dell'immagine
+     * @param bitDepth profondità di bit dell'immagine
+     * @param interlaceMethod metodo di interlacciamento dell'immagine
+     * @return tempo stimato per pixel, in nanosecondi
+     */
+    @Override
+    public double getCostHint(int colorType, int bitDepth, int interlaceMethod) {
+        return COST_HINT;
+    }
+
+    /**
+     * Decodifica l'immagine con il decoder di Java, convertendola in pixel
+     * RGBA a 8 bit.
+     *
+     * @param image immagine risultato del parsing
+     * @param listener ascoltatore dell'avanzamento; null se assente
+     * @return campioni decodificati dell'immagine
+     * @throws DecodingException - se occorrono errori in fase di decodifica o
+     * se la decodifica viene interrotta
+     */
+    @Override
+    public RawImage decode(PNGImage image, DecodingListener listener) throws DecodingException {
+        try {
+            return RawImageAdapter.fromBufferedImage(ExternalDecoder.getBufferedImage(image, listener));
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            if (Thread.currentThread().isInterrupted()) {
+                throw new DecodingException("Decodifica annullata.");
+            }
+            throw new DecodingException("Impossibile decodificare l'immagine.");
+        }
+    }
+}
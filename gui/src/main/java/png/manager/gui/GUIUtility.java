@@ -0,0 +1,161 @@
+package png.manager.gui;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+import png.manager.miscellaneous.PaletteTransform;
+
+/**
+ * Fornisce le funzionalità del programma che dipendono da AWT o dal formato
+ * dei testi mostrati nell'interfaccia grafica.
+ */
+public class GUIUtility {
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private GUIUtility() {
+    }
+
+    /**
+     * Effettua una copia dell'immagine in input. I due oggetti sono
+     * indipendenti.
+     *
+     * @param image immagine da copiare
+     * @return immagine clonata
+     */
+    public static BufferedImage copyImage(BufferedImage image) {
+        ColorModel cm = image.getColorModel();
+        boolean isAlphaPremultiplied = cm.isAlphaPremultiplied();
+        WritableRaster raster = image.copyData(null);
+        return new BufferedImage(cm, raster, isAlphaPremultiplied, null);
+    }
+
+    /**
+     * Applica una trasformazione dei colori a un'immagine con tavolozza,
+     * trasformando le sole voci della tavolozza. L'immagine risultante
+     * condivide i pixel con quella in input.
+     *
+     * @param image immagine da trasformare
+     * @param transform trasformazione da applicare
+     * @return immagine trasformata; null se l'immagine non ha tavolozza
+     */
+    public static BufferedImage transformPalette(BufferedImage image, PaletteTransform transform) {
+        if (!(image.getColorModel() instanceof IndexColorModel)) {
+            return null;
+        }
+
+        IndexColorModel cm = (IndexColorModel) image.getColorModel();
+        int[] colors = new int[cm.getMapSize()];
+        cm.getRGBs(colors);
+        for (int i = 0; i < colors.length; i++) {
+            int c = colors[i];
+            colors[i] = (c & 0xFF000000) | transform.transformColor((c >> 16) & 0xFF, (c >> 8) & 0xFF, c & 0xFF);
+        }
+        IndexColorModel transformed = new IndexColorModel(cm.getPixelSize(), colors.length, colors, 0, cm.hasAlpha(), cm.getTransparentPixel(), cm.getTransferType());
+        return new BufferedImage(transformed, image.getRaster(), false, null);
+    }
+
+    /**
+     * Ritorna le immagini PNG contenute nella cartella in input, ordinate per
+     * nome.
+     *
+     * @param directory cartella da esaminare
+     * @return percorsi delle immagini; vuoto se la cartella non è leggibile
+     */
+    public static List<String> getDirectoryImages(File directory) {
+        ArrayList<String> result = new ArrayList<>();
+        File[] files = directory != null ? directory.listFiles() : null;
+        if (files == null) {
+            return result;
+        }
+
+        Arrays.sort(files);
+        ExtensionFilter filter = new ExtensionFilter();
+        for (File f : files) {
+            if (f.isFile() && filter.accept(f)) {
+                result.add(f.getPath());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calcola la memoria occupata dai pixel dell'immagine in input.
+     *
+     * @param image immagine da misurare
+     * @return dimensione in byte
+     */
+    public static long getImageSize(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    /**
+     * Scrive su un file di testo un report delle caratteristiche di una
+     * immagine PNG.
+     *
+     * @param path percorso del file di testo da scrivere
+     * @param content caratteristiche dell'immagine
+     * @return <code>true</code> se l'operazione è terminata con successo,
+     * <code>false</code> altrimenti.
+     */
+    public static boolean createReport(String path, String content) {
+        PrintWriter out = null;
+        boolean success = false;
+        try {
+            //Sostituisce i ritorni a capo
+            content = content.replace("<br>", System.getProperty("line.separator"));
+            //Rimuove la tabulazione
+            content = content.replace("&#9;", "   ");
+            //Rimuove il codice html
+            content = content.replaceAll("\\<.*?>", "");
+            //Scrive il report sul file di testo
+            out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(path)), true);
+            out.println("Report generato da PNG Manager:");
+            out.println(content);
+            success = true;
+        } catch (FileNotFoundException ex) {
+            System.err.println(ex.getMessage());
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+
+        return success;
+    }
+
+    /**
+     * Salva l'immagine in input in un file in formato jpeg.
+     *
+     * @param path percorso del file da scrivere
+     * @param image immagine da scrivere
+     * @return <code>true</code> se l'operazione è terminata con successo,
+     * <code>false</code> altrimenti.
+     */
+    public static boolean convertImage(String path, BufferedImage image) {
+        boolean success = false;
+        try {
+            ImageIO.write(image, "jpg", new File(path));
+            success = true;
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+
+        return success;
+    }
+}
@@ -0,0 +1,230 @@
+package png.manager.gui;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import png.manager.miscellaneous.PaletteTransform;
+
+/**
+ * Converte le immagini in scala di grigi.
+ * <p>
+ * La luminanza di ciascun pixel viene calcolata con i pesi della
+ * raccomandazione ITU-R BT.601 e scritta direttamente in un raster a 8 bit
+ * per pixel, dividendo l'immagine in bande di righe elaborate in parallelo.
+ * Le immagini già in scala di grigi vengono riusate senza conversione. Il
+ * risultato viene memorizzato finché l'immagine d'origine resta in uso.
+ */
+public class GrayscaleConverter {
+
+    /**
+     * Numero minimo di pixel di una banda, sotto il quale non conviene
+     * dividere ulteriormente l'immagine.
+     */
+    private static final int MIN_BAND_PIXELS = 1 << 16;
+    /**
+     * Numero di thread di conversione.
+     */
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    /**
+     * Immagini convertite, associate all'immagine d'origine.
+     */
+    private static final Map<BufferedImage, BufferedImage> converted = Collections.synchronizedMap(new WeakHashMap<BufferedImage, BufferedImage>());
+    /**
+     * Thread di conversione, creati alla prima richiesta.
+     */
+    private static ExecutorService executor = null;
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private GrayscaleConverter() {
+    }
+
+    /**
+     * Ritorna la versione in scala di grigi dell'immagine in input,
+     * calcolandola solo alla prima richiesta.
+     * <p>
+     * Le immagini con tavolozza producono un'immagine con gli stessi pixel e
+     * la tavolozza convertita; quelle con canale alfa un'immagine in scala di
+     * grigi con lo stesso canale alfa; le altre un'immagine di tipo
+     * {@link BufferedImage#TYPE_BYTE_GRAY}.
+     *
+     * @param image immagine da convertire
+     * @return immagine in scala di grigi; l'immagine stessa se è già in scala
+     * di grigi
+     */
+    public static BufferedImage getGrayscaleImage(BufferedImage image) {
+        if (image.getColorModel().getColorSpace().getType() == ColorSpace.TYPE_GRAY) {
+            return image;
+        }
+
+        BufferedImage result = converted.get(image);
+        if (result == null) {
+            //Per le immagini con tavolozza basta convertire la tavolozza
+            result = GUIUtility.transformPalette(image, PaletteTransform.GRAYSCALE);
+        }
+        if (result == null) {
+            result = convert(image);
+            converted.put(image, result);
+        }
+        return result;
+    }
+
+    /**
+     * Converte l'immagine in input in scala di grigi.
+     *
+     * @param image immagine da convertire
+     * @return immagine in scala di grigi
+     */
+    private static BufferedImage convert(final BufferedImage image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final boolean hasAlpha = image.getColorModel().hasAlpha();
+        final BufferedImage result;
+        if (hasAlpha) {
+            ColorModel cm = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_GRAY), true, false, Transparency.TRANSLUCENT, DataBuffer.TYPE_BYTE);
+            result = new BufferedImage(cm, cm.createCompatibleWritableRaster(width, height), false, null);
+        } else {
+            result = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        }
+        final byte[] gray = ((DataBufferByte) result.getRaster().getDataBuffer()).getData();
+        final int channels = hasAlpha ? 2 : 1;
+
+        int bands = (int) Math.max(1, Math.min(THREADS * 4L, (long) width * height / MIN_BAND_PIXELS));
+        final int bandRows = (height + bands - 1) / bands;
+        ArrayList<Callable<Void>> tasks = new ArrayList<>();
+        for (int first = 0; first < height; first += bandRows) {
+            final int firstRow = first;
+            final int lastRow = Math.min(height, first + bandRows);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    int[] argb = new int[width];
+                    for (int y = firstRow; y < lastRow; y++) {
+                        readRow(image, y, argb);
+                        int out = y * width * channels;
+                        for (int x = 0; x < width; x++) {
+                            int p = argb[x];
+                            //Y = 0.299 R + 0.587 G + 0.114 B, in virgola fissa
+                            gray[out++] = (byte) ((77 * ((p >> 16) & 0xFF) + 150 * ((p >> 8) & 0xFF) + 29 * (p & 0xFF)) >> 8);
+                            if (hasAlpha) {
+                                gray[out++] = (byte) (p >>> 24);
+                            }
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try {
+            if (tasks.size() == 1) {
+                tasks.get(0).call();
+            } else {
+                for (Future<Void> f : getExecutor().invokeAll(tasks)) {
+                    f.get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Conversione in scala di grigi interrotta.");
+        } catch (ExecutionException e) {
+            System.err.println(e.getCause().getMessage());
+            throw new IllegalStateException("Impossibile convertire l'immagine in scala di grigi.");
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            throw new IllegalStateException("Impossibile convertire l'immagine in scala di grigi.");
+        }
+        return result;
+    }
+
+    /**
+     * Legge i pixel di una riga dell'immagine in formato ARGB.
+     * <p>
+     * Le immagini RGB o ARGB memorizzate in un array di interi e quelle con
+     * campioni sRGB a 8 bit interlacciati in un array di byte vengono lette
+     * direttamente dal loro buffer; le altre tramite
+     * {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}.
+     *
+     * @param image immagine da leggere
+     * @param y indice della riga
+     * @param argb array in cui scrivere la riga
+     */
+    private static void readRow(BufferedImage image, int y, int[] argb) {
+        int width = image.getWidth();
+        WritableRaster raster = image.getRaster();
+        int type = image.getType();
+        //Le sotto-immagini condividono il buffer con un diverso passo tra righe
+        if (raster.getParent() != null) {
+            image.getRGB(0, y, width, 1, argb, 0, width);
+        } else if (type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_RGB) {
+            System.arraycopy(((DataBufferInt) raster.getDataBuffer()).getData(), y * width, argb, 0, width);
+        } else if (isInterleavedRGB(image)) {
+            PixelInterleavedSampleModel sm = (PixelInterleavedSampleModel) raster.getSampleModel();
+            byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+            int[] offsets = sm.getBandOffsets();
+            int stride = sm.getPixelStride();
+            int in = y * sm.getScanlineStride();
+            boolean hasAlpha = offsets.length > 3;
+            for (int x = 0; x < width; x++, in += stride) {
+                int alpha = hasAlpha ? data[in + offsets[3]] & 0xFF : 0xFF;
+                argb[x] = alpha << 24 | (data[in + offsets[0]] & 0xFF) << 16 | (data[in + offsets[1]] & 0xFF) << 8 | (data[in + offsets[2]] & 0xFF);
+            }
+        } else {
+            image.getRGB(0, y, width, 1, argb, 0, width);
+        }
+    }
+
+    /**
+     * Verifica se l'immagine in input ha campioni sRGB a 8 bit, non
+     * premoltiplicati, interlacciati in un array di byte.
+     *
+     * @param image immagine da verificare
+     * @return <code>true</code> se i campioni possono essere letti
+     * direttamente, <code>false</code> altrimenti
+     */
+    private static boolean isInterleavedRGB(BufferedImage image) {
+        ColorModel cm = image.getColorModel();
+        return cm instanceof ComponentColorModel && cm.getColorSpace().isCS_sRGB() && !cm.isAlphaPremultiplied()
+                && image.getRaster().getDataBuffer() instanceof DataBufferByte
+                && image.getRaster().getSampleModel() instanceof PixelInterleavedSampleModel
+                && image.getRaster().getNumBands() >= 3;
+    }
+
+    /**
+     * Ritorna i thread di conversione, creandoli alla prima richiesta.
+     *
+     * @return esecutore dei thread di conversione
+     */
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "grayscale-converter");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,169 @@
+package png.manager.gui;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Conserva le immagini decodificate dei file aperti di recente, così da non
+ * doverli analizzare e decodificare nuovamente.
+ * <p>
+ * Ogni file è identificato dal percorso, dalla data di ultima modifica e dalla
+ * dimensione, così che un file modificato venga decodificato di nuovo. Quando
+ * la memoria occupata dai pixel supera la dimensione massima, vengono rimossi
+ * i file usati meno di recente. La dimensione massima, in megabyte, può essere
+ * impostata con la proprietà di sistema <code>png.manager.cache.size</code>.
+ */
+class ImageCache {
+
+    /**
+     * Proprietà di sistema con cui impostare la dimensione massima, in
+     * megabyte.
+     */
+    static final String CACHE_SIZE_PROPERTY = "png.manager.cache.size";
+    /**
+     * Dimensione massima predefinita, in megabyte.
+     */
+    private static final long DEFAULT_CACHE_SIZE = 512;
+
+    /**
+     * Immagini conservate, in ordine di utilizzo.
+     */
+    private static final LinkedHashMap<String, CachedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Memoria occupata da ciascun elemento, calcolata al momento
+     * dell'inserimento.
+     */
+    private static final HashMap<String, Long> sizes = new HashMap<>();
+    /**
+     * Memoria occupata complessivamente, in byte.
+     */
+    private static long cachedBytes = 0;
+    /**
+     * Dimensione massima, in byte.
+     */
+    private static long maxSize = Long.getLong(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE) << 20;
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private ImageCache() {
+    }
+
+    /**
+     * Ritorna la chiave che identifica il contenuto corrente del file in
+     * input.
+     *
+     * @param path percorso del file
+     * @return chiave del file
+     */
+    static String getKey(String path) {
+        File file = new File(path).getAbsoluteFile();
+        return file.getPath() + "|" + file.lastModified() + "|" + file.length();
+    }
+
+    /**
+     * Ritorna le immagini conservate per la chiave in input, segnandole come
+     * usate di recente.
+     *
+     * @param key chiave del file
+     * @return immagini del file; null se non presenti
+     */
+    static synchronized CachedImage get(String key) {
+        if (key == null) {
+            return null;
+        }
+        return images.get(key);
+    }
+
+    /**
+     * Verifica se sono conservate immagini per la chiave in input, senza
+     * segnarle come usate di recente.
+     *
+     * @param key chiave del file
+     * @return <code>true</code> se le immagini sono presenti,
+     * <code>false</code> altrimenti
+     */
+    static synchronized boolean contains(String key) {
+        return images.containsKey(key);
+    }
+
+    /**
+     * Inserisce o aggiorna le immagini del file in input e rimuove quelle
+     * usate meno di recente finché la memoria occupata non rientra nella
+     * dimensione massima.
+     * <p>
+     * Va richiamato anche dopo aver aggiunto una variante a un elemento già
+     * presente, così da aggiornarne la dimensione.
+     *
+     * @param key chiave del file
+     * @param image immagini del file
+     */
+    static synchronized void put(String key, CachedImage image) {
+        remove(key);
+        long size = image.getSize();
+        if (size > maxSize) {
+            return;
+        }
+
+        images.put(key, image);
+        sizes.put(key, size);
+        cachedBytes += size;
+        evict();
+    }
+
+    /**
+     * Ritorna la dimensione massima.
+     *
+     * @return dimensione massima, in byte
+     */
+    static synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Imposta la dimensione massima.
+     *
+     * @param bytes dimensione massima, in byte
+     */
+    static synchronized void setMaxSize(long bytes) {
+        maxSize = bytes;
+        evict();
+    }
+
+    /**
+     * Rimuove tutte le immagini conservate.
+     */
+    static synchronized void clear() {
+        images.clear();
+        sizes.clear();
+        cachedBytes = 0;
+    }
+
+    /**
+     * Rimuove le immagini del file in input.
+     *
+     * @param key chiave del file
+     */
+    private static void remove(String key) {
+        images.remove(key);
+        Long size = sizes.remove(key);
+        if (size != null) {
+            cachedBytes -= size;
+        }
+    }
+
+    /**
+     * Rimuove le immagini usate meno di recente finché la memoria occupata non
+     * rientra nella dimensione massima.
+     */
+    private static void evict() {
+        Iterator<Map.Entry<String, CachedImage>> it = images.entrySet().iterator();
+        while (cachedBytes > maxSize && it.hasNext()) {
+            cachedBytes -= sizes.remove(it.next().getKey());
+            it.remove();
+        }
+    }
+}
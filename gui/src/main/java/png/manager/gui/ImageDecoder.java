@@ -0,0 +1,97 @@
+package png.manager.gui;
+
+import java.awt.image.BufferedImage;
+
+import png.manager.awt.RawImageAdapter;
+import png.manager.decoder.Decoder;
+import png.manager.decoder.DecoderProvider;
+import png.manager.decoder.DecoderSelector;
+import png.manager.decoder.DecodingListener;
+import png.manager.entity.PNGImage;
+import png.manager.entity.RawImage;
+import png.manager.exception.DecodingException;
+import png.manager.exception.PNGStructureException;
+
+/**
+ * Decodifica l'immagine per visualizzarla nell'interfaccia grafica.
+ */
+class ImageDecoder {
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private ImageDecoder() {
+    }
+
+    /**
+     * Richiama il decoder in input sull'immagine e la converte per la
+     * visualizzazione.
+     *
+     * @param pngImage immagine risultato del parsing
+     * @param decoder decoder da utilizzare per la decodifica
+     * @return immagine pronta per la visualizzazione
+     * @throws PNGStructureException - se l'immagine non rispetta i requisiti
+     * del formato
+     * @throws DecodingException - se occorrono errori in fase di parsing o se
+     * l'immagine è troppo grande per essere visualizzata per intero
+     */
+    static BufferedImage getImage(PNGImage pngImage, DecoderProvider decoder) throws PNGStructureException, DecodingException {
+        return getImage(pngImage, decoder, null);
+    }
+
+    /**
+     * Richiama il decoder in input sull'immagine e la converte per la
+     * visualizzazione, comunicando l'avanzamento all'ascoltatore in input.
+     *
+     * @param pngImage immagine risultato del parsing
+     * @param decoder decoder da utilizzare per la decodifica
+     * @param listener ascoltatore dell'avanzamento; null se assente
+     * @return immagine pronta per la visualizzazione
+     * @throws PNGStructureException - se l'immagine non rispetta i requisiti
+     * del formato
+     * @throws DecodingException - se occorrono errori in fase di parsing, se
+     * l'immagine è troppo grande per essere visualizzata per intero o se la
+     * decodifica viene interrotta
+     */
+    static BufferedImage getImage(PNGImage pngImage, DecoderProvider decoder, DecodingListener listener) throws PNGStructureException, DecodingException {
+        RawImage rawImage = Decoder.getRawImage(pngImage, decoder, listener);
+        if (!rawImage.isContiguous()) {
+            throw new DecodingException("Immagine troppo grande per essere visualizzata.");
+        }
+        System.out.println(pngImage);
+        System.out.println(pngImage.getInfo());
+        return RawImageAdapter.toBufferedImage(rawImage);
+    }
+
+    /**
+     * Seleziona il decoder per l'immagine in input tramite il
+     * {@link DecoderSelector}.
+     *
+     * @param pngImage immagine risultato del parsing
+     * @return decoder da utilizzare
+     * @throws DecodingException - se nessun decoder supporta il formato
+     * dell'immagine
+     */
+    static DecoderProvider selectDecoder(PNGImage pngImage) throws DecodingException {
+        DecoderProvider decoder = DecoderSelector.selectDecoder(pngImage);
+        if (decoder == null) {
+            throw new DecodingException("Nessun decoder disponibile per il formato dell'immagine.");
+        }
+        return decoder;
+    }
+
+    /**
+     * Ritorna il decoder di Java, usato per visualizzare l'immagine con i
+     * metadati.
+     *
+     * @return decoder di Java
+     * @throws DecodingException - se il decoder non è disponibile
+     */
+    static DecoderProvider getExternalDecoder() throws DecodingException {
+        DecoderProvider decoder = Decoder.getProvider(ExternalDecoderProvider.NAME);
+        if (decoder == null) {
+            throw new DecodingException("Decoder " + ExternalDecoderProvider.NAME + " non disponibile.");
+        }
+        return decoder;
+    }
+}
@@ -0,0 +1,217 @@
+package png.manager.gui;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+import png.manager.awt.RawImageAdapter;
+import png.manager.decoder.Adam7;
+import png.manager.decoder.Decoder;
+import png.manager.decoder.DecoderProvider;
+import png.manager.decoder.DecodingListener;
+import png.manager.decoder.DecodingStage;
+import png.manager.entity.PNGImage;
+import png.manager.entity.RawImage;
+
+/**
+ * Apre un'immagine in background, fuori dal thread dell'interfaccia grafica.
+ * <p>
+ * L'avanzamento di ciascuna fase viene pubblicato, in percentuale, solo quando
+ * cambia, e mostrato dall'interfaccia grafica. Le righe già decodificate e,
+ * per le immagini interlacciate, le anteprime delle passate vengono mostrate
+ * man mano che sono disponibili. L'apertura può essere annullata
+ * con {@link #cancel(boolean)}: l'interruzione del thread viene rilevata tra
+ * un chunk e l'altro e tra una scanline e l'altra. Al termine, anche in caso
+ * di errore o annullamento, il risultato viene consegnato a
+ * {@link UI#imageLoaded(ImageLoader)}.
+ */
+class ImageLoader extends SwingWorker<Void, int[]> {
+
+    /**
+     * Percorso dell'immagine da aprire.
+     */
+    private final String path;
+    /**
+     * Ultima percentuale pubblicata per ciascuna fase.
+     */
+    private final int[] lastPercent = new int[DecodingStage.values().length];
+    /**
+     * Immagine risultato del parsing.
+     */
+    private PNGImage parsedImage;
+    /**
+     * Immagine decodificata; null se l'immagine viene visualizzata a riquadri.
+     */
+    private BufferedImage image;
+    /**
+     * Sorgente dei riquadri; null se l'immagine è stata decodificata per
+     * intero.
+     */
+    private TiledImageSource tiledImage;
+    /**
+     * Flag che indica se l'immagine è stata decodificata tenendo già conto
+     * dei metadati.
+     */
+    private boolean decodedWithMeta;
+
+    /**
+     * Costruisce l'oggetto memorizzando il percorso in input.
+     *
+     * @param path percorso dell'immagine da aprire
+     */
+    ImageLoader(String path) {
+        this.path = path;
+        for (int i = 0; i < lastPercent.length; i++) {
+            lastPercent[i] = -1;
+        }
+    }
+
+    /**
+     * Effettua parsing, controllo e decodifica dell'immagine.
+     *
+     * @return nulla
+     * @throws Exception - se occorrono errori in una delle fasi o se
+     * l'apertura viene annullata
+     */
+    @Override
+    protected Void doInBackground() throws Exception {
+        DecodingListener listener = new DecodingListener() {
+            @Override
+            public void stageProgress(DecodingStage stage, long done, long total) {
+                int percent = total > 0 ? (int) Math.min(100, done * 100 / total) : 0;
+                if (percent != lastPercent[stage.ordinal()]) {
+                    lastPercent[stage.ordinal()] = percent;
+                    publish(new int[]{stage.ordinal(), percent});
+                }
+            }
+
+            @Override
+            public void rowsDecoded(RawImage image, int firstRow, int rows) {
+                //L'ultimo gruppo di righe è mostrato insieme all'immagine completa
+                if (firstRow + rows < image.getHeight()) {
+                    showRegion(RawImageAdapter.toBufferedImage(image, firstRow, rows), firstRow);
+                }
+            }
+
+            @Override
+            public void passDecoded(RawImage image, int pass) {
+                if (pass < Adam7.PASSES - 1) {
+                    //Solo i pixel noti: i blocchi vengono ingranditi dal pannello
+                    showPreview(RawImageAdapter.toBufferedImage(Adam7.reduce(image, pass)), pass);
+                }
+            }
+        };
+
+        parsedImage = Decoder.getPNGImageFromFile(path, listener);
+        if (TiledImageSource.isTiledImage(parsedImage)) {
+            //Immagine troppo grande: viene decodificata a riquadri, su richiesta
+            Decoder.checkImage(parsedImage, listener);
+            tiledImage = new TiledImageSource(parsedImage);
+            if (isCancelled()) {
+                tiledImage.close();
+            }
+            return null;
+        }
+
+        DecoderProvider decoderUsed = ImageDecoder.selectDecoder(parsedImage);
+        image = ImageDecoder.getImage(parsedImage, decoderUsed, listener);
+        decodedWithMeta = decoderUsed.getName().equals(ExternalDecoderProvider.NAME);
+        return null;
+    }
+
+    /**
+     * Mostra nell'interfaccia grafica una porzione dell'immagine in
+     * decodifica, larga quanto l'immagine.
+     *
+     * @param region porzione di immagine decodificata
+     * @param y riga in cui mostrare la porzione
+     */
+    private void showRegion(final BufferedImage region, final int y) {
+        final PNGImage image = parsedImage;
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                UI.showPartialImage(ImageLoader.this, image, region, y);
+            }
+        });
+    }
+
+    /**
+     * Mostra nell'interfaccia grafica l'anteprima disponibile al termine di
+     * una passata Adam7.
+     *
+     * @param preview anteprima con un pixel per blocco
+     * @param pass indice della passata completata
+     */
+    private void showPreview(final BufferedImage preview, final int pass) {
+        final PNGImage image = parsedImage;
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                UI.showPartialPreview(ImageLoader.this, image, preview, Adam7.getBlockWidth(pass), Adam7.getBlockHeight(pass));
+            }
+        });
+    }
+
+    /**
+     * Mostra nell'interfaccia grafica l'avanzamento pubblicato.
+     *
+     * @param chunks avanzamenti pubblicati, come coppie fase-percentuale
+     */
+    @Override
+    protected void process(List<int[]> chunks) {
+        for (int[] progress : chunks) {
+            UI.setStageProgress(DecodingStage.values()[progress[0]], progress[1]);
+        }
+    }
+
+    /**
+     * Consegna il risultato all'interfaccia grafica.
+     */
+    @Override
+    protected void done() {
+        UI.imageLoaded(this);
+    }
+
+    /**
+     * Ritorna l'immagine risultato del parsing.
+     *
+     * @return immagine risultato del parsing; null se il parsing non è
+     * terminato con successo
+     */
+    PNGImage getParsedImage() {
+        return parsedImage;
+    }
+
+    /**
+     * Ritorna l'immagine decodificata.
+     *
+     * @return immagine decodificata; null se l'immagine viene visualizzata a
+     * riquadri
+     */
+    BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Ritorna la sorgente dei riquadri.
+     *
+     * @return sorgente dei riquadri; null se l'immagine è stata decodificata
+     * per intero
+     */
+    TiledImageSource getTiledImage() {
+        return tiledImage;
+    }
+
+    /**
+     * Verifica se l'immagine è stata decodificata tenendo già conto dei
+     * metadati.
+     *
+     * @return <code>true</code> se l'immagine tiene già conto dei metadati,
+     * <code>false</code> altrimenti
+     */
+    boolean isDecodedWithMeta() {
+        return decodedWithMeta;
+    }
+}
@@ -0,0 +1,370 @@
+package png.manager.gui;
+
+import java.awt.Color;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.awt.image.BufferedImage;
+import javax.swing.JPanel;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Modella il pannello che contiene, all'interno dell'interfaccia grafica,
+ * l'immagine PNG decodificata.
+ * <p>
+ * L'immagine può essere già interamente decodificata, in corso di decodifica
+ * e riempita progressivamente, oppure fornita a riquadri da una
+ * {@link TiledImageSource}; in questo caso vengono disegnati solo i riquadri
+ * visibili, richiedendo la decodifica di quelli mancanti.
+ * <p>
+ * L'immagine può essere ingrandita o ridotta; viene sempre disegnata solo la
+ * porzione visibile e, per gli ingrandimenti inferiori all'originale, la
+ * porzione viene presa dal livello adatto di una {@link MipmapPyramid}, così
+ * che il tempo di disegno dipenda dall'area visibile e non dalle dimensioni
+ * dell'immagine. Le immagini a riquadri possono solo essere ingrandite, per
+ * non richiedere la decodifica dell'intera immagine.
+ */
+public class ImagePanel extends JPanel {
+
+    /**
+     * Colore dei riquadri non ancora decodificati.
+     */
+    private static final Color PLACEHOLDER_COLOR = Color.LIGHT_GRAY;
+    /**
+     * Fattore di ingrandimento applicato ad ogni passo di zoom.
+     */
+    public static final double ZOOM_STEP = 2;
+    /**
+     * Ingrandimento minimo.
+     */
+    private static final double MIN_ZOOM = 1.0 / 64;
+    /**
+     * Ingrandimento massimo.
+     */
+    private static final double MAX_ZOOM = 16;
+
+    /**
+     * Immagine da contenere.
+     */
+    private final BufferedImage image;
+    /**
+     * Sorgente dei riquadri dell'immagine da contenere.
+     */
+    private final TiledImageSource tiledImage;
+    /**
+     * Versioni ridotte dell'immagine; null se non ancora richieste.
+     */
+    private MipmapPyramid pyramid = null;
+    /**
+     * Ingrandimento corrente.
+     */
+    private double zoom = 1;
+
+    /**
+     * Costruisce l'oggetto memorizzando l'immagine in input.
+     *
+     * @param image immagine da visualizzare
+     */
+    public ImagePanel(BufferedImage image) {
+        this.image = image;
+        this.tiledImage = null;
+        if (image != null) {
+            this.setSize(new Dimension(image.getWidth(), image.getHeight()));
+            this.setPreferredSize(new Dimension(image.getWidth(), image.getHeight()));
+        }
+        addZoomListener();
+    }
+
+    /**
+     * Costruisce un pannello vuoto delle dimensioni in input, da riempire
+     * progressivamente con {@link #drawRegion(BufferedImage, int, int)}
+     * durante la decodifica.
+     *
+     * @param width larghezza dell'immagine in decodifica
+     * @param height altezza dell'immagine in decodifica
+     */
+    public ImagePanel(int width, int height) {
+        this(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+    }
+
+    /**
+     * Costruisce l'oggetto memorizzando la sorgente dei riquadri in input.
+     *
+     * @param tiledImage sorgente dei riquadri dell'immagine da visualizzare
+     */
+    public ImagePanel(TiledImageSource tiledImage) {
+        this.image = null;
+        this.tiledImage = tiledImage;
+        this.setSize(new Dimension(tiledImage.getWidth(), tiledImage.getHeight()));
+        this.setPreferredSize(new Dimension(tiledImage.getWidth(), tiledImage.getHeight()));
+        tiledImage.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                repaint();
+            }
+        });
+        addZoomListener();
+    }
+
+    /**
+     * Registra l'ascoltatore che modifica l'ingrandimento con la rotella del
+     * mouse e il tasto Ctrl premuto. Gli altri eventi della rotella vengono
+     * inoltrati al contenitore, così da non impedire lo scorrimento.
+     */
+    private void addZoomListener() {
+        addMouseWheelListener(new MouseWheelListener() {
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if (e.isControlDown()) {
+                    setZoom(e.getWheelRotation() < 0 ? zoom * ZOOM_STEP : zoom / ZOOM_STEP);
+                } else if (getParent() != null) {
+                    getParent().dispatchEvent(SwingUtilities.convertMouseEvent(ImagePanel.this, e, getParent()));
+                }
+            }
+        });
+    }
+
+    /**
+     * Ritorna l'ingrandimento corrente.
+     *
+     * @return ingrandimento, pari a 1 per le dimensioni reali
+     */
+    public double getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Modifica l'ingrandimento dell'immagine, mantenendo al centro dell'area
+     * visibile lo stesso punto dell'immagine.
+     * <p>
+     * L'ingrandimento viene limitato all'intervallo consentito.
+     *
+     * @param zoom nuovo ingrandimento, pari a 1 per le dimensioni reali
+     */
+    public void setZoom(double zoom) {
+        double minZoom = tiledImage != null ? 1 : MIN_ZOOM;
+        zoom = Math.max(minZoom, Math.min(MAX_ZOOM, zoom));
+        if (zoom == this.zoom || (image == null && tiledImage == null)) {
+            return;
+        }
+
+        Rectangle visible = getVisibleRect();
+        double centerX = (visible.x + visible.width / 2.0) / this.zoom;
+        double centerY = (visible.y + visible.height / 2.0) / this.zoom;
+        this.zoom = zoom;
+        Dimension size = new Dimension((int) Math.ceil(getImageWidth() * zoom), (int) Math.ceil(getImageHeight() * zoom));
+        setSize(size);
+        setPreferredSize(size);
+        revalidate();
+
+        Container parent = getParent();
+        if (parent instanceof JViewport) {
+            JViewport viewport = (JViewport) parent;
+            int x = (int) (centerX * zoom - viewport.getWidth() / 2.0);
+            int y = (int) (centerY * zoom - viewport.getHeight() / 2.0);
+            x = Math.max(0, Math.min(x, size.width - viewport.getWidth()));
+            y = Math.max(0, Math.min(y, size.height - viewport.getHeight()));
+            viewport.setViewPosition(new Point(x, y));
+        }
+        repaint();
+    }
+
+    /**
+     * Ritorna la larghezza dell'immagine contenuta.
+     *
+     * @return larghezza in pixel dell'immagine non ingrandita; 0 se il pannello
+     * è vuoto
+     */
+    public int getImageWidth() {
+        if (image != null) {
+            return image.getWidth();
+        }
+        return tiledImage != null ? tiledImage.getWidth() : 0;
+    }
+
+    /**
+     * Ritorna l'altezza dell'immagine contenuta.
+     *
+     * @return altezza in pixel dell'immagine non ingrandita; 0 se il pannello
+     * è vuoto
+     */
+    public int getImageHeight() {
+        if (image != null) {
+            return image.getHeight();
+        }
+        return tiledImage != null ? tiledImage.getHeight() : 0;
+    }
+
+    /**
+     * Copia una porzione di immagine nella posizione in input e ridisegna
+     * solo l'area modificata. Dei livelli ridotti già costruiti viene
+     * aggiornata solo l'area corrispondente, così che il costo di ogni
+     * porzione non dipenda dalle dimensioni dell'immagine.
+     *
+     * @param region porzione di immagine decodificata
+     * @param x colonna in cui copiare la porzione
+     * @param y riga in cui copiare la porzione
+     */
+    public void drawRegion(BufferedImage region, int x, int y) {
+        if (image == null) {
+            return;
+        }
+        Graphics g = image.getGraphics();
+        try {
+            g.drawImage(region, x, y, null);
+        } finally {
+            g.dispose();
+        }
+        if (pyramid != null) {
+            pyramid.update(x, y, region.getWidth(), region.getHeight());
+        }
+        repaint((int) (x * zoom), (int) (y * zoom), (int) Math.ceil(region.getWidth() * zoom) + 1, (int) Math.ceil(region.getHeight() * zoom) + 1);
+    }
+
+    /**
+     * Copia sull'intera immagine un'anteprima a risoluzione ridotta,
+     * ingrandendo ciascun pixel dell'anteprima sul blocco che rappresenta.
+     *
+     * @param preview anteprima con un pixel per blocco
+     * @param blockWidth larghezza di ciascun blocco
+     * @param blockHeight altezza di ciascun blocco
+     */
+    public void drawPreview(BufferedImage preview, int blockWidth, int blockHeight) {
+        if (image == null) {
+            return;
+        }
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            g.drawImage(preview, 0, 0, preview.getWidth() * blockWidth, preview.getHeight() * blockHeight, null);
+        } finally {
+            g.dispose();
+        }
+        if (pyramid != null) {
+            pyramid.update(0, 0, image.getWidth(), image.getHeight());
+        }
+        repaint();
+    }
+
+    /**
+     * Disegna il pannello e l'immagine al suo interno.
+     * <p>
+     * Se non vi è alcuna immagine crea un pannello vuoto.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (image != null) {
+            paintImage((Graphics2D) g);
+        } else if (tiledImage != null) {
+            paintTiles((Graphics2D) g);
+        }
+    }
+
+    /**
+     * Ritorna l'area del pannello da ridisegnare, ossia l'intersezione tra
+     * l'area visibile e quella del contesto grafico.
+     *
+     * @param g contesto grafico del pannello
+     * @return area da ridisegnare, eventualmente vuota
+     */
+    private Rectangle getPaintArea(Graphics g) {
+        Rectangle area = getVisibleRect();
+        Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            area = area.intersection(clip);
+        }
+        return area;
+    }
+
+    /**
+     * Disegna la porzione visibile dell'immagine all'ingrandimento corrente.
+     * <p>
+     * Se l'immagine è ridotta, la porzione viene presa dal livello della
+     * piramide più vicino all'ingrandimento, così da ridimensionare al più di
+     * un fattore 2 e solo i pixel visibili.
+     *
+     * @param g contesto grafico del pannello
+     */
+    private void paintImage(Graphics2D g) {
+        Rectangle area = getPaintArea(g);
+        if (area.isEmpty()) {
+            return;
+        }
+
+        BufferedImage source = image;
+        double scale = zoom;
+        if (zoom < 1) {
+            if (pyramid == null) {
+                pyramid = new MipmapPyramid(image);
+            }
+            int level = pyramid.getLevelFor(zoom);
+            source = pyramid.getLevel(level);
+            scale = zoom * image.getWidth() / source.getWidth();
+        }
+        if (scale == 1) {
+            g.drawImage(source, area.x, area.y, area.x + area.width, area.y + area.height, area.x, area.y, area.x + area.width, area.y + area.height, null);
+            return;
+        }
+
+        int sx1 = (int) Math.floor(area.x / scale);
+        int sy1 = (int) Math.floor(area.y / scale);
+        int sx2 = Math.min(source.getWidth(), (int) Math.ceil((area.x + area.width) / scale));
+        int sy2 = Math.min(source.getHeight(), (int) Math.ceil((area.y + area.height) / scale));
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, scale > 1 ? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, (int) Math.round(sx1 * scale), (int) Math.round(sy1 * scale), (int) Math.round(sx2 * scale), (int) Math.round(sy2 * scale), sx1, sy1, sx2, sy2, null);
+    }
+
+    /**
+     * Disegna i riquadri che intersecano l'area visibile del pannello.
+     * <p>
+     * Le richieste per le bande non più visibili vengono annullate, così che
+     * il thread di decodifica si occupi solo di quelle effettivamente
+     * mostrate.
+     *
+     * @param g contesto grafico del pannello
+     */
+    private void paintTiles(Graphics2D g) {
+        Rectangle area = getPaintArea(g);
+        if (area.isEmpty()) {
+            return;
+        }
+
+        //Lato del riquadro una volta ingrandito
+        double size = TiledImageSource.TILE_SIZE * zoom;
+        int firstX = Math.max(0, (int) (area.x / size));
+        int firstY = Math.max(0, (int) (area.y / size));
+        int lastX = Math.min(tiledImage.getTilesX() - 1, (int) ((area.x + area.width - 1) / size));
+        int lastY = Math.min(tiledImage.getTilesY() - 1, (int) ((area.y + area.height - 1) / size));
+
+        Rectangle visible = getVisibleRect();
+        tiledImage.retainBands((int) (visible.y / size), (int) ((visible.y + visible.height - 1) / size));
+
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        int tileSize = TiledImageSource.TILE_SIZE;
+        for (int ty = firstY; ty <= lastY; ty++) {
+            for (int tx = firstX; tx <= lastX; tx++) {
+                int x1 = (int) Math.round(tx * size);
+                int y1 = (int) Math.round(ty * size);
+                int x2 = (int) Math.round(Math.min(tiledImage.getWidth(), (tx + 1) * tileSize) * zoom);
+                int y2 = (int) Math.round(Math.min(tiledImage.getHeight(), (ty + 1) * tileSize) * zoom);
+                BufferedImage tile = tiledImage.getTile(tx, ty);
+                if (tile != null) {
+                    g.drawImage(tile, x1, y1, x2, y2, 0, 0, tile.getWidth(), tile.getHeight(), null);
+                } else {
+                    g.setColor(PLACEHOLDER_COLOR);
+                    g.fillRect(x1, y1, x2 - x1, y2 - y1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package png.manager.gui;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import png.manager.decoder.Decoder;
+import png.manager.decoder.DecoderProvider;
+import png.manager.entity.PNGImage;
+
+/**
+ * Analizza e decodifica in background le immagini che seguono quella
+ * visualizzata nella sua cartella, così che aprirle sia immediato.
+ * <p>
+ * Le immagini decodificate vengono inserite nella {@link ImageCache}, da cui
+ * l'apertura le riprende. Vengono preparate al più
+ * <code>png.manager.prefetch.count</code> immagini, nell'ordine in cui
+ * verranno aperte, finché la memoria stimata dei loro pixel non supera
+ * <code>png.manager.prefetch.size</code> megabyte, e comunque metà della
+ * dimensione della cache. Le immagini da visualizzare a riquadri non vengono
+ * preparate. Ogni nuova richiesta annulla quella in corso.
+ */
+class ImagePrefetcher {
+
+    /**
+     * Proprietà di sistema con cui impostare il numero massimo di immagini da
+     * preparare.
+     */
+    static final String PREFETCH_COUNT_PROPERTY = "png.manager.prefetch.count";
+    /**
+     * Proprietà di sistema con cui impostare la memoria massima, in megabyte,
+     * delle immagini da preparare.
+     */
+    static final String PREFETCH_SIZE_PROPERTY = "png.manager.prefetch.size";
+    /**
+     * Numero massimo predefinito di immagini da preparare.
+     */
+    private static final int DEFAULT_PREFETCH_COUNT = 3;
+    /**
+     * Memoria massima predefinita delle immagini da preparare, in megabyte.
+     */
+    private static final long DEFAULT_PREFETCH_SIZE = 256;
+
+    /**
+     * Thread di preparazione, a bassa priorità.
+     */
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "image-prefetcher");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }
+    });
+    /**
+     * Preparazione in corso; null se assente.
+     */
+    private static Future<?> current = null;
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private ImagePrefetcher() {
+    }
+
+    /**
+     * Avvia la preparazione delle immagini che seguono quella in input nella
+     * direzione di scorrimento, annullando quella in corso.
+     *
+     * @param path percorso dell'immagine visualizzata
+     * @param step direzione di scorrimento: 1 per le successive, -1 per le
+     * precedenti
+     */
+    static synchronized void prefetch(String path, int step) {
+        cancel();
+
+        List<String> images = GUIUtility.getDirectoryImages(new File(path).getAbsoluteFile().getParentFile());
+        int index = images.indexOf(new File(path).getAbsoluteFile().getPath());
+        if (index < 0) {
+            return;
+        }
+
+        int count = Integer.getInteger(PREFETCH_COUNT_PROPERTY, DEFAULT_PREFETCH_COUNT);
+        final ArrayList<String> toPrefetch = new ArrayList<>();
+        for (int i = 1; i <= count && index + i * step >= 0 && index + i * step < images.size(); i++) {
+            toPrefetch.add(images.get(index + i * step));
+        }
+        if (toPrefetch.isEmpty()) {
+            return;
+        }
+
+        final long budget = Math.min(Long.getLong(PREFETCH_SIZE_PROPERTY, DEFAULT_PREFETCH_SIZE) << 20, ImageCache.getMaxSize() / 2);
+        current = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                long used = 0;
+                for (String p : toPrefetch) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    String key = ImageCache.getKey(p);
+                    if (ImageCache.contains(key)) {
+                        continue;
+                    }
+
+                    try {
+                        PNGImage parsed = Decoder.getPNGImageFromFile(p);
+                        if (TiledImageSource.isTiledImage(parsed)) {
+                            continue;
+                        }
+                        used += (long) parsed.getWidth() * parsed.getHeight() * 4;
+                        if (used > budget) {
+                            return;
+                        }
+
+                        DecoderProvider decoder = ImageDecoder.selectDecoder(parsed);
+                        CachedImage cached = new CachedImage(parsed, ImageDecoder.getImage(parsed, decoder), decoder.getName().equals(ExternalDecoderProvider.NAME));
+                        if (!Thread.currentThread().isInterrupted()) {
+                            ImageCache.put(key, cached);
+                        }
+                    } catch (Exception e) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            return;
+                        }
+                        //Le immagini non valide verranno segnalate all'apertura
+                        System.err.println(e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Annulla la preparazione in corso, interrompendone la decodifica.
+     */
+    static synchronized void cancel() {
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package png.manager.gui;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+
+/**
+ * Piramide di versioni ridotte di un'immagine, usata per visualizzarla a
+ * ingrandimenti inferiori all'originale.
+ * <p>
+ * Il livello 0 è l'immagine stessa; ogni livello successivo ha lato pari alla
+ * metà del precedente, ottenuto mediando blocchi di 2x2 pixel. I livelli
+ * vengono costruiti alla prima richiesta e mantenuti per le successive; se
+ * l'immagine originale viene modificata, i livelli già costruiti possono
+ * essere aggiornati solo nell'area modificata con
+ * {@link #update(int, int, int, int)}.
+ */
+public class MipmapPyramid {
+
+    /**
+     * Livelli costruiti finora, a partire dall'immagine originale.
+     */
+    private final ArrayList<BufferedImage> levels = new ArrayList<>();
+
+    /**
+     * Costruisce la piramide dell'immagine in input, senza calcolarne i
+     * livelli.
+     *
+     * @param image immagine originale
+     */
+    public MipmapPyramid(BufferedImage image) {
+        levels.add(image);
+    }
+
+    /**
+     * Ritorna il livello adatto a visualizzare l'immagine all'ingrandimento
+     * in input, ossia il più piccolo non inferiore all'ingrandimento.
+     *
+     * @param zoom ingrandimento dell'immagine
+     * @return indice del livello
+     */
+    public int getLevelFor(double zoom) {
+        int level = 0;
+        int width = levels.get(0).getWidth();
+        int height = levels.get(0).getHeight();
+        while (zoom * 2 <= 1 && (width > 1 || height > 1)) {
+            zoom *= 2;
+            width = (width + 1) / 2;
+            height = (height + 1) / 2;
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Ritorna il livello in input, costruendo quelli mancanti.
+     *
+     * @param level indice del livello
+     * @return immagine ridotta
+     */
+    public BufferedImage getLevel(int level) {
+        while (levels.size() <= level) {
+            levels.add(halve(levels.get(levels.size() - 1)));
+        }
+        return levels.get(level);
+    }
+
+    /**
+     * Aggiorna i livelli già costruiti dopo una modifica dell'immagine
+     * originale, ricalcolando in ciascun livello solo i pixel che dipendono
+     * dall'area modificata.
+     *
+     * @param x colonna dell'area modificata
+     * @param y riga dell'area modificata
+     * @param width larghezza dell'area modificata
+     * @param height altezza dell'area modificata
+     */
+    public void update(int x, int y, int width, int height) {
+        int x1 = x;
+        int y1 = y;
+        int x2 = x + width;
+        int y2 = y + height;
+        for (int level = 1; level < levels.size() && x1 < x2 && y1 < y2; level++) {
+            x1 = x1 / 2;
+            y1 = y1 / 2;
+            x2 = (x2 + 1) / 2;
+            y2 = (y2 + 1) / 2;
+            halve(levels.get(level - 1), levels.get(level), x1, y1, x2, y2);
+        }
+    }
+
+    /**
+     * Riduce l'immagine in input a metà del suo lato.
+     *
+     * @param image immagine da ridurre
+     * @return immagine ridotta
+     */
+    private static BufferedImage halve(BufferedImage image) {
+        int width = (image.getWidth() + 1) / 2;
+        int height = (image.getHeight() + 1) / 2;
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        halve(image, result, 0, 0, width, height);
+        return result;
+    }
+
+    /**
+     * Calcola un'area del livello ridotto come media dei blocchi di 2x2 pixel
+     * corrispondenti del livello precedente. Nell'ultima colonna e
+     * nell'ultima riga di un'immagine di lato dispari il blocco si riduce ai
+     * pixel esistenti, ripetuti.
+     *
+     * @param source livello precedente
+     * @param target livello ridotto
+     * @param x1 prima colonna dell'area del livello ridotto
+     * @param y1 prima riga dell'area del livello ridotto
+     * @param x2 colonna successiva all'ultima dell'area
+     * @param y2 riga successiva all'ultima dell'area
+     */
+    private static void halve(BufferedImage source, BufferedImage target, int x1, int y1, int x2, int y2) {
+        x2 = Math.min(x2, target.getWidth());
+        y2 = Math.min(y2, target.getHeight());
+        if (x1 >= x2 || y1 >= y2) {
+            return;
+        }
+        int sourceX = 2 * x1;
+        int columns = Math.min(source.getWidth(), 2 * x2) - sourceX;
+        int[] upper = new int[columns];
+        int[] lower = new int[columns];
+        int[] row = new int[x2 - x1];
+        for (int y = y1; y < y2; y++) {
+            int sourceY = 2 * y;
+            source.getRGB(sourceX, sourceY, columns, 1, upper, 0, columns);
+            if (sourceY + 1 < source.getHeight()) {
+                source.getRGB(sourceX, sourceY + 1, columns, 1, lower, 0, columns);
+            } else {
+                System.arraycopy(upper, 0, lower, 0, columns);
+            }
+            for (int i = 0; i < row.length; i++) {
+                int left = 2 * i;
+                int right = Math.min(left + 1, columns - 1);
+                row[i] = average(upper[left], upper[right], lower[left], lower[right]);
+            }
+            target.setRGB(x1, y, row.length, 1, row, 0, row.length);
+        }
+    }
+
+    /**
+     * Calcola la media, canale per canale, di quattro pixel ARGB.
+     *
+     * @param a primo pixel
+     * @param b secondo pixel
+     * @param c terzo pixel
+     * @param d quarto pixel
+     * @return pixel medio, arrotondato
+     */
+    private static int average(int a, int b, int c, int d) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int sum = ((a >>> shift) & 0xFF) + ((b >>> shift) & 0xFF) + ((c >>> shift) & 0xFF) + ((d >>> shift) & 0xFF);
+            result |= ((sum + 2) >> 2) << shift;
+        }
+        return result;
+    }
+}
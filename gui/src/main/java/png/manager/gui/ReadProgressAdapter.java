@@ -0,0 +1,128 @@
+package png.manager.gui;
+
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+
+import png.manager.decoder.DecodingListener;
+import png.manager.decoder.DecodingStage;
+
+/**
+ * Inoltra a un {@link DecodingListener} l'avanzamento della lettura di un
+ * {@link ImageReader} e ne richiede l'interruzione se il thread corrente viene
+ * interrotto.
+ * <p>
+ * Il decoder di Java decomprime e defiltra ciascuna riga insieme, per cui
+ * l'avanzamento, in percentuale, viene comunicato per entrambe le fasi.
+ */
+class ReadProgressAdapter implements IIOReadProgressListener {
+
+    /**
+     * Ascoltatore a cui inoltrare l'avanzamento; null se assente.
+     */
+    private final DecodingListener listener;
+
+    /**
+     * Costruisce l'oggetto memorizzando l'ascoltatore in input.
+     *
+     * @param listener ascoltatore a cui inoltrare l'avanzamento; null se
+     * assente
+     */
+    ReadProgressAdapter(DecodingListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Inoltra l'avanzamento della lettura e controlla se il thread corrente è
+     * stato interrotto.
+     *
+     * @param source lettore dell'immagine
+     * @param percentageDone percentuale di lettura completata
+     */
+    @Override
+    public void imageProgress(ImageReader source, float percentageDone) {
+        if (listener != null) {
+            listener.stageProgress(DecodingStage.INFLATE, (long) percentageDone, 100);
+            listener.stageProgress(DecodingStage.DEFILTER, (long) percentageDone, 100);
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            source.abort();
+        }
+    }
+
+    /**
+     * Non utilizzato.
+     *
+     * @param source lettore dell'immagine
+     * @param minIndex indice della prima immagine
+     */
+    @Override
+    public void sequenceStarted(ImageReader source, int minIndex) {
+    }
+
+    /**
+     * Non utilizzato.
+     *
+     * @param source lettore dell'immagine
+     */
+    @Override
+    public void sequenceComplete(ImageReader source) {
+    }
+
+    /**
+     * Non utilizzato.
+     *
+     * @param source lettore dell'immagine
+     * @param imageIndex indice dell'immagine
+     */
+    @Override
+    public void imageStarted(ImageReader source, int imageIndex) {
+    }
+
+    /**
+     * Non utilizzato.
+     *
+     * @param source lettore dell'immagine
+     */
+    @Override
+    public void imageComplete(ImageReader source) {
+    }
+
+    /**
+     * Non utilizzato.
+     *
+     * @param source lettore dell'immagine
+     * @param imageIndex indice dell'immagine
+     * @param thumbnailIndex indice della miniatura
+     */
+    @Override
+    public void thumbnailStarted(ImageReader source, int imageIndex, int thumbnailIndex) {
+    }
+
+    /**
+     * Non utilizzato.
+     *
+     * @param source lettore dell'immagine
+     * @param percentageDone percentuale di lettura completata
+     */
+    @Override
+    public void thumbnailProgress(ImageReader source, float percentageDone) {
+    }
+
+    /**
+     * Non utilizzato.
+     *
+     * @param source lettore dell'immagine
+     */
+    @Override
+    public void thumbnailComplete(ImageReader source) {
+    }
+
+    /**
+     * Non utilizzato.
+     *
+     * @param source lettore dell'immagine
+     */
+    @Override
+    public void readAborted(ImageReader source) {
+    }
+}
@@ -0,0 +1,323 @@
+package png.manager.gui;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import javax.imageio.ImageIO;
+
+import png.manager.awt.RawImageAdapter;
+import png.manager.decoder.Decoder;
+import png.manager.decoder.ScanlineDecoder;
+import png.manager.entity.PNGImage;
+import png.manager.entity.RawImage;
+import png.manager.exception.ChunkParserException;
+import png.manager.exception.DecodingException;
+import png.manager.exception.PNGStructureException;
+import png.manager.miscellaneous.PNGConstants;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Crea le miniature delle immagini e le conserva su disco.
+ * <p>
+ * Ogni miniatura viene salvata come file PNG il cui nome è l'impronta SHA-1
+ * del percorso, della data di ultima modifica e della dimensione del file
+ * d'origine, così che un file modificato ottenga una nuova miniatura. La
+ * cartella predefinita è <code>.png-manager/thumbnails</code> nella cartella
+ * dell'utente, e può essere cambiata con la proprietà di sistema
+ * <code>png.manager.thumbnails.dir</code>.
+ * <p>
+ * Come nella {@link png.manager.decoder.DiskCache}, la data di modifica di
+ * ciascuna miniatura viene aggiornata a ogni lettura e, quando la dimensione
+ * complessiva supera quella massima, vengono eliminate le miniature usate meno
+ * di recente, comprese quelle di file modificati o rimossi. La dimensione
+ * massima, in megabyte, può essere impostata con la proprietà
+ * <code>png.manager.thumbnails.size</code>.
+ * <p>
+ * Le immagini non interlacciate vengono decodificate riga per riga,
+ * conservando solo le righe campionate, così che la memoria usata non dipenda
+ * dall'altezza dell'immagine.
+ */
+class ThumbnailCache {
+
+    /**
+     * Proprietà di sistema con cui indicare la cartella delle miniature.
+     */
+    static final String THUMBNAILS_DIR_PROPERTY = "png.manager.thumbnails.dir";
+    /**
+     * Proprietà di sistema con cui impostare la dimensione massima delle
+     * miniature su disco, in megabyte.
+     */
+    static final String THUMBNAILS_SIZE_PROPERTY = "png.manager.thumbnails.size";
+    /**
+     * Lato massimo, in pixel, di una miniatura.
+     */
+    static final int THUMBNAIL_SIZE = 128;
+
+    /**
+     * Dimensione massima predefinita, in megabyte.
+     */
+    private static final long DEFAULT_CACHE_SIZE = 256;
+    /**
+     * Estensione dei file delle miniature.
+     */
+    private static final String FILE_EXTENSION = ".png";
+    /**
+     * Cartella delle miniature.
+     */
+    private static final Path directory = Paths.get(System.getProperty(THUMBNAILS_DIR_PROPERTY,
+            System.getProperty("user.home") + File.separator + ".png-manager" + File.separator + "thumbnails"));
+    /**
+     * Dimensione massima delle miniature su disco, in byte.
+     */
+    private static final long maxSize = Long.getLong(THUMBNAILS_SIZE_PROPERTY, DEFAULT_CACHE_SIZE) << 20;
+    /**
+     * Dimensione complessiva stimata delle miniature su disco, in byte; -1 se
+     * la cartella non è ancora stata letta.
+     */
+    private static long totalSize = -1;
+
+    /**
+     * Costruttore privato dell'oggetto.
+     */
+    private ThumbnailCache() {
+    }
+
+    /**
+     * Ritorna la miniatura dell'immagine in input, leggendola dal disco se
+     * presente e altrimenti creandola e salvandola.
+     *
+     * @param path percorso dell'immagine
+     * @return miniatura dell'immagine
+     * @throws ChunkParserException - se occorrono errori in fase di parsing o
+     * se la lettura viene interrotta
+     * @throws PNGStructureException - se l'immagine non rispetta i requisiti
+     * del formato
+     * @throws DecodingException - se occorrono errori in fase di decodifica o
+     * se la decodifica viene interrotta
+     */
+    static BufferedImage getThumbnail(String path) throws ChunkParserException, PNGStructureException, DecodingException {
+        Path file = directory.resolve(getFileName(path));
+        if (Files.isRegularFile(file)) {
+            try {
+                BufferedImage thumbnail = ImageIO.read(file.toFile());
+                if (thumbnail != null) {
+                    //Aggiorna la data di modifica, usata come data di ultimo utilizzo
+                    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                    return thumbnail;
+                }
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+
+        BufferedImage thumbnail = createThumbnail(path);
+        store(file, thumbnail);
+        return thumbnail;
+    }
+
+    /**
+     * Crea la miniatura dell'immagine in input.
+     *
+     * @param path percorso dell'immagine
+     * @return miniatura, con lato maggiore pari al più a
+     * {@link #THUMBNAIL_SIZE}
+     * @throws ChunkParserException - se occorrono errori in fase di parsing o
+     * se la lettura viene interrotta
+     * @throws PNGStructureException - se l'immagine non rispetta i requisiti
+     * del formato
+     * @throws DecodingException - se occorrono errori in fase di decodifica o
+     * se la decodifica viene interrotta
+     */
+    static BufferedImage createThumbnail(String path) throws ChunkParserException, PNGStructureException, DecodingException {
+        PNGImage image = Decoder.getPNGImageFromFile(path);
+        Decoder.checkImage(image);
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int step = Math.max(1, Math.max(width, height) / THUMBNAIL_SIZE);
+        RawImage sampled;
+        if (image.getInterlacingMethod() == PNGConstants.NO_INTERLACE) {
+            sampled = decodeSampledRows(image, step);
+        } else {
+            sampled = Decoder.getRawImage(image);
+        }
+
+        int thumbnailWidth = Math.max(1, (int) ((long) width * THUMBNAIL_SIZE / Math.max(width, height)));
+        int thumbnailHeight = Math.max(1, (int) ((long) height * THUMBNAIL_SIZE / Math.max(width, height)));
+        BufferedImage source = RawImageAdapter.toBufferedImage(sampled);
+        BufferedImage thumbnail = new BufferedImage(thumbnailWidth, thumbnailHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = thumbnail.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, 0, 0, thumbnailWidth, thumbnailHeight, null);
+        } finally {
+            g.dispose();
+        }
+        return thumbnail;
+    }
+
+    /**
+     * Decodifica una riga ogni <code>step</code> dell'immagine in input,
+     * scartando le altre.
+     *
+     * @param image immagine non interlacciata
+     * @param step distanza tra le righe conservate
+     * @return campioni delle righe conservate
+     * @throws DecodingException - se occorrono errori in fase di decodifica o
+     * se la decodifica viene interrotta
+     */
+    private static RawImage decodeSampledRows(PNGImage image, int step) throws DecodingException {
+        ScanlineDecoder decoder = new ScanlineDecoder(image);
+        try {
+            int rowBytes = decoder.getRowBytes();
+            int rows = (image.getHeight() + step - 1) / step;
+            byte[] data = new byte[rowBytes * rows];
+            for (int r = 0; r < rows; r++) {
+                decoder.nextRow(data, r * rowBytes);
+                if (r < rows - 1) {
+                    decoder.skipRows(step - 1);
+                }
+            }
+            return new RawImage(image.getWidth(), rows, image.getColorType(), image.getBitDepth(), ByteBuffer.wrap(data), decoder.getPalette());
+        } finally {
+            decoder.close();
+        }
+    }
+
+    /**
+     * Salva una miniatura su disco, scrivendola prima in un file temporaneo
+     * così che un'altra lettura non trovi mai un file incompleto, poi elimina
+     * le miniature usate meno di recente se la cartella è piena.
+     *
+     * @param file file della miniatura
+     * @param thumbnail miniatura da salvare
+     */
+    private static void store(Path file, BufferedImage thumbnail) {
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, "thumb", ".tmp");
+            ImageIO.write(thumbnail, "png", temp.toFile());
+            long size = Files.size(temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            stored(size);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    System.err.println(e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Aggiunge una miniatura salvata alla dimensione complessiva ed elimina
+     * quelle usate meno di recente se la dimensione massima è superata.
+     * <p>
+     * La cartella viene letta solo la prima volta e a ogni eliminazione, che
+     * riduce la dimensione a tre quarti di quella massima così da non
+     * ripetersi a ogni miniatura successiva.
+     *
+     * @param size dimensione della miniatura salvata, in byte
+     */
+    private static synchronized void stored(long size) {
+        if (totalSize < 0) {
+            totalSize = evict(Long.MAX_VALUE);
+        } else {
+            totalSize += size;
+        }
+        if (totalSize > maxSize) {
+            totalSize = evict(maxSize / 4 * 3);
+        }
+    }
+
+    /**
+     * Elimina le miniature usate meno di recente finché la dimensione
+     * complessiva non rientra in quella in input.
+     *
+     * @param limit dimensione complessiva da raggiungere, in byte
+     * @return dimensione complessiva delle miniature rimaste, in byte
+     */
+    private static long evict(long limit) {
+        ArrayList<Path> files = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+            for (Path file : stream) {
+                files.add(file);
+                total += Files.size(file);
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return total;
+        }
+
+        if (total <= limit) {
+            return total;
+        }
+
+        Collections.sort(files, new Comparator<Path>() {
+            @Override
+            public int compare(Path p1, Path p2) {
+                try {
+                    return Files.getLastModifiedTime(p1).compareTo(Files.getLastModifiedTime(p2));
+                } catch (IOException e) {
+                    return 0;
+                }
+            }
+        });
+
+        for (Path file : files) {
+            if (total <= limit) {
+                break;
+            }
+            try {
+                long size = Files.size(file);
+                Files.delete(file);
+                total -= size;
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Ritorna il nome del file della miniatura dell'immagine in input.
+     *
+     * @param path percorso dell'immagine
+     * @return impronta di percorso, data di ultima modifica e dimensione,
+     * seguita dall'estensione
+     */
+    private static String getFileName(String path) {
+        File file = new File(path).getAbsoluteFile();
+        String key = file.getPath() + "|" + file.lastModified() + "|" + file.length();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+            return Utility.bytesToHexString(hash).toLowerCase() + FILE_EXTENSION;
+        } catch (NoSuchAlgorithmException e) {
+            //SHA-1 è sempre disponibile nella piattaforma Java
+            throw new IllegalStateException(e);
+        }
+    }
+}
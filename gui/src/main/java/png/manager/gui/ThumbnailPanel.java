@@ -0,0 +1,397 @@
+package png.manager.gui;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import javax.swing.JPanel;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+
+/**
+ * Modella la griglia delle miniature delle immagini di una cartella.
+ * <p>
+ * Vengono disegnate solo le celle visibili e vengono richieste solo le
+ * miniature delle celle visibili, più una riga prima e dopo; le richieste
+ * per le celle non più visibili vengono annullate. Le miniature sono create
+ * in parallelo da un gruppo limitato di thread e conservate su disco da
+ * {@link ThumbnailCache}; quelle visualizzate di recente restano anche in
+ * memoria. Il doppio clic su una miniatura avvisa gli ascoltatori, con il
+ * percorso dell'immagine come comando.
+ */
+public class ThumbnailPanel extends JPanel implements Scrollable {
+
+    /**
+     * Distanza, in pixel, tra le celle.
+     */
+    private static final int GAP = 8;
+    /**
+     * Altezza, in pixel, della didascalia di ciascuna cella.
+     */
+    private static final int LABEL_HEIGHT = 16;
+    /**
+     * Larghezza di una cella.
+     */
+    private static final int CELL_WIDTH = ThumbnailCache.THUMBNAIL_SIZE + GAP;
+    /**
+     * Altezza di una cella.
+     */
+    private static final int CELL_HEIGHT = ThumbnailCache.THUMBNAIL_SIZE + LABEL_HEIGHT + GAP;
+    /**
+     * Numero massimo di miniature conservate in memoria.
+     */
+    private static final int MEMORY_CACHE_SIZE = 1024;
+    /**
+     * Colore delle celle la cui miniatura non è ancora disponibile.
+     */
+    private static final Color PLACEHOLDER_COLOR = Color.LIGHT_GRAY;
+    /**
+     * Colore delle celle la cui miniatura non può essere creata.
+     */
+    private static final Color ERROR_COLOR = new Color(230, 150, 150);
+
+    /**
+     * Percorsi delle immagini, nell'ordine delle celle.
+     */
+    private final List<String> images;
+    /**
+     * Miniature in memoria, in ordine di utilizzo, indicizzate per cella.
+     */
+    private final LinkedHashMap<Integer, BufferedImage> thumbnails = new LinkedHashMap<Integer, BufferedImage>(16, 0.75f, true) {
+        /**
+         * Rimuove la miniatura usata meno di recente quando si supera il
+         * numero massimo.
+         */
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest) {
+            return size() > MEMORY_CACHE_SIZE;
+        }
+    };
+    /**
+     * Celle la cui miniatura non può essere creata.
+     */
+    private final HashSet<Integer> failed = new HashSet<>();
+    /**
+     * Richieste in corso, indicizzate per cella.
+     */
+    private final HashMap<Integer, Future<?>> pending = new HashMap<>();
+    /**
+     * Ascoltatori avvisati al doppio clic su una miniatura.
+     */
+    private final ArrayList<ActionListener> listeners = new ArrayList<>();
+    /**
+     * Thread di creazione delle miniature.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Costruisce la griglia delle immagini PNG della cartella in input, senza
+     * richiederne ancora le miniature.
+     *
+     * @param directory cartella da visualizzare
+     */
+    public ThumbnailPanel(File directory) {
+        this.images = GUIUtility.getDirectoryImages(directory);
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "thumbnail-loader");
+                t.setDaemon(true);
+                t.setPriority(Thread.NORM_PRIORITY - 1);
+                return t;
+            }
+        });
+
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                //Il numero di colonne, e quindi l'altezza, dipende dalla larghezza
+                revalidate();
+            }
+        });
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = getIndexAt(e.getX(), e.getY());
+                if (e.getClickCount() == 2 && index >= 0) {
+                    ActionEvent event = new ActionEvent(ThumbnailPanel.this, ActionEvent.ACTION_PERFORMED, images.get(index));
+                    for (ActionListener l : listeners) {
+                        l.actionPerformed(event);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Aggiunge un ascoltatore avvisato al doppio clic su una miniatura.
+     *
+     * @param listener ascoltatore da aggiungere
+     */
+    public void addActionListener(ActionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Ritorna il numero di immagini della cartella.
+     *
+     * @return numero di celle della griglia
+     */
+    public int getImageCount() {
+        return images.size();
+    }
+
+    /**
+     * Annulla le richieste in corso e termina i thread di creazione delle
+     * miniature. Va richiamato quando la griglia non viene più mostrata.
+     */
+    public void close() {
+        executor.shutdownNow();
+        pending.clear();
+    }
+
+    /**
+     * Ritorna il numero di colonne della griglia, che dipende dalla larghezza
+     * corrente.
+     *
+     * @return numero di colonne, almeno 1
+     */
+    private int getColumns() {
+        return Math.max(1, (getWidth() - GAP) / CELL_WIDTH);
+    }
+
+    /**
+     * Ritorna l'area occupata dalla cella in input.
+     *
+     * @param index indice della cella
+     * @return area della cella, escluso lo spazio tra le celle
+     */
+    private Rectangle getCellBounds(int index) {
+        int columns = getColumns();
+        return new Rectangle(GAP + (index % columns) * CELL_WIDTH, GAP + (index / columns) * CELL_HEIGHT, CELL_WIDTH - GAP, CELL_HEIGHT - GAP);
+    }
+
+    /**
+     * Ritorna la cella nel punto in input.
+     *
+     * @param x ascissa del punto
+     * @param y ordinata del punto
+     * @return indice della cella; -1 se il punto non cade in alcuna cella
+     */
+    private int getIndexAt(int x, int y) {
+        int column = (x - GAP) / CELL_WIDTH;
+        int row = (y - GAP) / CELL_HEIGHT;
+        int index = row * getColumns() + column;
+        if (x < GAP || y < GAP || column >= getColumns() || index >= images.size() || !getCellBounds(index).contains(x, y)) {
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * Ritorna le dimensioni necessarie a contenere tutte le celle con il
+     * numero di colonne corrente.
+     *
+     * @return dimensioni della griglia
+     */
+    @Override
+    public Dimension getPreferredSize() {
+        int columns = getWidth() > 0 ? getColumns() : Math.min(Math.max(1, images.size()), 5);
+        int rows = (images.size() + columns - 1) / columns;
+        return new Dimension(GAP + columns * CELL_WIDTH, GAP + rows * CELL_HEIGHT);
+    }
+
+    /**
+     * Disegna le celle visibili e aggiorna le richieste delle miniature.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Rectangle visible = getVisibleRect();
+        int columns = getColumns();
+        int firstRow = Math.max(0, (visible.y - GAP) / CELL_HEIGHT);
+        int lastRow = (visible.y + visible.height - GAP) / CELL_HEIGHT;
+        int first = firstRow * columns;
+        int last = Math.min(images.size() - 1, (lastRow + 1) * columns - 1);
+
+        Rectangle clip = g.getClipBounds();
+        FontMetrics fm = g.getFontMetrics();
+        for (int i = first; i <= last; i++) {
+            Rectangle cell = getCellBounds(i);
+            if (clip != null && !clip.intersects(cell)) {
+                continue;
+            }
+
+            int size = ThumbnailCache.THUMBNAIL_SIZE;
+            BufferedImage thumbnail = thumbnails.get(i);
+            if (thumbnail != null) {
+                g.drawImage(thumbnail, cell.x + (size - thumbnail.getWidth()) / 2, cell.y + (size - thumbnail.getHeight()) / 2, null);
+            } else {
+                g.setColor(failed.contains(i) ? ERROR_COLOR : PLACEHOLDER_COLOR);
+                g.fillRect(cell.x, cell.y, size, size);
+            }
+
+            //Didascalia col nome del file, accorciata se non entra nella cella
+            String name = new File(images.get(i)).getName();
+            while (name.length() > 4 && fm.stringWidth(name) > size) {
+                name = name.substring(0, name.length() - 4) + "...";
+            }
+            g.setColor(getForeground());
+            g.drawString(name, cell.x + (size - fm.stringWidth(name)) / 2, cell.y + size + fm.getAscent());
+        }
+
+        //Richiede anche una riga prima e una dopo, per uno scorrimento fluido
+        requestThumbnails(Math.max(0, first - columns), Math.min(images.size() - 1, last + columns));
+    }
+
+    /**
+     * Richiede le miniature mancanti delle celle nell'intervallo in input,
+     * nell'ordine delle celle, e annulla le richieste per le celle esterne.
+     *
+     * @param first indice della prima cella
+     * @param last indice dell'ultima cella
+     */
+    private void requestThumbnails(int first, int last) {
+        Iterator<Map.Entry<Integer, Future<?>>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Future<?>> request = it.next();
+            if (request.getKey() < first || request.getKey() > last) {
+                request.getValue().cancel(true);
+                it.remove();
+            }
+        }
+
+        if (executor.isShutdown()) {
+            return;
+        }
+        for (int i = first; i <= last; i++) {
+            if (!thumbnails.containsKey(i) && !failed.contains(i) && !pending.containsKey(i)) {
+                pending.put(i, executor.submit(new ThumbnailRequest(i)));
+            }
+        }
+    }
+
+    /**
+     * Crea, o legge dal disco, la miniatura di una cella e la consegna alla
+     * griglia nel thread dell'interfaccia grafica.
+     */
+    private class ThumbnailRequest implements Runnable {
+
+        /**
+         * Indice della cella.
+         */
+        private final int index;
+
+        /**
+         * Costruisce la richiesta per la cella in input.
+         *
+         * @param index indice della cella
+         */
+        ThumbnailRequest(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Ottiene la miniatura e la consegna alla griglia; in caso di errore
+         * la cella viene segnata come non valida, a meno che la richiesta non
+         * sia stata annullata.
+         */
+        @Override
+        public void run() {
+            BufferedImage thumbnail = null;
+            try {
+                thumbnail = ThumbnailCache.getThumbnail(images.get(index));
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                System.err.println(images.get(index) + ": " + e.getMessage());
+            }
+
+            final BufferedImage result = thumbnail;
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    pending.remove(index);
+                    if (result != null) {
+                        thumbnails.put(index, result);
+                    } else {
+                        failed.add(index);
+                    }
+                    repaint(getCellBounds(index));
+                }
+            });
+        }
+    }
+
+    /**
+     * Ritorna le dimensioni preferite dell'area visibile.
+     *
+     * @return dimensioni preferite della griglia
+     */
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    /**
+     * Ritorna lo scorrimento corrispondente a un'unità.
+     *
+     * @return un quarto dell'altezza di una cella
+     */
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? CELL_HEIGHT / 4 : CELL_WIDTH / 4;
+    }
+
+    /**
+     * Ritorna lo scorrimento corrispondente a un blocco.
+     *
+     * @return altezza dell'area visibile
+     */
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    /**
+     * Indica che la griglia si adatta alla larghezza dell'area visibile.
+     *
+     * @return <code>true</code>
+     */
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    /**
+     * Indica che la griglia non si adatta all'altezza dell'area visibile.
+     *
+     * @return <code>false</code>
+     */
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
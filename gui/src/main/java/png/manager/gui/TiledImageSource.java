@@ -0,0 +1,443 @@
+package png.manager.gui;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import png.manager.awt.RawImageAdapter;
+import png.manager.decoder.ScanlineDecoder;
+import png.manager.entity.PNGImage;
+import png.manager.entity.RawImage;
+import png.manager.exception.DecodingException;
+import png.manager.miscellaneous.PNGConstants;
+
+/**
+ * Sorgente di un'immagine suddivisa in riquadri, decodificati su richiesta.
+ * <p>
+ * L'immagine è divisa in bande di {@link #TILE_SIZE} righe, a loro volta
+ * divise in riquadri quadrati. Quando viene richiesto un riquadro non ancora
+ * disponibile, la sua banda viene decodificata in background con il decoder
+ * personale e tutti i riquadri della banda vengono inseriti in una cache LRU
+ * limitata in byte. Al termine di ogni banda gli ascoltatori vengono avvisati
+ * nel thread dell'interfaccia grafica, anche quando la decodifica fallisce: in
+ * tal caso {@link #hasFailed()} ritorna <code>true</code> e nessun altro
+ * riquadro viene decodificato.
+ */
+public class TiledImageSource {
+
+    /**
+     * Lato, in pixel, di un riquadro.
+     */
+    public static final int TILE_SIZE = 256;
+    /**
+     * Dimensione predefinita della cache dei riquadri, in byte.
+     */
+    public static final long DEFAULT_CACHE_SIZE = 256L << 20;
+    /**
+     * Dimensione stimata dell'immagine decodificata, in byte, oltre la quale
+     * l'immagine viene visualizzata a riquadri.
+     */
+    public static final long TILED_IMAGE_THRESHOLD = 128L << 20;
+
+    /**
+     * Immagine da decodificare.
+     */
+    private final PNGImage image;
+    /**
+     * Numero di riquadri per riga.
+     */
+    private final int tilesX;
+    /**
+     * Numero di bande.
+     */
+    private final int tilesY;
+    /**
+     * Dimensione massima della cache, in byte.
+     */
+    private final long cacheSize;
+    /**
+     * Riquadri decodificati, in ordine di utilizzo.
+     */
+    private final LinkedHashMap<Long, BufferedImage> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Dimensione corrente della cache, in byte.
+     */
+    private long cachedBytes = 0;
+    /**
+     * Bande richieste e non ancora decodificate.
+     */
+    private final TreeSet<Integer> pendingBands = new TreeSet<>();
+    /**
+     * Ascoltatori avvisati al termine della decodifica di una banda.
+     */
+    private final ArrayList<ChangeListener> listeners = new ArrayList<>();
+    /**
+     * Thread di decodifica.
+     */
+    private final ExecutorService executor;
+    /**
+     * Decoder sequenziale; usato solo dal thread di decodifica.
+     */
+    private final ScanlineDecoder decoder;
+    /**
+     * Flag che indica se la decodifica è fallita.
+     */
+    private volatile boolean failed = false;
+    /**
+     * Messaggio dell'errore di decodifica; null se la decodifica non è
+     * fallita.
+     */
+    private volatile String error = null;
+
+    /**
+     * Verifica se l'immagine in input deve essere visualizzata a riquadri,
+     * ossia se non è interlacciata e la sua decodifica completa occuperebbe
+     * troppa memoria.
+     *
+     * @param image immagine risultato del parsing
+     * @return <code>true</code> se l'immagine va visualizzata a riquadri,
+     * <code>false</code> altrimenti
+     */
+    public static boolean isTiledImage(PNGImage image) {
+        long size = (long) image.getWidth() * image.getHeight() * 4;
+        return image.getInterlacingMethod() == PNGConstants.NO_INTERLACE && size > TILED_IMAGE_THRESHOLD;
+    }
+
+    /**
+     * Costruisce la sorgente per l'immagine in input, con la cache di
+     * dimensione predefinita.
+     *
+     * @param image immagine risultato del parsing
+     * @throws DecodingException - se l'immagine non è supportata dal decoder
+     * personale
+     */
+    public TiledImageSource(PNGImage image) throws DecodingException {
+        this(image, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Costruisce la sorgente per l'immagine in input.
+     *
+     * @param image immagine risultato del parsing
+     * @param cacheSize dimensione massima della cache dei riquadri, in byte
+     * @throws DecodingException - se l'immagine non è supportata dal decoder
+     * personale
+     */
+    public TiledImageSource(PNGImage image, long cacheSize) throws DecodingException {
+        this.image = image;
+        this.cacheSize = cacheSize;
+        this.decoder = new ScanlineDecoder(image);
+        this.tilesX = (image.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        this.tilesY = (image.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "tile-decoder");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Ritorna la larghezza dell'immagine.
+     *
+     * @return larghezza in pixel
+     */
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    /**
+     * Ritorna l'altezza dell'immagine.
+     *
+     * @return altezza in pixel
+     */
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    /**
+     * Ritorna il numero di riquadri per riga.
+     *
+     * @return numero di colonne di riquadri
+     */
+    public int getTilesX() {
+        return tilesX;
+    }
+
+    /**
+     * Ritorna il numero di bande.
+     *
+     * @return numero di righe di riquadri
+     */
+    public int getTilesY() {
+        return tilesY;
+    }
+
+    /**
+     * Verifica se la decodifica è fallita.
+     *
+     * @return <code>true</code> se si sono verificati errori in fase di
+     * decodifica, <code>false</code> altrimenti
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    /**
+     * Ritorna il messaggio dell'errore di decodifica.
+     *
+     * @return messaggio dell'errore; null se la decodifica non è fallita
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Aggiunge un ascoltatore, avvisato quando nuovi riquadri sono disponibili.
+     *
+     * @param listener ascoltatore da aggiungere
+     */
+    public synchronized void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Ritorna il riquadro in input, se già decodificato; altrimenti ne
+     * richiede la decodifica.
+     *
+     * @param tx colonna del riquadro
+     * @param ty riga del riquadro
+     * @return riquadro richiesto; null se non ancora disponibile
+     */
+    public synchronized BufferedImage getTile(int tx, int ty) {
+        BufferedImage tile = tiles.get(getKey(tx, ty));
+        if (tile == null && !failed && pendingBands.add(ty)) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    decodeNextBand();
+                }
+            });
+        }
+        return tile;
+    }
+
+    /**
+     * Annulla le richieste per le bande esterne all'intervallo in input, ad
+     * esempio perché non più visibili.
+     *
+     * @param firstBand prima banda da mantenere
+     * @param lastBand ultima banda da mantenere
+     */
+    public synchronized void retainBands(int firstBand, int lastBand) {
+        Iterator<Integer> it = pendingBands.iterator();
+        while (it.hasNext()) {
+            int band = it.next();
+            if (band < firstBand || band > lastBand) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Arresta il thread di decodifica e svuota la cache.
+     */
+    public synchronized void close() {
+        executor.shutdownNow();
+        pendingBands.clear();
+        tiles.clear();
+        cachedBytes = 0;
+    }
+
+    /**
+     * Decodifica la banda richiesta più conveniente: la prima successiva alla
+     * posizione del decoder o, se non ve ne sono, la prima in assoluto.
+     */
+    private void decodeNextBand() {
+        int band;
+        synchronized (this) {
+            if (pendingBands.isEmpty()) {
+                return;
+            }
+            Integer next = pendingBands.ceiling(decoder.getCurrentRow() / TILE_SIZE);
+            band = (next != null && next * TILE_SIZE >= decoder.getCurrentRow()) ? next : pendingBands.first();
+        }
+
+        try {
+            ArrayList<BufferedImage> bandTiles = decodeBand(band);
+            synchronized (this) {
+                pendingBands.remove(band);
+                for (int tx = 0; tx < bandTiles.size(); tx++) {
+                    BufferedImage tile = bandTiles.get(tx);
+                    BufferedImage old = tiles.put(getKey(tx, band), tile);
+                    if (old != null) {
+                        cachedBytes -= getSize(old);
+                    }
+                    cachedBytes += getSize(tile);
+                }
+                evict(band);
+            }
+        } catch (DecodingException e) {
+            System.err.println(e.getMessage());
+            error = e.getMessage();
+            failed = true;
+            decoder.close();
+        }
+
+        fireChange();
+    }
+
+    /**
+     * Decodifica le righe della banda in input e ne genera i riquadri.
+     *
+     * @param band indice della banda
+     * @return riquadri della banda, da sinistra a destra
+     * @throws DecodingException - se occorrono errori in fase di decodifica
+     */
+    private ArrayList<BufferedImage> decodeBand(int band) throws DecodingException {
+        int firstRow = band * TILE_SIZE;
+        if (firstRow < decoder.getCurrentRow()) {
+            decoder.reset();
+        }
+        decoder.skipRows(firstRow - decoder.getCurrentRow());
+
+        int rows = Math.min(TILE_SIZE, image.getHeight() - firstRow);
+        int rowBytes = decoder.getRowBytes();
+        byte[] bandData = new byte[rowBytes * rows];
+        for (int r = 0; r < rows; r++) {
+            decoder.nextRow(bandData, r * rowBytes);
+        }
+
+        RawImage bandImage = new RawImage(image.getWidth(), rows, image.getColorType(), image.getBitDepth(), ByteBuffer.wrap(bandData), decoder.getPalette());
+        ArrayList<BufferedImage> bandTiles = new ArrayList<>();
+        for (int tx = 0; tx < tilesX; tx++) {
+            bandTiles.add(buildTile(bandImage, tx));
+        }
+        return bandTiles;
+    }
+
+    /**
+     * Genera un riquadro a partire dalle righe della sua banda.
+     * <p>
+     * I campioni con profondità inferiore a 8 bit vengono estratti a 8 bit;
+     * quelli grayscale vengono indicizzati in una tavolozza di grigi, così da
+     * mantenere gli stessi colori dell'immagine decodificata interamente.
+     *
+     * @param bandImage righe della banda
+     * @param tx colonna del riquadro
+     * @return riquadro pronto per la visualizzazione
+     */
+    private BufferedImage buildTile(RawImage bandImage, int tx) {
+        int x = tx * TILE_SIZE;
+        int w = Math.min(TILE_SIZE, image.getWidth() - x);
+        int h = bandImage.getHeight();
+        byte[] data = new byte[w * h * bandImage.getBytesPerPixel()];
+        bandImage.getTile(x, 0, w, h, data);
+
+        int colorType = image.getColorType();
+        int bitDepth = image.getBitDepth();
+        byte[] palette = bandImage.getPalette();
+        if (bitDepth < 8) {
+            if (colorType == PNGConstants.COLOR_TYPE_GRAYSCALE) {
+                colorType = PNGConstants.COLOR_TYPE_PALETTE;
+                palette = getGrayPalette(bitDepth);
+            }
+            bitDepth = 8;
+        }
+
+        return RawImageAdapter.toBufferedImage(new RawImage(w, h, colorType, bitDepth, ByteBuffer.wrap(data), palette));
+    }
+
+    /**
+     * Costruisce la tavolozza dei livelli di grigio rappresentabili con la
+     * profondità in input.
+     *
+     * @param bitDepth profondità di bit dei campioni
+     * @return dati di una tavolozza nel formato del chunk PLTE
+     */
+    private static byte[] getGrayPalette(int bitDepth) {
+        int levels = 1 << bitDepth;
+        byte[] palette = new byte[levels * 3];
+        for (int i = 0; i < levels; i++) {
+            byte gray = (byte) (i * 255 / (levels - 1));
+            palette[i * 3] = gray;
+            palette[i * 3 + 1] = gray;
+            palette[i * 3 + 2] = gray;
+        }
+        return palette;
+    }
+
+    /**
+     * Rimuove i riquadri usati meno di recente finché la cache non rientra
+     * nella dimensione massima.
+     * <p>
+     * I riquadri della banda appena decodificata non vengono mai rimossi,
+     * anche se da soli superano la dimensione massima: altrimenti verrebbero
+     * richiesti e decodificati di nuovo all'infinito.
+     *
+     * @param band banda appena decodificata
+     */
+    private void evict(int band) {
+        Iterator<Map.Entry<Long, BufferedImage>> it = tiles.entrySet().iterator();
+        while (cachedBytes > cacheSize && it.hasNext()) {
+            Map.Entry<Long, BufferedImage> entry = it.next();
+            if ((int) (entry.getKey() >>> 32) == band) {
+                continue;
+            }
+            cachedBytes -= getSize(entry.getValue());
+            it.remove();
+        }
+    }
+
+    /**
+     * Avvisa gli ascoltatori nel thread dell'interfaccia grafica.
+     */
+    private void fireChange() {
+        final ArrayList<ChangeListener> toNotify;
+        synchronized (this) {
+            toNotify = new ArrayList<>(listeners);
+        }
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                ChangeEvent event = new ChangeEvent(TiledImageSource.this);
+                for (ChangeListener listener : toNotify) {
+                    listener.stateChanged(event);
+                }
+            }
+        });
+    }
+
+    /**
+     * Ritorna la chiave del riquadro in input.
+     *
+     * @param tx colonna del riquadro
+     * @param ty riga del riquadro
+     * @return chiave del riquadro
+     */
+    private static long getKey(int tx, int ty) {
+        return ((long) ty << 32) | (tx & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Stima la memoria occupata da un riquadro.
+     *
+     * @param tile riquadro da misurare
+     * @return dimensione in byte
+     */
+    private static long getSize(BufferedImage tile) {
+        return (long) tile.getWidth() * tile.getHeight() * Math.max(1, tile.getColorModel().getPixelSize() / 8);
+    }
+}
@@ -0,0 +1,1059 @@
+package png.manager.gui;
+
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.GridLayout;
+import java.awt.Point;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import javax.imageio.ImageIO;
+import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
+import javax.swing.ImageIcon;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JDialog;
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.JToolBar;
+import javax.swing.Timer;
+import javax.swing.UIManager;
+import javax.swing.border.Border;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.filechooser.FileFilter;
+
+import png.manager.decoder.DecodingStage;
+import png.manager.entity.PNGImage;
+import png.manager.exception.DecodingException;
+import png.manager.exception.PNGStructureException;
+import png.manager.miscellaneous.PaletteTransform;
+import png.manager.miscellaneous.Utility;
+
+/**
+ * Interfaccia grafica del programma. Contiene il metodo <code>main</code> da
+ * cui parte il programma.
+ */
+public class UI {
+
+    /**
+     * Larghezza della finestra principale.
+     */
+    private static final int WINDOW_WIDTH = UITools.getScreenWidth() * 3 / 5;
+    /**
+     * Altezza della finestra principale.
+     */
+    private static final int WINDOW_HEIGHT = UITools.getScreenHeight() * 3 / 4;
+    /**
+     * Larghezza dei popup.
+     */
+    private static final int POPUP_WINDOW_WIDTH = 400;
+    /**
+     * Altezza dei popup.
+     */
+    private static final int POPUP_WINDOW_HEIGHT = 250;
+    /**
+     * Velocità di scrolling verticale del pannello contenente l'immagine.
+     */
+    private static final int SCROLLBAR_VERTICAL_SPEED = 16;
+    /**
+     * Velocità di scrolling orizzontale del pannello contenente l'immagine.
+     */
+    private static final int SCROLLBAR_HORIZONTAL_SPEED = 16;
+    /**
+     * Ritardo, in millisecondi, dopo il quale viene mostrata la finestra di
+     * avanzamento dell'apertura, così da non mostrarla per le immagini che si
+     * aprono rapidamente.
+     */
+    private static final int PROGRESS_WINDOW_DELAY = 300;
+
+    /**
+     * Finestra principale.
+     */
+    private static final JFrame mainWindow = new JFrame("PNG Manager");
+
+    /**
+     * Voce del menu File.
+     */
+    private static final JMenuItem openOption = new JMenuItem("Apri...");
+    /**
+     * Voce del menu File.
+     */
+    private static final JMenuItem exportOption = new JMenuItem("Salva senza metadati...");
+    /**
+     * Voce del menu File.
+     */
+    private static final JMenuItem convertOption = new JMenuItem("Converti in JPEG...");    
+    /**
+     * Voce del menu File.
+     */
+    private static final JMenuItem paletteGrayscaleOption = new JMenuItem("Salva tavolozza in scala di grigi...");
+    /**
+     * Voce del menu File.
+     */
+    private static final JMenuItem browseOption = new JMenuItem("Sfoglia cartella...");
+    /**
+     * Voce del menu File.
+     */
+    private static final JMenuItem aboutOption = new JMenuItem("Informazioni");
+    /**
+     * Voce del menu File.
+     */
+    private static final JMenuItem exitOption = new JMenuItem("Esci");
+
+    /**
+     * Nome del bottone.
+     */
+    private static final String enableBlackAndWhiteLabel = "Attiva modalita' bianco e nero";
+    /**
+     * Nome del bottone.
+     */
+    private static final String disableBlackAndWhiteLabel = "Disattiva modalita' bianco e nero";
+    /**
+     * Bottone per attivare la conversione dell'immagine.
+     */
+    private static final JButton blackAndWhiteButton = new JButton(enableBlackAndWhiteLabel, null);
+    /**
+     * Nome del bottone.
+     */
+    private static final JButton exportChunkButton = new JButton("Esporta report su file di testo", null);
+    /**
+     * Bottone per ispezionare i chunk dell'immagine.
+     */
+    private static final JButton inspectChunkButton = new JButton("Ispeziona chunk", null);
+    /**
+     * Bottone per ingrandire l'immagine.
+     */
+    private static final JButton zoomInButton = new JButton("Ingrandisci", null);
+    /**
+     * Bottone per ridurre l'immagine.
+     */
+    private static final JButton zoomOutButton = new JButton("Riduci", null);
+    /**
+     * Bottone per riportare l'immagine alle dimensioni reali.
+     */
+    private static final JButton actualSizeButton = new JButton("Dimensioni reali", null);
+    /**
+     * Bottone per aprire l'immagine precedente nella cartella.
+     */
+    private static final JButton previousButton = new JButton("Precedente", null);
+    /**
+     * Bottone per aprire l'immagine successiva nella cartella.
+     */
+    private static final JButton nextButton = new JButton("Successiva", null);
+
+    /**
+     * Pannello contenente l'immagine e le sue informazioni.
+     */
+    private static final JPanel mainPanel = new JPanel();
+    /**
+     * Pannello contenente l'immagine e la check box dei metadati.
+     */
+    private static final JPanel imagePanel = new JPanel();
+    /**
+     * Pannello dell'immagine da visualizzare.
+     */
+    private static ImagePanel imageArea;
+    /**
+     * Pannello per lo scorrimento di immagini troppo grandi.
+     */
+    private static JScrollPane scrollPane;
+    /**
+     * Check box per attivare la visualizzazione dell'immagine con metadati.
+     */
+    static final JCheckBox enableMetaBox = new JCheckBox("Attiva metadati / Correggi immagine");
+
+    /**
+     * Informazioni sull'immagine corrente.
+     */
+    static final JLabel imageInfo = new JLabel("");
+
+    /**
+     * Finestra con le informazioni sul programma.
+     */
+    private static final JDialog aboutWindow = new JDialog(mainWindow, "Informazioni");
+
+    /**
+     * Finestra per la richiesta di inserimento di un nome di file.
+     */
+    private static final JDialog nameRequestWindow = new JDialog(mainWindow, "Salva con nome...");
+    /**
+     * Pannello della finestra per la richiesta di inserimento di un nome di
+     * file.
+     */
+    private static final JPanel nameRequestPanel = new JPanel();
+    /**
+     * Casella d'inserimento del nome di file.
+     */
+    private static final JTextField nameRequestValue = new JTextField();
+    /**
+     * Bottone per confermare l'inserimento del nome di file.
+     */
+    private static final JButton nameRequestButton = new JButton("Salva!");
+    /**
+     * Finestra di avanzamento dell'apertura dell'immagine.
+     */
+    private static final JDialog progressWindow = new JDialog(mainWindow, "Apertura in corso...");
+    /**
+     * Barre di avanzamento di ciascuna fase dell'apertura.
+     */
+    private static final EnumMap<DecodingStage, JProgressBar> progressBars = new EnumMap<>(DecodingStage.class);
+    /**
+     * Bottone per annullare l'apertura dell'immagine.
+     */
+    private static final JButton cancelButton = new JButton("Annulla");
+    /**
+     * Flag che indica se il nome del file è stato inserito correttamente.
+     */
+    private static boolean requestCompleted = false;
+
+    /**
+     * Percorso dell'immagine correntemente visualizzata.
+     */
+    static String fileChosen = null;
+    /**
+     * Immagine correntemente visualizzata, risultato del processo di parsing.
+     */
+    static PNGImage parsedImage = null;
+    /**
+     * Immagine correntemente visualizzata, risultato del processo di
+     * decodifica.
+     */
+    static BufferedImage currImage = null;
+    /**
+     * Immagine visualizzata con l'impiego dei metadati.
+     */
+    static BufferedImage currImageWithMeta = null;
+    /**
+     * Immagine in bianco e nero.
+     */
+    static BufferedImage blackAndWhiteImage = null;
+    /**
+     * Sorgente dei riquadri dell'immagine correntemente visualizzata, se
+     * troppo grande per essere decodificata interamente.
+     */
+    static TiledImageSource currTiledImage = null;
+    /**
+     * Chiave dell'immagine correntemente visualizzata nell'{@link ImageCache}.
+     */
+    static String currCacheKey = null;
+    /**
+     * Apertura dell'immagine in corso; null se nessuna immagine è in apertura.
+     */
+    private static ImageLoader currLoader = null;
+    /**
+     * Pannello riempito progressivamente durante l'apertura in corso; null se
+     * non è ancora stata decodificata alcuna porzione.
+     */
+    private static ImagePanel partialImageArea = null;
+    /**
+     * Direzione dell'ultimo scorrimento tra le immagini della cartella: 1 in
+     * avanti, -1 all'indietro.
+     */
+    private static int navigationStep = 1;
+    /**
+     * Flag che indica se l'interfaccia grafica sta mostrando l'immagine in
+     * bianco e nero invece dell'originale.
+     */
+    private static boolean blackAndWhiteInUse = false;
+
+    /**
+     * Metodo di avvio del programma. Disegna l'interfaccia grafica.
+     *
+     * @param args parametri di input della console
+     */
+    public static void main(String[] args) {
+        mainWindow.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        mainWindow.setSize(new Dimension(WINDOW_WIDTH, WINDOW_HEIGHT));
+        mainWindow.setPreferredSize(new Dimension(WINDOW_WIDTH, WINDOW_HEIGHT));
+        mainWindow.setResizable(false);
+        mainWindow.setLocationRelativeTo(null);
+        mainWindow.setLayout(new BoxLayout(mainWindow.getContentPane(), BoxLayout.Y_AXIS));
+
+        JMenu fileDropdownMenu = new JMenu("File");
+        fileDropdownMenu.add(openOption);
+        fileDropdownMenu.add(browseOption);
+        fileDropdownMenu.add(exportOption);
+        fileDropdownMenu.add(convertOption);
+        fileDropdownMenu.add(paletteGrayscaleOption);
+        fileDropdownMenu.add(aboutOption);
+        fileDropdownMenu.addSeparator();
+        fileDropdownMenu.add(exitOption);
+        JMenuBar menuBar = new JMenuBar();
+        menuBar.add(fileDropdownMenu);
+        mainWindow.setJMenuBar(menuBar);
+
+        JPanel toolbarPanel = new JPanel();
+        toolbarPanel.setLayout(new FlowLayout(FlowLayout.LEFT));
+
+        BufferedImage icon = new UI().loadIcon("/moon.png");
+        if (icon != null) {
+            blackAndWhiteButton.setIcon(new ImageIcon(icon));
+        }
+        icon = new UI().loadIcon("/note.png");
+        if (icon != null) {
+            exportChunkButton.setIcon(new ImageIcon(icon));
+        }
+
+        JToolBar toolBar = new JToolBar("Barra degli strumenti");
+        toolBar.add(blackAndWhiteButton);
+        toolBar.add(exportChunkButton);
+        toolBar.add(inspectChunkButton);
+        toolBar.addSeparator();
+        toolBar.add(zoomOutButton);
+        toolBar.add(actualSizeButton);
+        toolBar.add(zoomInButton);
+        toolBar.addSeparator();
+        toolBar.add(previousButton);
+        toolBar.add(nextButton);
+        toolbarPanel.add(toolBar);
+
+        mainPanel.setLayout(new FlowLayout());
+        mainPanel.setSize(new Dimension(WINDOW_WIDTH - 100, WINDOW_HEIGHT - 100));
+        mainPanel.setPreferredSize(new Dimension(WINDOW_WIDTH - 100, WINDOW_HEIGHT - 100));
+        imagePanel.setSize(new Dimension(WINDOW_WIDTH * 2 / 3 - 50, WINDOW_HEIGHT - 120));
+        imagePanel.setPreferredSize(new Dimension(WINDOW_WIDTH * 2 / 3 - 50, WINDOW_HEIGHT - 120));
+        imagePanel.setLayout(new BoxLayout(imagePanel, BoxLayout.Y_AXIS));
+        setBorderTitle(imagePanel, "Visualizzatore");
+        imageArea = new ImagePanel((BufferedImage) null);
+        scrollPane = new JScrollPane(imageArea);
+        configureScrollPane();
+        imagePanel.add(scrollPane);
+        imagePanel.add(enableMetaBox);
+        enableMetaBox.setEnabled(false);
+        JPanel informationPanel = new JPanel();
+        informationPanel.setSize(new Dimension(WINDOW_WIDTH / 3, WINDOW_HEIGHT - 120));
+        informationPanel.setPreferredSize(new Dimension(WINDOW_WIDTH / 3, WINDOW_HEIGHT - 120));
+        informationPanel.setLayout(new BoxLayout(informationPanel, BoxLayout.Y_AXIS));
+        setBorderTitle(informationPanel, "Informazioni");
+        informationPanel.add(imageInfo);
+        mainPanel.add(imagePanel);
+        mainPanel.add(informationPanel);
+
+        mainWindow.add(toolbarPanel);
+        mainWindow.add(mainPanel);
+        mainWindow.pack();
+        addListeners();
+        mainWindow.setVisible(true);
+        buildAboutWindow();
+        buildNameRequestWindow();
+        buildProgressWindow();
+    }
+
+    /**
+     * Mostra nell'interfaccia grafica il risultato dell'apertura in
+     * background di un'immagine.
+     * <p>
+     * Il metodo viene invocato nel thread dell'interfaccia grafica al termine
+     * dell'apertura, anche in caso di errore o annullamento.
+     *
+     * @param loader apertura terminata
+     */
+    static void imageLoaded(ImageLoader loader) {
+        if (loader != currLoader) {
+            return;
+        }
+        currLoader = null;
+        partialImageArea = null;
+        progressWindow.setVisible(false);
+        setOpenEnabled(true);
+
+        if (loader.isCancelled()) {
+            parsedImage = null;
+            addImage(null);
+            JOptionPane.showMessageDialog(null, "Apertura dell'immagine annullata.", "Operazione annullata", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        ImagePrefetcher.prefetch(fileChosen, navigationStep);
+
+        try {
+            loader.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            System.err.println(cause.getMessage());
+            parsedImage = loader.getParsedImage();
+            addImage(null);
+            JOptionPane.showMessageDialog(null, "Impossibile visualizzare l'immagine.\n" + cause.getMessage(), "ERRORE", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        parsedImage = loader.getParsedImage();
+        if (loader.getTiledImage() != null) {
+            final TiledImageSource tiledImage = loader.getTiledImage();
+            currTiledImage = tiledImage;
+            tiledImage.addChangeListener(new ChangeListener() {
+                @Override
+                public void stateChanged(ChangeEvent e) {
+                    tiledImageChanged(tiledImage);
+                }
+            });
+            addPanel(new ImagePanel(currTiledImage));
+            UITools.updateImageInfo();
+            return;
+        }
+
+        currImage = loader.getImage();
+        addImage(currImage);
+        UITools.updateImageInfo();
+
+        if (loader.isDecodedWithMeta()) {
+            currImageWithMeta = currImage;
+        } else {
+            enableMetaBox.setEnabled(true);
+        }
+        ImageCache.put(currCacheKey, new CachedImage(parsedImage, currImage, loader.isDecodedWithMeta()));
+    }
+
+    /**
+     * Controlla l'esito della decodifica di una banda dell'immagine
+     * visualizzata a riquadri. Se la decodifica è fallita l'immagine viene
+     * rimossa e l'errore viene mostrato come per le altre immagini.
+     * <p>
+     * Il metodo viene invocato nel thread dell'interfaccia grafica.
+     *
+     * @param tiledImage sorgente dei riquadri che ha decodificato la banda
+     */
+    private static void tiledImageChanged(TiledImageSource tiledImage) {
+        if (tiledImage != currTiledImage || !tiledImage.hasFailed()) {
+            return;
+        }
+        currTiledImage.close();
+        currTiledImage = null;
+        addImage(null);
+        JOptionPane.showMessageDialog(null, "Impossibile visualizzare l'immagine.\n" + tiledImage.getError(), "ERRORE", JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Mostra una porzione dell'immagine in corso di apertura, creando alla
+     * prima invocazione un pannello vuoto delle dimensioni dell'immagine.
+     *
+     * @param loader apertura a cui appartiene la porzione
+     * @param image immagine in corso di apertura
+     * @param region porzione di immagine decodificata
+     * @param y riga in cui mostrare la porzione
+     */
+    static void showPartialImage(ImageLoader loader, PNGImage image, BufferedImage region, int y) {
+        if (loader != currLoader) {
+            return;
+        }
+        getPartialImageArea(image).drawRegion(region, 0, y);
+    }
+
+    /**
+     * Mostra l'anteprima di un'immagine interlacciata in corso di apertura,
+     * ingrandendone i blocchi direttamente nel pannello.
+     *
+     * @param loader apertura a cui appartiene l'anteprima
+     * @param image immagine in corso di apertura
+     * @param preview anteprima con un pixel per blocco
+     * @param blockWidth larghezza di ciascun blocco
+     * @param blockHeight altezza di ciascun blocco
+     */
+    static void showPartialPreview(ImageLoader loader, PNGImage image, BufferedImage preview, int blockWidth, int blockHeight) {
+        if (loader != currLoader) {
+            return;
+        }
+        getPartialImageArea(image).drawPreview(preview, blockWidth, blockHeight);
+    }
+
+    /**
+     * Ritorna il pannello dell'immagine in corso di apertura, creando alla
+     * prima invocazione un pannello vuoto delle dimensioni dell'immagine.
+     *
+     * @param image immagine in corso di apertura
+     * @return pannello dell'immagine in corso di apertura
+     */
+    private static ImagePanel getPartialImageArea(PNGImage image) {
+        if (partialImageArea == null) {
+            partialImageArea = new ImagePanel(image.getWidth(), image.getHeight());
+            addPanel(partialImageArea);
+        }
+        return partialImageArea;
+    }
+
+    /**
+     * Aggiorna la barra di avanzamento della fase in input.
+     *
+     * @param stage fase dell'apertura
+     * @param percent percentuale completata
+     */
+    static void setStageProgress(DecodingStage stage, int percent) {
+        progressBars.get(stage).setValue(percent);
+    }
+
+    /**
+     * Aggiunge gli ascoltatori sugli elementi dell'interfaccia grafica.
+     */
+    private static void addListeners() {
+
+        openOption.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                UIManager.put("FileChooser.readOnly", Boolean.TRUE);
+                FileFilter customFilter = new ExtensionFilter();
+                JFileChooser fileChooser = new JFileChooser(System.getProperty("user.dir"));
+                //Permette all'utente solo di selezionare un file
+                disableTextField(fileChooser.getComponents());
+                fileChooser.setAcceptAllFileFilterUsed(false);
+                fileChooser.setFileFilter(customFilter);
+                int rVal = fileChooser.showOpenDialog(mainWindow);
+                if (rVal == JFileChooser.APPROVE_OPTION) { //Se viene scelto un file dalla finestra di dialogo
+                    navigationStep = 1;
+                    openImage(fileChooser.getSelectedFile().toString());
+                }
+            }
+        });
+
+        browseOption.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                String start = fileChosen != null ? new File(fileChosen).getAbsoluteFile().getParent() : System.getProperty("user.dir");
+                JFileChooser fileChooser = new JFileChooser(start);
+                fileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+                if (fileChooser.showOpenDialog(mainWindow) == JFileChooser.APPROVE_OPTION) {
+                    showThumbnailWindow(fileChooser.getSelectedFile());
+                }
+            }
+        });
+
+        previousButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                openAdjacentImage(-1);
+            }
+        });
+
+        nextButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                openAdjacentImage(1);
+            }
+        });
+
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (currLoader != null) {
+                    currLoader.cancel(true);
+                }
+            }
+        });
+
+        exportOption.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (currImage == null && currTiledImage == null) {
+                    return;
+                }
+
+                nameRequestWindow.setVisible(true);
+                if (requestCompleted) {
+                    String path = System.getProperty("user.dir") + File.separator + nameRequestValue.getText() + ".png";
+                    boolean success = Utility.exportImage(path, parsedImage);
+
+                    if (!success) {
+                        JOptionPane.showMessageDialog(null, "Impossibile esportare l'immagine senza metadati.", "ERRORE", JOptionPane.ERROR_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(null, "Immagine senza metadati esportata correttamente in" + System.getProperty("line.separator") + path,
+                                "Operazione completata", JOptionPane.INFORMATION_MESSAGE);
+                    }
+
+                }
+                nameRequestValue.setText("");
+
+            }
+        });
+        
+        convertOption.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (currImage == null) {
+                    return;
+                }
+
+                nameRequestWindow.setVisible(true);
+                if (requestCompleted) {
+                    String path = System.getProperty("user.dir") + File.separator + nameRequestValue.getText() + ".jpg";
+                    boolean success = GUIUtility.convertImage(path, currImage);
+
+                    if (!success) {
+                        JOptionPane.showMessageDialog(null, "Impossibile convertire l'immagine in JPEG.", "ERRORE", JOptionPane.ERROR_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(null, "Immagine convertita in JPEG correttamente in" + System.getProperty("line.separator") + path,
+                                "Operazione completata", JOptionPane.INFORMATION_MESSAGE);
+                    }
+
+                }
+                nameRequestValue.setText("");
+
+            }
+        });
+
+        paletteGrayscaleOption.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (parsedImage == null) {
+                    return;
+                }
+
+                PNGImage grayscaleImage;
+                try {
+                    grayscaleImage = PaletteTransform.GRAYSCALE.transformImage(parsedImage);
+                } catch (PNGStructureException ex) {
+                    JOptionPane.showMessageDialog(null, ex.getMessage(), "ERRORE", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+
+                nameRequestWindow.setVisible(true);
+                if (requestCompleted) {
+                    String path = System.getProperty("user.dir") + File.separator + nameRequestValue.getText() + ".png";
+                    boolean success = Utility.exportImage(path, grayscaleImage, true);
+
+                    if (!success) {
+                        JOptionPane.showMessageDialog(null, "Impossibile salvare l'immagine in scala di grigi.", "ERRORE", JOptionPane.ERROR_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(null, "Immagine in scala di grigi salvata correttamente in" + System.getProperty("line.separator") + path,
+                                "Operazione completata", JOptionPane.INFORMATION_MESSAGE);
+                    }
+
+                }
+                nameRequestValue.setText("");
+
+            }
+        });
+
+        aboutOption.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                aboutWindow.setVisible(true);
+            }
+        });
+
+        zoomInButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                imageArea.setZoom(imageArea.getZoom() * ImagePanel.ZOOM_STEP);
+            }
+        });
+
+        zoomOutButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                imageArea.setZoom(imageArea.getZoom() / ImagePanel.ZOOM_STEP);
+            }
+        });
+
+        actualSizeButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                imageArea.setZoom(1);
+            }
+        });
+
+        exitOption.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                System.exit(0);
+            }
+        });
+
+        blackAndWhiteButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (currImage == null) {
+                    return;
+                }
+
+                UITools.buildBlackAndWhiteImage();
+                if (!blackAndWhiteInUse) {
+                    addImage(blackAndWhiteImage);
+                    blackAndWhiteInUse = true;
+                    blackAndWhiteButton.setText(disableBlackAndWhiteLabel);
+                } else {
+                    if (enableMetaBox.isSelected()) {
+                        addImage(currImageWithMeta);
+                    } else {
+                        addImage(currImage);
+                    }
+                    blackAndWhiteInUse = false;
+                    blackAndWhiteButton.setText(enableBlackAndWhiteLabel);
+                }
+            }
+        });
+
+        inspectChunkButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (parsedImage == null) {
+                    return;
+                }
+                new ChunkInspector(mainWindow, parsedImage).setVisible(true);
+            }
+        });
+
+        exportChunkButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (currImage == null && currTiledImage == null) {
+                    return;
+                }
+
+                nameRequestWindow.setVisible(true);
+                if (requestCompleted) {
+                    String path = System.getProperty("user.dir") + File.separator + nameRequestValue.getText() + ".txt";
+                    boolean success = GUIUtility.createReport(path, UITools.getInformation());
+
+                    if (!success) {
+                        JOptionPane.showMessageDialog(null, "Impossibile esportare le informazioni sul file.", "ERRORE", JOptionPane.ERROR_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(null, "Informazioni sul file esportate correttamente in" + System.getProperty("line.separator") + path,
+                                "Operazione completata", JOptionPane.INFORMATION_MESSAGE);
+                    }
+
+                }
+                nameRequestValue.setText("");
+            }
+        });
+
+        enableMetaBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (currImage == null) {
+                    return;
+                }
+
+                if (enableMetaBox.isSelected()) {
+                    if (currImageWithMeta == null) {
+                        try {
+                            UITools.buildImageWhithMeta();
+                        } catch (DecodingException | PNGStructureException ex) {
+                            System.err.println(ex.getMessage());
+                            JOptionPane.showMessageDialog(null, "Impossibile attivare metadati o correggere l'immagine.", "ERRORE", JOptionPane.ERROR_MESSAGE);
+                        }
+                    }
+
+                    if (currImageWithMeta != null) {
+                        addImage(currImageWithMeta);
+                    }
+
+                } else {
+                    addImage(currImage);
+                }
+
+                blackAndWhiteInUse = false;
+                blackAndWhiteButton.setText(enableBlackAndWhiteLabel);
+            }
+        });
+
+        nameRequestButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                nameRequestWindow.setVisible(false);
+                requestCompleted = !nameRequestValue.getText().equals("");
+            }
+        });
+
+    }
+
+    /**
+     * Costruisce la finestra di avanzamento dell'apertura, con una barra per
+     * ciascuna fase e il bottone per annullarla.
+     */
+    private static void buildProgressWindow() {
+        JPanel progressPanel = new JPanel();
+        progressPanel.setLayout(new GridLayout(DecodingStage.values().length + 1, 2, 5, 5));
+        progressPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        for (DecodingStage stage : DecodingStage.values()) {
+            JProgressBar bar = new JProgressBar(0, 100);
+            bar.setStringPainted(true);
+            progressBars.put(stage, bar);
+            progressPanel.add(new JLabel(stage.getDescription()));
+            progressPanel.add(bar);
+        }
+        progressPanel.add(new JLabel(""));
+        progressPanel.add(cancelButton);
+        progressWindow.add(progressPanel);
+        progressWindow.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        progressWindow.pack();
+        progressWindow.setLocationRelativeTo(mainWindow);
+    }
+
+    /**
+     * Costruisce la finestra con le informazioni sul programma.
+     */
+    private static void buildAboutWindow() {
+        aboutWindow.setSize(new Dimension(POPUP_WINDOW_WIDTH, POPUP_WINDOW_HEIGHT));
+        aboutWindow.setLocationRelativeTo(null);
+        JPanel aboutPanel = new JPanel();
+        aboutPanel.setLayout(new FlowLayout(FlowLayout.LEFT));
+        aboutPanel.add(new JLabel("<html>PNG Manager - v. 1.0<br>Autore: Gianvito Taneburgo<br><br>"
+                + "Il programma e' un visualizzatore di immagini in formato PNG.<br>Alcuni tipi di immagini possono essere visualizzati con o senza<br>metadati."
+                + " Per attivare/disattivare tale opzione e' presente una<br>check box in basso a sinistra: se la casella non e' selezionabile<br>allora l'opzione"
+                + " e' già attiva.<br><br>Per segnalare errori scrivetemi "
+                + "al seguente indirizzo email:<br><a href=\"mailto:taneburgo@gmail.com\"><b>taneburgo@gmail.com</b></a></html>"));
+        aboutWindow.add(aboutPanel);
+    }
+
+    /**
+     * Costruisce la finestra per la richiesta di inserimento di un nome di file
+     * all'utente.
+     */
+    private static void buildNameRequestWindow() {
+        nameRequestWindow.setModal(true);
+        nameRequestWindow.setSize(new Dimension(POPUP_WINDOW_WIDTH, POPUP_WINDOW_HEIGHT));
+        nameRequestWindow.setLocationRelativeTo(null);
+        nameRequestPanel.setLayout(new GridLayout(3, 1));
+        nameRequestPanel.setSize(new Dimension(POPUP_WINDOW_WIDTH - 100, POPUP_WINDOW_HEIGHT - 180));
+        nameRequestPanel.setPreferredSize(new Dimension(POPUP_WINDOW_WIDTH - 100, POPUP_WINDOW_HEIGHT - 180));
+        nameRequestPanel.add(new JLabel("<html>Inserisci il nome del file:<br></html>"));
+        nameRequestPanel.add(nameRequestValue);
+        nameRequestPanel.add(nameRequestButton);
+        nameRequestWindow.add(nameRequestPanel);
+        nameRequestWindow.pack();
+    }
+
+    /**
+     * Inserisce intorno al pannello un box con un titolo
+     *
+     * @param panel pannello intorno al quale disegnare il box
+     * @param title titolo del box
+     */
+    private static void setBorderTitle(JPanel panel, String title) {
+        Border border = BorderFactory.createTitledBorder(title);
+        panel.setBorder(border);
+    }
+
+    /**
+     * Apre l'immagine in input, riusando le immagini già decodificate se il
+     * file è stato aperto o preparato di recente, altrimenti decodificandola
+     * in background.
+     *
+     * @param path percorso dell'immagine da aprire
+     */
+    private static void openImage(String path) {
+        //Inizializza tutte le varabili
+        blackAndWhiteImage = null;
+        currImageWithMeta = null;
+        currImage = null;
+        if (currTiledImage != null) {
+            currTiledImage.close();
+            currTiledImage = null;
+        }
+        addImage(null);
+        enableMetaBox.setSelected(false);
+        enableMetaBox.setEnabled(false);
+        blackAndWhiteInUse = false;
+        blackAndWhiteButton.setText(enableBlackAndWhiteLabel);
+        nameRequestValue.setText("");
+        imageInfo.setText("");
+        fileChosen = path;
+        currCacheKey = ImageCache.getKey(fileChosen);
+
+        //Se il file è stato aperto di recente e non è cambiato, riusa le immagini già decodificate
+        CachedImage cached = ImageCache.get(currCacheKey);
+        if (cached != null) {
+            parsedImage = cached.getParsedImage();
+            currImage = cached.getImage();
+            currImageWithMeta = cached.getImageWithMeta();
+            addImage(currImage);
+            UITools.updateImageInfo();
+            enableMetaBox.setEnabled(!cached.isDecodedWithMeta());
+            ImagePrefetcher.prefetch(fileChosen, navigationStep);
+            return;
+        }
+
+        //Decodifica l'immagine in background, mostrando l'avanzamento se richiede tempo
+        ImagePrefetcher.cancel();
+        setOpenEnabled(false);
+        for (JProgressBar bar : progressBars.values()) {
+            bar.setValue(0);
+        }
+        final ImageLoader loader = new ImageLoader(fileChosen);
+        currLoader = loader;
+        Timer progressTimer = new Timer(PROGRESS_WINDOW_DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (currLoader == loader && !loader.isDone()) {
+                    progressWindow.setVisible(true);
+                }
+            }
+        });
+        progressTimer.setRepeats(false);
+        progressTimer.start();
+        loader.execute();
+    }
+
+    /**
+     * Mostra in una nuova finestra le miniature delle immagini della cartella
+     * in input. Il doppio clic su una miniatura apre l'immagine e chiude la
+     * finestra.
+     *
+     * @param directory cartella da visualizzare
+     */
+    private static void showThumbnailWindow(File directory) {
+        final JDialog thumbnailWindow = new JDialog(mainWindow, directory.getPath());
+        final ThumbnailPanel thumbnailPanel = new ThumbnailPanel(directory);
+        if (thumbnailPanel.getImageCount() == 0) {
+            thumbnailPanel.close();
+            JOptionPane.showMessageDialog(null, "La cartella non contiene immagini PNG.", "ERRORE", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        thumbnailPanel.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (currLoader != null) {
+                    return;
+                }
+                thumbnailWindow.dispose();
+                navigationStep = 1;
+                openImage(e.getActionCommand());
+            }
+        });
+        thumbnailWindow.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                thumbnailPanel.close();
+            }
+        });
+
+        JScrollPane thumbnailScrollPane = new JScrollPane(thumbnailPanel);
+        thumbnailScrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+        thumbnailScrollPane.getVerticalScrollBar().setUnitIncrement(SCROLLBAR_VERTICAL_SPEED);
+        thumbnailWindow.add(thumbnailScrollPane);
+        thumbnailWindow.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        thumbnailWindow.setSize(new Dimension(WINDOW_WIDTH * 2 / 3, WINDOW_HEIGHT * 2 / 3));
+        thumbnailWindow.setLocationRelativeTo(mainWindow);
+        thumbnailWindow.setVisible(true);
+    }
+
+    /**
+     * Apre l'immagine che precede o segue quella corrente nella sua cartella,
+     * in ordine di nome.
+     *
+     * @param step 1 per l'immagine successiva, -1 per la precedente
+     */
+    private static void openAdjacentImage(int step) {
+        if (fileChosen == null || currLoader != null) {
+            return;
+        }
+
+        List<String> images = GUIUtility.getDirectoryImages(new File(fileChosen).getAbsoluteFile().getParentFile());
+        int index = images.indexOf(new File(fileChosen).getAbsoluteFile().getPath());
+        if (index < 0 || index + step < 0 || index + step >= images.size()) {
+            return;
+        }
+        navigationStep = step;
+        openImage(images.get(index + step));
+    }
+
+    /**
+     * Abilita o disabilita i comandi che aprono una nuova immagine.
+     *
+     * @param enabled <code>true</code> per abilitare i comandi,
+     * <code>false</code> per disabilitarli
+     */
+    private static void setOpenEnabled(boolean enabled) {
+        openOption.setEnabled(enabled);
+        previousButton.setEnabled(enabled);
+        nextButton.setEnabled(enabled);
+    }
+
+    /**
+     * Mostra l'immagine in input nell'interfaccia grafica.
+     *
+     * @param imageToAdd immagine da visualizzare
+     */
+    private static void addImage(BufferedImage imageToAdd) {
+        addPanel(new ImagePanel(imageToAdd));
+    }
+
+    /**
+     * Mostra il pannello in input nell'interfaccia grafica.
+     *
+     * @param panel pannello contenente l'immagine da visualizzare
+     */
+    private static void addPanel(ImagePanel panel) {
+        //Un'immagine delle stesse dimensioni (es. la variante in bianco e
+        //nero) mantiene l'ingrandimento corrente
+        boolean keepZoom = imageArea != null && imageArea.getImageWidth() > 0
+                && imageArea.getImageWidth() == panel.getImageWidth() && imageArea.getImageHeight() == panel.getImageHeight();
+        double zoom = keepZoom ? imageArea.getZoom() : 1;
+        Point position = keepZoom ? scrollPane.getViewport().getViewPosition() : null;
+        imagePanel.removeAll();
+        imageArea = panel;
+        scrollPane = new JScrollPane(imageArea);
+        configureScrollPane();
+        imagePanel.add(scrollPane);
+        imagePanel.add(enableMetaBox);
+        if (keepZoom) {
+            imageArea.setZoom(zoom);
+            scrollPane.getViewport().setViewPosition(position);
+        }
+        mainPanel.updateUI();
+    }
+
+    /**
+     * Configura le proprietà della finestra di scorrimento dell'immagine.
+     */
+    private static void configureScrollPane() {
+        scrollPane.setSize(new Dimension(WINDOW_WIDTH, WINDOW_HEIGHT));
+        scrollPane.setPreferredSize(new Dimension(WINDOW_WIDTH, WINDOW_HEIGHT));
+        scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(SCROLLBAR_VERTICAL_SPEED);
+        scrollPane.getHorizontalScrollBar().setUnitIncrement(SCROLLBAR_HORIZONTAL_SPEED);
+        scrollPane.setBorder(null);
+    }
+
+    /**
+     * Disabilita tutte le caselle di testo in un componente ed i suoi
+     * sotto-componenti.
+     *
+     * @param comp Il componente nel quale le caselle di testo vanno
+     * disabilitate
+     */
+    private static void disableTextField(Component[] comp) {
+        for (Component aComp : comp) {
+            if (aComp instanceof JPanel) {
+                disableTextField(((JPanel) aComp).getComponents());
+            } else if (aComp instanceof JTextField) {
+                ((JTextField) aComp).setEditable(false);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Carica una icona da un file.
+     *
+     * @param filename percorso dell'immagine da aprire
+     * @return immagine caricata
+     */
+    private BufferedImage loadIcon(String filename) {
+        try {
+            return ImageIO.read(getClass().getResource(filename));
+        } catch (IOException e) {
+            System.err.println("Unable to load icon: " + filename + "\n" + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -1,26 +1,32 @@
 package png.manager.gui;
 
+import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.color.ColorSpace;
+import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
-import java.awt.image.ColorConvertOp;
 import java.io.File;
 import java.text.DecimalFormat;
 import java.util.HashMap;
 
-import png.manager.decoder.Decoder;
-import png.manager.decoder.DecoderType;
 import png.manager.entity.Chunk;
+import png.manager.exception.ChunkParserException;
 import png.manager.exception.DecodingException;
 import png.manager.exception.PNGStructureException;
+import png.manager.metadata.ChunkDecoders;
+import png.manager.metadata.ChunkInfo;
+import png.manager.metadata.TextualData;
 import png.manager.miscellaneous.PNGConstants;
-import png.manager.miscellaneous.Utility;
 
 /**
  * Fornisce funzionalità necessarie all'interfaccia grafica.
  */
 public class UITools {
 
+    /**
+     * Dimensioni dello schermo sul quale sta venendo visualizzato il programma.
+     */
+    private static final Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
+
     /**
      * Costruttore privato dell'oggetto.
      */
@@ -32,16 +38,26 @@ public class UITools {
      */
     static void buildBlackAndWhiteImage() {
         BufferedImage imageToConvert = UI.currImage;
+        boolean withMeta = UI.enableMetaBox.isSelected();
 
         //Verifica se deve essere convertita l'immagine coi metadati
-        if (UI.enableMetaBox.isSelected()) {
+        if (withMeta) {
             imageToConvert = UI.currImageWithMeta;
         }
 
-        UI.blackAndWhiteImage = Utility.copyImage(imageToConvert);
-        ColorConvertOp op = new ColorConvertOp(ColorSpace.getInstance(ColorSpace.CS_GRAY), null);
-        //Applico il filtro bianco e nero
-        op.filter(UI.blackAndWhiteImage, UI.blackAndWhiteImage);
+        //Riusa l'immagine in bianco e nero già calcolata, se presente
+        CachedImage cached = ImageCache.get(UI.currCacheKey);
+        if (cached != null && cached.getBlackAndWhiteImage(withMeta) != null) {
+            UI.blackAndWhiteImage = cached.getBlackAndWhiteImage(withMeta);
+            return;
+        }
+
+        UI.blackAndWhiteImage = GrayscaleConverter.getGrayscaleImage(imageToConvert);
+
+        if (cached != null) {
+            cached.setBlackAndWhiteImage(withMeta, UI.blackAndWhiteImage);
+            ImageCache.put(UI.currCacheKey, cached);
+        }
     }
 
     /**
@@ -53,7 +69,13 @@ public class UITools {
      * formato
      */
     static void buildImageWhithMeta() throws DecodingException, PNGStructureException {
-        UI.currImageWithMeta = Decoder.getImage(UI.fileChosen, UI.parsedImage, DecoderType.EXTERNAL);
+        UI.currImageWithMeta = ImageDecoder.getImage(UI.parsedImage, ImageDecoder.getExternalDecoder());
+
+        CachedImage cached = ImageCache.get(UI.currCacheKey);
+        if (cached != null) {
+            cached.setImageWithMeta(UI.currImageWithMeta);
+            ImageCache.put(UI.currCacheKey, cached);
+        }
     }
 
     /**
@@ -213,98 +235,52 @@ public class UITools {
      * La descrizione è formattata con codice HTML.
      *
      * @param c chunk da analizzare
-     * @return interpretazione testuale del chunk
+     * @return interpretazione testuale del chunk; vuota se il chunk non è
+     * supportato o non rispetta il formato previsto
      */
     private static String extractInfo(Chunk c) {
+        ChunkInfo info;
+        try {
+            info = ChunkDecoders.decode(c, UI.parsedImage.getColorType());
+        } catch (ChunkParserException e) {
+            System.err.println(e.getMessage());
+            return "";
+        }
+        if (info == null) {
+            return "";
+        }
 
-        //Vedere le specifiche dei chunk per comprendere come vengono interpretati i dati
-        switch (c.getTypeAsString()) {
-            case PNGConstants.GAMMA_CHUNK_NAME:
-                double gama = new Double(Utility.hexStringToInt("" + Utility.bytesToHexString(c.getData()))) / 100000;
-                return "<br><b>[gAMA]:</b> " + gama;
-            case PNGConstants.PHYSICAL_PIXEL_DIMENSION_CHUNK_NAME:
-                int x = Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 4, 0)));
-                int y = Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 4, 4)));
-                int measure = Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 1, 8)));
-                String ret = "<br><b>[pHYs]:</b> X axis: " + x + "; Y axis: " + y;
-                ret += (measure == 0) ? " (pixel size unspecified)" : " m";
-                return ret;
-            case PNGConstants.TRANSPARENCY_CHUNK_NAME:
-                ret = "<br><b>[tRNS]:</b> ";
-                switch (UI.parsedImage.getColorType()) {
-                    case PNGConstants.COLOR_TYPE_GRAYSCALE:
-                        x = Utility.hexStringToInt(Utility.bytesToHexString(c.getData()));
-                        ret += x;
-                        break;
-                    case PNGConstants.COLOR_TYPE_RGB:
-                        int r = Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 2, 0)));
-                        int g = Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 2, 2)));
-                        int b = Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 2, 4)));
-                        ret += "R: " + r + "; G: " + g + " B: " + b;
-                        break;
-                    case PNGConstants.COLOR_TYPE_PALETTE:
-                        ret += c.getData().length + " values found";
-                        break;
-                }
-                return ret;
-            case PNGConstants.BACKGROUND_CHUNK_NAME:
-                ret = "<br><b>[bKGD]:</b> ";
-                switch (UI.parsedImage.getColorType()) {
-                    case PNGConstants.COLOR_TYPE_GRAYSCALE:
-                    case PNGConstants.COLOR_TYPE_GRAYSCALE_ALPHA:
-                        x = Utility.hexStringToInt(Utility.bytesToHexString(c.getData()));
-                        ret += x;
-                        break;
-                    case PNGConstants.COLOR_TYPE_RGB:
-                    case PNGConstants.COLOR_TYPE_RGB_ALPHA:
-                        int r = Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 2, 0)));
-                        int g = Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 2, 2)));
-                        int b = Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 2, 4)));
-                        ret += "R: " + r + "; G: " + g + " B: " + b;
-                        break;
-                    case PNGConstants.COLOR_TYPE_PALETTE:
-                        ret += "Entry #" + Utility.hexStringToInt(Utility.bytesToHexString(c.getData()));
-                        break;
-                }
-                return ret;
-            case PNGConstants.CHROMACITIES_CHUNK_NAME:
-                ret = "<br><b>[cHRM]:</b> ";
-                double wpx = new Double(Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 4, 0)))) / 100000;
-                double wpy = new Double(Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 4, 4)))) / 100000;
-                double rx = new Double(Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 4, 8)))) / 100000;
-                double ry = new Double(Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 4, 12)))) / 100000;
-                double gx = new Double(Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 4, 16)))) / 100000;
-                double gy = new Double(Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 4, 20)))) / 100000;
-                double bx = new Double(Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 4, 24)))) / 100000;
-                double by = new Double(Utility.hexStringToInt(Utility.bytesToHexString(Utility.getBytesFromArray(c.getData(), 4, 28)))) / 100000;
-                ret += "White Point x: " + wpx + "; White Point y: " + wpy
-                        + "<br>&#9;Red x: " + rx + "; Red y: " + ry
-                        + "<br>&#9;Green x: " + gx + "; Green y: " + gy
-                        + "<br>&#9;Blue x: " + bx + "; Blue y: " + by;
-                return ret;
-            case PNGConstants.TEXT_CHUNK_NAME:
-                ret = "<br><b>[tEXt]:</b> " + Utility.hexStringToASCIIString(Utility.bytesToHexString(c.getData()));
-                return ret;
-            case PNGConstants.STANDARD_RGB_COLOR_SPACE_CHUNK_NAME:
-                ret = "<br><b>[sRGB]:</b> ";
-                x = Utility.hexStringToInt(Utility.bytesToHexString(c.getData()));
-                switch (x) {
-                    case 0:
-                        ret += "0 (Perceptual)";
-                        break;
-                    case 1:
-                        ret += "1 (Relative colorimetric)";
-                        break;
-                    case 2:
-                        ret += "2 (Saturation)";
-                        break;
-                    case 3:
-                        ret += "3 (Absolute colorimetric)";
-                        break;
-                }
-                return ret;
-            default:
-                return "";
+        String text = info.toString();
+        if (info instanceof TextualData) {
+            //Il pannello mostra il testo completo, non l'anteprima di toString()
+            TextualData textual = (TextualData) info;
+            try {
+                text = textual.getKeyword() + ": " + textual.getText();
+            } catch (DecodingException e) {
+                System.err.println(e.getMessage());
+            }
         }
+        text = text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+        return "<br><b>[" + info.getType() + "]:</b> " + text.replace("\n", "<br>&#9;");
+    }
+
+    /**
+     * Ritorna la larghezza dello schermo su cui è visualizzata l'interfaccia
+     * grafica.
+     *
+     * @return dimensione in pixel
+     */
+    static int getScreenWidth() {
+        return (int) screenSize.getWidth();
+    }
+
+    /**
+     * Ritorna l'altezza dello schermo su cui è visualizzata l'interfaccia
+     * grafica.
+     *
+     * @return dimensione in pixel
+     */
+    static int getScreenHeight() {
+        return (int) screenSize.getHeight();
     }
 }
@@ -1,8 +0,0 @@
-package png.manager.decoder;
-
-/**
- * Tipi di decoder utilizzati dal programma.
- */
-public enum DecoderType {
-    CUSTOM, EXTERNAL;    
-}